@@ -0,0 +1,102 @@
+package nturbo1.bench;
+
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.RequestBody;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.parser.v1_1.BodyLimits;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.parser.v1_1.IncrementalHttpRequestParser;
+import nturbo1.http.util.ReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding time of a chunked request body by chunk size, in the blocking and in the non-blocking parser. The body is
+ * kept in memory, so the numbers are about the chunk framing and not about the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkedBodyBenchmark
+{
+    private static final int BODY_SIZE = 256 * 1024;
+    private static final BodyLimits IN_MEMORY = new BodyLimits(BODY_SIZE, BODY_SIZE,
+            Path.of(System.getProperty("java.io.tmpdir")));
+
+    @Param({ "64", "1024", "16384" })
+    public int chunkSize;
+
+    private ReadBuffer bodies;
+    private final HttpHeaders headers = new HttpHeaders();
+    private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser(IN_MEMORY);
+    private ByteBuffer request;
+
+    @Setup
+    public void setup()
+    {
+        byte[] body = new byte[BODY_SIZE];
+        new Random(1).nextBytes(body);
+
+        ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+        for (int off = 0; off < body.length; off += chunkSize)
+        {
+            int n = Math.min(chunkSize, body.length - off);
+            chunked.writeBytes((Integer.toHexString(n) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            chunked.write(body, off, n);
+            chunked.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        chunked.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        byte[] chunkedBody = chunked.toByteArray();
+
+        bodies = new ReadBuffer(new LoopingInputStream(chunkedBody));
+        headers.add(GeneralHeader.TRANSFER_ENCODING.getName(), "chunked");
+
+        ByteArrayOutputStream req = new ByteArrayOutputStream();
+        req.writeBytes("POST /upload HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        req.writeBytes(chunkedBody);
+        request = ByteBuffer.wrap(req.toByteArray());
+    }
+
+    @Benchmark
+    public RequestBody readMessageBody()
+            throws IOException, BadHttpRequestHeaderException, HttpMessageParseException,
+            InvalidHttpMessageHeaderException
+    {
+        return HttpMessageParser.readMessageBody(bodies, headers, IN_MEMORY);
+    }
+
+    @Benchmark
+    public HttpRequest incrementalParser()
+            throws IOException, BadHttpRequestHeaderException, HttpMessageParseException,
+            InvalidHttpMessageHeaderException, UnsupportedHttpVersionException
+    {
+        request.clear();
+        return parser.parse(request);
+    }
+}
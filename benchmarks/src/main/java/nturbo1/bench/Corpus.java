@@ -0,0 +1,157 @@
+package nturbo1.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The requests the parser benchmarks run on, read from corpus.jsonl on the classpath.
+ * <p>
+ *     Each line is a JSON object with a "name" and the raw "request", line endings and body included, modelled on
+ *     what browsers, command line tools, API clients and probes actually send. The names are the values of the
+ *     "request" parameter of the benchmarks.
+ * </p>
+ */
+public final class Corpus
+{
+    private static final String RESOURCE = "/corpus.jsonl";
+    private static final Map<String, byte[]> REQUESTS = load();
+
+    private Corpus() {}
+
+    /**
+     * @return the raw bytes of the named request.
+     * @throws IllegalArgumentException if there's no such request in the corpus.
+     */
+    public static byte[] request(String name)
+    {
+        byte[] request = REQUESTS.get(name);
+        if (request == null) { throw new IllegalArgumentException("No request named " + name + " in the corpus."); }
+
+        return request;
+    }
+
+    /**
+     * @return the index of the first byte after the Request-Line.
+     */
+    public static int headersStart(byte[] request)
+    {
+        for (int i = 0; i < request.length; i++)
+        {
+            if (request[i] == '\n') { return i + 1; }
+        }
+
+        throw new IllegalArgumentException("The request has no Request-Line.");
+    }
+
+    private static Map<String, byte[]> load()
+    {
+        Map<String, byte[]> requests = new LinkedHashMap<>();
+        try (InputStream in = Corpus.class.getResourceAsStream(RESOURCE))
+        {
+            if (in == null) { throw new IllegalStateException(RESOURCE + " is not on the classpath."); }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.isBlank()) { continue; }
+
+                Map<String, String> fields = parseObject(line);
+                requests.put(fields.get("name"), fields.get("request").getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return requests;
+    }
+
+    /**
+     * Parses a flat JSON object whose values are all strings, which is all the corpus needs.
+     */
+    static Map<String, String> parseObject(String json)
+    {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = { skipWhitespace(json, 0) };
+        expect(json, pos, '{');
+        while (true)
+        {
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == '}') { return fields; }
+
+            String key = parseString(json, pos);
+            pos[0] = skipWhitespace(json, pos[0]);
+            expect(json, pos, ':');
+            pos[0] = skipWhitespace(json, pos[0]);
+            fields.put(key, parseString(json, pos));
+
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == ',') { pos[0]++; }
+        }
+    }
+
+    private static String parseString(String json, int[] pos)
+    {
+        expect(json, pos, '"');
+        StringBuilder s = new StringBuilder();
+        while (true)
+        {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') { return s.toString(); }
+            if (c != '\\')
+            {
+                s.append(c);
+                continue;
+            }
+
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped)
+            {
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'u':
+                    s.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: // '"', '\\' and '/'
+                    s.append(escaped);
+            }
+        }
+    }
+
+    private static void expect(String json, int[] pos, char c)
+    {
+        if (json.charAt(pos[0]) != c)
+        {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0] + " of: " + json);
+        }
+        pos[0]++;
+    }
+
+    private static int skipWhitespace(String json, int i)
+    {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) { i++; }
+        return i;
+    }
+}
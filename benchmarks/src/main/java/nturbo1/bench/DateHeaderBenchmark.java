@@ -0,0 +1,46 @@
+package nturbo1.bench;
+
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.util.DateHeaderClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the Date header line of a response when it's formatted for every response versus copied from the
+ * {@link DateHeaderClock}. Run with several threads, as the clock is shared by all the connections of a server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class DateHeaderBenchmark
+{
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    @Benchmark
+    public byte[] perResponseFormatting()
+    {
+        return (GeneralHeader.DATE.getName() + ": " + FORMATTER.format(ZonedDateTime.now(ZoneOffset.UTC)) + "\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public byte[] cachedClock() { return DateHeaderClock.system().dateHeaderLine(); }
+}
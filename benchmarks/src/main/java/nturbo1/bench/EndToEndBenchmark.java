@@ -0,0 +1,190 @@
+package nturbo1.bench;
+
+import nturbo1.cmd.Argument;
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
+import nturbo1.server.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Requests per second and response time percentiles of an {@link HttpServer} serving static files over loopback.
+ * <p>
+ *     The server runs in the benchmark JVM on a port picked by the system, with the transport given by the
+ *     "transport" parameter. Every benchmark thread is a client with one persistent connection that sends a GET and
+ *     reads the whole response before it sends the next one. Logging below WARN is turned off so that the console
+ *     isn't what's measured.
+ * </p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark
+{
+    private static final int SMALL_FILE_SIZE = 1024;
+    private static final int LARGE_FILE_SIZE = 64 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class Server
+    {
+        @Param({ "nio", "blocking" })
+        public String transport;
+
+        private Path root;
+        private HttpServer server;
+        private Thread acceptor;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException, InterruptedException
+        {
+            Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+
+            root = Files.createTempDirectory("jwebserver-bench");
+            Random random = new Random(1);
+            Files.write(root.resolve("small.txt"), text(random, SMALL_FILE_SIZE));
+            Files.write(root.resolve("large.txt"), text(random, LARGE_FILE_SIZE));
+
+            server = HttpServer.init(Map.of(Argument.PORT, "0", Argument.TRANSPORT, transport, Argument.ROOT,
+                    root.toString()));
+            if (server == null) { throw new IllegalStateException("The server failed to initialize."); }
+
+            acceptor = new Thread(server::start, "bench-server");
+            acceptor.start();
+            waitUntilAccepting(server.getPort());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException, InterruptedException
+        {
+            server.stop();
+            acceptor.join();
+            try (Stream<Path> paths = Files.walk(root))
+            {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) { Files.delete(path); }
+            }
+        }
+
+        private static void waitUntilAccepting(int port) throws InterruptedException
+        {
+            for (int attempt = 0; attempt < 100; attempt++)
+            {
+                try (Socket ignored = new Socket("localhost", port))
+                {
+                    return;
+                }
+                catch (IOException ex)
+                {
+                    Thread.sleep(50);
+                }
+            }
+
+            throw new IllegalStateException("The server doesn't accept connections on port " + port);
+        }
+
+        private static byte[] text(Random random, int size)
+        {
+            byte[] text = new byte[size];
+            for (int i = 0; i < size; i++) { text[i] = (byte) ('a' + random.nextInt(26)); }
+            return text;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client
+    {
+        @Param({ "small.txt", "large.txt" })
+        public String file;
+
+        private int port;
+        private Socket socket;
+        private OutputStream out;
+        private ReadBuffer in;
+        private byte[] request;
+
+        @Setup(Level.Trial)
+        public void setup(Server server) throws IOException
+        {
+            port = server.server.getPort();
+            // No Accept-Encoding, so that the body is the file and not the cost of compressing it.
+            request = ("GET /" + file + " HTTP/1.1\r\nHost: localhost\r\nUser-Agent: jmh\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            connect();
+        }
+
+        private void connect() throws IOException
+        {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress("localhost", port));
+            out = socket.getOutputStream();
+            in = new ReadBuffer(socket.getInputStream());
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException { socket.close(); }
+
+        /**
+         * Sends the request and reads the response, then opens a new connection if the server closes this one after
+         * its maximum number of requests.
+         *
+         * @return the length of the response body.
+         */
+        long get() throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+        {
+            out.write(request);
+            out.flush();
+
+            String statusLine = new String(Bytes.readLine(in), StandardCharsets.US_ASCII);
+            if (!statusLine.startsWith("HTTP/1.1 200")) { throw new IOException("Unexpected response: " + statusLine); }
+
+            HttpHeaders headers = HttpMessageParser.parseHttpMessageHeaders(in);
+            long length = headers.getContentLength();
+            in.skipNBytes(length);
+            if (headers.containsElement(GeneralHeader.CONNECTION, "close"))
+            {
+                socket.close();
+                connect();
+            }
+
+            return length;
+        }
+    }
+
+    @Benchmark
+    public long get(Client client) throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        return client.get();
+    }
+}
@@ -0,0 +1,92 @@
+package nturbo1.bench;
+
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.parser.v1_1.IncrementalHttpRequestParser;
+import nturbo1.http.util.Bytes;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many bytes of header section are parsed per second, with no IO in the way.
+ * <p>
+ *     "headerLines" is the work done for every header line once it's in memory: the line feed search, the control
+ *     character check, the name check and classification, and the copy into the {@link HttpHeaders} of the request.
+ *     "incrementalParser" is a whole request head pushed through the parser of the non-blocking transport. The
+ *     "bytes" secondary result is the throughput in bytes per second.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderParsingBenchmark
+{
+    private static final byte[] REQUEST_HEAD = ("GET /index.html HTTP/1.1\r\n" +
+            new String(ReadBufferBenchmark.HEADERS, StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+
+    private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    private final ByteBuffer requestHeadBuffer = ByteBuffer.wrap(REQUEST_HEAD);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ParsedBytes
+    {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() { bytes = 0; }
+    }
+
+    @Benchmark
+    public HttpHeaders headerLines(ParsedBytes parsed) throws InvalidHttpMessageHeaderException
+    {
+        byte[] section = ReadBufferBenchmark.HEADERS;
+        HttpHeaders headers = new HttpHeaders();
+        int start = 0;
+        while (true)
+        {
+            int lineFeed = Bytes.indexOfLineFeed(section, start, section.length);
+            int end = lineFeed > start && section[lineFeed - 1] == '\r' ? lineFeed - 1 : lineFeed;
+            if (end == start) { break; }
+
+            Bytes.validateHttpMessageHeaderLine(section, start, end);
+            headers.addLine(section, start, end);
+            start = lineFeed + 1;
+        }
+
+        parsed.bytes += section.length;
+        return headers;
+    }
+
+    @Benchmark
+    public HttpRequest incrementalParser(ParsedBytes parsed)
+            throws IOException, BadHttpRequestHeaderException, HttpMessageParseException,
+            InvalidHttpMessageHeaderException, UnsupportedHttpVersionException
+    {
+        requestHeadBuffer.clear();
+        parsed.bytes += REQUEST_HEAD.length;
+        return parser.parse(requestHeadBuffer);
+    }
+}
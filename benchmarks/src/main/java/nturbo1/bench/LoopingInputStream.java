@@ -0,0 +1,35 @@
+package nturbo1.bench;
+
+import java.io.InputStream;
+
+/**
+ * Serves the same bytes over and over without end, like a persistent connection that keeps sending the same request.
+ * A parser can then be benchmarked one request at a time while it keeps its buffers, the way a connection does.
+ */
+public class LoopingInputStream extends InputStream
+{
+    private final byte[] bytes;
+    private int pos;
+
+    public LoopingInputStream(byte[] bytes) { this.bytes = bytes; }
+
+    @Override
+    public int read()
+    {
+        int b = bytes[pos] & 0xFF;
+        pos = (pos + 1) % bytes.length;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        int n = Math.min(len, bytes.length - pos);
+        System.arraycopy(bytes, pos, b, off, n);
+        pos = (pos + n) % bytes.length;
+        return n;
+    }
+
+    @Override
+    public int available() { return bytes.length - pos; }
+}
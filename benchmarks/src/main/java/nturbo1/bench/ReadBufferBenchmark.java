@@ -0,0 +1,115 @@
+package nturbo1.bench;
+
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.util.ReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header section parse time when the parser reads the stream one byte at a time versus through a {@link ReadBuffer}.
+ * <p>
+ *     The "pipe" source puts a real file descriptor under the stream, so every single byte read is a read(2) call
+ *     like it is on a socket. The "memory" source shows what is left once the IO cost is out of the picture.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBufferBenchmark
+{
+    static final byte[] HEADERS = ("Host: www.example.com\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n" +
+            "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n" +
+            "Accept-Language: en-US,en;q=0.5\r\n" +
+            "Accept-Encoding: gzip, deflate, br, zstd\r\n" +
+            "Referer: https://www.example.com/index.html\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Cookie: session=3f1c9a7e5b2d4c6e8f0a1b2c3d4e5f60; theme=dark\r\n" +
+            "Upgrade-Insecure-Requests: 1\r\n" +
+            "Sec-Fetch-Dest: document\r\n" +
+            "Sec-Fetch-Mode: navigate\r\n" +
+            "Sec-Fetch-Site: same-origin\r\n" +
+            "Priority: u=0, i\r\n" +
+            "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    @Param({ "memory", "pipe" })
+    public String source;
+
+    private Pipe pipe;
+    private InputStream pipeStream;
+    private ReadBuffer pipeReadBuffer;
+    private final ByteBuffer headersBuffer = ByteBuffer.wrap(HEADERS);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        if (source.equals("pipe"))
+        {
+            pipe = Pipe.open();
+            pipeStream = Channels.newInputStream(pipe.source());
+            pipeReadBuffer = new ReadBuffer(pipeStream);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        if (pipe != null)
+        {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Benchmark
+    public HttpHeaders perByteRead() throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        return HttpMessageParser.parseHttpMessageHeaders(nextRawStream());
+    }
+
+    @Benchmark
+    public HttpHeaders readBuffer() throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        InputStream raw = nextRawStream();
+        return HttpMessageParser.parseHttpMessageHeaders(raw == pipeStream ? pipeReadBuffer : new ReadBuffer(raw));
+    }
+
+    private InputStream nextRawStream() throws IOException
+    {
+        if (pipe == null) { return new ByteArrayInputStream(HEADERS); }
+
+        headersBuffer.clear();
+        while (headersBuffer.hasRemaining())
+        {
+            pipe.sink().write(headersBuffer);
+        }
+
+        return pipeStream;
+    }
+}
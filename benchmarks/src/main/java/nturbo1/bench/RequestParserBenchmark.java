@@ -0,0 +1,133 @@
+package nturbo1.bench;
+
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.RequestBody;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.parser.v1_1.BodyLimits;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.parser.v1_1.HttpRequestParser;
+import nturbo1.http.parser.v1_1.IncrementalHttpRequestParser;
+import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of the requests of the {@link Corpus}, one request per operation.
+ * <p>
+ *     The blocking parsers read from a {@link ReadBuffer} over a stream that repeats the request, so the buffer is
+ *     kept from one request to the next as it is on a persistent connection. "parseHttpRequest" is the whole request
+ *     the blocking transport reads, body included, "incrementalParser" the same for the non-blocking transport.
+ *     "parseHttpMessageHeaders" and "readLine" are the header section alone, parsed and merely split into lines.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParserBenchmark
+{
+    @Param({ "browser-navigation", "conditional-asset", "curl", "range-resume", "api-json-post", "chunked-upload",
+            "health-check" })
+    public String request;
+
+    private ReadBuffer requests;
+    private ReadBuffer headerSections;
+    private ReadBuffer heads;
+    private int headLines;
+    private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    private ByteBuffer requestBuffer;
+
+    @Setup
+    public void setup()
+    {
+        byte[] bytes = Corpus.request(request);
+        int headersStart = Corpus.headersStart(bytes);
+        int headEnd = headEnd(bytes);
+
+        requests = new ReadBuffer(new LoopingInputStream(bytes));
+        headerSections = new ReadBuffer(new LoopingInputStream(Arrays.copyOfRange(bytes, headersStart, headEnd)));
+        heads = new ReadBuffer(new LoopingInputStream(Arrays.copyOf(bytes, headEnd)));
+        for (int i = 0; i < headEnd; i++)
+        {
+            if (bytes[i] == '\n') { headLines++; }
+        }
+        requestBuffer = ByteBuffer.wrap(bytes);
+    }
+
+    @Benchmark
+    public HttpRequest parseHttpRequest()
+            throws IOException, BadHttpRequestHeaderException, HttpMessageParseException,
+            InvalidHttpMessageHeaderException, UnsupportedHttpVersionException
+    {
+        HttpRequest req = HttpRequestParser.parseHttpRequest(requests, BodyLimits.DEFAULT);
+        close(req.getRequestBody());
+        return req;
+    }
+
+    @Benchmark
+    public HttpRequest incrementalParser()
+            throws IOException, BadHttpRequestHeaderException, HttpMessageParseException,
+            InvalidHttpMessageHeaderException, UnsupportedHttpVersionException
+    {
+        requestBuffer.clear();
+        HttpRequest req = parser.parse(requestBuffer);
+        close(req.getRequestBody());
+        return req;
+    }
+
+    @Benchmark
+    public HttpHeaders parseHttpMessageHeaders()
+            throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        return HttpMessageParser.parseHttpMessageHeaders(headerSections);
+    }
+
+    @Benchmark
+    public void readLine(Blackhole bh) throws IOException, HttpMessageParseException
+    {
+        for (int i = 0; i < headLines; i++) { bh.consume(Bytes.readLine(heads)); }
+    }
+
+    /**
+     * @return the index after the empty line that ends the header section.
+     */
+    private static int headEnd(byte[] request)
+    {
+        for (int i = 3; i < request.length; i++)
+        {
+            if (request[i - 3] == '\r' && request[i - 2] == '\n' && request[i - 1] == '\r' && request[i] == '\n')
+            {
+                return i + 1;
+            }
+        }
+
+        throw new IllegalArgumentException("The request has no empty line after its header section.");
+    }
+
+    private static void close(RequestBody body) throws IOException
+    {
+        if (body != null) { body.close(); }
+    }
+}
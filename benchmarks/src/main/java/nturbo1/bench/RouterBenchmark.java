@@ -0,0 +1,102 @@
+package nturbo1.bench;
+
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.server.HttpHandler;
+import nturbo1.server.router.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route lookups in a table of 1000 routes: 100 resources, each with a static collection, an item, nested
+ * collections, a sub-resource with two parameters and a static route deeper down. The requests' paths are decoded
+ * in the setup, so only the lookup and the dispatch are measured. Run with -prof gc to check that the lookups don't
+ * allocate; only the routes with parameters allocate their PathParameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark
+{
+    static final int RESOURCES = 100;
+
+    private static final HttpResponse OK = new HttpResponse(HttpStatus.OK);
+
+    private Router router;
+    private HttpRequest staticHit;
+    private HttpRequest deepStaticHit;
+    private HttpRequest paramHit;
+    private HttpRequest twoParamHit;
+    private HttpRequest miss;
+    private HttpRequest wrongMethod;
+
+    @Setup
+    public void setUp()
+    {
+        HttpHandler handler = req -> OK;
+        HttpHandler fallback = req -> OK;
+        Router.Builder builder = Router.builder();
+        for (int i = 0; i < RESOURCES; i++)
+        {
+            String resource = "/api/v1/resource" + i;
+            builder.get(resource, handler)
+                    .post(resource, handler)
+                    .get(resource + "/{id}", handler)
+                    .put(resource + "/{id}", handler)
+                    .delete(resource + "/{id}", handler)
+                    .get(resource + "/{id}/children", handler)
+                    .post(resource + "/{id}/children", handler)
+                    .get(resource + "/{id}/children/{child}", handler)
+                    .get(resource + "/search/recent", handler)
+                    .get("/static/section" + i + "/*", handler);
+        }
+        router = builder.build(fallback);
+
+        staticHit = request(HttpMethod.GET, "/api/v1/resource57");
+        deepStaticHit = request(HttpMethod.GET, "/api/v1/resource57/search/recent");
+        paramHit = request(HttpMethod.GET, "/api/v1/resource57/12345");
+        twoParamHit = request(HttpMethod.GET, "/api/v1/resource57/12345/children/678");
+        miss = request(HttpMethod.GET, "/api/v1/resource57/12345/unknown");
+        wrongMethod = request(HttpMethod.DELETE, "/api/v1/resource57/search/recent");
+    }
+
+    private static HttpRequest request(HttpMethod method, String uri)
+    {
+        HttpRequest req = new HttpRequest(method, null, null, uri);
+        req.getTarget().getPath(); // decoded once and kept, as a request's path is after its first use
+        return req;
+    }
+
+    @Benchmark
+    public HttpResponse staticRoute() { return router.handle(staticHit); }
+
+    @Benchmark
+    public HttpResponse deepStaticRoute() { return router.handle(deepStaticHit); }
+
+    @Benchmark
+    public HttpResponse paramRoute() { return router.handle(paramHit); }
+
+    @Benchmark
+    public HttpResponse twoParamRoute() { return router.handle(twoParamHit); }
+
+    @Benchmark
+    public HttpResponse noRoute() { return router.handle(miss); }
+
+    @Benchmark
+    public HttpResponse methodNotAllowed() { return router.handle(wrongMethod); }
+}
@@ -0,0 +1,84 @@
+package nturbo1.http;
+
+import java.util.List;
+
+/**
+ * The content-codings a response body can be compressed with, in the order the server prefers them.
+ *
+ * content-coding = "gzip" | "deflate" | ...
+ */
+public enum ContentCoding
+{
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String name;
+
+    ContentCoding(String name) { this.name = name; }
+
+    public String getName() { return this.name; }
+
+    /**
+     * Picks the coding to compress a response with from the Accept-Encoding header of the request.
+     * <p>
+     *     Accept-Encoding = #( codings [ ";" "q=" qvalue ] ). The coding with the highest qvalue wins, ties go to the
+     *     one the server prefers. A "*" stands for the codings that aren't listed, and a qvalue of 0 rules a coding out.
+     * </p>
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header, may be null.
+     * @return the coding to use, or null if the response is to be sent as it is.
+     */
+    public static ContentCoding negotiate(String acceptEncoding)
+    {
+        return acceptEncoding == null ? null : negotiate(QualityValue.parseList(acceptEncoding));
+    }
+
+    /**
+     * @param acceptEncoding the parsed Accept-Encoding header, empty if the request doesn't have one.
+     * @return the coding to use, or null if the response is to be sent as it is.
+     */
+    public static ContentCoding negotiate(List<QualityValue> acceptEncoding)
+    {
+        if (acceptEncoding.isEmpty()) { return null; }
+
+        ContentCoding[] codings = values();
+        float[] qvalues = new float[codings.length];
+        boolean[] listed = new boolean[codings.length];
+        float wildcard = -1;
+
+        for (QualityValue element : acceptEncoding)
+        {
+            String name = element.value();
+            float qvalue = element.quality();
+
+            if (name.equals("*"))
+            {
+                wildcard = qvalue;
+                continue;
+            }
+            if (name.equalsIgnoreCase("x-gzip")) { name = GZIP.name; }
+            for (int i = 0; i < codings.length; i++)
+            {
+                if (codings[i].name.equalsIgnoreCase(name))
+                {
+                    qvalues[i] = qvalue;
+                    listed[i] = true;
+                }
+            }
+        }
+
+        ContentCoding best = null;
+        float bestQvalue = 0;
+        for (int i = 0; i < codings.length; i++)
+        {
+            float qvalue = listed[i] ? qvalues[i] : wildcard;
+            if (qvalue > bestQvalue)
+            {
+                best = codings[i];
+                bestQvalue = qvalue;
+            }
+        }
+
+        return best;
+    }
+}
@@ -1,5 +1,7 @@
 package nturbo1.http;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Includes HTTP 1.1 general headers.
  *
@@ -26,8 +28,18 @@ public enum GeneralHeader
     WARNING("Warning");
 
     private final String name;
+    private final byte[] nameBytes;
 
-    GeneralHeader(String name) { this.name = name; }
+    GeneralHeader(String name)
+    {
+        this.name = name;
+        this.nameBytes = (name + ": ").getBytes(StandardCharsets.US_ASCII);
+    }
 
     public String getName() { return this.name; }
+
+    /**
+     * @return the header name followed by ": " as US-ASCII bytes, shared by all callers so must not be modified.
+     */
+    public byte[] getNameBytes() { return this.nameBytes; }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package nturbo1.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Small integer ids for the header names of {@link GeneralHeader}, {@link HttpRequestHeader} and
+ * {@link HttpEntityHeader}, so that the headers of a request are told apart by comparing ints instead of strings.
+ * <p>
+ *     A name received on the wire is looked up straight from its bytes, ignoring case, with a perfect hash: the
+ *     multiplier that spreads the known names over the table is searched for once, so that no two of them share a
+ *     slot. A lookup is then one hash of the name, one table read and one comparison. Names the server doesn't know
+ *     get {@link #UNKNOWN}.
+ * </p>
+ */
+public final class HeaderNames
+{
+    public static final int UNKNOWN = -1;
+
+    private static final int REQUEST_OFFSET = GeneralHeader.values().length;
+    private static final int ENTITY_OFFSET = REQUEST_OFFSET + HttpRequestHeader.values().length;
+    public static final int COUNT = ENTITY_OFFSET + HttpEntityHeader.values().length;
+
+    private static final String[] NAMES = new String[COUNT];
+    private static final byte[][] LOWER_CASE_NAMES = new byte[COUNT][];
+    private static final boolean[] SINGLE_VALUED = new boolean[COUNT]; // neither repeated nor split on commas
+
+    private static final int TABLE_BITS = 8;
+    private static final int[] TABLE = new int[1 << TABLE_BITS]; // ids by slot, UNKNOWN for an empty slot
+    private static final int MULTIPLIER;
+    private static final int MAX_ATTEMPTS = 1 << 20;
+
+    static
+    {
+        if (COUNT > Long.SIZE) { throw new IllegalStateException("HttpHeaders keeps the known names in a long."); }
+
+        for (GeneralHeader header : GeneralHeader.values()) { register(id(header), header.getName()); }
+        for (HttpRequestHeader header : HttpRequestHeader.values()) { register(id(header), header.getName()); }
+        for (HttpEntityHeader header : HttpEntityHeader.values()) { register(id(header), header.getName()); }
+        MULTIPLIER = findMultiplier();
+
+        // The values of these headers may contain commas, e.g. dates, or only make sense once.
+        for (GeneralHeader header : new GeneralHeader[] { GeneralHeader.DATE, GeneralHeader.TRANSFER_ENCODING })
+        {
+            SINGLE_VALUED[id(header)] = true;
+        }
+        for (HttpEntityHeader header : new HttpEntityHeader[] {
+                HttpEntityHeader.CONTENT_LENGTH, HttpEntityHeader.CONTENT_TYPE, HttpEntityHeader.EXPIRES })
+        {
+            SINGLE_VALUED[id(header)] = true;
+        }
+        for (HttpRequestHeader header : new HttpRequestHeader[] {
+                HttpRequestHeader.HOST, HttpRequestHeader.USER_AGENT, HttpRequestHeader.FROM,
+                HttpRequestHeader.AUTHORIZATION, HttpRequestHeader.REFERER, HttpRequestHeader.IF_MATCH,
+                HttpRequestHeader.IF_NONE_MATCH, HttpRequestHeader.IF_MODIFIED_SINCE,
+                HttpRequestHeader.IF_UNMODIFIED_SINCE, HttpRequestHeader.IF_RANGE })
+        {
+            SINGLE_VALUED[id(header)] = true;
+        }
+    }
+
+    private HeaderNames() {}
+
+    public static int id(GeneralHeader header) { return header.ordinal(); }
+    public static int id(HttpRequestHeader header) { return REQUEST_OFFSET + header.ordinal(); }
+    public static int id(HttpEntityHeader header) { return ENTITY_OFFSET + header.ordinal(); }
+
+    /**
+     * @param bytes the bytes holding a header name, made of token characters.
+     * @param from the index of the first byte of the name.
+     * @param to the index after the last byte of the name.
+     * @return the id of the name in any case, or {@link #UNKNOWN}.
+     */
+    public static int idOf(byte[] bytes, int from, int to)
+    {
+        int hash = 0;
+        for (int i = from; i < to; i++) { hash = hash(hash, bytes[i]); }
+
+        return idOf(hash, bytes, from, to);
+    }
+
+    /**
+     * Looks up a name whose hash was worked out along the way, e.g. while its bytes were being validated.
+     *
+     * @param hash the name folded with {@link #hash(int, int)}, starting from 0.
+     */
+    static int idOf(int hash, byte[] bytes, int from, int to)
+    {
+        int id = TABLE[slot(hash, MULTIPLIER)];
+        return id != UNKNOWN && equalsIgnoreCase(LOWER_CASE_NAMES[id], bytes, from, to) ? id : UNKNOWN;
+    }
+
+    /**
+     * @return the id of the name in any case, or {@link #UNKNOWN}.
+     */
+    public static int idOf(String name)
+    {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) { hash = hash(hash, name.charAt(i)); }
+
+        int id = TABLE[slot(hash, MULTIPLIER)];
+        return id != UNKNOWN && NAMES[id].equalsIgnoreCase(name) ? id : UNKNOWN;
+    }
+
+    /**
+     * @return the name as the enums spell it.
+     */
+    public static String nameOf(int id) { return NAMES[id]; }
+
+    /**
+     * A header whose value is a comma separated list may be repeated, its lines then make up one list. Unknown
+     * headers are taken to be lists.
+     *
+     * @return false for the headers that must appear once and whose value is never split on commas.
+     */
+    public static boolean isCommaSeparatedList(int id) { return id == UNKNOWN || !SINGLE_VALUED[id]; }
+
+    /**
+     * Folds the next character of a name into its hash. Setting the 0x20 bit lower-cases the letters, and only maps
+     * "^" and "_" onto other characters among the token characters, which the comparison after the lookup sorts out.
+     */
+    static int hash(int hash, int c) { return 31 * hash + (c | 0x20); }
+
+    private static int slot(int hash, int multiplier) { return (hash * multiplier) >>> (Integer.SIZE - TABLE_BITS); }
+
+    private static void register(int id, String name)
+    {
+        NAMES[id] = name;
+        LOWER_CASE_NAMES[id] = name.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Tries odd multipliers, starting from the golden ratio one, until every known name gets a slot of its own, and
+     * fills the table with it.
+     */
+    private static int findMultiplier()
+    {
+        int[] hashes = new int[COUNT];
+        for (int id = 0; id < COUNT; id++)
+        {
+            for (byte b : LOWER_CASE_NAMES[id]) { hashes[id] = hash(hashes[id], b); }
+        }
+
+        for (int attempt = 0, multiplier = 0x9E3779B9; attempt < MAX_ATTEMPTS; attempt++, multiplier += 2)
+        {
+            Arrays.fill(TABLE, UNKNOWN);
+            boolean perfect = true;
+            for (int id = 0; id < COUNT && perfect; id++)
+            {
+                int slot = slot(hashes[id], multiplier);
+                perfect = TABLE[slot] == UNKNOWN;
+                TABLE[slot] = id;
+            }
+
+            if (perfect) { return multiplier; }
+        }
+
+        throw new IllegalStateException("No perfect hash for the known header names, the table is too small.");
+    }
+
+    /**
+     * The known names are made of letters, digits and "-", so for token characters setting the 0x20 bit is enough
+     * to compare them ignoring case.
+     */
+    private static boolean equalsIgnoreCase(byte[] lowerCase, byte[] bytes, int from, int to)
+    {
+        if (to - from != lowerCase.length) { return false; }
+        for (int i = 0; i < lowerCase.length; i++)
+        {
+            if ((bytes[from + i] | 0x20) != lowerCase[i]) { return false; }
+        }
+
+        return true;
+    }
+}
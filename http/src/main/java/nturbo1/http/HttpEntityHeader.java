@@ -1,5 +1,7 @@
 package nturbo1.http;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * entity-header  = Allow
  *                | Content-Encoding
@@ -29,8 +31,18 @@ public enum HttpEntityHeader
     LAST_MODIFIED("Last-Modified");
 
     private final String name;
+    private final byte[] nameBytes;
 
-    HttpEntityHeader(String name) { this.name = name; }
+    HttpEntityHeader(String name)
+    {
+        this.name = name;
+        this.nameBytes = (name + ": ").getBytes(StandardCharsets.US_ASCII);
+    }
 
     public String getName() { return this.name; }
+
+    /**
+     * @return the header name followed by ": " as US-ASCII bytes, shared by all callers so must not be modified.
+     */
+    public byte[] getNameBytes() { return this.nameBytes; }
 }
\ No newline at end of file
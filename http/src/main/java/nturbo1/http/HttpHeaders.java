@@ -0,0 +1,490 @@
+package nturbo1.http;
+
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.util.Bytes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The header fields of a request, kept the way they arrived.
+ * <p>
+ *     Every header line is copied once into a byte array owned by the request, the read buffers of the transports
+ *     being reused for the next request. A field is then nothing but the offsets of its name and value in that array
+ *     and the id of its name from {@link HeaderNames}, five ints in a shared int array. No string is made while a
+ *     request is parsed; a value is decoded, and a list value split on commas, only when it's asked for.
+ * </p>
+ * <p>
+ *     What is worked out for a known header, its joined value and typed views such as {@link #getContentLength()} or
+ *     {@link #getQualityValues(HttpRequestHeader)}, is kept until the headers change, so a value asked for by several
+ *     handlers is parsed once per request.
+ * </p>
+ * <p>
+ *     Header names are matched ignoring case. The known headers are found by their id, other names by comparing
+ *     bytes.
+ * </p>
+ */
+public class HttpHeaders
+{
+    private static final int NAME_START = 0;
+    private static final int NAME_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int NAME_ID = 4;
+    private static final int FIELD_INTS = 5;
+    private static final String ABSENT = new String(); // told apart by identity from an empty value
+    private static final long NO_CONTENT_LENGTH = -1;
+
+
+    private byte[] bytes;
+    private int length;
+    private int[] fields;
+    private int size;
+    private long knownNames; // a bit for each id of HeaderNames that has a field
+    private String[] values; // the joined values by name id, created on first use
+    private Object[] views; // the typed views by name id, created on first use
+
+    public HttpHeaders() { this(1024, 16); }
+
+    /**
+     * @param byteCapacity the number of header line bytes to make room for up front.
+     * @param fieldCapacity the number of fields to make room for up front.
+     */
+    public HttpHeaders(int byteCapacity, int fieldCapacity)
+    {
+        this.bytes = new byte[byteCapacity];
+        this.fields = new int[fieldCapacity * FIELD_INTS];
+    }
+
+    /**
+     * Parses a received header line and adds its field.
+     * <p>
+     *     message-header = field-name ":" [ field-value ]. Whitespace around the value and between the name and the
+     *     colon is dropped, whitespace before the name isn't allowed.
+     * </p>
+     *
+     * @param line the bytes holding the line, already checked for control characters.
+     * @param from the index of the first byte of the line.
+     * @param to the index after the last byte of the line, excluding the line ending.
+     * @throws InvalidHttpMessageHeaderException if the line isn't a header field, or repeats a header that may appear
+     * only once.
+     */
+    public void addLine(byte[] line, int from, int to) throws InvalidHttpMessageHeaderException
+    {
+        // The name is checked and hashed for its id in one pass.
+        int nameEnd = from;
+        int hash = 0;
+        while (nameEnd < to && Bytes.isTokenChar(line[nameEnd]))
+        {
+            hash = HeaderNames.hash(hash, line[nameEnd]);
+            nameEnd++;
+        }
+
+        int colon = nameEnd;
+        while (colon < to && isWhitespace(line[colon])) { colon++; }
+        if (colon == to)
+        {
+            throw new InvalidHttpMessageHeaderException("Invalid HTTP Message Header format: " +
+                    new String(line, from, to - from, StandardCharsets.ISO_8859_1));
+        }
+        if (nameEnd == from && isWhitespace(line[from]))
+        {
+            throw new InvalidHttpMessageHeaderException("Whitespace before header field name");
+        }
+        if (nameEnd == from || line[colon] != ':')
+        {
+            throw new InvalidHttpMessageHeaderException("Invalid HTTP message header name.");
+        }
+
+        int valueStart = colon + 1;
+        int valueEnd = to;
+        while (valueStart < valueEnd && isWhitespace(line[valueStart])) { valueStart++; }
+        while (valueEnd > valueStart && isWhitespace(line[valueEnd - 1])) { valueEnd--; }
+
+        int id = HeaderNames.idOf(hash, line, from, nameEnd);
+        if (!HeaderNames.isCommaSeparatedList(id) && indexOf(id) != -1)
+        {
+            throw new InvalidHttpMessageHeaderException("More than one instances of " + HeaderNames.nameOf(id) +
+                    " header was encountered in the http message headers");
+        }
+
+        int start = append(line, from, valueEnd);
+        addField(start, start + (nameEnd - from), start + (valueStart - from), start + (valueEnd - from), id);
+    }
+
+    /**
+     * Adds a field as it's given, without any checks.
+     */
+    public void add(String name, String value)
+    {
+        byte[] nameBytes = name.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] valueBytes = value.getBytes(StandardCharsets.ISO_8859_1);
+
+        int nameStart = append(nameBytes, 0, nameBytes.length);
+        int valueStart = append(valueBytes, 0, valueBytes.length);
+        addField(nameStart, nameStart + nameBytes.length, valueStart, valueStart + valueBytes.length,
+                HeaderNames.idOf(nameBytes, 0, nameBytes.length));
+    }
+
+    /**
+     * Replaces all the fields of a header with one holding the given value.
+     */
+    public void set(String name, String value)
+    {
+        remove(name);
+        add(name, value);
+    }
+
+    /**
+     * Removes all the fields of a header.
+     */
+    public void remove(String name)
+    {
+        int kept = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (matches(i, name)) { continue; }
+
+            System.arraycopy(fields, i * FIELD_INTS, fields, kept * FIELD_INTS, FIELD_INTS);
+            kept++;
+        }
+        size = kept;
+        knownNames = 0;
+        for (int i = 0; i < size; i++) { know(fields[i * FIELD_INTS + NAME_ID]); }
+        forget();
+    }
+
+    /**
+     * @return the number of header fields, a repeated header counts once per line.
+     */
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @return the name of the field at the index, spelled as it was received.
+     */
+    public String getName(int index)
+    {
+        int field = index * FIELD_INTS;
+        return decode(fields[field + NAME_START], fields[field + NAME_END]);
+    }
+
+    /**
+     * @return the value of the field at the index, without the surrounding whitespace.
+     */
+    public String getValue(int index)
+    {
+        int field = index * FIELD_INTS;
+        return decode(fields[field + VALUE_START], fields[field + VALUE_END]);
+    }
+
+    public boolean contains(String name) { return indexOf(name) != -1; }
+
+    public boolean contains(GeneralHeader header) { return indexOf(HeaderNames.id(header)) != -1; }
+    public boolean contains(HttpRequestHeader header) { return indexOf(HeaderNames.id(header)) != -1; }
+    public boolean contains(HttpEntityHeader header) { return indexOf(HeaderNames.id(header)) != -1; }
+
+    /**
+     * @param name the header name, in any case.
+     * @return the values of the header joined with ", ", or null if there's no such header.
+     */
+    public String get(String name)
+    {
+        int id = HeaderNames.idOf(name);
+        if (id != HeaderNames.UNKNOWN) { return get(id); }
+
+        String value = null;
+        for (int i = 0; i < size; i++)
+        {
+            if (fields[i * FIELD_INTS + NAME_ID] == HeaderNames.UNKNOWN && matches(i, name))
+            {
+                value = value == null ? getValue(i) : value + ", " + getValue(i);
+            }
+        }
+
+        return value;
+    }
+
+    public String get(GeneralHeader header) { return get(HeaderNames.id(header)); }
+    public String get(HttpRequestHeader header) { return get(HeaderNames.id(header)); }
+    public String get(HttpEntityHeader header) { return get(HeaderNames.id(header)); }
+
+    /**
+     * Content-Length = 1*DIGIT
+     *
+     * @return the value of the Content-Length header, or -1 if there's no such header.
+     * @throws HttpMessageParseException if the value isn't a number that fits in a long.
+     */
+    public long getContentLength() throws HttpMessageParseException
+    {
+        int id = HeaderNames.id(HttpEntityHeader.CONTENT_LENGTH);
+        if (views != null && views[id] instanceof Long contentLength) { return contentLength; }
+
+        int index = indexOf(id);
+        long contentLength = index == -1 ? NO_CONTENT_LENGTH : parseContentLength(index);
+        view(id, contentLength);
+
+        return contentLength;
+    }
+
+    /**
+     * @param header a header that weighs its elements with qvalues, e.g. Accept or Accept-Encoding.
+     * @return the elements of the header from the most to the least preferred, an empty list if there's no such
+     * header.
+     * @see QualityValue#parseList(String)
+     */
+    @SuppressWarnings("unchecked")
+    public List<QualityValue> getQualityValues(HttpRequestHeader header)
+    {
+        int id = HeaderNames.id(header);
+        if (views != null && views[id] instanceof List<?> qualityValues) { return (List<QualityValue>) qualityValues; }
+
+        String value = get(id);
+        List<QualityValue> qualityValues = value == null ? Collections.emptyList() : QualityValue.parseList(value);
+        view(id, qualityValues);
+
+        return qualityValues;
+    }
+
+    /**
+     * Splits the values of a comma separated list header into its elements, dropping the empty ones. The value of any
+     * other header is taken as a whole.
+     *
+     * @param name the header name, in any case.
+     * @return the elements of all the fields of the header, an empty list if there's no such header.
+     */
+    public List<String> getAll(String name)
+    {
+        List<String> elements = new ArrayList<>(2);
+        boolean list = HeaderNames.isCommaSeparatedList(HeaderNames.idOf(name));
+        for (int i = 0; i < size; i++)
+        {
+            if (!matches(i, name)) { continue; }
+
+            int field = i * FIELD_INTS;
+            if (!list)
+            {
+                elements.add(getValue(i));
+                continue;
+            }
+
+            int start = fields[field + VALUE_START];
+            int end = fields[field + VALUE_END];
+            while (start < end)
+            {
+                int comma = start;
+                while (comma < end && bytes[comma] != ',') { comma++; }
+
+                int elementStart = start;
+                int elementEnd = comma;
+                while (elementStart < elementEnd && isWhitespace(bytes[elementStart])) { elementStart++; }
+                while (elementEnd > elementStart && isWhitespace(bytes[elementEnd - 1])) { elementEnd--; }
+                if (elementStart < elementEnd) { elements.add(decode(elementStart, elementEnd)); }
+
+                start = comma + 1;
+            }
+        }
+
+        return elements;
+    }
+
+    /**
+     * Looks for an element of a comma separated list header, e.g. the "close" option of Connection, right in the
+     * received bytes.
+     *
+     * @return true if one of the elements of the header equals the given one, ignoring case.
+     */
+    public boolean containsElement(GeneralHeader header, String element)
+    {
+        int id = HeaderNames.id(header);
+        for (int i = 0; i < size; i++)
+        {
+            int field = i * FIELD_INTS;
+            if (fields[field + NAME_ID] != id) { continue; }
+
+            int start = fields[field + VALUE_START];
+            int end = fields[field + VALUE_END];
+            while (start < end)
+            {
+                int comma = start;
+                while (comma < end && bytes[comma] != ',') { comma++; }
+
+                int elementStart = start;
+                int elementEnd = comma;
+                while (elementStart < elementEnd && isWhitespace(bytes[elementStart])) { elementStart++; }
+                while (elementEnd > elementStart && isWhitespace(bytes[elementEnd - 1])) { elementEnd--; }
+                if (regionMatches(elementStart, elementEnd, element)) { return true; }
+
+                start = comma + 1;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder("{");
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0) { s.append(", "); }
+            s.append(getName(i)).append(": ").append(getValue(i));
+        }
+
+        return s.append('}').toString();
+    }
+
+    /**
+     * @return the values of the header with the given id joined with ", ", or null if there's no such header.
+     */
+    private String get(int id)
+    {
+        if (values != null && values[id] != null) { return values[id] == ABSENT ? null : values[id]; }
+
+        int index = indexOf(id);
+        String value = index == -1 ? null : getValue(index);
+        for (int i = index + 1; index != -1 && i < size; i++)
+        {
+            if (fields[i * FIELD_INTS + NAME_ID] == id) { value = value + ", " + getValue(i); }
+        }
+
+        if (values == null) { values = new String[HeaderNames.COUNT]; }
+        values[id] = value == null ? ABSENT : value;
+
+        return value;
+    }
+
+    private int indexOf(int id)
+    {
+        if (id == HeaderNames.UNKNOWN || (knownNames & (1L << id)) == 0) { return -1; }
+
+        for (int i = 0; i < size; i++)
+        {
+            if (fields[i * FIELD_INTS + NAME_ID] == id) { return i; }
+        }
+
+        return -1;
+    }
+
+    private int indexOf(String name)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (matches(i, name)) { return i; }
+        }
+
+        return -1;
+    }
+
+    private boolean matches(int index, String name)
+    {
+        int field = index * FIELD_INTS;
+        return regionMatches(fields[field + NAME_START], fields[field + NAME_END], name);
+    }
+
+    /**
+     * @return true if the bytes in the range spell the given string, ignoring case.
+     */
+    private boolean regionMatches(int start, int end, String s)
+    {
+        if (end - start != s.length()) { return false; }
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = (char) (bytes[start + i] & 0xFF);
+            char expected = s.charAt(i);
+            if (c != expected && Character.toLowerCase(c) != Character.toLowerCase(expected)) { return false; }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the offset of the appended bytes.
+     */
+    private int append(byte[] src, int from, int to)
+    {
+        int n = to - from;
+        if (length + n > bytes.length) { bytes = Arrays.copyOf(bytes, Math.max(length + n, bytes.length * 2)); }
+
+        System.arraycopy(src, from, bytes, length, n);
+        int start = length;
+        length += n;
+
+        return start;
+    }
+
+    private void addField(int nameStart, int nameEnd, int valueStart, int valueEnd, int id)
+    {
+        int field = size * FIELD_INTS;
+        if (field + FIELD_INTS > fields.length)
+        {
+            fields = Arrays.copyOf(fields, Math.max(FIELD_INTS, fields.length * 2));
+        }
+
+        fields[field + NAME_START] = nameStart;
+        fields[field + NAME_END] = nameEnd;
+        fields[field + VALUE_START] = valueStart;
+        fields[field + VALUE_END] = valueEnd;
+        fields[field + NAME_ID] = id;
+        size++;
+        know(id);
+        forget();
+    }
+
+    private void know(int id)
+    {
+        if (id != HeaderNames.UNKNOWN) { knownNames |= 1L << id; }
+    }
+
+    private void view(int id, Object view)
+    {
+        if (views == null) { views = new Object[HeaderNames.COUNT]; }
+        views[id] = view;
+    }
+
+    /**
+     * Drops what was worked out from the fields once they change.
+     */
+    private void forget()
+    {
+        values = null;
+        views = null;
+    }
+
+    private long parseContentLength(int index) throws HttpMessageParseException
+    {
+        int field = index * FIELD_INTS;
+        int start = fields[field + VALUE_START];
+        int end = fields[field + VALUE_END];
+        if (start == end) { throw invalidContentLength(index); }
+
+        long contentLength = 0;
+        for (int i = start; i < end; i++)
+        {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || contentLength > (Long.MAX_VALUE - digit) / 10)
+            {
+                throw invalidContentLength(index);
+            }
+            contentLength = contentLength * 10 + digit;
+        }
+
+        return contentLength;
+    }
+
+    private HttpMessageParseException invalidContentLength(int index)
+    {
+        return new HttpMessageParseException("Failed to convert '" + HttpEntityHeader.CONTENT_LENGTH.getName() +
+                "' header value '" + getValue(index) + "' into a number.");
+    }
+
+    private String decode(int start, int end) { return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1); }
+
+    private static boolean isWhitespace(byte b) { return b == ' ' || b == '\t'; }
+}
@@ -1,10 +1,8 @@
 package nturbo1.http;
 
-import java.util.List;
-import java.util.Map;
-
 /**
- * Represents a generic HTTP message.
+ * Represents a generic HTTP message. The headers are kept by the subclasses, a request as it was received in an
+ * {@link HttpHeaders} and a response as the handler sets them.
  *
  * generic-message = start-line
  *                   *(message-header CRLF)
@@ -16,25 +14,21 @@ import java.util.Map;
 public abstract class HttpMessage
 {
     private HttpMethod method;
-    private Map<String, List<String>> headers;
     private Object body;
 
     public HttpMessage() {}
 
-    public HttpMessage(HttpMethod method, Map<String, List<String>> headers, Object body)
+    public HttpMessage(HttpMethod method, Object body)
     {
         this.method = method;
-        this.headers = headers;
         this.body = body;
     }
 
     // GETTERS
     public HttpMethod getMethod() { return this.method; }
-    public Map<String, List<String>> getHeaders() { return this.headers; }
     public Object getBody() { return this.body; }
 
     // SETTERS
     public void setMethod(HttpMethod method) { this.method = method; }
-    public void setHeaders(Map<String, List<String>> headers) { this.headers = headers; }
     public void setBody(Object body) { this.body = body; }
-}
\ No newline at end of file
+}
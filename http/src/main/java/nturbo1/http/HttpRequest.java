@@ -1,25 +1,94 @@
 package nturbo1.http;
 
 import java.util.List;
-import java.util.Map;
 
 public class HttpRequest extends HttpMessage
 {
-    private String URI; // TODO: Create a URI class and implement a parser for that!!!
+    private RequestTarget target;
+    private HttpHeaders headers;
+    private PathParameters pathParameters;
 
     public HttpRequest() {}
 
-    public HttpRequest(HttpMethod method, Map<String, List<String>> headers, Object body, String URI)
+    public HttpRequest(HttpMethod method, HttpHeaders headers, Object body, RequestTarget target)
     {
-        super(method, headers, body);
-        this.URI = URI;
+        super(method, body);
+        this.headers = headers;
+        this.target = target;
     }
 
-    public void setURI(String URI) { this.URI = URI; }
+    /**
+     * @throws IllegalArgumentException if the URI isn't a valid Request-URI.
+     */
+    public HttpRequest(HttpMethod method, HttpHeaders headers, Object body, String URI)
+    {
+        this(method, headers, body, RequestTarget.of(URI));
+    }
+
+    /**
+     * @return the Request-URI as it was received.
+     */
+    public String getURI() { return this.target == null ? null : this.target.toString(); }
+
+    public RequestTarget getTarget() { return this.target; }
+
+    public void setTarget(RequestTarget target) { this.target = target; }
+
+    /**
+     * @return the parameters captured by the route that matched the request, or null if it had none.
+     */
+    public PathParameters getPathParameters() { return this.pathParameters; }
+
+    public void setPathParameters(PathParameters pathParameters) { this.pathParameters = pathParameters; }
+
+    /**
+     * @return the value of a "{name}" or "*" of the route that matched the request, or null if it doesn't have one.
+     */
+    public String getPathParameter(String name)
+    {
+        return this.pathParameters == null ? null : this.pathParameters.get(name);
+    }
+
+    public HttpHeaders getHeaders() { return this.headers; }
+
+    public void setHeaders(HttpHeaders headers) { this.headers = headers; }
+
+    /**
+     * @param name the header name, in any case.
+     * @return the values of the header joined with ", ", or null if the request doesn't have it.
+     */
+    public String getHeader(String name) { return this.headers == null ? null : this.headers.get(name); }
+
+    public String getHeader(HttpRequestHeader header) { return this.headers == null ? null : this.headers.get(header); }
+
+    /**
+     * @param header a header that weighs its elements with qvalues, e.g. Accept or Accept-Encoding.
+     * @return the elements of the header from the most to the least preferred, parsed once per request.
+     */
+    public List<QualityValue> getQualityValues(HttpRequestHeader header)
+    {
+        return this.headers == null ? List.of() : this.headers.getQualityValues(header);
+    }
+
+    /**
+     * @return the message body, or null if the request doesn't have one.
+     */
+    public RequestBody getRequestBody() { return this.getBody() instanceof RequestBody body ? body : null; }
+
+    /**
+     * HTTP/1.1 connections are persistent unless the request carries the "close" connection option.
+     *
+     * @return true if the connection may be used for the next request after this one is answered.
+     */
+    public boolean isKeepAlive()
+    {
+        return this.headers == null || !this.headers.containsElement(GeneralHeader.CONNECTION, "close");
+    }
 
     @Override
     public String toString()
     {
-        return String.format("{Method: %s, Headers: %s, Body: %s}", this.getMethod(), this.getHeaders(), this.getBody());
+        return String.format("{Method: %s, URI: %s, Headers: %s, Body: %s}", this.getMethod(), this.target,
+                this.headers, this.getBody());
     }
 }
\ No newline at end of file
@@ -23,7 +23,7 @@ package nturbo1.http;
  */
 public enum HttpRequestHeader
 {
-    ACCEPT("ACCEPT"),
+    ACCEPT("Accept"),
     ACCEPT_CHARSET("Accept-Charset"),
     ACCEPT_ENCODING("Accept-Encoding"),
     ACCEPT_LANGUAGE("Accept-Language"),
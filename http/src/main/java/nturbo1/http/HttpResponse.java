@@ -1,15 +1,73 @@
 package nturbo1.http;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class HttpResponse extends HttpMessage
 {
     private final HttpStatus status;
+    private Map<String, List<String>> headers;
+    private byte[] encodedHeaderLines;
+
+    /**
+     * Creates a response without headers. The header map is only created once a header is set, so a response made
+     * of a status alone costs a single object.
+     */
+    public HttpResponse(HttpStatus status) { this(status, null, null, null); }
 
     public HttpResponse(HttpStatus status, HttpMethod method, Map<String, List<String>> headers, Object body)
     {
-        super(method, headers, body);
+        super(method, body);
         this.status = status;
+        this.headers = headers;
+    }
+
+    public HttpStatus getStatus() { return this.status; }
+
+    /**
+     * @return the headers keyed by their names as they were set, or null if none was set.
+     */
+    public Map<String, List<String>> getHeaders() { return this.headers; }
+
+    public void setHeaders(Map<String, List<String>> headers) { this.headers = headers; }
+
+    /**
+     * Sets a header, replacing the values it had before. The header name is written out as it's given.
+     */
+    public void setHeader(String name, String value)
+    {
+        if (getHeaders() == null) { setHeaders(new LinkedHashMap<>()); }
+
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        getHeaders().put(name, values);
+    }
+
+    public boolean containsHeader(String name) { return getHeaders() != null && getHeaders().containsKey(name); }
+
+    /**
+     * @return header lines encoded ahead of time, or null if there are none.
+     */
+    public byte[] getEncodedHeaderLines() { return this.encodedHeaderLines; }
+
+    /**
+     * Sets header lines that are written out as they are, after the other headers. Meant for responses that are
+     * served over and over, like cached files, so that their headers are encoded only once.
+     *
+     * @param encodedHeaderLines complete "Name: value\r\n" lines as US-ASCII bytes, not modified afterward.
+     */
+    public void setEncodedHeaderLines(byte[] encodedHeaderLines) { this.encodedHeaderLines = encodedHeaderLines; }
+
+    public void setHeader(GeneralHeader header, String value) { setHeader(header.getName(), value); }
+    public void setHeader(HttpEntityHeader header, String value) { setHeader(header.getName(), value); }
+    public void setHeader(HttpResponseHeader header, String value) { setHeader(header.getName(), value); }
+
+    @Override
+    public String toString()
+    {
+        return String.format("{Status: %d %s, Headers: %s, Body: %s}", status.code(), status.description(),
+                this.getHeaders(), this.getBody());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package nturbo1.http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * response-header = Accept-Ranges
+ *                 | Age
+ *                 | ETag
+ *                 | Location
+ *                 | Proxy-Authenticate
+ *                 | Retry-After
+ *                 | Server
+ *                 | Vary
+ *                 | WWW-Authenticate
+ */
+public enum HttpResponseHeader
+{
+    ACCEPT_RANGES("Accept-Ranges"),
+    AGE("Age"),
+    ETAG("ETag"),
+    LOCATION("Location"),
+    PROXY_AUTHENTICATE("Proxy-Authenticate"),
+    RETRY_AFTER("Retry-After"),
+    SERVER("Server"),
+    VARY("Vary"),
+    WWW_AUTHENTICATE("WWW-Authenticate");
+
+    private final String name;
+    private final byte[] nameBytes;
+
+    HttpResponseHeader(String name)
+    {
+        this.name = name;
+        this.nameBytes = (name + ": ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String getName() { return this.name; }
+
+    /**
+     * @return the header name followed by ": " as US-ASCII bytes, shared by all callers so must not be modified.
+     */
+    public byte[] getNameBytes() { return this.nameBytes; }
+}
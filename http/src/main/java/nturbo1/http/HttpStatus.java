@@ -1,5 +1,7 @@
 package nturbo1.http;
 
+import java.nio.charset.StandardCharsets;
+
 public enum HttpStatus
 {
     // Informational 1XX
@@ -54,9 +56,26 @@ public enum HttpStatus
 
     private final int code;
     private final String description;
+    private final byte[] statusLine;
 
-    HttpStatus(int code, String description) { this.code = code; this.description = description; }
+    HttpStatus(int code, String description)
+    {
+        this.code = code;
+        this.description = description;
+        this.statusLine = ("HTTP/1.1 " + code + " " + description + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
 
     public int code() { return this.code; }
     public String description() { return this.description; }
+
+    /**
+     * @return the whole HTTP/1.1 Status-Line including the CRLF as US-ASCII bytes, shared by all callers so must not
+     * be modified.
+     */
+    public byte[] statusLine() { return this.statusLine; }
+
+    /**
+     * @return false for the statuses whose responses never have a body: 1xx, 204 No Content and 304 Not Modified.
+     */
+    public boolean allowsBody() { return code >= 200 && code != 204 && code != 304; }
 }
\ No newline at end of file
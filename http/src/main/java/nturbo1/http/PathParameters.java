@@ -0,0 +1,61 @@
+package nturbo1.http;
+
+/**
+ * The values that the "{name}" segments and the trailing "*" of a route pattern matched in a request path.
+ * <p>
+ *     A router only records which segments of the path the parameters are, the values are cut out of the path when
+ *     they're asked for.
+ * </p>
+ */
+public class PathParameters
+{
+    /** The name of the parameter that a trailing "*" matches, the rest of the path after the segments before it. */
+    public static final String WILDCARD = "*";
+
+    private final String path;
+    private final String[] names;
+    private final int[] segments;
+
+    /**
+     * @param path the decoded request path, starting with '/'.
+     * @param names the parameter names in the order they appear in the pattern.
+     * @param segments for each name, the index of the path segment it matched, the first segment after the leading
+     *                 '/' being 0. The wildcard matches from its segment to the end of the path.
+     */
+    public PathParameters(String path, String[] names, int[] segments)
+    {
+        this.path = path;
+        this.names = names;
+        this.segments = segments;
+    }
+
+    /**
+     * @return the value of the parameter, or null if the route has no parameter with that name.
+     */
+    public String get(String name)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equals(name)) { return value(segments[i], WILDCARD.equals(name)); }
+        }
+
+        return null;
+    }
+
+    public int size() { return names.length; }
+
+    private String value(int segment, boolean rest)
+    {
+        int start = 1;
+        for (int i = 0; i < segment; i++)
+        {
+            int slash = path.indexOf('/', start);
+            if (slash == -1) { return ""; } // a wildcard after the last segment matches nothing
+            start = slash + 1;
+        }
+        if (rest) { return path.substring(start); }
+
+        int end = path.indexOf('/', start);
+        return path.substring(start, end == -1 ? path.length() : end);
+    }
+}
@@ -0,0 +1,73 @@
+package nturbo1.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An element of a header that weighs its elements with a qvalue, i.e. Accept, Accept-Charset, Accept-Encoding,
+ * Accept-Language and TE.
+ * <p>
+ *     element = value *( ";" parameter ) [ ";" "q=" qvalue *( ";" accept-extension ) ]. The parameters before the
+ *     qvalue stay in the value, e.g. "text/html;level=1", the accept-extensions after it are dropped.
+ * </p>
+ *
+ * @param value the element without its qvalue.
+ * @param quality the qvalue, from 0 for "not acceptable" to 1 for the most preferred.
+ */
+public record QualityValue(String value, float quality)
+{
+    private static final Comparator<QualityValue> BY_QUALITY_DESCENDING =
+            Comparator.comparingDouble(QualityValue::quality).reversed();
+
+    /**
+     * Parses a header value into its elements. An element without a qvalue gets 1, one with a qvalue that isn't a
+     * number between 0 and 1 gets 0, so it's never picked.
+     *
+     * @param header the header value, the values of a repeated header joined with commas.
+     * @return the elements from the most to the least preferred, elements of the same qvalue in the order they were
+     * listed.
+     */
+    public static List<QualityValue> parseList(String header)
+    {
+        List<QualityValue> elements = new ArrayList<>();
+        for (String element : header.split(","))
+        {
+            String value = element;
+            float quality = 1;
+            int param = element.indexOf(';');
+            while (param != -1)
+            {
+                int next = element.indexOf(';', param + 1);
+                String p = element.substring(param + 1, next == -1 ? element.length() : next).trim();
+                if (p.regionMatches(true, 0, "q=", 0, 2))
+                {
+                    value = element.substring(0, param);
+                    quality = parseQuality(p.substring(2).trim());
+                    break;
+                }
+                param = next;
+            }
+
+            value = value.trim();
+            if (!value.isEmpty()) { elements.add(new QualityValue(value, quality)); }
+        }
+
+        elements.sort(BY_QUALITY_DESCENDING);
+        return Collections.unmodifiableList(elements);
+    }
+
+    private static float parseQuality(String qvalue)
+    {
+        try
+        {
+            float quality = Float.parseFloat(qvalue);
+            return quality >= 0 && quality <= 1 ? quality : 0;
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+}
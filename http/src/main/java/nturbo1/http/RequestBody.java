@@ -0,0 +1,109 @@
+package nturbo1.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The message body of a request, received in full before the request is handled and read back as a stream.
+ * <p>
+ *     A small body is kept in memory. A body larger than the spool threshold of the parser is kept in a temporary
+ *     file instead, so the heap holds at most the threshold no matter how large an upload is. Either way the handler
+ *     reads it a piece at a time through {@link #getInputStream()} or {@link #getChannel()}, which can be called more
+ *     than once.
+ * </p>
+ * <p>
+ *     The server closes the body once the request has been answered, which deletes the temporary file.
+ * </p>
+ */
+public class RequestBody implements Closeable
+{
+    private final byte[] bytes;
+    private final Path file;
+    private final long length;
+
+    private RequestBody(byte[] bytes, Path file, long length)
+    {
+        this.bytes = bytes;
+        this.file = file;
+        this.length = length;
+    }
+
+    /**
+     * @param bytes the body, the array is kept as it is.
+     * @param length the number of bytes of the array that make up the body.
+     */
+    public static RequestBody inMemory(byte[] bytes, int length) { return new RequestBody(bytes, null, length); }
+
+    public static RequestBody inMemory(byte[] bytes) { return inMemory(bytes, bytes.length); }
+
+    /**
+     * @param file a temporary file holding the body, deleted when the body is closed.
+     * @param length the size of the file.
+     */
+    public static RequestBody spooled(Path file, long length) { return new RequestBody(null, file, length); }
+
+    public long getLength() { return this.length; }
+
+    /**
+     * @return true if the body is kept in a temporary file.
+     */
+    public boolean isSpooled() { return this.file != null; }
+
+    /**
+     * @return a new stream over the body from its first byte.
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        if (file != null) { return Files.newInputStream(file, StandardOpenOption.READ); }
+
+        return new ByteArrayInputStream(bytes, 0, (int) length);
+    }
+
+    /**
+     * @return a new channel over the body from its first byte.
+     */
+    public ReadableByteChannel getChannel() throws IOException
+    {
+        if (file != null) { return FileChannel.open(file, StandardOpenOption.READ); }
+
+        return Channels.newChannel(getInputStream());
+    }
+
+    /**
+     * Reads the whole body into an array, meant for bodies that are known to be small.
+     *
+     * @throws IOException if the body can't be read or is too large for an array.
+     */
+    public byte[] readAllBytes() throws IOException
+    {
+        if (file == null) { return bytes.length == length ? bytes.clone() : Arrays.copyOf(bytes, (int) length); }
+        if (length > Integer.MAX_VALUE - 8) { throw new IOException("Request body is too large for an array."); }
+
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Deletes the temporary file of a spooled body. Streams opened before keep working on most platforms, but the body
+     * must not be read anymore.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (file != null) { Files.deleteIfExists(file); }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RequestBody{length: " + length + (file != null ? ", spooled" : "") + "}";
+    }
+}
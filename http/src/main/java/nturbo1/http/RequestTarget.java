@@ -0,0 +1,329 @@
+package nturbo1.http;
+
+import nturbo1.http.exceptions.HttpMessageParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Request-URI of a request: origin form ("/a/b?q"), absolute form ("http://host/a/b?q"), authority form
+ * ("host:443", for CONNECT) or "*".
+ * <p>
+ *     Parsing only finds where the path, the query and the fragment start and end in the bytes of the Request-Line,
+ *     which are kept as they are. Nothing is copied or decoded until it's asked for: the path is percent-decoded and
+ *     has its dot-segments removed on the first {@link #getPath()}, and the query is split into parameters on the
+ *     first {@link #getQueryParameters()}. Both are kept for the next call. A handler that only looks at the path
+ *     never pays for the query.
+ * </p>
+ */
+public class RequestTarget
+{
+    private static final int NONE = -1;
+
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+    private final int pathStart; // NONE if the target has no path
+    private final int pathEnd;
+    private final int queryStart; // after the '?', NONE if there's no query
+    private final int queryEnd;
+    private final int fragmentStart; // after the '#', NONE if there's no fragment
+
+    private String raw;
+    private String path;
+    private boolean pathDecoded;
+    private Map<String, List<String>> queryParameters;
+
+    private RequestTarget(byte[] bytes, int start, int end, int pathStart, int pathEnd, int queryStart, int queryEnd,
+                          int fragmentStart)
+    {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        this.queryStart = queryStart;
+        this.queryEnd = queryEnd;
+        this.fragmentStart = fragmentStart;
+    }
+
+    /**
+     * Finds the parts of the Request-URI in bytes[from, to). The array is kept, not copied, so it must not change
+     * afterwards.
+     *
+     * @throws HttpMessageParseException if the Request-URI is empty or contains a control character.
+     */
+    public static RequestTarget parse(byte[] bytes, int from, int to) throws HttpMessageParseException
+    {
+        if (from >= to) { throw new HttpMessageParseException("Empty Request-URI"); }
+
+        int question = NONE;
+        int hash = NONE;
+        for (int i = from; i < to; i++)
+        {
+            int b = bytes[i] & 0xFF;
+            if (b <= ' ' || b == 0x7F)
+            {
+                throw new HttpMessageParseException(
+                        "Invalid character in the Request-URI: 0x" + Integer.toHexString(b));
+            }
+            if (b == '?' && question == NONE && hash == NONE) { question = i; }
+            else if (b == '#' && hash == NONE) { hash = i; }
+        }
+
+        int partsEnd = question != NONE ? question : hash != NONE ? hash : to;
+        int pathStart = findPathStart(bytes, from, partsEnd);
+        int pathEnd = pathStart == NONE ? NONE : partsEnd;
+        int queryStart = question == NONE ? NONE : question + 1;
+        int queryEnd = question == NONE ? NONE : hash != NONE ? hash : to;
+        int fragmentStart = hash == NONE ? NONE : hash + 1;
+
+        return new RequestTarget(bytes, from, to, pathStart, pathEnd, queryStart, queryEnd, fragmentStart);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the Request-URI is empty or contains a control character.
+     */
+    public static RequestTarget of(String uri)
+    {
+        byte[] bytes = uri.getBytes(StandardCharsets.UTF_8);
+        try
+        {
+            return parse(bytes, 0, bytes.length);
+        }
+        catch (HttpMessageParseException e)
+        {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return where the path starts: the first byte in origin form, the first '/' after the authority in absolute
+     * form, or the end of the absolute form if it has no path. NONE for "*", the authority form and anything else.
+     */
+    private static int findPathStart(byte[] bytes, int from, int to)
+    {
+        if (bytes[from] == '/') { return from; }
+
+        // scheme "://" authority [ path ]
+        for (int i = from; i < to - 2; i++)
+        {
+            byte b = bytes[i];
+            if (b == ':')
+            {
+                if (i == from || bytes[i + 1] != '/' || bytes[i + 2] != '/') { return NONE; }
+
+                for (int j = i + 3; j < to; j++)
+                {
+                    if (bytes[j] == '/') { return j; }
+                }
+                return to;
+            }
+            if (b == '/') { return NONE; }
+        }
+
+        return NONE;
+    }
+
+    /**
+     * @return whether the target is "*", as in "OPTIONS * HTTP/1.1".
+     */
+    public boolean isAsterisk() { return end - start == 1 && bytes[start] == '*'; }
+
+    /**
+     * @return the length of the Request-URI in bytes, as it was received.
+     */
+    public int length() { return end - start; }
+
+    /**
+     * @return the path as it was received, "" for an absolute form without a path, or null if the target has no
+     * path.
+     */
+    public String getRawPath() { return pathStart == NONE ? null : string(pathStart, pathEnd); }
+
+    /**
+     * @return the path percent-decoded as UTF-8 with its "." and ".." segments removed, always starting with '/'.
+     * Null if the target has no path or the path has an invalid or a NUL percent-encoding.
+     */
+    public String getPath()
+    {
+        if (!pathDecoded)
+        {
+            path = pathStart == NONE ? null : decodePath();
+            pathDecoded = true;
+        }
+
+        return path;
+    }
+
+    /**
+     * @return the query after the '?' as it was received, or null if there's no query.
+     */
+    public String getRawQuery() { return queryStart == NONE ? null : string(queryStart, queryEnd); }
+
+    /**
+     * @return the fragment after the '#' as it was received, or null if there's no fragment. Clients aren't supposed
+     * to send one.
+     */
+    public String getFragment() { return fragmentStart == NONE ? null : string(fragmentStart, end); }
+
+    /**
+     * Splits the query into name=value pairs at '&', with '+' taken as a space and the percent-encodings decoded as
+     * UTF-8. A malformed percent-encoding is kept as it is.
+     *
+     * @return the values of each name in the order they appear, unmodifiable. Empty if there's no query.
+     */
+    public Map<String, List<String>> getQueryParameters()
+    {
+        if (queryParameters == null) { queryParameters = parseQuery(); }
+
+        return queryParameters;
+    }
+
+    /**
+     * @return the first value of the query parameter, or null if there's no such parameter.
+     */
+    public String getQueryParameter(String name)
+    {
+        List<String> values = getQueryParameters().get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * @return the Request-URI as it was received.
+     */
+    @Override
+    public String toString()
+    {
+        if (raw == null) { raw = string(start, end); }
+
+        return raw;
+    }
+
+    private String string(int from, int to) { return new String(bytes, from, to - from, StandardCharsets.UTF_8); }
+
+    private String decodePath()
+    {
+        if (pathStart == pathEnd) { return "/"; }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(pathEnd - pathStart);
+        for (int i = pathStart; i < pathEnd; i++)
+        {
+            int b = bytes[i];
+            if (b == '%')
+            {
+                int value = hexByte(i);
+                if (value <= 0) { return null; } // malformed, or a NUL that no file name can have
+                b = value;
+                i += 2;
+            }
+            decoded.write(b);
+        }
+
+        return removeDotSegments(decoded.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the byte encoded by the "%XX" at i, or -1 if it isn't a valid percent-encoding.
+     */
+    private int hexByte(int i)
+    {
+        if (i + 2 >= end) { return -1; }
+
+        int hi = Character.digit(bytes[i + 1], 16);
+        int lo = Character.digit(bytes[i + 2], 16);
+        return hi == -1 || lo == -1 ? -1 : (hi << 4) | lo;
+    }
+
+    /**
+     * The remove_dot_segments algorithm of RFC 3986, section 5.2.4, on a path that starts with '/'.
+     */
+    static String removeDotSegments(String path)
+    {
+        if (path.indexOf('.') == -1) { return path; }
+
+        List<String> segments = new ArrayList<>();
+        int segmentStart = 1;
+        while (segmentStart <= path.length())
+        {
+            int slash = path.indexOf('/', segmentStart);
+            int segmentEnd = slash == -1 ? path.length() : slash;
+            String segment = path.substring(segmentStart, segmentEnd);
+            boolean last = slash == -1;
+
+            if (segment.equals(".."))
+            {
+                if (!segments.isEmpty()) { segments.remove(segments.size() - 1); }
+                if (last) { segments.add(""); } // "/a/.." is "/", a directory
+            }
+            else if (segment.equals("."))
+            {
+                if (last) { segments.add(""); }
+            }
+            else
+            {
+                segments.add(segment);
+            }
+            segmentStart = segmentEnd + 1;
+        }
+
+        return "/" + String.join("/", segments);
+    }
+
+    private Map<String, List<String>> parseQuery()
+    {
+        if (queryStart == NONE || queryStart == queryEnd) { return Map.of(); }
+
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        int pairStart = queryStart;
+        while (pairStart <= queryEnd)
+        {
+            int pairEnd = pairStart;
+            while (pairEnd < queryEnd && bytes[pairEnd] != '&') { pairEnd++; }
+
+            if (pairEnd > pairStart)
+            {
+                int equals = pairStart;
+                while (equals < pairEnd && bytes[equals] != '=') { equals++; }
+
+                String name = decodeQueryPart(pairStart, equals);
+                String value = equals < pairEnd ? decodeQueryPart(equals + 1, pairEnd) : "";
+                parameters.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+            }
+            pairStart = pairEnd + 1;
+        }
+
+        parameters.replaceAll((name, values) -> Collections.unmodifiableList(values));
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    private String decodeQueryPart(int from, int to)
+    {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(to - from);
+        for (int i = from; i < to; i++)
+        {
+            int b = bytes[i];
+            if (b == '+')
+            {
+                b = ' ';
+            }
+            else if (b == '%')
+            {
+                int value = hexByte(i);
+                if (value != -1)
+                {
+                    b = value;
+                    i += 2;
+                }
+            }
+            decoded.write(b);
+        }
+
+        return decoded.toString(StandardCharsets.UTF_8);
+    }
+}
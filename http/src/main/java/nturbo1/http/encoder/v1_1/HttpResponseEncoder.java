@@ -0,0 +1,197 @@
+package nturbo1.http.encoder.v1_1;
+
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpResponseHeader;
+import nturbo1.http.util.DateHeaderClock;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response = Status-Line
+ *            *(( general-header
+ *             | response-header
+ *             | entity-header ) CRLF)
+ *            CRLF
+ *            [ message-body ]
+ * <p>
+ * Status-Line = HTTP-Version SP Status-Code SP Reason-Phrase CRLF
+ * <p>
+ * The response head is written straight into the caller's buffer without creating any garbage: the Status-Line and
+ * the names of the known headers are copied from bytes encoded once up front, header values are copied char by char
+ * and numbers are written digit by digit. The Date header is copied from the {@link DateHeaderClock}.
+ */
+public class HttpResponseEncoder
+{
+    /**
+     * Passed as the content length when the response head must not get a Content-Length header.
+     */
+    public static final long NO_CONTENT_LENGTH = -1;
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] CONNECTION_CLOSE = "Connection: close\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final Map<String, byte[]> KNOWN_HEADER_NAMES = new HashMap<>();
+
+    static
+    {
+        for (GeneralHeader header : GeneralHeader.values())
+        {
+            KNOWN_HEADER_NAMES.put(header.getName(), header.getNameBytes());
+        }
+        for (HttpResponseHeader header : HttpResponseHeader.values())
+        {
+            KNOWN_HEADER_NAMES.put(header.getName(), header.getNameBytes());
+        }
+        for (HttpEntityHeader header : HttpEntityHeader.values())
+        {
+            KNOWN_HEADER_NAMES.put(header.getName(), header.getNameBytes());
+        }
+    }
+
+    private HttpResponseEncoder() {}
+
+    /**
+     * Encodes the Status-Line and the headers of a response, up to and including the empty line. Date is added from
+     * the current second, Content-Length from the given length, and "Connection: close" is added if the connection
+     * is going to be closed after this response.
+     *
+     * @param res the response to encode.
+     * @param contentLength the length of the body, or {@link #NO_CONTENT_LENGTH} to leave the header out.
+     * @param keepAlive whether the connection stays open after the response.
+     * @param out the buffer to write to, in write mode.
+     * @throws BufferOverflowException if the head doesn't fit into the remaining space of the buffer. The position
+     * of the buffer is undefined then.
+     */
+    public static void encodeHead(HttpResponse res, long contentLength, boolean keepAlive, ByteBuffer out)
+    {
+        out.put(res.getStatus().statusLine());
+        out.put(DateHeaderClock.system().dateHeaderLine());
+
+        if (res.getHeaders() != null)
+        {
+            for (Map.Entry<String, List<String>> header : res.getHeaders().entrySet())
+            {
+                putHeaderName(header.getKey(), out);
+                List<String> values = header.getValue();
+                for (int i = 0; i < values.size(); i++)
+                {
+                    if (i > 0) { out.put((byte) ',').put((byte) ' '); }
+                    putAscii(values.get(i), out);
+                }
+                out.put(CRLF);
+            }
+        }
+        if (res.getEncodedHeaderLines() != null)
+        {
+            out.put(res.getEncodedHeaderLines());
+        }
+        if (contentLength != NO_CONTENT_LENGTH)
+        {
+            out.put(HttpEntityHeader.CONTENT_LENGTH.getNameBytes());
+            putDecimal(contentLength, out);
+            out.put(CRLF);
+        }
+        if (!keepAlive)
+        {
+            out.put(CONNECTION_CLOSE);
+        }
+        out.put(CRLF);
+    }
+
+    /**
+     * Encodes a whole response with a byte array body into a new array. Meant for the places off the hot path, the
+     * transports write with {@link #encodeHead(HttpResponse, long, boolean, ByteBuffer)}.
+     *
+     * @param res the response to encode.
+     * @param keepAlive whether the connection stays open after the response.
+     * @return the bytes to write to the client.
+     */
+    public static byte[] encode(HttpResponse res, boolean keepAlive)
+    {
+        byte[] body = bodyBytes(res);
+        ByteBuffer out = ByteBuffer.allocate(256);
+        while (true)
+        {
+            try
+            {
+                encodeHead(res, res.getStatus().allowsBody() ? body.length : NO_CONTENT_LENGTH, keepAlive, out);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                out = ByteBuffer.allocate(out.capacity() * 2);
+            }
+        }
+
+        byte[] bytes = new byte[out.position() + body.length];
+        out.flip().get(bytes, 0, out.remaining());
+        System.arraycopy(body, 0, bytes, bytes.length - body.length, body.length);
+
+        return bytes;
+    }
+
+    /**
+     * @return the body of the response if it's a byte array, or an empty array if it has no body.
+     */
+    public static byte[] bodyBytes(HttpResponse res)
+    {
+        return res.getBody() instanceof byte[] bodyBytes ? bodyBytes : EMPTY_BODY;
+    }
+
+    private static void putHeaderName(String name, ByteBuffer out)
+    {
+        byte[] nameBytes = KNOWN_HEADER_NAMES.get(name);
+        if (nameBytes != null)
+        {
+            out.put(nameBytes);
+            return;
+        }
+
+        putAscii(name, out);
+        out.put((byte) ':').put((byte) ' ');
+    }
+
+    /**
+     * Writes the chars of a header name or value. Header fields are ISO-8859-1, so every char is written as its low
+     * byte.
+     */
+    private static void putAscii(String s, ByteBuffer out)
+    {
+        int length = s.length();
+        if (out.remaining() < length) { throw new BufferOverflowException(); }
+
+        int pos = out.position();
+        for (int i = 0; i < length; i++)
+        {
+            out.put(pos + i, (byte) s.charAt(i));
+        }
+        out.position(pos + length);
+    }
+
+    /**
+     * Writes a non-negative number in decimal, from the last digit backwards.
+     */
+    private static void putDecimal(long value, ByteBuffer out)
+    {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) { digits++; }
+        if (out.remaining() < digits) { throw new BufferOverflowException(); }
+
+        int end = out.position() + digits;
+        int i = end;
+        do
+        {
+            out.put(--i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        while (value != 0);
+        out.position(end);
+    }
+}
@@ -0,0 +1,13 @@
+package nturbo1.http.exceptions;
+
+/**
+ * Thrown when the message body of a request is larger than the server accepts. The request is answered with
+ * 413 Request Entity Too Large.
+ */
+public class RequestEntityTooLargeException extends HttpMessageParseException
+{
+    public RequestEntityTooLargeException(long maxBodySize)
+    {
+        super("HTTP request body is larger than " + maxBodySize + " bytes.");
+    }
+}
@@ -0,0 +1,52 @@
+package nturbo1.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import nturbo1.http.RequestBody;
+
+/**
+ * Flight Recorder event for the message body of a request being received, from the end of its head to its last byte.
+ * Requests without a body don't have one.
+ */
+@Name(RequestBodyEvent.NAME)
+@Label("Request Body")
+@Category({"JWebServer", "HTTP"})
+@Description("Receiving the message body of a request into memory or a temporary file")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RequestBodyEvent extends Event
+{
+    public static final String NAME = "nturbo1.RequestBody";
+
+    @Label("Body Bytes")
+    @DataAmount
+    public long bodyBytes;
+
+    @Label("Chunked")
+    @Description("Whether the body came with the chunked transfer coding rather than a Content-Length")
+    public boolean chunked;
+
+    @Label("Spooled")
+    @Description("Whether the body was larger than the spool threshold and went into a temporary file")
+    public boolean spooled;
+
+    /**
+     * Ends the event and fills in and commits it, unless it's disabled or below its threshold.
+     */
+    public void commit(RequestBody body, boolean chunked)
+    {
+        end();
+        if (!shouldCommit()) { return; }
+
+        this.bodyBytes = body.getLength();
+        this.chunked = chunked;
+        this.spooled = body.isSpooled();
+        commit();
+    }
+}
@@ -0,0 +1,55 @@
+package nturbo1.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import nturbo1.http.HttpRequest;
+
+/**
+ * Flight Recorder event for the Request-Line and the headers of a request being read and parsed. It starts once the
+ * first byte of the request is there, so the time a keep-alive connection sits idle between two requests isn't in it,
+ * but the time the rest of the head takes to arrive is.
+ * <p>
+ *     Only the requests whose head is parsed in full are recorded, the rejected ones show up as parse failures in the
+ *     metrics.
+ * </p>
+ */
+@Name(RequestHeadEvent.NAME)
+@Label("Request Head")
+@Category({"JWebServer", "HTTP"})
+@Description("Reading and parsing the Request-Line and the headers of a request")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RequestHeadEvent extends Event
+{
+    public static final String NAME = "nturbo1.RequestHead";
+
+    @Label("Method")
+    public String method;
+
+    @Label("URI Length")
+    @DataAmount
+    public int uriLength;
+
+    @Label("Header Count")
+    public int headerCount;
+
+    /**
+     * Ends the event and fills in and commits it, unless it's disabled or below its threshold.
+     */
+    public void commit(HttpRequest req)
+    {
+        end();
+        if (!shouldCommit()) { return; }
+
+        this.method = req.getMethod().name();
+        this.uriLength = req.getTarget().length();
+        this.headerCount = req.getHeaders().size();
+        commit();
+    }
+}
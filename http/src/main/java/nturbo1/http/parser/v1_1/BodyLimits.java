@@ -0,0 +1,19 @@
+package nturbo1.http.parser.v1_1;
+
+import java.nio.file.Path;
+
+/**
+ * How the parsers receive request bodies.
+ *
+ * @param maxBodySize the largest body accepted, a larger one is rejected with 413 Request Entity Too Large.
+ * @param spoolThreshold the largest body kept in memory, a larger one is written to a temporary file.
+ * @param spoolDirectory the directory to create the temporary files in.
+ */
+public record BodyLimits(long maxBodySize, int spoolThreshold, Path spoolDirectory)
+{
+    public static final long DEFAULT_MAX_BODY_SIZE = 16L * 1024 * 1024;
+    public static final int DEFAULT_SPOOL_THRESHOLD = 64 * 1024;
+
+    public static final BodyLimits DEFAULT = new BodyLimits(DEFAULT_MAX_BODY_SIZE, DEFAULT_SPOOL_THRESHOLD,
+            Path.of(System.getProperty("java.io.tmpdir")));
+}
@@ -2,47 +2,31 @@ package nturbo1.http.parser.v1_1;
 
 import nturbo1.http.GeneralHeader;
 import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpHeaders;
 import nturbo1.http.HttpMethod;
-import nturbo1.http.HttpRequestHeader;
+import nturbo1.http.RequestBody;
 import nturbo1.http.exceptions.BadHttpRequestHeaderException;
 import nturbo1.http.exceptions.HttpMessageParseException;
 import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.http.jfr.RequestBodyEvent;
 import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
 import nturbo1.log.CustomLogger;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
 
 public class HttpMessageParser {
     public static final char CARRIAGE_RETURN_CHAR = 13;
     public static final char LINE_FEED_CHAR = 10;
     public static final float HTTP_VERSION_1_1 = 1.1f;
-
-    public static final String HTTP_MESSAGE_HEADER_NAME_REGEX = "[0-9a-zA-Z!#$%&'*+.^_`|~-]+";
-    public static final List<String> NON_REPEATABLE_HEADERS = List.of( // Non comma separated headers as well
-            GeneralHeader.DATE.getName().toLowerCase(),
-            GeneralHeader.TRANSFER_ENCODING.getName().toLowerCase(),
-            HttpEntityHeader.CONTENT_LENGTH.getName().toLowerCase(),
-            HttpEntityHeader.CONTENT_TYPE.getName().toLowerCase(),
-            HttpEntityHeader.EXPIRES.getName().toLowerCase(),
-            HttpRequestHeader.HOST.getName().toLowerCase(),
-            HttpRequestHeader.USER_AGENT.getName().toLowerCase(),
-            HttpRequestHeader.FROM.getName().toLowerCase(),
-            HttpRequestHeader.AUTHORIZATION.getName().toLowerCase(),
-            HttpRequestHeader.REFERER.getName().toLowerCase(),
-            HttpRequestHeader.IF_MATCH.getName().toLowerCase(),
-            HttpRequestHeader.IF_NONE_MATCH.getName().toLowerCase(),
-            HttpRequestHeader.IF_MODIFIED_SINCE.getName().toLowerCase(),
-            HttpRequestHeader.IF_UNMODIFIED_SINCE.getName().toLowerCase(),
-            HttpRequestHeader.IF_RANGE.getName().toLowerCase()
-    );
+    public static final int NO_BODY_LENGTH = 0;
+    public static final int CHUNKED_BODY_LENGTH = -1;
+    /** The most bytes the Request-Line and the headers of a request may take together, line endings included. */
+    public static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
 
     private static final CustomLogger log = CustomLogger.getLogger(HttpMessageParser.class.getName());
 
@@ -80,43 +64,47 @@ public class HttpMessageParser {
         }
     }
 
-    public static Map<String, List<String>> parseHttpMessageHeaders(InputStream iStream)
-            throws InvalidHttpMessageHeaderException, IOException {
-        log.debug("Parsing the HTTP Message Headers...");
-
-        String headerLine = new String(Bytes.readHttpMessageHeaderLine(iStream), StandardCharsets.US_ASCII);
-
-        Map<String, List<String>> headers = new HashMap<>();
-        while (!headerLine.isEmpty())
-        {
-            String[] headerKV = parseHttpMessageHeaderLine(headerLine);
-
-            String headerKey = headerKV[0];
-            List<String> headerValues = parseAndNormalizeHeaderValue(headerKey, headerKV[1]);
+    /**
+     * Reads the header lines up to and including the empty line that ends them.
+     *
+     * @param iStream the input stream positioned at the first header line.
+     * @return the headers, kept as they were received.
+     * @throws HttpMessageParseException if a line or the headers section is longer than allowed.
+     */
+    public static HttpHeaders parseHttpMessageHeaders(InputStream iStream)
+            throws InvalidHttpMessageHeaderException, HttpMessageParseException, IOException {
+        return parseHttpMessageHeaders(iStream, MAX_HEAD_SIZE);
+    }
 
-            List<String> headerValueList = headers.get(headerKey);
+    /**
+     * Reads the header lines up to and including the empty line that ends them, in at most the given number of bytes.
+     *
+     * @param iStream the input stream positioned at the first header line.
+     * @param maxSize the most bytes the header lines may take, line endings included.
+     * @return the headers, kept as they were received.
+     * @throws HttpMessageParseException if a line is longer than {@link Bytes#MAX_LINE_LENGTH} or the header lines
+     * take more than maxSize bytes.
+     */
+    public static HttpHeaders parseHttpMessageHeaders(InputStream iStream, int maxSize)
+            throws InvalidHttpMessageHeaderException, HttpMessageParseException, IOException {
+        log.debug("Parsing the HTTP Message Headers...");
 
-            if (headerValueList == null)
-            {
-                headerValueList = new ArrayList<>(headerValues);
+        HttpHeaders headers = new HttpHeaders();
+        int size = 0;
+        if (iStream instanceof ReadBuffer readBuffer) {
+            int lineSize;
+            while ((lineSize = readBuffer.readHttpMessageHeaderLine(headers)) != 0) {
+                size += lineSize;
+                checkHeadSize(size, maxSize);
             }
-            else
+        } else {
+            byte[] headerLine = Bytes.readHttpMessageHeaderLine(iStream);
+            while (headerLine.length != 0)
             {
-                if (!isHeaderCommaSeparatedList(headerKey))
-                {
-                    throw new InvalidHttpMessageHeaderException("More than one instances of " + headerKey +
-                            " header was encountered in the http message headers");
-                }
-                headerValueList.addAll(headerValues);
-            }
-
-            headers.put(headerKey, headerValueList);
-
-            try {
-                headerLine = new String(Bytes.readHttpMessageHeaderLine(iStream));
-            } catch (IOException e) {
-                log.error("Failed to read the next line from buffer because: " + e.getMessage());
-                throw e;
+                size += headerLine.length + 2;
+                checkHeadSize(size, maxSize);
+                headers.addLine(headerLine, 0, headerLine.length);
+                headerLine = Bytes.readHttpMessageHeaderLine(iStream);
             }
         }
 
@@ -124,102 +112,92 @@ public class HttpMessageParser {
         return headers;
     }
 
-    public static boolean isHeaderCommaSeparatedList(String headerName)
-    {
-        return !NON_REPEATABLE_HEADERS.contains(headerName.toLowerCase());
+    private static void checkHeadSize(int size, int maxSize) throws HttpMessageParseException {
+        if (size > maxSize) {
+            throw new HttpMessageParseException("HTTP request head is larger than " + MAX_HEAD_SIZE + " bytes.");
+        }
     }
 
-    private static List<String> parseAndNormalizeHeaderValue(String headerName, String headerValue)
+    /**
+     * Receives the message body that follows the headers, in memory or in a temporary file depending on its size.
+     *
+     * @param iStream the input stream positioned at the start of the body.
+     * @param headers the parsed message headers.
+     * @param limits the limits to receive the body with.
+     * @return the body, or null if the message doesn't have one.
+     * @throws RequestEntityTooLargeException if the body is larger than the limits allow.
+     */
+    public static RequestBody readMessageBody(InputStream iStream, HttpHeaders headers, BodyLimits limits)
+            throws BadHttpRequestHeaderException, HttpMessageParseException, InvalidHttpMessageHeaderException,
+            IOException
     {
-        List<String> headerVals = new ArrayList<>();
-        if (isHeaderCommaSeparatedList(headerName))
-        {
-            String[] commaSplitVals = headerValue.trim().split(",");
-            for (String val : commaSplitVals)
-            {
-                headerVals.add(val.trim());
+        long bodyLength = getMessageBodyLength(headers);
+        if (bodyLength == NO_BODY_LENGTH) { return null; }
+        if (bodyLength > limits.maxBodySize()) { throw new RequestEntityTooLargeException(limits.maxBodySize()); }
+
+        RequestBodyEvent event = new RequestBodyEvent();
+        event.begin();
+        RequestBodySink sink = new RequestBodySink(limits, bodyLength);
+        try {
+            if (bodyLength == CHUNKED_BODY_LENGTH) {
+                readChunkedHttpMessageBody(iStream, sink);
+            } else {
+                copy(iStream, sink, bodyLength);
             }
-        }
-        else
-        {
-            headerVals.add(headerValue.trim());
-        }
 
-        return headerVals;
+            RequestBody body = sink.finish();
+            event.commit(body, bodyLength == CHUNKED_BODY_LENGTH);
+
+            return body;
+        } catch (HttpMessageParseException | InvalidHttpMessageHeaderException | IOException e) {
+            sink.abort();
+            throw e;
+        }
     }
 
-    public static byte[] readMessageBodyBytes(InputStream iStream, Map<String, List<String>> headers)
-            throws BadHttpRequestHeaderException, HttpMessageParseException, IOException
+    /**
+     * Works out how the message body is framed from the Content-Length and Transfer-Encoding headers.
+     *
+     * @param headers the parsed message headers.
+     * @return the Content-Length value, {@link #CHUNKED_BODY_LENGTH} for a chunked message body, or
+     * {@link #NO_BODY_LENGTH} if the message doesn't have a body.
+     */
+    public static long getMessageBodyLength(HttpHeaders headers)
+            throws BadHttpRequestHeaderException, HttpMessageParseException
     {
-        List<String> contentLength = headers.get(HttpEntityHeader.CONTENT_LENGTH.getName().toLowerCase());
-        List<String> transferEncoding = headers.get(GeneralHeader.TRANSFER_ENCODING.getName().toLowerCase());
-
-        byte[] messageBodyBytes = null;
+        boolean hasContentLength = headers.contains(HttpEntityHeader.CONTENT_LENGTH);
+        String transferEncoding = headers.get(GeneralHeader.TRANSFER_ENCODING);
 
-        if (contentLength != null && transferEncoding != null) {
+        if (hasContentLength && transferEncoding != null) {
             log.warn(GeneralHeader.TRANSFER_ENCODING.name() + " should be preferred over " +
                     HttpEntityHeader.CONTENT_LENGTH + " if both exist");
             throw new BadHttpRequestHeaderException(
                     "Both '" + HttpEntityHeader.CONTENT_LENGTH.getName() + "' and '" +
                             GeneralHeader.TRANSFER_ENCODING.getName() + "' headers are present in the request."
             );
-        } else if (contentLength != null && !contentLength.isEmpty()) {
-            messageBodyBytes = readHttpMessageBody(iStream, contentLength.getFirst());
+        } else if (hasContentLength) {
+            return headers.getContentLength();
         } else if (transferEncoding != null && !transferEncoding.isEmpty()) {
-            String lowerCaseTransferEncoding = transferEncoding.getFirst().toLowerCase();
+            String lowerCaseTransferEncoding = transferEncoding.toLowerCase();
             if (lowerCaseTransferEncoding.equals("chunked")) {
-                messageBodyBytes = readChunkedHttpMessageBody(iStream);
-            } else {
-                log.warn("CHECK THE OTHER TRANSFER-ENCODING HEADER VALUES!!!");
-                throw new HttpMessageParseException(
-                        "Unsupported '" + GeneralHeader.TRANSFER_ENCODING.getName() + "' header value: " +
-                                lowerCaseTransferEncoding
-                );
+                return CHUNKED_BODY_LENGTH;
             }
-        }
-
-        return messageBodyBytes;
-    }
 
-    public static byte[] readHttpMessageBody(InputStream iStream, String contentLengthStr) throws HttpMessageParseException, IOException
-    {
-        int contentLength;
-        try {
-            contentLength = Integer.parseInt(contentLengthStr);
-        } catch (NumberFormatException e) {
+            log.warn("CHECK THE OTHER TRANSFER-ENCODING HEADER VALUES!!!");
             throw new HttpMessageParseException(
-                    "Failed to convert '" + HttpEntityHeader.CONTENT_LENGTH.getName() + "' header value '" +
-                            contentLengthStr + "' into an integer value."
+                    "Unsupported '" + GeneralHeader.TRANSFER_ENCODING.getName() + "' header value: " +
+                            lowerCaseTransferEncoding
             );
         }
 
-        byte[] messageBodyBytes = new byte[contentLength];
-        Bytes.read(iStream, messageBodyBytes);
-
-        return messageBodyBytes;
-    }
-
-    public static byte[] readChunkedHttpMessageBody(InputStream iStream) throws HttpMessageParseException, IOException
-    {
-        ByteArrayOutputStream messageBodyBytes = new ByteArrayOutputStream();
-        byte[] nextChunk;
-        while ((nextChunk = readNextHttpMessageBodyChunk(iStream)) != null)
-        {
-            messageBodyBytes.writeBytes(nextChunk);
-        }
-
-        return messageBodyBytes.toByteArray();
+        return NO_BODY_LENGTH;
     }
 
-    public static byte[] readNextHttpMessageBodyChunk(InputStream iStream) throws HttpMessageParseException, IOException
+    public static int parseChunkSize(String chunkSizeLine) throws HttpMessageParseException
     {
-        String chunkSizeHex;
-        try {
-            chunkSizeHex = new String(Bytes.readLine(iStream));
-        } catch (IOException e) {
-            log.error("Failed to read an HTTP Message Body chunk size line");
-            throw e;
-        }
+        String chunkSizeHex = chunkSizeLine;
+        int extensionStart = chunkSizeHex.indexOf(';'); // chunk-ext is ignored
+        if (extensionStart != -1) { chunkSizeHex = chunkSizeHex.substring(0, extensionStart); }
 
         int chunkSize;
         try {
@@ -227,39 +205,50 @@ public class HttpMessageParser {
         } catch (NumberFormatException e) {
             throw new HttpMessageParseException("Failed to parse the chunk size hex value '" + chunkSizeHex + "' into an integer value.");
         }
+        if (chunkSize < 0) {
+            throw new HttpMessageParseException("Negative chunk size: " + chunkSizeHex);
+        }
 
-        if (chunkSize == 0) { return null; }
-
-        byte[] chunkBytes = new byte[chunkSize];
-        Bytes.read(iStream, chunkBytes);
-
-        return chunkBytes;
+        return chunkSize;
     }
 
-    private static void validateHttpMessageHeaderName(String headerName) throws InvalidHttpMessageHeaderException
+    /**
+     * chunked-body = *chunk last-chunk trailer CRLF
+     * chunk        = chunk-size [ chunk-extension ] CRLF chunk-data CRLF
+     * last-chunk   = 1*("0") [ chunk-extension ] CRLF
+     * <p>
+     * Trailer fields are checked and dropped.
+     */
+    private static void readChunkedHttpMessageBody(InputStream iStream, RequestBodySink sink)
+            throws HttpMessageParseException, InvalidHttpMessageHeaderException, IOException
     {
-        if (!Pattern.matches(HTTP_MESSAGE_HEADER_NAME_REGEX, headerName))
+        int chunkSize;
+        while ((chunkSize = parseChunkSize(new String(Bytes.readLine(iStream), StandardCharsets.US_ASCII))) != 0)
         {
-            throw new InvalidHttpMessageHeaderException("Invalid HTTP message header name.");
+            copy(iStream, sink, chunkSize);
+            if (Bytes.readLine(iStream).length != 0) {
+                throw new HttpMessageParseException("Chunk data isn't followed by a line ending.");
+            }
         }
+
+        boolean trailerEnded = false;
+        while (!trailerEnded) { trailerEnded = Bytes.readHttpMessageHeaderLine(iStream).length == 0; }
     }
 
-    private static String[] parseHttpMessageHeaderLine(String line) throws InvalidHttpMessageHeaderException
+    /**
+     * Moves the given number of bytes from the stream into the sink, a buffer at a time.
+     */
+    private static void copy(InputStream iStream, RequestBodySink sink, long length)
+            throws HttpMessageParseException, IOException
     {
-        String[] headerKV = line.split(":", 2);
-
-        if (headerKV.length < 2) {
-            throw new InvalidHttpMessageHeaderException("Invalid HTTP Message Header format: " + line);
-        }
-        if (Pattern.matches("\\s", headerKV[0].substring(0, 1)))
+        byte[] buf = new byte[(int) Math.min(length, COPY_BUFFER_SIZE)];
+        long remaining = length;
+        while (remaining > 0)
         {
-            throw new InvalidHttpMessageHeaderException("Whitespace before header field name");
+            int n = iStream.read(buf, 0, (int) Math.min(buf.length, remaining));
+            if (n == -1) { throw new IOException("The stream ended " + remaining + " bytes before the message body."); }
+            sink.write(buf, 0, n);
+            remaining -= n;
         }
-
-        headerKV[0] = headerKV[0].trim().toLowerCase();
-        validateHttpMessageHeaderName(headerKV[0]);
-        headerKV[1] = headerKV[1].trim();
-
-        return headerKV;
     }
 }
@@ -1,18 +1,20 @@
 package nturbo1.http.parser.v1_1;
 
+import nturbo1.http.HttpHeaders;
 import nturbo1.http.HttpMethod;
 import nturbo1.http.HttpRequest;
+import nturbo1.http.RequestTarget;
 import nturbo1.http.exceptions.BadHttpRequestHeaderException;
 import nturbo1.http.exceptions.HttpMessageParseException;
 import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
 import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.jfr.RequestHeadEvent;
 import nturbo1.http.util.Bytes;
 import nturbo1.log.CustomLogger;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Request = Request-Line
@@ -36,35 +38,88 @@ public class HttpRequestParser
             IOException,
             InvalidHttpMessageHeaderException
     {
-        String reqLine;
+        return parseHttpRequest(iStream, BodyLimits.DEFAULT);
+    }
+
+    /**
+     * Parses a whole request, receiving its message body within the given limits.
+     *
+     * @param iStream the input stream that the request is read from.
+     * @param limits the limits to receive the body with.
+     * @return the parsed request, its body is a {@link nturbo1.http.RequestBody} or null.
+     */
+    public static HttpRequest parseHttpRequest(InputStream iStream, BodyLimits limits)
+            throws
+            BadHttpRequestHeaderException,
+            HttpMessageParseException,
+            UnsupportedHttpVersionException,
+            IOException,
+            InvalidHttpMessageHeaderException
+    {
+        HttpRequest req = parseHttpRequestHead(iStream);
+        req.setBody(HttpMessageParser.readMessageBody(iStream, req.getHeaders(), limits));
+
+        return req;
+    }
+
+    /**
+     * Parses the Request-Line and the headers of an HTTP request, leaving the message body in the stream.
+     *
+     * @param iStream the input stream that the request is read from.
+     * @return the parsed request without a body.
+     */
+    public static HttpRequest parseHttpRequestHead(InputStream iStream)
+            throws
+            HttpMessageParseException,
+            UnsupportedHttpVersionException,
+            IOException,
+            InvalidHttpMessageHeaderException
+    {
+        RequestHeadEvent event = new RequestHeadEvent();
+        event.begin();
+
+        byte[] reqLine;
         try {
-            reqLine = new String(Bytes.readLine(iStream));
+            reqLine = Bytes.readLine(iStream);
         } catch (IOException e) {
             log.error("Failed to read a line from the socket input stream reader due to: " + e.getMessage());
             throw e;
         }
 
-        HttpRequest req = parseHttpRequestLine(reqLine, null);
-        Map<String, List<String>> headers = HttpMessageParser.parseHttpMessageHeaders(iStream);
+        HttpRequest req = parseHttpRequestLine(reqLine, reqLine.length, null);
+        HttpHeaders headers = HttpMessageParser.parseHttpMessageHeaders(iStream,
+                HttpMessageParser.MAX_HEAD_SIZE - reqLine.length - 2);
         req.setHeaders(headers);
-        req.setBody(HttpMessageParser.readMessageBodyBytes(iStream, headers));
+        event.commit(req);
 
         return req;
     }
 
-    public static HttpRequest parseHttpRequestLine(String line, HttpRequest req)
+    /**
+     * Parses the Request-Line in line[0, length). The Request-URI keeps pointing into the array, so it must not be
+     * reused for anything else afterwards.
+     *
+     * @param req the request to set the method and the Request-URI of, or null for a new one.
+     */
+    public static HttpRequest parseHttpRequestLine(byte[] line, int length, HttpRequest req)
             throws HttpMessageParseException, UnsupportedHttpVersionException
     {
         log.debug("Parsing the HTTP Request Line...");
-        String[] words = line.split(" "); // [Method, Request-URI, HTTP-Version]
-        if (words.length < 3)
+        // [Method, Request-URI, HTTP-Version]
+        int methodEnd = indexOfSpace(line, 0, length);
+        int uriEnd = methodEnd == -1 ? -1 : indexOfSpace(line, methodEnd + 1, length);
+        if (uriEnd == -1)
         {
-            throw new HttpMessageParseException("Not enough information in the HTTP Request Line: " + line);
+            throw new HttpMessageParseException("Not enough information in the HTTP Request Line: " +
+                    new String(line, 0, length, StandardCharsets.ISO_8859_1));
         }
+        int versionEnd = indexOfSpace(line, uriEnd + 1, length);
 
-        HttpMethod method = HttpMessageParser.parseHttpMethod(words[0]);
-        log.warn("IMPLEMENT REQUEST URI PARSER!!!"); // words[1]
-        float version = HttpMessageParser.parseHttpVersion(words[2]);
+        HttpMethod method = HttpMessageParser.parseHttpMethod(
+                new String(line, 0, methodEnd, StandardCharsets.US_ASCII));
+        RequestTarget target = RequestTarget.parse(line, methodEnd + 1, uriEnd);
+        float version = HttpMessageParser.parseHttpVersion(new String(line, uriEnd + 1,
+                (versionEnd == -1 ? length : versionEnd) - uriEnd - 1, StandardCharsets.US_ASCII));
         if (HttpMessageParser.HTTP_VERSION_1_1 != version)
         {
             throw new UnsupportedHttpVersionException(version);
@@ -72,15 +127,24 @@ public class HttpRequestParser
 
         if (req == null)
         {
-            // TODO: Pass the URI here after it's parsed
             log.debug("Successfully parsed the HTTP Request Line!");
-            return new HttpRequest(method, null, null, null);
+            return new HttpRequest(method, null, null, target);
         }
 
         req.setMethod(method);
-        // TODO: Set the URI here  after it's parsed
+        req.setTarget(target);
 
         log.debug("Successfully parsed the HTTP Request Line!");
         return req;
     }
+
+    private static int indexOfSpace(byte[] line, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            if (line[i] == ' ') { return i; }
+        }
+
+        return -1;
+    }
 }
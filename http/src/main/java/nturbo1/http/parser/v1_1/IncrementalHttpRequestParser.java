@@ -0,0 +1,340 @@
+package nturbo1.http.parser.v1_1;
+
+import jdk.jfr.EventType;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.jfr.RequestBodyEvent;
+import nturbo1.http.jfr.RequestHeadEvent;
+import nturbo1.http.util.Bytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A push style HTTP/1.1 request parser for non-blocking transports.
+ * <p>
+ *     The bytes of a request are pushed into the parser in fragments of any size with {@link #parse(ByteBuffer)}.
+ *     The parser remembers where it stopped, in the middle of the Request-Line, a header line, the message body or a
+ *     chunk, and carries on from there once the next fragment arrives. It never blocks, a null result simply means
+ *     that more bytes are needed.
+ * </p>
+ * <p>
+ *     After a complete request is returned the parser is ready for the next one, so the bytes that follow it in the
+ *     same buffer, i.e. pipelined requests, can be parsed right away.
+ * </p>
+ * <p>
+ *     The message body goes into memory or, past the spool threshold of the {@link BodyLimits}, into a temporary file,
+ *     so a large upload doesn't take more heap than the threshold.
+ * </p>
+ */
+public class IncrementalHttpRequestParser
+{
+    private enum State
+    {
+        REQUEST_LINE,
+        HEADERS,
+        BODY,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_DATA_END,
+        TRAILERS
+    }
+
+    private final BodyLimits limits;
+    private State state = State.REQUEST_LINE;
+    private HttpRequest request;
+    private HttpHeaders headers;
+    private int headSize;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private RequestBodySink body;
+    private long remainingBodyBytes; // of the whole body, or of the current chunk
+
+    // The events outlive a call, so they're only created while enabled rather than left to escape analysis.
+    private RequestHeadEvent headEvent;
+    private RequestBodyEvent bodyEvent;
+
+    private static final EventType HEAD_EVENT_TYPE = EventType.getEventType(RequestHeadEvent.class);
+    private static final EventType BODY_EVENT_TYPE = EventType.getEventType(RequestBodyEvent.class);
+
+    public IncrementalHttpRequestParser() { this(BodyLimits.DEFAULT); }
+
+    /**
+     * @param limits the limits to receive request bodies with.
+     */
+    public IncrementalHttpRequestParser(BodyLimits limits) { this.limits = limits; }
+
+    /**
+     * Consumes bytes from the given buffer until a request is complete or the buffer runs out.
+     *
+     * @param buf a buffer in read mode. Its position is moved past the consumed bytes, the bytes of the next request
+     *            are left in the buffer.
+     * @return the complete request, or null if more bytes are needed.
+     * @throws RequestEntityTooLargeException if the body is larger than the limits allow.
+     * @throws IOException if the body can't be written to its temporary file.
+     */
+    public HttpRequest parse(ByteBuffer buf)
+            throws
+            BadHttpRequestHeaderException,
+            HttpMessageParseException,
+            UnsupportedHttpVersionException,
+            InvalidHttpMessageHeaderException,
+            IOException
+    {
+        while (buf.hasRemaining())
+        {
+            switch (state)
+            {
+                case REQUEST_LINE:
+                    if (headEvent == null && HEAD_EVENT_TYPE.isEnabled())
+                    {
+                        headEvent = new RequestHeadEvent();
+                        headEvent.begin();
+                    }
+                    if (!readLine(buf)) { return null; }
+                    onRequestLine();
+                    lineLength = 0;
+                    break;
+                case HEADERS:
+                    if (!readLine(buf)) { return null; }
+                    if (onHeaderLine()) { return complete(); }
+                    lineLength = 0;
+                    break;
+                case BODY:
+                    readBody(buf);
+                    if (remainingBodyBytes == 0) { return complete(); }
+                    break;
+                case CHUNK_SIZE:
+                    if (!readLine(buf)) { return null; }
+                    onChunkSizeLine();
+                    lineLength = 0;
+                    break;
+                case CHUNK_DATA:
+                    readChunkData(buf);
+                    break;
+                case CHUNK_DATA_END:
+                    if (!readLine(buf)) { return null; }
+                    if (lineLength != 0)
+                    {
+                        throw new HttpMessageParseException("Chunk data isn't followed by a line ending.");
+                    }
+                    state = State.CHUNK_SIZE;
+                    lineLength = 0;
+                    break;
+                case TRAILERS:
+                    if (!readLine(buf)) { return null; }
+                    if (lineLength == 0) { return complete(); }
+                    Bytes.validateHttpMessageHeaderLine(line, lineLength); // trailer fields are checked and dropped
+                    lineLength = 0;
+                    break;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the parser is between requests, i.e. no byte of the next request has been consumed yet.
+     */
+    public boolean isIdle() { return state == State.REQUEST_LINE && lineLength == 0; }
+
+    /**
+     * Drops the partially parsed request, if any, along with the temporary file of its body.
+     */
+    public void reset()
+    {
+        if (body != null) { body.abort(); }
+        clear();
+    }
+
+    private void clear()
+    {
+        state = State.REQUEST_LINE;
+        request = null;
+        headers = null;
+        headSize = 0;
+        lineLength = 0;
+        body = null;
+        remainingBodyBytes = 0;
+        headEvent = null;
+        bodyEvent = null;
+    }
+
+    private void onRequestLine() throws HttpMessageParseException, UnsupportedHttpVersionException
+    {
+        if (lineLength == 0) { return; } // empty lines before the Request-Line are ignored
+
+        // The line buffer is reused for the header lines, so the Request-Line gets an array of its own.
+        request = HttpRequestParser.parseHttpRequestLine(Arrays.copyOf(line, lineLength), lineLength, null);
+        headers = new HttpHeaders();
+        state = State.HEADERS;
+    }
+
+    /**
+     * @return true if the request is complete, i.e. the headers section ended and the request has no message body.
+     */
+    private boolean onHeaderLine()
+            throws BadHttpRequestHeaderException, HttpMessageParseException, InvalidHttpMessageHeaderException
+    {
+        if (lineLength != 0)
+        {
+            Bytes.validateHttpMessageHeaderLine(line, lineLength);
+            headers.addLine(line, 0, lineLength);
+            return false;
+        }
+
+        request.setHeaders(headers);
+        if (headEvent != null)
+        {
+            headEvent.commit(request);
+            headEvent = null;
+        }
+
+        long messageBodyLength = HttpMessageParser.getMessageBodyLength(headers);
+        if (messageBodyLength == HttpMessageParser.NO_BODY_LENGTH) { return true; }
+        if (messageBodyLength > limits.maxBodySize())
+        {
+            throw new RequestEntityTooLargeException(limits.maxBodySize());
+        }
+
+        body = new RequestBodySink(limits, messageBodyLength);
+        if (BODY_EVENT_TYPE.isEnabled())
+        {
+            bodyEvent = new RequestBodyEvent();
+            bodyEvent.begin();
+        }
+        if (messageBodyLength == HttpMessageParser.CHUNKED_BODY_LENGTH)
+        {
+            state = State.CHUNK_SIZE;
+            return false;
+        }
+
+        remainingBodyBytes = messageBodyLength;
+        state = State.BODY;
+        return false;
+    }
+
+    private void onChunkSizeLine() throws HttpMessageParseException
+    {
+        int chunkSize = HttpMessageParser.parseChunkSize(lineString());
+        if (chunkSize == 0)
+        {
+            state = State.TRAILERS;
+            return;
+        }
+
+        remainingBodyBytes = chunkSize;
+        state = State.CHUNK_DATA;
+    }
+
+    private void readBody(ByteBuffer buf) throws IOException, RequestEntityTooLargeException
+    {
+        int n = (int) Math.min(buf.remaining(), remainingBodyBytes);
+        body.write(buf.slice(buf.position(), n));
+        buf.position(buf.position() + n);
+        remainingBodyBytes -= n;
+    }
+
+    private void readChunkData(ByteBuffer buf) throws IOException, RequestEntityTooLargeException
+    {
+        readBody(buf);
+        if (remainingBodyBytes == 0) { state = State.CHUNK_DATA_END; }
+    }
+
+    /**
+     * Moves the bytes up to the next line feed into the line buffer. A line that is cut off by the end of the buffer
+     * is kept and completed by the next call. The caller clears the line buffer once it's done with a whole line.
+     *
+     * @return true if a whole line is in the line buffer, excluding the line ending.
+     */
+    private boolean readLine(ByteBuffer buf) throws HttpMessageParseException
+    {
+        int start = buf.position();
+        int end = buf.limit();
+        int lineFeed = -1;
+        if (buf.hasArray())
+        {
+            int offset = buf.arrayOffset();
+            lineFeed = Bytes.indexOfLineFeed(buf.array(), offset + start, offset + end);
+            if (lineFeed != -1) { lineFeed -= offset; }
+        }
+        else
+        {
+            for (int i = start; i < end; i++)
+            {
+                if (buf.get(i) == '\n')
+                {
+                    lineFeed = i;
+                    break;
+                }
+            }
+        }
+
+        int n = (lineFeed == -1 ? end : lineFeed) - start;
+        appendToLine(buf, n);
+        if (lineFeed == -1) { return false; }
+
+        buf.get(); // the line feed
+        if (lineLength > 0 && line[lineLength - 1] == '\r') { lineLength--; }
+
+        return true;
+    }
+
+    private void appendToLine(ByteBuffer buf, int n) throws HttpMessageParseException
+    {
+        if (lineLength + n > Bytes.MAX_LINE_LENGTH)
+        {
+            throw new HttpMessageParseException("HTTP message line is longer than " + Bytes.MAX_LINE_LENGTH +
+                    " bytes.");
+        }
+        if (state == State.REQUEST_LINE || state == State.HEADERS)
+        {
+            headSize += n + 1;
+            if (headSize > HttpMessageParser.MAX_HEAD_SIZE)
+            {
+                throw new HttpMessageParseException("HTTP request head is larger than " +
+                        HttpMessageParser.MAX_HEAD_SIZE + " bytes.");
+            }
+        }
+        if (lineLength + n > line.length)
+        {
+            line = Arrays.copyOf(line, Math.max(lineLength + n, line.length * 2));
+        }
+
+        buf.get(line, lineLength, n);
+        lineLength += n;
+    }
+
+    private String lineString() { return new String(line, 0, lineLength, StandardCharsets.US_ASCII); }
+
+    private HttpRequest complete() throws IOException
+    {
+        HttpRequest req = request;
+        if (body != null)
+        {
+            try
+            {
+                req.setBody(body.finish());
+            }
+            catch (IOException e)
+            {
+                body.abort();
+                clear();
+                throw e;
+            }
+        }
+        if (bodyEvent != null) { bodyEvent.commit(req.getRequestBody(), state == State.TRAILERS); }
+        clear();
+
+        return req;
+    }
+}
@@ -0,0 +1,109 @@
+package nturbo1.http.parser.v1_1;
+
+import nturbo1.http.RequestBody;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.log.CustomLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Collects the bytes of a request body as they are parsed, in memory up to the spool threshold and in a temporary
+ * file past it. The body is checked against the maximum size as it grows, so a chunked body without a declared length
+ * is cut off as soon as it's too large.
+ */
+class RequestBodySink
+{
+    private final BodyLimits limits;
+    private byte[] bytes;
+    private Path file;
+    private FileChannel channel;
+    private long length;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final CustomLogger log = CustomLogger.getLogger(RequestBodySink.class.getName());
+
+    /**
+     * @param limits the limits to receive the body with.
+     * @param expectedLength the declared length of the body, or -1 if it's chunked.
+     */
+    RequestBodySink(BodyLimits limits, long expectedLength)
+    {
+        this.limits = limits;
+        int capacity = expectedLength < 0 ? INITIAL_CAPACITY : (int) Math.min(expectedLength, limits.spoolThreshold());
+        this.bytes = new byte[capacity];
+    }
+
+    long length() { return length; }
+
+    void write(byte[] b, int off, int len) throws IOException, RequestEntityTooLargeException
+    {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Takes all the remaining bytes of the buffer.
+     */
+    void write(ByteBuffer buf) throws IOException, RequestEntityTooLargeException
+    {
+        int n = buf.remaining();
+        if (length + n > limits.maxBodySize()) { throw new RequestEntityTooLargeException(limits.maxBodySize()); }
+
+        if (channel == null && length + n > limits.spoolThreshold()) { spool(); }
+        if (channel != null)
+        {
+            while (buf.hasRemaining()) { channel.write(buf); }
+        }
+        else
+        {
+            if (length + n > bytes.length)
+            {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Math.max(length + n, bytes.length * 2L),
+                        limits.spoolThreshold()));
+            }
+            buf.get(bytes, (int) length, n);
+        }
+        length += n;
+    }
+
+    /**
+     * @return the body, the sink must not be used anymore.
+     */
+    RequestBody finish() throws IOException
+    {
+        if (channel == null) { return RequestBody.inMemory(bytes, (int) length); }
+
+        channel.close();
+        return RequestBody.spooled(file, length);
+    }
+
+    /**
+     * Drops the body received so far, deleting its temporary file if there's one.
+     */
+    void abort()
+    {
+        try
+        {
+            if (channel != null) { channel.close(); }
+            if (file != null) { Files.deleteIfExists(file); }
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to delete the spooled request body " + file + " due to: " + e.getMessage());
+        }
+    }
+
+    private void spool() throws IOException
+    {
+        file = Files.createTempFile(limits.spoolDirectory(), "jwebserver-body-", ".tmp");
+        channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        ByteBuffer buf = ByteBuffer.wrap(bytes, 0, (int) length);
+        while (buf.hasRemaining()) { channel.write(buf); }
+        bytes = null;
+    }
+}
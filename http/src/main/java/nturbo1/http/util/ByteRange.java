@@ -0,0 +1,97 @@
+package nturbo1.http.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable range of bytes of a representation, as asked for by a Range header.
+ *
+ * @param first the offset of the first byte.
+ * @param last the offset of the last byte, inclusive.
+ */
+public record ByteRange(long first, long last)
+{
+    /**
+     * The most ranges served for one request. A request for more gets the whole representation, so that a client
+     * can't make the server send a file in thousands of tiny pieces.
+     */
+    public static final int MAX_RANGES = 16;
+
+    public long length() { return last - first + 1; }
+
+    /**
+     * @return the Content-Range value of this range, like "bytes 0-499/1234".
+     */
+    public String contentRange(long size) { return "bytes " + first + "-" + last + "/" + size; }
+
+    /**
+     * Parses the value of a Range header against a representation of the given size.
+     * <p>
+     *     byte-ranges-specifier = "bytes=" byte-range-spec *( "," byte-range-spec ), where a byte-range-spec is
+     *     "first-last", "first-" or the suffix "-length". Ranges beyond the end are clipped, the ones that start past
+     *     it are dropped.
+     * </p>
+     *
+     * @param value the value of the Range header.
+     * @param size the size of the representation.
+     * @return the satisfiable ranges in the order they were asked for, an empty list if none is satisfiable, or null
+     * if the header is to be ignored because it's malformed, of another unit or asks for too many ranges.
+     */
+    public static List<ByteRange> parse(String value, long size)
+    {
+        if (value == null) { return null; }
+
+        String spec = value.trim();
+        if (!spec.regionMatches(true, 0, "bytes=", 0, 6)) { return null; }
+
+        String[] specs = spec.substring(6).split(",");
+        if (specs.length > MAX_RANGES) { return null; }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String rangeSpec : specs)
+        {
+            String range = rangeSpec.trim();
+            int dash = range.indexOf('-');
+            if (dash == -1) { return null; }
+
+            long first;
+            long last;
+            try
+            {
+                if (dash == 0) // suffix: the last N bytes
+                {
+                    long suffixLength = parseNonNegative(range.substring(1));
+                    if (suffixLength == 0 || size == 0) { continue; }
+                    first = Math.max(0, size - suffixLength);
+                    last = size - 1;
+                }
+                else
+                {
+                    first = parseNonNegative(range.substring(0, dash));
+                    last = dash == range.length() - 1 ? size - 1 : parseNonNegative(range.substring(dash + 1));
+                    if (last < first && dash != range.length() - 1) { return null; }
+                    if (first >= size) { continue; }
+                    last = Math.min(last, size - 1);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+
+            ranges.add(new ByteRange(first, last));
+        }
+
+        return ranges;
+    }
+
+    private static long parseNonNegative(String digits)
+    {
+        if (digits.isEmpty() || digits.charAt(0) == '+' || digits.charAt(0) == '-')
+        {
+            throw new NumberFormatException("Not a byte position: " + digits);
+        }
+
+        return Long.parseLong(digits);
+    }
+}
@@ -1,22 +1,74 @@
 package nturbo1.http.util;
 
+import nturbo1.http.exceptions.HttpMessageParseException;
 import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 
 public class Bytes
 {
+    /** The longest line of a message head or a chunked body, excluding the line feed, that the parsers accept. */
+    public static final int MAX_LINE_LENGTH = 8 * 1024;
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LINE_FEEDS = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long SPACES = 0x2020202020202020L; // subtracted to find the bytes below a space
+    private static final long COLONS = 0x3A3A3A3A3A3A3A3AL;
+    private static final long DELETES = 0x7F7F7F7F7F7F7F7FL;
+
+    // What a byte is to a header line, looked up instead of branching on the byte itself.
+    private static final byte ORDINARY = 0;
+    private static final byte CONTROL = 1;
+    private static final byte CARRIAGE_RETURN = 2;
+    private static final byte COLON = 3;
+    private static final byte SPACE = 4;
+    private static final byte[] HEADER_LINE_CLASSES = new byte[256];
+    private static final boolean[] TOKEN_CHARS = new boolean[256];
+
+    static
+    {
+        // control characters in ASCII
+        for (int b : new int[] { '\u0000', '\u0001', '\u0007', '\u0008', '\t', '\u0010', '\u0012', '\u0013', 27, 127 })
+        {
+            HEADER_LINE_CLASSES[b] = CONTROL;
+        }
+        HEADER_LINE_CLASSES['\r'] = CARRIAGE_RETURN;
+        HEADER_LINE_CLASSES[':'] = COLON;
+        HEADER_LINE_CLASSES[' '] = SPACE;
+
+        // tchar = "!" / "#" / "$" / "%" / "&" / "'" / "*" / "+" / "-" / "." / "^" / "_" / "`" / "|" / "~" / DIGIT / ALPHA
+        for (int b = '0'; b <= '9'; b++) { TOKEN_CHARS[b] = true; }
+        for (int b = 'a'; b <= 'z'; b++) { TOKEN_CHARS[b] = true; }
+        for (int b = 'A'; b <= 'Z'; b++) { TOKEN_CHARS[b] = true; }
+        for (char b : "!#$%&'*+-.^_`|~".toCharArray()) { TOKEN_CHARS[b] = true; }
+    }
+
+    /**
+     * @return true if the byte may be part of a token, e.g. a header field name.
+     */
+    public static boolean isTokenChar(byte b) { return TOKEN_CHARS[b & 0xFF]; }
+
     /**
      * Reads byte by byte from a given input stream until it detects "\r\n" or '\n' or the end of the input stream.
+     * A {@link ReadBuffer} is read in bulk instead.
      *
      * @param iStream the input stream that the bytes are read from.
      * @return an array of bytes read excluding the newline symbols.
      * @throws IOException any IO error happened during a reading process.
+     * @throws HttpMessageParseException if the line is longer than {@link #MAX_LINE_LENGTH}.
      */
-    public static byte[] readLine(InputStream iStream) throws IOException
+    public static byte[] readLine(InputStream iStream) throws IOException, HttpMessageParseException
     {
+        if (iStream instanceof ReadBuffer readBuffer) { return readBuffer.readLine(); }
+
         ByteArrayOutputStream buf = new ByteArrayOutputStream();
         int nextByte;
 
@@ -30,6 +82,7 @@ public class Bytes
                 if (n == '\n') { break; }
             }
 
+            checkLineLength(buf.size());
             buf.write(nextByte);
         }
 
@@ -44,16 +97,22 @@ public class Bytes
      * <p>
      *     If the stream ends with no empty line, "\r\n" or '\n', then throws InvalidHttpMessageHeaderException.
      * </p>
+     * <p>
+     *     A {@link ReadBuffer} is read in bulk instead.
+     * </p>
      *
      * @param iStream the input stream that the bytes are read from.
      * @return an array of bytes read excluding the newline symbols.
      * @throws IOException any IO error happened during a reading process.
      * @throws InvalidHttpMessageHeaderException if an HTTP header line or the whole headers section ends with invalid
      * characters.
+     * @throws HttpMessageParseException if the line is longer than {@link #MAX_LINE_LENGTH}.
      */
     public static byte[] readHttpMessageHeaderLine(InputStream iStream)
-            throws IOException, InvalidHttpMessageHeaderException
+            throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
     {
+        if (iStream instanceof ReadBuffer readBuffer) { return readBuffer.readHttpMessageHeaderLine(); }
+
         ByteArrayOutputStream buf = new ByteArrayOutputStream();
         int nextByte;
         int continuousColonCount = 0; // whitespace is ignored between 2 colons
@@ -88,6 +147,7 @@ public class Bytes
                     continuousColonCount = 0;
             }
 
+            checkLineLength(buf.size());
             buf.write(nextByte);
         }
 
@@ -99,11 +159,147 @@ public class Bytes
         return buf.toByteArray();
     }
 
+    /**
+     * @param length the number of bytes of a line read so far, excluding the line feed.
+     * @throws HttpMessageParseException if one more byte would make the line longer than {@link #MAX_LINE_LENGTH}.
+     */
+    static void checkLineLength(int length) throws HttpMessageParseException
+    {
+        if (length >= MAX_LINE_LENGTH)
+        {
+            throw new HttpMessageParseException("HTTP message line is longer than " + MAX_LINE_LENGTH + " bytes.");
+        }
+    }
+
+    /**
+     * Applies the same checks as {@link #readHttpMessageHeaderLine(InputStream)} to a header line that is already in
+     * memory.
+     *
+     * @param line the header line bytes excluding the line ending.
+     * @param length the number of bytes of the line.
+     * @throws InvalidHttpMessageHeaderException if the header line contains invalid characters.
+     */
+    public static void validateHttpMessageHeaderLine(byte[] line, int length) throws InvalidHttpMessageHeaderException
+    {
+        validateHttpMessageHeaderLine(line, 0, length);
+    }
+
+    /**
+     * @param line the bytes holding the header line.
+     * @param from the index of the first byte of the line.
+     * @param to the index after the last byte of the line, excluding the line ending.
+     * @throws InvalidHttpMessageHeaderException if the header line contains invalid characters.
+     */
+    public static void validateHttpMessageHeaderLine(byte[] line, int from, int to)
+            throws InvalidHttpMessageHeaderException
+    {
+        int continuousColonCount = 0; // whitespace is ignored between 2 colons
+
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES)
+        {
+            // Eight bytes at a time while none of them is a control character, a colon or DEL. Such a word leaves
+            // no colon to count, unless it's all spaces and follows a colon.
+            long word = (long) LONG_VIEW.get(line, i);
+            if ((specialBytes(word) & HIGH_BITS) == 0 && continuousColonCount == 0) { continue; }
+
+            for (int j = i; j < i + Long.BYTES; j++)
+            {
+                continuousColonCount = validateHttpMessageHeaderByte(line[j], continuousColonCount);
+            }
+        }
+        if (i < to && to - from >= Long.BYTES && continuousColonCount == 0)
+        {
+            // The last eight bytes cover the rest, checking some bytes again does no harm.
+            long word = (long) LONG_VIEW.get(line, to - Long.BYTES);
+            if ((specialBytes(word) & HIGH_BITS) == 0) { return; }
+        }
+        for (; i < to; i++)
+        {
+            continuousColonCount = validateHttpMessageHeaderByte(line[i], continuousColonCount);
+        }
+    }
+
+    /**
+     * @return a word with the high bit set in each byte that is below a space, a colon or DEL, give or take the bytes
+     * above the first such byte.
+     */
+    private static long specialBytes(long word)
+    {
+        long colons = word ^ COLONS;
+        long deletes = word ^ DELETES;
+        return ((word - SPACES) & ~word) | ((colons - LOW_BITS) & ~colons) | ((deletes - LOW_BITS) & ~deletes);
+    }
+
+    /**
+     * @return the number of colons in a row, whitespace aside, including the given byte.
+     */
+    private static int validateHttpMessageHeaderByte(byte b, int continuousColonCount)
+            throws InvalidHttpMessageHeaderException
+    {
+        switch (HEADER_LINE_CLASSES[b & 0xFF])
+        {
+            case ORDINARY:
+                return 0;
+            case CONTROL:
+                throw new InvalidHttpMessageHeaderException(
+                        "ASCII Control characters are not allowed in HTTP message header lines");
+            case CARRIAGE_RETURN:
+                throw new InvalidHttpMessageHeaderException("Invalid header line ending with: \r");
+            case COLON:
+                if (continuousColonCount == 1)
+                {
+                    throw new InvalidHttpMessageHeaderException("Invalid header line containing double colons.");
+                }
+                return continuousColonCount + 1;
+            default: // a space between two colons
+                return continuousColonCount;
+        }
+    }
+
+    /**
+     * Fills the whole array from the given input stream with bulk reads.
+     *
+     * @param iStream the input stream that the bytes are read from.
+     * @param buf the array to fill.
+     * @throws EOFException if the stream ends before the array is full.
+     * @throws IOException any IO error happened during a reading process.
+     */
     public static void read(InputStream iStream, byte[] buf) throws IOException
     {
-        for (int i = 0; i < buf.length; i++)
+        int n = iStream.readNBytes(buf, 0, buf.length);
+        if (n < buf.length)
+        {
+            throw new EOFException("Stream ended after " + n + " of " + buf.length + " expected bytes.");
+        }
+    }
+
+    /**
+     * Searches for a line feed eight bytes at a time, using the "has zero byte" bit trick on each word after XOR-ing
+     * it with a word full of line feeds.
+     *
+     * @param bytes the array to search in.
+     * @param from the index to start from, inclusive.
+     * @param to the index to stop at, exclusive.
+     * @return the index of the first line feed, or -1 if there is none in the range.
+     */
+    public static int indexOfLineFeed(byte[] bytes, int from, int to)
+    {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES)
         {
-            buf[i] = (byte) iStream.read();
+            long word = (long) LONG_VIEW.get(bytes, i) ^ LINE_FEEDS;
+            long matches = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (matches != 0)
+            {
+                return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+        for (; i < to; i++)
+        {
+            if (bytes[i] == '\n') { return i; }
         }
+
+        return -1;
     }
 }
\ No newline at end of file
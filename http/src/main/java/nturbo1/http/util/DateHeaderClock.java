@@ -0,0 +1,54 @@
+package nturbo1.http.util;
+
+import nturbo1.http.GeneralHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the "Date: ...\r\n" header line of the current second as ready to copy bytes.
+ * <p>
+ *     The Date header only changes once a second, so instead of formatting it for every response the line is
+ *     rendered again by the first caller that sees a new second, and every other caller within that second gets the
+ *     same bytes. Callers racing at the turn of a second may each render the line, which is harmless.
+ * </p>
+ */
+public class DateHeaderClock
+{
+    private static final DateHeaderClock SYSTEM = new DateHeaderClock(System::currentTimeMillis);
+
+    private final LongSupplier currentTimeMillis;
+    private volatile Tick tick = new Tick(Long.MIN_VALUE, null);
+
+    private record Tick(long second, byte[] headerLine) {}
+
+    DateHeaderClock(LongSupplier currentTimeMillis) { this.currentTimeMillis = currentTimeMillis; }
+
+    /**
+     * @return the clock that follows the system time.
+     */
+    public static DateHeaderClock system() { return SYSTEM; }
+
+    /**
+     * @return the Date header line of the current second, including the name and the CRLF. The array is shared by
+     * all callers so must not be modified.
+     */
+    public byte[] dateHeaderLine()
+    {
+        long second = Math.floorDiv(currentTimeMillis.getAsLong(), 1000L);
+        Tick current = tick;
+        if (current.second != second)
+        {
+            current = new Tick(second, render(second));
+            tick = current;
+        }
+
+        return current.headerLine;
+    }
+
+    private static byte[] render(long second)
+    {
+        return (GeneralHeader.DATE.getName() + ": " + HttpDate.format(second * 1000L) + "\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+}
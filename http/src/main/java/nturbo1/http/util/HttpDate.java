@@ -0,0 +1,70 @@
+package nturbo1.http.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+
+/**
+ * HTTP-date in the preferred RFC 1123 form, e.g. "Sun, 06 Nov 1994 08:49:37 GMT".
+ * <p>
+ *     {@link DateTimeFormatter#RFC_1123_DATE_TIME} isn't used because it doesn't pad the day of the month to two
+ *     digits, which HTTP requires.
+ * </p>
+ */
+public class HttpDate
+{
+    /**
+     * Returned by {@link #parse(String)} for a value that isn't an HTTP-date.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    // The obsolete forms that recipients must still accept: "Sunday, 06-Nov-94 08:49:37 GMT" and
+    // "Sun Nov  6 08:49:37 1994".
+    private static final DateTimeFormatter RFC_850_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("EEEE, dd-MMM-")
+            .appendValueReduced(ChronoField.YEAR, 2, 2, 1970)
+            .appendPattern(" HH:mm:ss 'GMT'")
+            .toFormatter(Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ASCTIME_FORMATTER =
+            DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss yyyy", Locale.US).withZone(ZoneOffset.UTC);
+
+    private HttpDate() {}
+
+    /**
+     * @param epochMillis a point in time, only the whole seconds of it are used.
+     * @return the HTTP-date of the given time.
+     */
+    public static String format(long epochMillis) { return FORMATTER.format(Instant.ofEpochMilli(epochMillis)); }
+
+    /**
+     * Parses an HTTP-date in any of the three forms HTTP/1.1 allows.
+     *
+     * @return the time in milliseconds since the epoch, or {@link #INVALID} if the value isn't an HTTP-date.
+     */
+    public static long parse(String value)
+    {
+        if (value == null) { return INVALID; }
+
+        String trimmed = value.trim();
+        DateTimeFormatter formatter;
+        if (trimmed.length() > 3 && trimmed.charAt(3) == ',') { formatter = FORMATTER; }
+        else if (trimmed.indexOf(',') != -1) { formatter = RFC_850_FORMATTER; }
+        else { formatter = ASCTIME_FORMATTER; }
+
+        try
+        {
+            return Instant.from(formatter.parse(trimmed)).toEpochMilli();
+        }
+        catch (DateTimeException e)
+        {
+            return INVALID;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package nturbo1.http.util;
+
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpRequestHeader;
+import nturbo1.http.HttpStatus;
+
+/**
+ * Evaluates the conditional headers of a request against the validators of the selected representation, in the
+ * order RFC 7232 section 6 gives: If-Match, If-Unmodified-Since, If-None-Match and If-Modified-Since.
+ * <p>
+ *     Meant to be called before the representation is read, so that a revalidation that comes out unchanged costs no
+ *     more than the lookup of the validators.
+ * </p>
+ */
+public class Preconditions
+{
+    private Preconditions() {}
+
+    /**
+     * @param req the request.
+     * @param etag the strong entity-tag of the representation, quotes included.
+     * @param lastModifiedMillis the modification time of the representation.
+     * @return null if the request should be answered as usual, {@link HttpStatus#NOT_MODIFIED} or
+     * {@link HttpStatus#PRECONDITION_FAILED} otherwise.
+     */
+    public static HttpStatus evaluate(HttpRequest req, String etag, long lastModifiedMillis)
+    {
+        if (req.getHeaders() == null || req.getHeaders().isEmpty()) { return null; }
+
+        long lastModifiedSecond = lastModifiedMillis / 1000; // HTTP-dates have whole seconds only
+
+        String ifMatch = req.getHeader(HttpRequestHeader.IF_MATCH);
+        if (ifMatch != null)
+        {
+            if (!matches(ifMatch, etag, false)) { return HttpStatus.PRECONDITION_FAILED; }
+        }
+        else
+        {
+            long ifUnmodifiedSince = HttpDate.parse(req.getHeader(HttpRequestHeader.IF_UNMODIFIED_SINCE));
+            if (ifUnmodifiedSince != HttpDate.INVALID && lastModifiedSecond > ifUnmodifiedSince / 1000)
+            {
+                return HttpStatus.PRECONDITION_FAILED;
+            }
+        }
+
+        boolean safe = req.getMethod() == HttpMethod.GET || req.getMethod() == HttpMethod.HEAD;
+        String ifNoneMatch = req.getHeader(HttpRequestHeader.IF_NONE_MATCH);
+        if (ifNoneMatch != null)
+        {
+            if (!matches(ifNoneMatch, etag, true)) { return null; }
+
+            return safe ? HttpStatus.NOT_MODIFIED : HttpStatus.PRECONDITION_FAILED;
+        }
+
+        if (safe)
+        {
+            long ifModifiedSince = HttpDate.parse(req.getHeader(HttpRequestHeader.IF_MODIFIED_SINCE));
+            if (ifModifiedSince != HttpDate.INVALID && ifModifiedSince <= System.currentTimeMillis() &&
+                    lastModifiedSecond <= ifModifiedSince / 1000)
+            {
+                return HttpStatus.NOT_MODIFIED;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks whether the Range header of a request is to be honored: only if the request has no If-Range, or if the
+     * representation is still the one the If-Range names by its entity-tag or its modification date.
+     *
+     * @return true if the ranges are to be served, false if the whole representation is to be served.
+     */
+    public static boolean ifRangeHolds(HttpRequest req, String etag, long lastModifiedMillis)
+    {
+        String ifRange = req.getHeader(HttpRequestHeader.IF_RANGE);
+        if (ifRange == null) { return true; }
+
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/"))
+        {
+            return validator.equals(etag); // the strong comparison, a weak tag never matches
+        }
+
+        long date = HttpDate.parse(validator);
+        return date != HttpDate.INVALID && date / 1000 == lastModifiedMillis / 1000;
+    }
+
+    /**
+     * @param list the value of an If-Match or If-None-Match header: "*" or a comma separated list of entity-tags.
+     * @param etag the strong entity-tag to look for.
+     * @param weak whether the weak comparison is used, under which "W/" prefixes are ignored.
+     * @return true if any of the tags in the list matches.
+     */
+    static boolean matches(String list, String etag, boolean weak)
+    {
+        if (list.trim().equals("*")) { return true; }
+
+        int i = 0;
+        int length = list.length();
+        while (i < length)
+        {
+            while (i < length && (list.charAt(i) == ' ' || list.charAt(i) == '\t' || list.charAt(i) == ',')) { i++; }
+            if (i == length) { break; }
+
+            boolean weakTag = list.startsWith("W/", i);
+            if (weakTag) { i += 2; }
+
+            int start = i;
+            if (i < length && list.charAt(i) == '"')
+            {
+                int close = list.indexOf('"', i + 1);
+                i = close == -1 ? length : close + 1;
+            }
+            else // not a quoted tag, skipped up to the next comma
+            {
+                while (i < length && list.charAt(i) != ',') { i++; }
+                continue;
+            }
+
+            if ((weak || !weakTag) && list.regionMatches(start, etag, 0, etag.length()) && i - start == etag.length())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,244 @@
+package nturbo1.http.util;
+
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A per-connection read buffer sitting between a socket input stream and the HTTP parsers.
+ * <p>
+ *     The buffer is filled with one bulk read of whatever the socket has, and lines are cut out of it by searching
+ *     for the line feed a word at a time with {@link Bytes#indexOfLineFeed(byte[], int, int)}. So reading a request
+ *     head costs a handful of reads on the underlying stream instead of one per byte.
+ * </p>
+ * <p>
+ *     {@link Bytes#readLine(InputStream)}, {@link Bytes#readHttpMessageHeaderLine(InputStream)} and
+ *     {@link Bytes#read(InputStream, byte[])} take the fast path when they are given a ReadBuffer, so the parsers
+ *     work on it unchanged. The buffer is meant to be reused for every request of a connection, bytes of the next
+ *     request that arrive together with the current one stay in the buffer.
+ * </p>
+ */
+public class ReadBuffer extends InputStream
+{
+    public static final int DEFAULT_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+
+    public ReadBuffer(InputStream in) { this(in, DEFAULT_SIZE); }
+
+    public ReadBuffer(InputStream in, int size)
+    {
+        this.in = in;
+        this.buf = new byte[size];
+    }
+
+    /**
+     * Reads a line ending with "\r\n" or '\n', or the rest of the stream if it doesn't end with a line feed.
+     *
+     * @return the line excluding the line ending.
+     * @throws IOException if the underlying stream fails.
+     * @throws HttpMessageParseException if the line is longer than {@link Bytes#MAX_LINE_LENGTH}.
+     */
+    public byte[] readLine() throws IOException, HttpMessageParseException
+    {
+        int lineEnd = findLineFeed();
+        if (lineEnd == -1)
+        {
+            byte[] rest = Arrays.copyOfRange(buf, pos, limit);
+            pos = limit;
+            return rest;
+        }
+
+        return takeLine(lineEnd);
+    }
+
+    /**
+     * Reads an HTTP message header line with the same rules as {@link Bytes#readHttpMessageHeaderLine(InputStream)}.
+     *
+     * @return the header line excluding the line ending.
+     * @throws InvalidHttpMessageHeaderException if the line contains invalid characters or the stream ends before the
+     * line does.
+     * @throws HttpMessageParseException if the line is longer than {@link Bytes#MAX_LINE_LENGTH}.
+     */
+    public byte[] readHttpMessageHeaderLine()
+            throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        int lineEnd = findLineFeed();
+        if (lineEnd == -1)
+        {
+            throw new InvalidHttpMessageHeaderException("HTTP message headers section didn't end with empty line");
+        }
+
+        byte[] line = takeLine(lineEnd);
+        Bytes.validateHttpMessageHeaderLine(line, line.length);
+
+        return line;
+    }
+
+    /**
+     * Reads an HTTP message header line like {@link #readHttpMessageHeaderLine()}, but adds it to the headers right
+     * from the buffer instead of returning a copy.
+     *
+     * @return the number of bytes the line took up including its line ending, or 0 if it was the empty line that
+     * ends the headers section.
+     * @throws InvalidHttpMessageHeaderException if the line is invalid or the stream ends before the line does.
+     * @throws HttpMessageParseException if the line is longer than {@link Bytes#MAX_LINE_LENGTH}.
+     */
+    public int readHttpMessageHeaderLine(HttpHeaders headers)
+            throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException
+    {
+        int lineFeed = findLineFeed();
+        if (lineFeed == -1)
+        {
+            throw new InvalidHttpMessageHeaderException("HTTP message headers section didn't end with empty line");
+        }
+
+        int start = pos;
+        int end = lineFeed > pos && buf[lineFeed - 1] == '\r' ? lineFeed - 1 : lineFeed;
+        pos = lineFeed + 1;
+        if (start == end) { return 0; }
+
+        Bytes.validateHttpMessageHeaderLine(buf, start, end);
+        headers.addLine(buf, start, end);
+
+        return pos - start;
+    }
+
+    /**
+     * Waits for the next byte if nothing is buffered, which makes it a good place to sit between two requests.
+     *
+     * @return true if the stream ended without any more bytes.
+     */
+    public boolean isAtEndOfStream() throws IOException { return pos == limit && fill() == -1; }
+
+    /**
+     * @return the number of bytes that can be read without touching the underlying stream.
+     */
+    public int bufferedBytes() { return limit - pos; }
+
+    /**
+     * Tells whether a whole request head, up to and including the empty line, is already buffered. Never touches the
+     * underlying stream, so it can be used to decide if the next pipelined request can be parsed without waiting.
+     *
+     * @return true if the buffered bytes contain an empty line.
+     */
+    public boolean hasBufferedHead()
+    {
+        int lineFeed = Bytes.indexOfLineFeed(buf, pos, limit);
+        while (lineFeed != -1)
+        {
+            int next = lineFeed + 1;
+            if (next < limit && buf[next] == '\r') { next++; }
+            if (next < limit && buf[next] == '\n') { return true; }
+
+            lineFeed = Bytes.indexOfLineFeed(buf, lineFeed + 1, limit);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (pos == limit && fill() == -1) { return -1; }
+
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0) { return 0; }
+
+        int buffered = limit - pos;
+        if (buffered > 0)
+        {
+            int n = Math.min(buffered, len);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        // Nothing buffered: large reads go straight into the caller's array instead of being copied twice.
+        if (len >= buf.length) { return in.read(b, off, len); }
+
+        if (fill() == -1) { return -1; }
+        int n = Math.min(limit - pos, len);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException { return (limit - pos) + in.available(); }
+
+    @Override
+    public void close() throws IOException { in.close(); }
+
+    /**
+     * @return the index of the next line feed in the buffer, reading more bytes from the stream as needed, or -1 if
+     * the stream ends first.
+     * @throws HttpMessageParseException if there are more than {@link Bytes#MAX_LINE_LENGTH} bytes before the line
+     * feed. The buffer never grows much past that while looking for one.
+     */
+    private int findLineFeed() throws IOException, HttpMessageParseException
+    {
+        int searchFrom = pos;
+        while (true)
+        {
+            int lineFeed = Bytes.indexOfLineFeed(buf, searchFrom, limit);
+            int searched = (lineFeed == -1 ? limit : lineFeed) - pos;
+            if (searched > Bytes.MAX_LINE_LENGTH)
+            {
+                throw new HttpMessageParseException("HTTP message line is longer than " + Bytes.MAX_LINE_LENGTH +
+                        " bytes.");
+            }
+            if (lineFeed != -1) { return lineFeed; }
+
+            if (fill() == -1) { return -1; }
+            searchFrom = pos + searched;
+        }
+    }
+
+    private byte[] takeLine(int lineFeed)
+    {
+        int end = lineFeed > pos && buf[lineFeed - 1] == '\r' ? lineFeed - 1 : lineFeed;
+        byte[] line = Arrays.copyOfRange(buf, pos, end);
+        pos = lineFeed + 1;
+
+        return line;
+    }
+
+    /**
+     * Reads more bytes from the stream after the ones already buffered, moving them to the front of the buffer or
+     * growing it if there is no room left.
+     *
+     * @return the number of bytes read, or -1 at the end of the stream.
+     */
+    private int fill() throws IOException
+    {
+        if (pos > 0)
+        {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length)
+        {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n > 0) { limit += n; }
+
+        return n;
+    }
+}
@@ -0,0 +1,263 @@
+package nturbo1.loadgen;
+
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.parser.v1_1.BodyLimits;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
+import nturbo1.log.CustomLogger;
+import org.HdrHistogram.Histogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of one connection on its schedule and records how long each took to be answered.
+ * <p>
+ *     With a fixed rate, the n-th request of the connection is due at start + n * interval whether or not the
+ *     previous ones were answered in time, and its latency is measured from that moment rather than from when it
+ *     actually went out. A server that stalls for a second is then charged for every request that should've been
+ *     sent during that second, not just for the one that was waiting, which is the coordinated omission correction.
+ *     Up to the pipeline depth of requests that are due are written back to back before the responses are read.
+ * </p>
+ * <p>
+ *     Without a rate, the connection is closed loop: the next requests go out as soon as the previous responses are
+ *     in, and the latency is measured from the actual send.
+ * </p>
+ */
+class ConnectionWorker implements Runnable
+{
+    private static final CustomLogger log = CustomLogger.getLogger(ConnectionWorker.class.getName());
+
+    /** Chunked response bodies are decoded by the request body parser, kept in memory so no disk IO is measured. */
+    private static final BodyLimits CHUNKED_BODY_LIMITS =
+            new BodyLimits(Long.MAX_VALUE, Integer.MAX_VALUE, Path.of(System.getProperty("java.io.tmpdir")));
+
+    private final int port;
+    private final List<ReplayRequest> requests;
+    private final int pipelineDepth;
+    private final boolean keepAlive;
+    private final long intervalNanos;
+    private final long startNanos;
+    private final long measureFromNanos;
+    private final long endNanos;
+    private int nextRequest;
+
+    /** Latencies in microseconds of the requests due after the warmup. */
+    final Histogram histogram = new Histogram(3);
+    long completed;
+    long errors;
+    long errorResponses;
+    long connectionsOpened;
+
+    private Socket socket;
+    private OutputStream out;
+    private ReadBuffer in;
+    private int lastStatus;
+
+    /**
+     * @param firstRequest the index of the request to send first, so that the connections don't all replay the
+     *                     requests in step.
+     * @param intervalNanos the time between two requests of this connection, 0 for a closed loop.
+     * @param startNanos when the first request is due, in {@link System#nanoTime()} time.
+     * @param measureFromNanos the end of the warmup, the requests due before aren't recorded.
+     * @param endNanos when to stop sending.
+     */
+    ConnectionWorker(int port, List<ReplayRequest> requests, int firstRequest, int pipelineDepth, boolean keepAlive,
+                     long intervalNanos, long startNanos, long measureFromNanos, long endNanos)
+    {
+        this.port = port;
+        this.requests = requests;
+        this.nextRequest = firstRequest % requests.size();
+        this.pipelineDepth = pipelineDepth;
+        this.keepAlive = keepAlive;
+        this.intervalNanos = intervalNanos;
+        this.startNanos = startNanos;
+        this.measureFromNanos = measureFromNanos;
+        this.endNanos = endNanos;
+    }
+
+    @Override
+    public void run()
+    {
+        ReplayRequest[] batch = new ReplayRequest[pipelineDepth];
+        long[] due = new long[pipelineDepth];
+        long nextDue = startNanos;
+        try
+        {
+            while (true)
+            {
+                long now = System.nanoTime();
+                if (intervalNanos > 0)
+                {
+                    if (nextDue >= endNanos) { break; }
+                    if (now < nextDue)
+                    {
+                        LockSupport.parkNanos(nextDue - now);
+                        continue;
+                    }
+                }
+                else if (now >= endNanos)
+                {
+                    break;
+                }
+
+                // Everything that's due goes out together, up to the pipeline depth.
+                int size = 0;
+                do
+                {
+                    due[size] = intervalNanos > 0 ? nextDue : now;
+                    batch[size++] = requests.get(nextRequest);
+                    nextRequest = (nextRequest + 1) % requests.size();
+                    nextDue += intervalNanos;
+                }
+                while (size < pipelineDepth && nextDue <= now && nextDue < endNanos);
+
+                exchange(batch, due, size);
+            }
+        }
+        finally
+        {
+            disconnect();
+        }
+    }
+
+    /**
+     * Sends the batch and reads the responses. If the server closes the connection after one of them, the requests
+     * it left unanswered are sent again over a new connection, still due when they were first due.
+     */
+    private void exchange(ReplayRequest[] batch, long[] due, int size)
+    {
+        int answered = 0;
+        while (answered < size)
+        {
+            try
+            {
+                if (socket == null) { connect(); }
+                for (int i = answered; i < size; i++) { out.write(batch[i].bytes()); }
+                out.flush();
+
+                boolean open = true;
+                while (open && answered < size)
+                {
+                    open = readResponse(batch[answered]);
+                    record(due[answered++], lastStatus);
+                }
+
+                if (!open || !keepAlive) { disconnect(); }
+            }
+            catch (IOException | InvalidHttpMessageHeaderException | HttpMessageParseException |
+                   BadHttpRequestHeaderException ex)
+            {
+                log.debug("Request failed because: " + ex.getMessage());
+                if (due[answered] >= measureFromNanos) { errors += size - answered; }
+                disconnect();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the response to the request, skipping any interim 1xx response before it.
+     *
+     * @return whether the server keeps the connection open afterwards.
+     */
+    private boolean readResponse(ReplayRequest request)
+            throws IOException, InvalidHttpMessageHeaderException, HttpMessageParseException,
+            BadHttpRequestHeaderException
+    {
+        int status;
+        HttpHeaders headers;
+        do
+        {
+            status = parseStatusCode(Bytes.readLine(in));
+            headers = HttpMessageParser.parseHttpMessageHeaders(in);
+        }
+        while (status < 200);
+
+        lastStatus = status;
+        if (!request.head() && status != 204 && status != 304)
+        {
+            long bodyLength = HttpMessageParser.getMessageBodyLength(headers);
+            if (bodyLength == HttpMessageParser.CHUNKED_BODY_LENGTH)
+            {
+                HttpMessageParser.readMessageBody(in, headers, CHUNKED_BODY_LIMITS).close();
+            }
+            else
+            {
+                in.skipNBytes(bodyLength);
+            }
+        }
+
+        return !headers.containsElement(GeneralHeader.CONNECTION, "close");
+    }
+
+    private void record(long due, int status)
+    {
+        if (due < measureFromNanos) { return; }
+
+        histogram.recordValue(Math.max(0, (System.nanoTime() - due) / 1000));
+        completed++;
+        if (status >= 400) { errorResponses++; }
+    }
+
+    private static int parseStatusCode(byte[] statusLine) throws IOException
+    {
+        // HTTP/1.1 200 OK
+        if (statusLine.length == 0) { throw new EOFException("The server closed the connection."); }
+        if (statusLine.length < 12 || statusLine[8] != ' ')
+        {
+            throw new IOException("Invalid status line: " + new String(statusLine, StandardCharsets.ISO_8859_1));
+        }
+
+        int status = 0;
+        for (int i = 9; i < 12; i++)
+        {
+            int digit = statusLine[i] - '0';
+            if (digit < 0 || digit > 9)
+            {
+                throw new IOException("Invalid status line: " + new String(statusLine, StandardCharsets.ISO_8859_1));
+            }
+            status = status * 10 + digit;
+        }
+
+        return status;
+    }
+
+    private void connect() throws IOException
+    {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        out = socket.getOutputStream();
+        in = new ReadBuffer(socket.getInputStream());
+        connectionsOpened++;
+    }
+
+    private void disconnect()
+    {
+        if (socket == null) { return; }
+
+        try
+        {
+            socket.close();
+        }
+        catch (IOException ex)
+        {
+            log.debug("Failed to close the connection because: " + ex.getMessage());
+        }
+        socket = null;
+    }
+}
@@ -0,0 +1,71 @@
+package nturbo1.loadgen;
+
+import nturbo1.loadgen.cmd.Argument;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The load generator settings taken from the command line arguments, with the defaults filled in for the missing ones.
+ */
+public class LoadConfig
+{
+    private final int connections;
+    private final int rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int pipelineDepth;
+    private final boolean keepAlive;
+    private final Path requests;
+    private final Path histogram;
+
+    private static final int DEFAULT_CONNECTIONS = 8;
+    private static final int DEFAULT_RATE = 1000;
+    private static final int DEFAULT_DURATION_SECONDS = 10;
+    private static final int DEFAULT_WARMUP_SECONDS = 2;
+    private static final int DEFAULT_PIPELINE_DEPTH = 1;
+
+    private LoadConfig(Map<String, String> args)
+    {
+        this.connections = getInt(args, Argument.CONNECTIONS, DEFAULT_CONNECTIONS);
+        this.rate = getInt(args, Argument.RATE, DEFAULT_RATE);
+        this.durationNanos = getInt(args, Argument.DURATION, DEFAULT_DURATION_SECONDS) * 1_000_000_000L;
+        this.warmupNanos = getInt(args, Argument.WARMUP, DEFAULT_WARMUP_SECONDS) * 1_000_000_000L;
+        this.keepAlive = !args.containsKey(Argument.NO_KEEP_ALIVE);
+        // A request can't be pipelined behind another on a connection that's closed after every response.
+        this.pipelineDepth = keepAlive ? getInt(args, Argument.PIPELINE, DEFAULT_PIPELINE_DEPTH) : 1;
+        this.requests = args.containsKey(Argument.REQUESTS) ? Path.of(args.get(Argument.REQUESTS)) : null;
+        this.histogram = args.containsKey(Argument.HISTOGRAM) ? Path.of(args.get(Argument.HISTOGRAM)) : null;
+    }
+
+    public static LoadConfig fromArgs(Map<String, String> args) { return new LoadConfig(args); }
+
+    private static int getInt(Map<String, String> args, String argName, int defaultValue)
+    {
+        String value = args.get(argName);
+
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public int getConnections() { return connections; }
+    public long getDurationNanos() { return durationNanos; }
+    public long getWarmupNanos() { return warmupNanos; }
+    public int getPipelineDepth() { return pipelineDepth; }
+    public boolean isKeepAlive() { return keepAlive; }
+
+    /**
+     * @return the requests per second sent over all the connections together, 0 to send each request as soon as the
+     * response to the previous one is in.
+     */
+    public int getRate() { return rate; }
+
+    /**
+     * @return the JSONL file of the requests to replay, or null to send "GET /" only.
+     */
+    public Path getRequests() { return requests; }
+
+    /**
+     * @return the file to write the whole latency distribution to, or null if it's only summed up on the console.
+     */
+    public Path getHistogram() { return histogram; }
+}
@@ -0,0 +1,99 @@
+package nturbo1.loadgen;
+
+import nturbo1.http.exceptions.cmd.UnknownArgException;
+import nturbo1.http.exceptions.cmd.WrongArgFormatException;
+import nturbo1.loadgen.cmd.Argument;
+import nturbo1.loadgen.cmd.CommandLineParser;
+import nturbo1.log.LogConfig;
+import nturbo1.server.HttpServer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The load generator application. It drives a server already running on the loopback interface, or one it starts
+ * in the same JVM to serve a directory.
+ */
+public class LoadGenApp
+{
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Map<String, String> argsMap = parseArgs(args);
+        LogConfig.setup(false);
+        // The embedded server logs every request, which would slow it down more than the load does.
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        LoadConfig config = LoadConfig.fromArgs(argsMap);
+        List<ReplayRequest> requests = config.getRequests() != null
+                ? ReplayRequest.readAll(config.getRequests())
+                : List.of(ReplayRequest.DEFAULT);
+
+        HttpServer server = null;
+        Thread serverThread = null;
+        int port;
+        if (argsMap.containsKey(Argument.PORT))
+        {
+            port = Integer.parseInt(argsMap.get(Argument.PORT));
+        }
+        else
+        {
+            server = HttpServer.init(Map.of(
+                    nturbo1.cmd.Argument.PORT, "0",
+                    nturbo1.cmd.Argument.ROOT, argsMap.get(Argument.ROOT),
+                    nturbo1.cmd.Argument.TRANSPORT, argsMap.getOrDefault(Argument.TRANSPORT, "nio")));
+            if (server == null)
+            {
+                System.out.println("Failed to initialize an http server! Exiting...");
+                System.exit(1);
+            }
+
+            serverThread = Thread.ofPlatform().name("server").start(server::start);
+            port = server.getPort();
+        }
+
+        System.out.printf("Replaying %d request(s) to port %d over %d %s connection(s), %s, %d s warmup, %d s run%n",
+                requests.size(), port, config.getConnections(), describeConnections(config),
+                config.getRate() > 0 ? config.getRate() + " requests per second" : "as fast as answered",
+                config.getWarmupNanos() / 1_000_000_000L, config.getDurationNanos() / 1_000_000_000L);
+
+        LoadResult result = new LoadGenerator(config, requests, port).run();
+        result.print(System.out);
+        if (config.getHistogram() != null)
+        {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(config.getHistogram())))
+            {
+                result.printDistribution(out);
+            }
+        }
+
+        if (server != null)
+        {
+            server.stop();
+            serverThread.join();
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args)
+    {
+        try {
+            return CommandLineParser.parseArgs(args);
+        } catch (WrongArgFormatException | UnknownArgException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+
+        return null;
+    }
+
+    private static String describeConnections(LoadConfig config)
+    {
+        if (!config.isKeepAlive()) { return "new"; }
+
+        return config.getPipelineDepth() > 1 ? "pipelined (depth " + config.getPipelineDepth() + ")" : "keep-alive";
+    }
+}
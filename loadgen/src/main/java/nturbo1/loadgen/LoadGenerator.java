@@ -0,0 +1,70 @@
+package nturbo1.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays requests over a number of connections to a server on the loopback interface and puts together what each
+ * connection measured.
+ */
+public class LoadGenerator
+{
+    /** Time given to the threads to start before the first request is due. */
+    private static final long START_DELAY_NANOS = 100_000_000L;
+
+    private final LoadConfig config;
+    private final List<ReplayRequest> requests;
+    private final int port;
+
+    public LoadGenerator(LoadConfig config, List<ReplayRequest> requests, int port)
+    {
+        this.config = config;
+        this.requests = requests;
+        this.port = port;
+    }
+
+    /**
+     * Runs the warmup and the measurement and returns when every connection is done.
+     */
+    public LoadResult run() throws InterruptedException
+    {
+        int connections = config.getConnections();
+        // Each connection takes its share of the rate, and starts a fraction of its interval after the previous one
+        // so that the requests of all the connections together are evenly spaced.
+        long intervalNanos = config.getRate() > 0 ? connections * 1_000_000_000L / config.getRate() : 0;
+        long startNanos = System.nanoTime() + START_DELAY_NANOS;
+        long measureFromNanos = startNanos + config.getWarmupNanos();
+        long endNanos = measureFromNanos + config.getDurationNanos();
+
+        List<ConnectionWorker> workers = new ArrayList<>(connections);
+        List<Thread> threads = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++)
+        {
+            ConnectionWorker worker = new ConnectionWorker(port, requests, i, config.getPipelineDepth(),
+                    config.isKeepAlive(), intervalNanos, startNanos + i * intervalNanos / connections,
+                    measureFromNanos, endNanos);
+            workers.add(worker);
+            threads.add(Thread.ofPlatform().name("loadgen-" + i).start(worker));
+        }
+        for (Thread thread : threads) { thread.join(); }
+
+        Histogram histogram = new Histogram(3);
+        long completed = 0;
+        long errors = 0;
+        long errorResponses = 0;
+        long connectionsOpened = 0;
+        for (ConnectionWorker worker : workers)
+        {
+            histogram.add(worker.histogram);
+            completed += worker.completed;
+            errors += worker.errors;
+            errorResponses += worker.errorResponses;
+            connectionsOpened += worker.connectionsOpened;
+        }
+
+        return new LoadResult(histogram, completed, errors, errorResponses, connectionsOpened,
+                config.getDurationNanos());
+    }
+}
@@ -0,0 +1,48 @@
+package nturbo1.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+
+/**
+ * What was measured after the warmup.
+ *
+ * @param histogram response times in microseconds.
+ * @param completed the requests that got a response.
+ * @param errors the requests that didn't, because the connection failed or the response couldn't be read.
+ * @param errorResponses the responses with a 4xx or 5xx status, which are also counted as completed.
+ * @param connectionsOpened the connections opened, warmup included.
+ * @param durationNanos how long the measurement ran.
+ */
+public record LoadResult(Histogram histogram, long completed, long errors, long errorResponses,
+                         long connectionsOpened, long durationNanos)
+{
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    public double throughput() { return completed * 1_000_000_000.0 / durationNanos; }
+
+    public void print(PrintStream out)
+    {
+        out.printf("Requests:     %d in %.1f s, %.1f per second%n", completed, durationNanos / 1e9, throughput());
+        out.printf("Errors:       %d, and %d responses with a 4xx or 5xx status%n", errors, errorResponses);
+        out.printf("Connections:  %d opened%n", connectionsOpened);
+        out.println("Latency (ms):");
+        for (double percentile : new double[] { 50, 90, 99, 99.9, 99.99 })
+        {
+            out.printf("  p%-8s %10.3f%n", format(percentile), histogram.getValueAtPercentile(percentile) /
+                    MICROS_PER_MILLI);
+        }
+        out.printf("  %-9s %10.3f%n", "max", histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    /**
+     * Writes the whole distribution in the HdrHistogram percentile format, in milliseconds, which the HdrHistogram
+     * plotter reads.
+     */
+    public void printDistribution(PrintStream out) { histogram.outputPercentileDistribution(out, MICROS_PER_MILLI); }
+
+    private static String format(double percentile)
+    {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+}
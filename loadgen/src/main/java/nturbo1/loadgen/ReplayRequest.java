@@ -0,0 +1,139 @@
+package nturbo1.loadgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A request sent as it is, byte for byte, over and over again.
+ *
+ * @param name what the request is called in the file it was read from.
+ * @param bytes the raw request, line endings and body included.
+ * @param head whether it's a HEAD request, whose response has headers that describe a body it doesn't have.
+ */
+public record ReplayRequest(String name, byte[] bytes, boolean head)
+{
+    /** What's sent when no request file is given. */
+    public static final ReplayRequest DEFAULT = of("default", "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+    public static ReplayRequest of(String name, String request)
+    {
+        return new ReplayRequest(name, request.getBytes(StandardCharsets.ISO_8859_1), request.startsWith("HEAD "));
+    }
+
+    /**
+     * Reads the requests of a JSONL file. Each line is a JSON object with the raw "request", line endings and body
+     * included, and optionally a "name", which is the format of the corpus of the benchmarks module.
+     *
+     * @throws IllegalArgumentException if a line isn't such an object or the file has no requests.
+     */
+    public static List<ReplayRequest> readAll(Path file) throws IOException
+    {
+        List<ReplayRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.isBlank()) { continue; }
+
+                Map<String, String> fields = parseObject(line);
+                String request = fields.get("request");
+                if (request == null) { throw new IllegalArgumentException("No \"request\" in the line: " + line); }
+
+                requests.add(of(fields.getOrDefault("name", "#" + (requests.size() + 1)), request));
+            }
+        }
+
+        if (requests.isEmpty()) { throw new IllegalArgumentException("No requests in " + file); }
+
+        return requests;
+    }
+
+    /**
+     * Parses a flat JSON object whose values are all strings, which is all a request file needs.
+     */
+    private static Map<String, String> parseObject(String json)
+    {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] pos = { skipWhitespace(json, 0) };
+        expect(json, pos, '{');
+        while (true)
+        {
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == '}') { return fields; }
+
+            String key = parseString(json, pos);
+            pos[0] = skipWhitespace(json, pos[0]);
+            expect(json, pos, ':');
+            pos[0] = skipWhitespace(json, pos[0]);
+            fields.put(key, parseString(json, pos));
+
+            pos[0] = skipWhitespace(json, pos[0]);
+            if (json.charAt(pos[0]) == ',') { pos[0]++; }
+        }
+    }
+
+    private static String parseString(String json, int[] pos)
+    {
+        expect(json, pos, '"');
+        StringBuilder s = new StringBuilder();
+        while (true)
+        {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') { return s.toString(); }
+            if (c != '\\')
+            {
+                s.append(c);
+                continue;
+            }
+
+            char escaped = json.charAt(pos[0]++);
+            switch (escaped)
+            {
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'u':
+                    s.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: // '"', '\\' and '/'
+                    s.append(escaped);
+            }
+        }
+    }
+
+    private static void expect(String json, int[] pos, char c)
+    {
+        if (pos[0] >= json.length() || json.charAt(pos[0]) != c)
+        {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + pos[0] + " of: " + json);
+        }
+        pos[0]++;
+    }
+
+    private static int skipWhitespace(String json, int i)
+    {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) { i++; }
+        return i;
+    }
+}
@@ -0,0 +1,18 @@
+package nturbo1.loadgen.cmd;
+
+public class Argument
+{
+    private Argument() {}
+
+    public static final String PORT = "--port";
+    public static final String ROOT = "--root";
+    public static final String TRANSPORT = "--transport";
+    public static final String REQUESTS = "--requests";
+    public static final String CONNECTIONS = "--connections";
+    public static final String RATE = "--rate";
+    public static final String DURATION = "--duration";
+    public static final String WARMUP = "--warmup";
+    public static final String PIPELINE = "--pipeline";
+    public static final String NO_KEEP_ALIVE = "--no-keep-alive";
+    public static final String HISTOGRAM = "--histogram";
+}
@@ -0,0 +1,143 @@
+package nturbo1.loadgen.cmd;
+
+import nturbo1.http.exceptions.cmd.UnknownArgException;
+import nturbo1.http.exceptions.cmd.WrongArgFormatException;
+import nturbo1.server.Transport;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CommandLineParser {
+    private CommandLineParser() {}
+
+    public static Map<String, String> parseArgs(String[] args) throws WrongArgFormatException, UnknownArgException
+    {
+        Map<String, String> argsMap = new HashMap<>();
+        for (String arg : args) {
+            String[] argKV = verifyArg(arg);
+            argsMap.put(argKV[0], argKV.length > 1 ? argKV[1] : "");
+        }
+
+        if (!argsMap.containsKey(Argument.PORT) && !argsMap.containsKey(Argument.ROOT)) {
+            throw new WrongArgFormatException("Either " + Argument.PORT + " of a running server or " + Argument.ROOT +
+                    " to serve from an embedded one is required.");
+        }
+
+        return argsMap;
+    }
+
+    /**
+     * Verifies a raw argument string taken from the command line and returns a valid array of length 2 that contains
+     * the argument name or key and its valid value.
+     *
+     * @param arg raw argument string from the command line
+     * @return valid argument key value like ["--rate", "1000"]
+     */
+    private static String[] verifyArg(String arg) throws WrongArgFormatException, UnknownArgException
+    {
+        String[] argKV = arg.split("=");
+        if (argKV.length > 2) {
+            throw new WrongArgFormatException("Multiple '=' symbols detected in the command line arguments: " + arg);
+        }
+
+        switch (argKV[0]) {
+            case Argument.PORT:
+            case Argument.CONNECTIONS:
+            case Argument.DURATION:
+            case Argument.PIPELINE:
+                verifyArgValuePassed(argKV);
+                verifyPositiveIntegerFormat(argKV[1]);
+                break;
+            case Argument.RATE:
+            case Argument.WARMUP:
+                verifyArgValuePassed(argKV);
+                verifyNonNegativeIntegerFormat(argKV[1]);
+                break;
+            case Argument.ROOT:
+                verifyArgValuePassed(argKV);
+                verifyDirectory(argKV[1]);
+                break;
+            case Argument.TRANSPORT:
+                verifyArgValuePassed(argKV);
+                verifyTransportName(argKV[1]);
+                break;
+            case Argument.REQUESTS:
+                verifyArgValuePassed(argKV);
+                verifyFile(argKV[1]);
+                break;
+            case Argument.HISTOGRAM:
+                verifyArgValuePassed(argKV);
+                break;
+            case Argument.NO_KEEP_ALIVE:
+                break;
+            default:
+                throw new UnknownArgException(argKV[0]);
+        }
+
+        return argKV;
+    }
+
+    private static void verifyArgValuePassed(String[] argKV) throws WrongArgFormatException
+    {
+        if (argKV.length < 2) {
+            throw new WrongArgFormatException("No value passed for the command line argument: " + argKV[0]);
+        }
+    }
+
+    private static void verifyIntegerFormat(String argValue) throws WrongArgFormatException
+    {
+        try {
+            Integer.parseInt(argValue);
+        } catch (NumberFormatException e) {
+            throw new WrongArgFormatException("Invalid integer format: " + argValue);
+        }
+    }
+
+    private static void verifyPositiveIntegerFormat(String argValue) throws WrongArgFormatException
+    {
+        verifyIntegerFormat(argValue);
+        if (Integer.parseInt(argValue) <= 0) {
+            throw new WrongArgFormatException("Expected a positive integer: " + argValue);
+        }
+    }
+
+    private static void verifyNonNegativeIntegerFormat(String argValue) throws WrongArgFormatException
+    {
+        verifyIntegerFormat(argValue);
+        if (Integer.parseInt(argValue) < 0) {
+            throw new WrongArgFormatException("Expected a non-negative integer: " + argValue);
+        }
+    }
+
+    private static void verifyDirectory(String argValue) throws WrongArgFormatException
+    {
+        try {
+            if (!Files.isDirectory(Path.of(argValue))) {
+                throw new WrongArgFormatException("Not a directory: " + argValue);
+            }
+        } catch (InvalidPathException e) {
+            throw new WrongArgFormatException("Invalid path: " + argValue);
+        }
+    }
+
+    private static void verifyFile(String argValue) throws WrongArgFormatException
+    {
+        try {
+            if (!Files.isRegularFile(Path.of(argValue))) {
+                throw new WrongArgFormatException("Not a file: " + argValue);
+            }
+        } catch (InvalidPathException e) {
+            throw new WrongArgFormatException("Invalid path: " + argValue);
+        }
+    }
+
+    private static void verifyTransportName(String argValue) throws WrongArgFormatException
+    {
+        if (Transport.fromName(argValue) == null) {
+            throw new WrongArgFormatException("Unknown transport: " + argValue);
+        }
+    }
+}
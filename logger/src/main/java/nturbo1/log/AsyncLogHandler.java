@@ -0,0 +1,213 @@
+package nturbo1.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A handler that hands the records over to a background writer thread instead of writing them itself, so the threads
+ * that log never wait on the console.
+ * <p>
+ *     The records go through a {@link LogRingBuffer}. The writer takes them in batches, formats a whole batch into one
+ *     buffer and writes it with a single call. When it finds nothing to do it parks, and the next record published
+ *     wakes it up. What happens when the buffer is full is up to the {@link OverflowPolicy}; the number of dropped
+ *     records is written out as a warning once there's room again.
+ * </p>
+ */
+public class AsyncLogHandler extends Handler
+{
+    public static final int DEFAULT_CAPACITY = 8192;
+    /** One in this many records below WARN is kept under the {@link OverflowPolicy#SAMPLE} policy. */
+    public static final int SAMPLE_RATE = 16;
+
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final LogRingBuffer<LogRecord> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final OutputStream out;
+    private final Charset charset;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    /** Set by the writer before it parks, so that only the first record published after that pays for the unpark. */
+    private final AtomicBoolean writerIdle = new AtomicBoolean();
+    /** The number of records taken from the buffer and written out. */
+    private volatile long written;
+    private volatile boolean closed;
+
+    /**
+     * A handler that writes to the standard error stream, like {@link java.util.logging.ConsoleHandler}.
+     */
+    public AsyncLogHandler(OverflowPolicy overflowPolicy)
+    {
+        this(System.err, System.err.charset(), DEFAULT_CAPACITY, overflowPolicy);
+    }
+
+    AsyncLogHandler(OutputStream out, Charset charset, int capacity, OverflowPolicy overflowPolicy)
+    {
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.out = out;
+        this.charset = charset;
+        setFormatter(new LogMessageFormatter());
+
+        this.writer = Thread.ofPlatform().name("log-writer").daemon().unstarted(this::writeLoop);
+        this.writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record)
+    {
+        if (closed || !isLoggable(record)) { return; }
+
+        if (overflowPolicy == OverflowPolicy.SAMPLE && record.getLevel().intValue() < Level.WARNING.intValue() &&
+                buffer.size() > buffer.capacity() / 2 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0)
+        {
+            dropped.increment();
+            return;
+        }
+
+        boolean added = buffer.offer(record);
+        while (!added && overflowPolicy == OverflowPolicy.BLOCK && !closed)
+        {
+            wakeWriter();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            added = buffer.offer(record);
+        }
+
+        if (added)
+        {
+            if (writerIdle.get()) { wakeWriter(); }
+        }
+        else
+        {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Waits until the writer has written out what was published before the call.
+     */
+    @Override
+    public void flush()
+    {
+        long published = buffer.published();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        while (written < published && writer.isAlive() && System.nanoTime() < deadline)
+        {
+            wakeWriter();
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Stops taking records, lets the writer write out the ones already taken and waits for it to finish.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) { return; }
+        closed = true;
+
+        LockSupport.unpark(writer);
+        try
+        {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of records dropped so far because the buffer was full or by sampling.
+     */
+    public long getDroppedCount() { return dropped.sum(); }
+
+    private void wakeWriter()
+    {
+        if (writerIdle.compareAndSet(true, false)) { LockSupport.unpark(writer); }
+    }
+
+    private void writeLoop()
+    {
+        StringBuilder batch = new StringBuilder(MAX_BATCH * 128);
+        long reportedDropped = 0;
+        while (true)
+        {
+            Formatter formatter = getFormatter();
+            int taken = buffer.drain(record -> format(formatter, record, batch), MAX_BATCH);
+
+            long droppedNow = dropped.sum();
+            if (droppedNow != reportedDropped && buffer.size() < buffer.capacity() / 2)
+            {
+                LogRecord report = new LogRecord(WarnLevel.WARN, (droppedNow - reportedDropped) +
+                        " log messages were dropped because the log buffer was full.");
+                report.setLoggerName(AsyncLogHandler.class.getName());
+                format(formatter, report, batch);
+                reportedDropped = droppedNow;
+            }
+
+            if (!batch.isEmpty())
+            {
+                write(batch);
+                batch.setLength(0);
+            }
+            if (taken > 0) { written += taken; }
+
+            if (taken == MAX_BATCH) { continue; } // there's likely more already
+
+            if (closed && buffer.size() == 0) { break; }
+
+            writerIdle.set(true);
+            // A record published between the drain and the flag being set would otherwise wait for the timeout.
+            if (buffer.size() == 0 && !closed) { LockSupport.parkNanos(IDLE_PARK_NANOS); }
+            writerIdle.set(false);
+        }
+    }
+
+    private void format(Formatter formatter, LogRecord record, StringBuilder batch)
+    {
+        try
+        {
+            if (formatter instanceof LogMessageFormatter messageFormatter)
+            {
+                messageFormatter.format(record, batch);
+            }
+            else
+            {
+                batch.append(formatter.format(record));
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    private void write(StringBuilder batch)
+    {
+        try
+        {
+            out.write(batch.toString().getBytes(charset));
+            out.flush();
+        }
+        catch (IOException ex)
+        {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+}
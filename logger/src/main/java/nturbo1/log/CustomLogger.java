@@ -1,5 +1,6 @@
 package nturbo1.log;
 
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -21,6 +22,8 @@ public class CustomLogger
     public static CustomLogger getLogger(String name) { return new CustomLogger(Logger.getLogger(name)); }
 
     public void debug(String msg) { logger.log(DebugLevel.DEBUG, msg); }
+    /** Only builds the message if DEBUG is enabled. */
+    public void debug(Supplier<String> msg) { logger.log(DebugLevel.DEBUG, msg); }
     public void info(String msg) { logger.info(msg); }
     public void warn(String msg) { logger.log(WarnLevel.WARN, msg); }
     public void error(String msg) { logger.log(ErrorLevel.ERROR, msg); }
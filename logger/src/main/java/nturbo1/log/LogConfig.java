@@ -1,13 +1,21 @@
 package nturbo1.log;
 
-import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
 public class LogConfig
 {
-    public static void setup(boolean isDebug)
+    public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP;
+
+    public static void setup(boolean isDebug) { setup(isDebug, DEFAULT_OVERFLOW_POLICY); }
+
+    /**
+     * Logs to the console through an {@link AsyncLogHandler}, so that logging doesn't hold up the threads that log.
+     *
+     * @param overflowPolicy what to do with a message when the writer can't keep up.
+     */
+    public static void setup(boolean isDebug, OverflowPolicy overflowPolicy)
     {
 
         LogManager.getLogManager().reset(); // wipe existing config
@@ -15,9 +23,8 @@ public class LogConfig
 
         Level logLevel = isDebug ? DebugLevel.DEBUG : Level.INFO;
 
-        ConsoleHandler consoleHandler = new ConsoleHandler();
+        AsyncLogHandler consoleHandler = new AsyncLogHandler(overflowPolicy);
         consoleHandler.setLevel(logLevel);
-        consoleHandler.setFormatter(new LogMessageFormatter());
 
         // TODO: ADD A FILE HANDLER !!!
 
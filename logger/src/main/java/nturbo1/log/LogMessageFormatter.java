@@ -1,18 +1,34 @@
 package nturbo1.log;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
 public class LogMessageFormatter extends Formatter
 {
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
     @Override
     public String format(LogRecord record) {
-        return String.format(
-                "%1$tF %1$tT.%1$tL [%2$s] %3$s - %4$s%n",
-                record.getMillis(),              // timestamp
-                record.getLevel().getName(),     // log level
-                record.getLoggerName(),          // classpath
-                record.getMessage()              // message
-        );
+        StringBuilder line = new StringBuilder(128);
+        format(record, line);
+        return line.toString();
+    }
+
+    /**
+     * Appends the record as "timestamp [LEVEL] logger - message" and a line separator, without the intermediate
+     * String that {@link #format(LogRecord)} returns.
+     */
+    public void format(LogRecord record, StringBuilder out) {
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(record.getMillis()), out);
+        out.append(" [").append(record.getLevel().getName()).append("] ")
+                .append(record.getLoggerName())
+                .append(" - ")
+                .append(record.getMessage())
+                .append(LINE_SEPARATOR);
     }
 }
@@ -0,0 +1,112 @@
+package nturbo1.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded queue that any number of threads add to without taking a lock, and a single thread takes from.
+ * <p>
+ *     Every slot has a sequence number that says whose turn it is. A producer claims the position at the tail with a
+ *     compare-and-set, fills the slot and then publishes it by moving the sequence to position + 1. The consumer takes
+ *     the slot once it sees that, and hands it back to the producers of the next lap by moving the sequence to
+ *     position + capacity. The queue is full when the slot at the tail hasn't been handed back yet.
+ * </p>
+ */
+class LogRingBuffer<E>
+{
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    /** Only the consumer moves it, the producers read it for {@link #size()}. */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the most elements held, rounded up to a power of two.
+     */
+    LogRingBuffer(int capacity)
+    {
+        if (capacity < 1 || capacity > 1 << 30) { throw new IllegalArgumentException("Invalid capacity: " + capacity); }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) { size <<= 1; }
+
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) { sequences.set(i, i); }
+    }
+
+    int capacity() { return elements.length; }
+
+    /**
+     * @return roughly how many elements are waiting, as the other threads keep changing it.
+     */
+    int size() { return (int) Math.max(0, tail.get() - head.get()); }
+
+    /**
+     * @return the number of elements added since the queue was created.
+     */
+    long published() { return tail.get(); }
+
+    /**
+     * Adds the element unless the queue is full. Safe to call from any thread.
+     *
+     * @return whether the element was added.
+     */
+    boolean offer(E element)
+    {
+        long pos = tail.get();
+        while (true)
+        {
+            int slot = (int) pos & mask;
+            long diff = sequences.getAcquire(slot) - pos;
+            if (diff == 0)
+            {
+                if (tail.compareAndSet(pos, pos + 1))
+                {
+                    elements[slot] = element;
+                    sequences.setRelease(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            }
+            else if (diff < 0)
+            {
+                return false; // the consumer hasn't taken the element from the last lap yet
+            }
+            else
+            {
+                pos = tail.get(); // another producer claimed this position
+            }
+        }
+    }
+
+    /**
+     * Takes up to max elements in the order they were added. Only ever called from the consumer thread.
+     *
+     * @return the number of elements taken.
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<? super E> consumer, int max)
+    {
+        long pos = head.get();
+        int taken = 0;
+        while (taken < max)
+        {
+            int slot = (int) pos & mask;
+            if (sequences.getAcquire(slot) != pos + 1) { break; } // not published yet
+
+            E element = (E) elements[slot];
+            elements[slot] = null;
+            sequences.setRelease(slot, pos + elements.length);
+            pos++;
+            taken++;
+            consumer.accept(element);
+        }
+
+        if (taken > 0) { head.lazySet(pos); }
+        return taken;
+    }
+}
@@ -0,0 +1,37 @@
+package nturbo1.log;
+
+/**
+ * What the {@link AsyncLogHandler} does with a message when its buffer can't take it.
+ */
+public enum OverflowPolicy
+{
+    /** The message is dropped and counted, the logging thread goes on at once. */
+    DROP("drop"),
+    /** The logging thread waits until the writer makes room, so no message is lost. */
+    BLOCK("block"),
+    /**
+     * Once the buffer is half full, only one in {@link AsyncLogHandler#SAMPLE_RATE} messages below WARN is kept, so
+     * that the warnings and errors still find room. Whatever doesn't fit is dropped and counted.
+     */
+    SAMPLE("sample");
+
+    private final String name;
+
+    OverflowPolicy(String name) { this.name = name; }
+
+    public String getName() { return this.name; }
+
+    /**
+     * @param name overflow policy name as it's passed on the command line.
+     * @return the matching policy, or null if there is no policy with the given name.
+     */
+    public static OverflowPolicy fromName(String name)
+    {
+        for (OverflowPolicy policy : values())
+        {
+            if (policy.name.equals(name)) { return policy; }
+        }
+
+        return null;
+    }
+}
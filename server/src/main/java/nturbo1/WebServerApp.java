@@ -5,6 +5,7 @@ import nturbo1.cmd.CommandLineParser;
 import nturbo1.http.exceptions.cmd.UnknownArgException;
 import nturbo1.http.exceptions.cmd.WrongArgFormatException;
 import nturbo1.log.LogConfig;
+import nturbo1.log.OverflowPolicy;
 import nturbo1.server.HttpServer;
 
 import java.util.Map;
@@ -18,7 +19,7 @@ public class WebServerApp
     public static void main( String[] args )
     {
         Map<String, String> argsMap = parseArgs(args);
-        LogConfig.setup(isDebugMode(argsMap));
+        LogConfig.setup(isDebugMode(argsMap), getLogOverflowPolicy(argsMap));
         HttpServer httpServer = HttpServer.init(argsMap);
 
         if (httpServer == null)
@@ -27,6 +28,7 @@ public class WebServerApp
             System.exit(1);
         }
 
+        Runtime.getRuntime().addShutdownHook(new Thread(httpServer::stop, "shutdown"));
         httpServer.start();
     }
 
@@ -43,4 +45,10 @@ public class WebServerApp
     }
 
     private static boolean isDebugMode(Map<String, String> args) { return args.containsKey(Argument.DEBUG); }
+
+    private static OverflowPolicy getLogOverflowPolicy(Map<String, String> args)
+    {
+        String policy = args.get(Argument.LOG_OVERFLOW);
+        return policy != null ? OverflowPolicy.fromName(policy) : LogConfig.DEFAULT_OVERFLOW_POLICY;
+    }
 }
@@ -6,4 +6,17 @@ public class Argument
 
     public static final String PORT = "--port";
     public static final String DEBUG = "--debug";
-}
\ No newline at end of file
+    public static final String MAX_CONNECTIONS = "--max-connections";
+    public static final String DRAIN_TIMEOUT = "--drain-timeout";
+    public static final String TRANSPORT = "--transport";
+    public static final String KEEP_ALIVE_TIMEOUT = "--keep-alive-timeout";
+    public static final String MAX_KEEP_ALIVE_REQUESTS = "--max-keep-alive-requests";
+    public static final String ROOT = "--root";
+    public static final String FILE_CACHE_SIZE = "--file-cache-size";
+    public static final String COMPRESSION_CACHE_SIZE = "--compression-cache-size";
+    public static final String MAX_BODY_SIZE = "--max-body-size";
+    public static final String BODY_SPOOL_THRESHOLD = "--body-spool-threshold";
+    public static final String LOG_OVERFLOW = "--log-overflow";
+    public static final String METRICS_PATH = "--metrics-path";
+    public static final String METRICS_PORT = "--metrics-port";
+}
@@ -2,7 +2,12 @@ package nturbo1.cmd;
 
 import nturbo1.http.exceptions.cmd.UnknownArgException;
 import nturbo1.http.exceptions.cmd.WrongArgFormatException;
+import nturbo1.log.OverflowPolicy;
+import nturbo1.server.Transport;
 
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,8 +41,39 @@ public class CommandLineParser {
 
         switch (argKV[0]) {
             case Argument.PORT:
+            case Argument.METRICS_PORT:
                 verifyArgValuePassed(argKV);
-                verifyIntegerFormat(argKV[1]);
+                verifyPortFormat(argKV[1]);
+                break;
+            case Argument.MAX_CONNECTIONS:
+            case Argument.DRAIN_TIMEOUT:
+            case Argument.KEEP_ALIVE_TIMEOUT:
+            case Argument.MAX_KEEP_ALIVE_REQUESTS:
+            case Argument.MAX_BODY_SIZE:
+                verifyArgValuePassed(argKV);
+                verifyPositiveIntegerFormat(argKV[1]);
+                break;
+            case Argument.TRANSPORT:
+                verifyArgValuePassed(argKV);
+                verifyTransportName(argKV[1]);
+                break;
+            case Argument.ROOT:
+                verifyArgValuePassed(argKV);
+                verifyDirectory(argKV[1]);
+                break;
+            case Argument.FILE_CACHE_SIZE:
+            case Argument.COMPRESSION_CACHE_SIZE:
+            case Argument.BODY_SPOOL_THRESHOLD:
+                verifyArgValuePassed(argKV);
+                verifyNonNegativeIntegerFormat(argKV[1]);
+                break;
+            case Argument.LOG_OVERFLOW:
+                verifyArgValuePassed(argKV);
+                verifyOverflowPolicyName(argKV[1]);
+                break;
+            case Argument.METRICS_PATH:
+                verifyArgValuePassed(argKV);
+                verifyStaticPath(argKV[1]);
                 break;
             case Argument.DEBUG:
                 break;
@@ -63,4 +99,62 @@ public class CommandLineParser {
             throw new WrongArgFormatException("Invalid integer format: " + argValue);
         }
     }
+
+    private static void verifyPositiveIntegerFormat(String argValue) throws WrongArgFormatException
+    {
+        verifyIntegerFormat(argValue);
+        if (Integer.parseInt(argValue) <= 0) {
+            throw new WrongArgFormatException("Expected a positive integer: " + argValue);
+        }
+    }
+
+    private static void verifyNonNegativeIntegerFormat(String argValue) throws WrongArgFormatException
+    {
+        verifyIntegerFormat(argValue);
+        if (Integer.parseInt(argValue) < 0) {
+            throw new WrongArgFormatException("Expected a non-negative integer: " + argValue);
+        }
+    }
+
+    private static void verifyPortFormat(String argValue) throws WrongArgFormatException
+    {
+        verifyIntegerFormat(argValue);
+        int port = Integer.parseInt(argValue);
+        if (port < 0 || port > 65535) {
+            throw new WrongArgFormatException("Expected a port number from 0 to 65535: " + argValue);
+        }
+    }
+
+    private static void verifyDirectory(String argValue) throws WrongArgFormatException
+    {
+        try {
+            if (!Files.isDirectory(Path.of(argValue))) {
+                throw new WrongArgFormatException("Not a directory: " + argValue);
+            }
+        } catch (InvalidPathException e) {
+            throw new WrongArgFormatException("Invalid path: " + argValue);
+        }
+    }
+
+    private static void verifyTransportName(String argValue) throws WrongArgFormatException
+    {
+        if (Transport.fromName(argValue) == null) {
+            throw new WrongArgFormatException("Unknown transport: " + argValue);
+        }
+    }
+
+    private static void verifyStaticPath(String argValue) throws WrongArgFormatException
+    {
+        if (!argValue.startsWith("/") || argValue.indexOf('{') != -1 || argValue.indexOf('}') != -1 ||
+                argValue.indexOf('*') != -1) {
+            throw new WrongArgFormatException("Expected a path starting with '/' without '{', '}' or '*': " + argValue);
+        }
+    }
+
+    private static void verifyOverflowPolicyName(String argValue) throws WrongArgFormatException
+    {
+        if (OverflowPolicy.fromName(argValue) == null) {
+            throw new WrongArgFormatException("Unknown log overflow policy: " + argValue);
+        }
+    }
 }
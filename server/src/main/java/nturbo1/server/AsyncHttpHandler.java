@@ -0,0 +1,34 @@
+package nturbo1.server;
+
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A handler that doesn't have to produce the response before it returns, e.g. because it waits on a slow downstream
+ * service. It returns a stage that completes with the response later, on any thread; a handler that answers from a
+ * callback of its own can return a {@link java.util.concurrent.CompletableFuture} and complete it there.
+ * <p>
+ *     Neither transport holds a platform thread while the response is pending. The blocking transport waits on the
+ *     virtual thread of the connection. The non-blocking transport stops reading from the connection and lets its
+ *     event loop go on with the other connections until the stage completes. Either way, the responses of pipelined
+ *     requests still go out in the order of the requests, and the next request of a connection is only handed to the
+ *     handler once the response to the one before it is there.
+ * </p>
+ * <p>
+ *     A stage that completes exceptionally, or with null, is answered with 500 Internal Server Error. The body of the
+ *     request is kept until the stage completes.
+ * </p>
+ */
+@FunctionalInterface
+public interface AsyncHttpHandler extends HttpHandler
+{
+    CompletionStage<HttpResponse> handleAsync(HttpRequest req);
+
+    /**
+     * Waits for the response, for the callers that can only take a synchronous handler.
+     */
+    @Override
+    default HttpResponse handle(HttpRequest req) { return handleAsync(req).toCompletableFuture().join(); }
+}
@@ -0,0 +1,56 @@
+package nturbo1.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A shared pool of direct buffers that the connections encode their responses into.
+ * <p>
+ *     A connection only holds a buffer while it has something to write and gives it back once the write is done, so
+ *     the number of buffers follows the number of busy connections rather than the open ones. Direct buffers are
+ *     written to the socket without the extra copy a heap buffer needs.
+ * </p>
+ */
+public class BufferPool
+{
+    public static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 1024;
+    private static final BufferPool SHARED = new BufferPool();
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private BufferPool() {}
+
+    public static BufferPool shared() { return SHARED; }
+
+    /**
+     * @return a cleared buffer of {@link #BUFFER_SIZE} bytes, taken from the pool or newly allocated.
+     */
+    public ByteBuffer acquire()
+    {
+        ByteBuffer buf = buffers.poll();
+        if (buf == null) { return ByteBuffer.allocateDirect(BUFFER_SIZE); }
+
+        pooled.decrementAndGet();
+        return buf;
+    }
+
+    /**
+     * Gives a buffer taken with {@link #acquire()} back. It must not be used by the caller afterward.
+     */
+    public void release(ByteBuffer buf)
+    {
+        if (pooled.incrementAndGet() > MAX_POOLED_BUFFERS)
+        {
+            pooled.decrementAndGet();
+            return; // left to the garbage collector
+        }
+
+        buf.clear();
+        buffers.offer(buf);
+    }
+}
@@ -0,0 +1,110 @@
+package nturbo1.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A response body whose length isn't known up front, produced piece by piece while it's written and sent with the
+ * chunked transfer-coding. The response must carry "Transfer-Encoding: chunked".
+ * <p>
+ *     Each piece is framed as a chunk in a buffer borrowed from the {@link BufferPool}:
+ *     chunk = chunk-size CRLF chunk-data CRLF, and the body ends with the last chunk "0" CRLF CRLF. Only one chunk is
+ *     held at a time, so a body of any size takes one buffer.
+ * </p>
+ */
+public abstract class ChunkedBody implements Closeable
+{
+    private static final int SIZE_LINE_ROOM = 10; // up to 8 hex digits and CRLF
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private BufferPool pool;
+    private ByteBuffer chunk; // read mode, the framed bytes not written yet
+    private boolean complete;
+
+    /**
+     * Produces the next piece of the body.
+     *
+     * @param buf the buffer to write the piece to, in write mode.
+     * @return false once the whole body has been produced, the call may still have written the last piece.
+     */
+    protected abstract boolean read(ByteBuffer buf) throws IOException;
+
+    /**
+     * Writes as much of the body as the target takes.
+     *
+     * @param target the channel to write to, blocking or not.
+     * @param pool the pool to borrow the chunk buffer from.
+     * @return the number of bytes written, 0 if a non-blocking target is full.
+     */
+    public long writeTo(WritableByteChannel target, BufferPool pool) throws IOException
+    {
+        if (chunk == null)
+        {
+            this.pool = pool;
+            chunk = pool.acquire().limit(0);
+        }
+
+        long written = 0;
+        while (true)
+        {
+            if (!chunk.hasRemaining())
+            {
+                if (complete) { return written; }
+                frameNextChunk();
+            }
+
+            int n = target.write(chunk);
+            written += n;
+            if (chunk.hasRemaining()) { return written; } // the socket send buffer is full
+        }
+    }
+
+    /**
+     * @return true once the last chunk has been written.
+     */
+    public boolean isComplete() { return complete && chunk != null && !chunk.hasRemaining(); }
+
+    /**
+     * Gives the chunk buffer back. Subclasses release what they hold and call this too.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (chunk != null)
+        {
+            pool.release(chunk);
+            chunk = null;
+        }
+    }
+
+    private void frameNextChunk() throws IOException
+    {
+        int dataEnd = chunk.capacity() - CRLF.length - LAST_CHUNK.length;
+        chunk.clear().position(SIZE_LINE_ROOM).limit(dataEnd);
+
+        boolean more = true;
+        while (more && chunk.position() == SIZE_LINE_ROOM) { more = read(chunk); }
+
+        int length = chunk.position() - SIZE_LINE_ROOM;
+        int start = SIZE_LINE_ROOM;
+        chunk.limit(chunk.capacity());
+        if (length > 0)
+        {
+            byte[] sizeLine = (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            start -= sizeLine.length;
+            chunk.put(start, sizeLine);
+            chunk.put(CRLF);
+        }
+        if (!more)
+        {
+            chunk.put(LAST_CHUNK);
+            complete = true;
+        }
+
+        chunk.limit(chunk.position()).position(start);
+    }
+}
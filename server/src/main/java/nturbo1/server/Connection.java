@@ -1,30 +1,70 @@
 package nturbo1.server;
 
 import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
 import nturbo1.http.exceptions.BadHttpRequestHeaderException;
 import nturbo1.http.exceptions.HttpMessageParseException;
 import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
 import nturbo1.http.exceptions.UnsupportedHttpVersionException;
 import nturbo1.http.parser.v1_1.HttpRequestParser;
+import nturbo1.http.util.ReadBuffer;
 import nturbo1.log.CustomLogger;
+import nturbo1.server.jfr.RequestHandleEvent;
+import nturbo1.server.jfr.ResponseWriteEvent;
+import nturbo1.server.metrics.MeteredInputStream;
+import nturbo1.server.metrics.ServerMetrics;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * A persistent HTTP/1.1 connection of the blocking transport.
+ * <p>
+ *     Requests are read and answered one after another on the same socket until the client asks for the connection
+ *     to be closed, the connection stays idle for longer than the keep-alive timeout, the keep-alive request limit is
+ *     reached or the server starts draining. A client that stops reading the responses gets the same timeout: the
+ *     {@link ConnectionDispatcher} closes a connection whose socket hasn't taken any bytes for that long.
+ * </p>
+ * <p>
+ *     Pipelined requests are answered in batches. Every complete request that is already buffered when one is parsed
+ *     joins the batch, and the responses of the whole batch go out in order with a single gathering write.
+ * </p>
+ */
 public class Connection
 {
-    private final Socket socket;
+    private final SocketChannel channel;
+    private final ServerConfig config;
+    private final HttpHandler handler;
+    private final ServerMetrics metrics;
+    private final WriteQueue writeQueue = new WriteQueue();
 
+    private volatile boolean draining;
+    private boolean idle; // guarded by this, true while waiting for the first byte of the next request
+    private volatile long flushStartedMillis; // 0 unless the responses are being written
+
+    private static final int MAX_PIPELINED_BATCH = 16;
     private static final CustomLogger log = CustomLogger.getLogger(Connection.class.getName());
 
-    public Connection(Socket socket) { this.socket = socket; }
+    public Connection(SocketChannel channel, ServerConfig config, HttpHandler handler, ServerMetrics metrics)
+    {
+        this.channel = channel;
+        this.config = config;
+        this.handler = handler;
+        this.metrics = metrics;
+    }
 
     public void handle()
     {
-        InputStream iStream = null;
+        ReadBuffer iStream;
         try {
-            iStream = socket.getInputStream();
+            // The socket adaptor honours SO_TIMEOUT on reads, while writes go to the channel to be gathered.
+            channel.socket().setSoTimeout(config.getKeepAliveTimeoutMillis());
+            iStream = new ReadBuffer(new MeteredInputStream(channel.socket().getInputStream(), metrics));
         } catch (IOException e) {
             log.error("Couldn't get the socket input stream due to: " + e.getMessage());
             close();
@@ -32,40 +72,215 @@ public class Connection
             return;
         }
 
-        HttpRequest req = null;
+        int requestCount = 0;
+        boolean keepAlive = true;
+        while (keepAlive)
+        {
+            try {
+                if (!awaitNextRequest(iStream)) { break; }
+            } catch (SocketTimeoutException e) {
+                log.debug("Closing the idle connection: " + channel);
+                break;
+            } catch (IOException e) {
+                if (!draining) { log.error("Failed to read the next request due to: " + e.getMessage()); }
+                break;
+            }
+
+            int batchSize = 0;
+            do
+            {
+                HttpRequest req = parseRequest(iStream);
+                if (req == null)
+                {
+                    keepAlive = false;
+                    break;
+                }
+                log.debug(() -> "Request: " + req);
+                metrics.requestReceived(req.getMethod());
+                requestCount++;
+                batchSize++;
+
+                long start = System.nanoTime();
+                RequestHandleEvent handleEvent = new RequestHandleEvent();
+                handleEvent.begin();
+                HttpResponse res = respond(req, handleEvent);
+                handleEvent.commit(req, res);
+                keepAlive = req.isKeepAlive() && requestCount < config.getMaxKeepAliveRequests() && !draining;
+                writeQueue.add(res, keepAlive);
+                metrics.requestHandled(System.nanoTime() - start);
+                metrics.responseQueued(res.getStatus());
+            }
+            while (keepAlive && batchSize < MAX_PIPELINED_BATCH && iStream.hasBufferedHead());
+
+            ResponseWriteEvent writeEvent = new ResponseWriteEvent();
+            writeEvent.begin();
+            boolean flushed = false;
+            flushStartedMillis = System.currentTimeMillis();
+            try {
+                flushed = writeQueue.flush(channel);
+            } catch (IOException e) {
+                if (channel.isOpen()) { log.error("Failed to write the HTTP response due to: " + e.getMessage()); }
+                break;
+            } finally {
+                flushStartedMillis = 0;
+                long bytesWritten = writeQueue.takeBytesWritten();
+                metrics.bytesSent(bytesWritten);
+                writeEvent.commit(bytesWritten, flushed);
+            }
+        }
+
+        writeQueue.release();
+        close();
+    }
+
+    /**
+     * Makes the connection close after the request in progress, or right away if it's idle.
+     */
+    public void drain()
+    {
+        synchronized (this)
+        {
+            draining = true;
+            if (!idle) { return; }
+        }
+        close();
+    }
+
+    /**
+     * @return true if the responses started being written before the given time, and the socket hasn't taken any
+     * bytes since then.
+     */
+    boolean isWriteStalledSince(long millis)
+    {
+        long started = flushStartedMillis;
+        return started != 0 && started <= millis && writeQueue.getLastProgressMillis() <= millis;
+    }
+
+    /**
+     * Closes the connection from another thread, which fails the write it's stuck in.
+     */
+    void abortWrite()
+    {
+        log.debug("Closing the connection stalled on a write: " + channel);
+        close();
+    }
+
+    /**
+     * Blocks until the first byte of the next request arrives, while the connection counts as idle for
+     * {@link #drain()}.
+     *
+     * @return false if the client closed the connection or the server is draining.
+     */
+    private boolean awaitNextRequest(ReadBuffer iStream) throws IOException
+    {
+        synchronized (this)
+        {
+            if (draining) { return false; }
+            idle = true;
+        }
         try {
-             req = HttpRequestParser.parseHttpRequest(iStream);
+            return !iStream.isAtEndOfStream();
+        } finally {
+            synchronized (this) { idle = false; }
+        }
+    }
+
+    /**
+     * @return the next request, or null if it couldn't be read. The error response of a rejected request is queued
+     * after the responses of the batch so far.
+     */
+    private HttpRequest parseRequest(ReadBuffer iStream)
+    {
+        try {
+            return HttpRequestParser.parseHttpRequest(iStream, config.getBodyLimits());
         } catch (HttpMessageParseException e) {
             log.error("Failed to parse the HTTP request because: " + e.getMessage());
-            // TODO: SEND A PROPER HTTP RESPONSE!!!
+            metrics.parseFailed(e);
+            queueFinalResponse(ErrorResponses.forParseFailure(e));
         } catch (InvalidHttpMessageHeaderException e) {
             log.error(e.getMessage());
-            // TODO: YOU SHOULD PROBABLY SEND 400 BAD REQUEST RESPONSE OR STH
+            metrics.parseFailed(e);
+            queueFinalResponse(ErrorResponses.forParseFailure(e));
         } catch (UnsupportedHttpVersionException e) {
             log.error(e.getMessage());
-            log.warn("HANDLE UNSUPPORTED HTTP VERSION IN THE REQUEST CASE!!!!!!");
-            // TODO: SEND A PROPER HTTP RESPONSE!!!
+            metrics.parseFailed(e);
+            queueFinalResponse(ErrorResponses.forParseFailure(e));
         } catch (BadHttpRequestHeaderException e) {
-            log.warn("SEND 400 BAD REQUEST RESPONSE!!!");
-            // TODO: SEND A PROPER HTTP RESPONSE!!!
+            log.error(e.getMessage());
+            metrics.parseFailed(e);
+            queueFinalResponse(ErrorResponses.forParseFailure(e));
         } catch (IOException e) {
             log.error("Failed to parse an HTTP Request due to: " + e.getMessage());
-            // TODO: SHOULD YOU SEND A RESPONSE HERE?
-            close();
+            metrics.parseFailed(e);
+        }
 
-            return;
+        return null;
+    }
+
+    private HttpResponse respond(HttpRequest req, RequestHandleEvent handleEvent)
+    {
+        try {
+            if (handler instanceof AsyncHttpHandler async) { return await(req, async.handleAsync(req), handleEvent); }
+
+            return handler.handle(req);
+        } catch (RuntimeException e) {
+            log.error("The handler failed on " + req.getURI() + " due to: " + e);
+            return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            closeBody(req);
         }
-        log.info("Request: " + req);
+    }
 
-        log.warn("HANDLE THE PARSED HTTP REQUEST AND SEND AN APPROPRIATE HTTP RESPONSE!!!");
+    /**
+     * Parks the virtual thread of the connection until the response of an asynchronous handler is there, which the
+     * event records as asynchronous unless the handler had it ready.
+     */
+    private HttpResponse await(HttpRequest req, CompletionStage<HttpResponse> stage, RequestHandleEvent handleEvent)
+    {
+        try {
+            if (!(stage instanceof CompletableFuture<HttpResponse> future && future.isDone())) {
+                handleEvent.async = true;
+            }
+            HttpResponse res = stage.toCompletableFuture().get();
+            if (res != null) { return res; }
 
-        close();
+            log.error("The handler completed " + req.getURI() + " without a response");
+        } catch (ExecutionException e) {
+            log.error("The handler failed on " + req.getURI() + " due to: " + e.getCause());
+        } catch (InterruptedException e) {
+            // The server gave up on draining the connection.
+            Thread.currentThread().interrupt();
+            draining = true;
+            return ErrorResponses.of(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Deletes the temporary file of a spooled request body, the handler is done with it.
+     */
+    private static void closeBody(HttpRequest req)
+    {
+        if (req.getRequestBody() == null) { return; }
+
+        try {
+            req.getRequestBody().close();
+        } catch (IOException e) {
+            log.error("Failed to delete the request body due to: " + e.getMessage());
+        }
+    }
+
+    private void queueFinalResponse(HttpResponse res)
+    {
+        writeQueue.add(res, false);
+        metrics.responseQueued(res.getStatus());
     }
 
     private void close()
     {
         try {
-            socket.close();
+            channel.close();
         } catch (IOException e) {
             log.error("Failed to close the socket connection due to: " + e.getMessage());
         }
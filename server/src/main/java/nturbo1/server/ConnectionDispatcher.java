@@ -0,0 +1,151 @@
+package nturbo1.server;
+
+import nturbo1.log.CustomLogger;
+import nturbo1.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands every accepted connection off to its own virtual thread.
+ * <p>
+ *     The number of connections handled at the same time is capped with a semaphore. The accept loop reserves a slot
+ *     before accepting the next socket, so once the cap is reached new clients wait in the listen backlog of the
+ *     kernel instead of piling up as threads.
+ * </p>
+ * <p>
+ *     A blocking write has no timeout of its own, so a sweeper thread closes the connections whose socket hasn't
+ *     taken any of their responses for the keep-alive timeout. Otherwise a client that stops reading would hold on
+ *     to its thread and slot for good.
+ * </p>
+ */
+public class ConnectionDispatcher
+{
+    private final ExecutorService executor;
+    private final ScheduledExecutorService writeTimeoutSweeper;
+    private final Semaphore slots;
+    private final ServerConfig config;
+    private final HttpHandler handler;
+    private final ServerMetrics metrics;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private static final long FORCED_SHUTDOWN_TIMEOUT_MILLIS = 1000;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 1000;
+    private static final CustomLogger log = CustomLogger.getLogger(ConnectionDispatcher.class.getName());
+
+    public ConnectionDispatcher(ServerConfig config, HttpHandler handler, ServerMetrics metrics)
+    {
+        this.config = config;
+        this.handler = handler;
+        this.metrics = metrics;
+        this.slots = new Semaphore(config.getMaxConnections());
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("connection-", 0).factory());
+
+        long sweepIntervalMillis = Math.min(MAX_SWEEP_INTERVAL_MILLIS, config.getKeepAliveTimeoutMillis());
+        this.writeTimeoutSweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("write-timeout-sweeper").daemon().factory());
+        this.writeTimeoutSweeper.scheduleWithFixedDelay(this::closeStalledWrites, sweepIntervalMillis,
+                sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Blocks until there is room for one more connection.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public void reserveSlot() throws InterruptedException { slots.acquire(); }
+
+    /**
+     * Gives back a slot reserved with {@link #reserveSlot()} that didn't end up with a connection.
+     */
+    public void releaseSlot() { slots.release(); }
+
+    /**
+     * Handles the given channel on a new virtual thread. The caller must have reserved a slot for it beforehand, the
+     * slot is released when the connection is done.
+     *
+     * @param channel an accepted, blocking socket channel.
+     */
+    public void dispatch(SocketChannel channel)
+    {
+        Connection conn = new Connection(channel, config, handler, metrics);
+        connections.add(conn);
+        metrics.connectionOpened();
+        try {
+            executor.execute(() -> {
+                try {
+                    conn.handle();
+                } finally {
+                    connections.remove(conn);
+                    metrics.connectionClosed();
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected a connection because the server is shutting down: " + channel);
+            connections.remove(conn);
+            metrics.connectionClosed();
+            slots.release();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.error("Failed to close the rejected socket connection due to: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops taking new connections and waits for the ones in progress to finish. Idle keep-alive connections are
+     * closed right away, the busy ones are closed after their current response. The connections still running after
+     * the drain timeout are interrupted.
+     *
+     * @param drainTimeoutMillis how long the connections in progress are given to finish.
+     * @return true if every connection finished within the drain timeout.
+     */
+    public boolean shutdown(long drainTimeoutMillis)
+    {
+        log.info("Draining " + getActiveConnections() + " active connection(s)...");
+        executor.shutdown();
+        for (Connection conn : connections)
+        {
+            conn.drain();
+        }
+        try {
+            if (executor.awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS)) { return true; }
+
+            log.warn(getActiveConnections() + " connection(s) didn't finish in " + drainTimeoutMillis +
+                    "ms, interrupting them...");
+            executor.shutdownNow();
+            executor.awaitTermination(FORCED_SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            writeTimeoutSweeper.shutdownNow();
+        }
+
+        return false;
+    }
+
+    public int getActiveConnections() { return config.getMaxConnections() - slots.availablePermits(); }
+
+    /**
+     * Closes the connections whose socket hasn't taken any bytes of their responses for the keep-alive timeout.
+     */
+    private void closeStalledWrites()
+    {
+        long stalledSince = System.currentTimeMillis() - config.getKeepAliveTimeoutMillis();
+        for (Connection conn : connections)
+        {
+            if (conn.isWriteStalledSince(stalledSince)) { conn.abortWrite(); }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nturbo1.server;
+
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+
+/**
+ * Responses that the server sends on its own, without a handler being involved.
+ */
+public class ErrorResponses
+{
+    private ErrorResponses() {}
+
+    public static HttpResponse of(HttpStatus status) { return new HttpResponse(status); }
+
+    /**
+     * @param e an exception thrown while parsing a request.
+     * @return the response that tells the client why its request was rejected.
+     */
+    public static HttpResponse forParseFailure(Exception e)
+    {
+        if (e instanceof UnsupportedHttpVersionException)
+        {
+            return of(HttpStatus.HTTP_VERSION_NOT_SUPPORTED);
+        }
+        if (e instanceof RequestEntityTooLargeException)
+        {
+            return of(HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+
+        return of(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,24 @@
+package nturbo1.server;
+
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+
+/**
+ * Turns a request into its response. Both transports call the handler on the thread that parsed the request, one
+ * request of a connection at a time. A handler that can't answer right away can be an {@link AsyncHttpHandler}.
+ * <p>
+ *     The body of the returned response is either a byte array, a ByteBuffer, a {@link nturbo1.server.file.FileRegion},
+ *     a {@link ChunkedBody}, a list of ByteBuffers and FileRegions, or none.
+ *     A handler reports failures through the status of the response; an unchecked exception is answered with
+ *     500 Internal Server Error.
+ * </p>
+ * <p>
+ *     The body of the request, if it has one, is a {@link nturbo1.http.RequestBody} that has been received in full.
+ *     It's closed once the handler returns, so it must be read by then.
+ * </p>
+ */
+@FunctionalInterface
+public interface HttpHandler
+{
+    HttpResponse handle(HttpRequest req);
+}
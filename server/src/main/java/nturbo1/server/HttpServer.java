@@ -1,34 +1,127 @@
 package nturbo1.server;
 
-import nturbo1.cmd.Argument;
+import nturbo1.http.HttpStatus;
 import nturbo1.log.CustomLogger;
+import nturbo1.server.file.CompressionCache;
+import nturbo1.server.file.FileCache;
+import nturbo1.server.file.StaticFileHandler;
+import nturbo1.server.jfr.ConnectionAcceptEvent;
+import nturbo1.server.metrics.MetricsHandler;
+import nturbo1.server.metrics.ServerMetrics;
+import nturbo1.server.nio.NioServer;
+import nturbo1.server.router.Router;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Map;
 
 public class HttpServer
 {
-    private final ServerSocket serverSocket;
-    private final int port;
+    private final ServerConfig config;
+    private final ServerMetrics metrics;
+    private FileCache fileCache;
+    private CompressionCache compressionCache;
+    private HttpServer metricsServer; // the internal listener of the metrics port, if there's one
+
+    // Blocking transport
+    private ServerSocketChannel serverChannel;
+    private ConnectionDispatcher dispatcher;
+
+    // NIO transport
+    private NioServer nioServer;
+
+    private volatile boolean running;
 
-    private static final int DEFAULT_PORT = 8080;
     private static final CustomLogger log = CustomLogger.getLogger(HttpServer.class.getName());
 
-    private HttpServer(int port) throws IOException
+    private HttpServer(ServerConfig config, Router.Builder routes) throws IOException
+    {
+        this.config = config;
+        this.metrics = new ServerMetrics();
+
+        HttpHandler handler = createHandler(config);
+        if (config.getMetricsPath() != null)
+        {
+            MetricsHandler metricsHandler = new MetricsHandler(metrics, fileCache, compressionCache);
+            if (config.getMetricsPort() != ServerConfig.NO_METRICS_PORT)
+            {
+                // Counted apart, so that the scrapes don't show up in the metrics of the server.
+                Router metricsRouter = Router.builder().get(config.getMetricsPath(), metricsHandler).build();
+                this.metricsServer = new HttpServer(config.forMetricsListener(), metricsRouter, new ServerMetrics());
+            }
+            else
+            {
+                if (routes == null) { routes = Router.builder(); }
+                routes.get(config.getMetricsPath(), metricsHandler);
+                log.info("Serving metrics on " + config.getMetricsPath());
+            }
+        }
+        if (routes != null) { handler = routes.build(handler); }
+
+        openTransport(handler);
+    }
+
+    private HttpServer(ServerConfig config, HttpHandler handler, ServerMetrics metrics) throws IOException
+    {
+        this.config = config;
+        this.metrics = metrics;
+        openTransport(handler);
+    }
+
+    private void openTransport(HttpHandler handler) throws IOException
+    {
+        if (config.getTransport() == Transport.NIO)
+        {
+            this.nioServer = new NioServer(config, handler, metrics, Runtime.getRuntime().availableProcessors());
+        }
+        else
+        {
+            this.serverChannel = ServerSocketChannel.open();
+            this.serverChannel.bind(new InetSocketAddress(config.getPort()));
+            this.dispatcher = new ConnectionDispatcher(config, handler, metrics);
+        }
+    }
+
+    private HttpHandler createHandler(ServerConfig config) throws IOException
     {
-        this.serverSocket = new ServerSocket(port);
-        this.port = port;
+        if (config.getRoot() == null)
+        {
+            log.warn("No document root given, every request will be answered with 404 Not Found.");
+            return req -> ErrorResponses.of(HttpStatus.NOT_FOUND);
+        }
+
+        log.info("Serving files from " + config.getRoot().toAbsolutePath());
+        if (config.getFileCacheSizeBytes() > 0)
+        {
+            this.fileCache = new FileCache(config.getRoot(), config.getFileCacheSizeBytes());
+            log.info("Caching small files in up to " + config.getFileCacheSizeBytes() / (1024 * 1024) + " MB");
+        }
+
+        if (config.getCompressionCacheSizeBytes() > 0)
+        {
+            this.compressionCache = new CompressionCache(config.getCompressionCacheSizeBytes());
+            log.info("Caching compressed files in up to " + config.getCompressionCacheSizeBytes() / (1024 * 1024) +
+                    " MB");
+        }
+
+        return new StaticFileHandler(config.getRoot(), fileCache, compressionCache);
     }
 
-    public static HttpServer init(Map<String, String> args)
+    public static HttpServer init(Map<String, String> args) { return init(args, null); }
+
+    /**
+     * @param routes the routes to dispatch the requests to. The requests that none of them match are served from the
+     *               document root, if there's one. Null to serve every request from the document root.
+     */
+    public static HttpServer init(Map<String, String> args, Router.Builder routes)
     {
         log.info("Initializing an http server...");
         HttpServer httpServer = null;
         try
         {
-            httpServer = new HttpServer(getPort(args));
+            httpServer = new HttpServer(ServerConfig.fromArgs(args), routes);
         }
         catch(IOException ex)
         {
@@ -40,35 +133,124 @@ public class HttpServer
 
     public void start()
     {
-        log.info("Listening on port " + port + "...");
-        log.warn("Handle requests asynchronously!");
+        if (metricsServer != null)
+        {
+            log.info("Serving metrics on port " + metricsServer.getPort() + " at " + config.getMetricsPath());
+            Thread.ofPlatform().name("metrics-listener").daemon().start(metricsServer::start);
+        }
+
+        log.info("Listening on port " + getPort() + " using the " + config.getTransport().getName() +
+                " transport...");
+        running = true;
+
+        if (config.getTransport() == Transport.NIO)
+        {
+            nioServer.start();
+            return;
+        }
 
-        while (true)
+        log.info("Handling at most " + config.getMaxConnections() + " concurrent connections...");
+
+        while (running)
         {
-            Socket socket;
+            try
+            {
+                dispatcher.reserveSlot();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
 
+            ConnectionAcceptEvent event = new ConnectionAcceptEvent();
+            event.begin();
+            SocketChannel channel;
             try
             {
-                socket = this.serverSocket.accept();
-                log.debug("New connection: " + socket.toString());
+                channel = this.serverChannel.accept();
+                log.debug("New connection: " + channel);
             }
             catch (IOException ex)
             {
+                dispatcher.releaseSlot();
+                if (!running) { break; } // the server socket was closed by stop()
+
                 log.fatal("Failed to accept socket connection because: " + ex.getMessage());
                 break;
             }
 
-            Connection conn = new Connection(socket);
-            conn.handle();
+            dispatcher.dispatch(channel);
+            event.commit(Transport.BLOCKING.getName(), channel);
+        }
+    }
+
+    /**
+     * Stops accepting new connections and gives the ones in progress the drain timeout to finish.
+     */
+    public void stop()
+    {
+        if (!running) { return; }
+        running = false;
+
+        log.info("Stopping the http server...");
+        boolean drained;
+        if (config.getTransport() == Transport.NIO)
+        {
+            drained = nioServer.stop(config.getDrainTimeoutMillis());
+        }
+        else
+        {
+            try
+            {
+                serverChannel.close();
+            }
+            catch (IOException ex)
+            {
+                log.error("Failed to close the server socket because: " + ex.getMessage());
+            }
+            drained = dispatcher.shutdown(config.getDrainTimeoutMillis());
+        }
+
+        if (drained)
+        {
+            log.info("All connections were drained.");
+        }
+
+        if (metricsServer != null) { metricsServer.stop(); }
+
+        if (fileCache != null)
+        {
+            try
+            {
+                fileCache.close();
+            }
+            catch (IOException ex)
+            {
+                log.error("Failed to close the file cache because: " + ex.getMessage());
+            }
         }
     }
 
-    private static int getPort(Map<String, String> args)
+    /**
+     * @return the port the server is bound to, the one picked by the system if it was started with port 0.
+     */
+    public int getPort()
     {
-        String portVal = args.get(Argument.PORT);
+        try
+        {
+            if (config.getTransport() == Transport.NIO) { return nioServer.getPort(); }
 
-        return portVal != null ? Integer.parseInt(portVal) : DEFAULT_PORT;
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        }
+        catch (IOException ex)
+        {
+            return config.getPort(); // the server socket is closed
+        }
     }
 
-    public int getPort() { return port; }
+    /**
+     * @return the counters the connections of the server update.
+     */
+    public ServerMetrics getMetrics() { return metrics; }
 }
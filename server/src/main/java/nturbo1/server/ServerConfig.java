@@ -0,0 +1,127 @@
+package nturbo1.server;
+
+import nturbo1.cmd.Argument;
+import nturbo1.http.parser.v1_1.BodyLimits;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The server settings taken from the command line arguments, with the defaults filled in for the missing ones.
+ */
+public class ServerConfig
+{
+    private final Transport transport;
+    private final int port;
+    private final int maxConnections;
+    private final long drainTimeoutMillis;
+    private final int keepAliveTimeoutMillis;
+    private final int maxKeepAliveRequests;
+    private final Path root;
+    private final long fileCacheSizeBytes;
+    private final long compressionCacheSizeBytes;
+    private final BodyLimits bodyLimits;
+    private final String metricsPath;
+    private final int metricsPort;
+
+    /** {@link #getMetricsPort()} when the metrics aren't served on a port of their own. */
+    public static final int NO_METRICS_PORT = -1;
+
+    private static final Transport DEFAULT_TRANSPORT = Transport.BLOCKING;
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    private static final int DEFAULT_DRAIN_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_KEEP_ALIVE_TIMEOUT_SECONDS = 15;
+    private static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 1000;
+    private static final int DEFAULT_FILE_CACHE_SIZE_MB = 64;
+    private static final int DEFAULT_COMPRESSION_CACHE_SIZE_MB = 16;
+    private static final int DEFAULT_MAX_BODY_SIZE_MB = 16;
+    private static final int DEFAULT_BODY_SPOOL_THRESHOLD_KB = 64;
+    private static final String DEFAULT_METRICS_PATH = "/metrics";
+    private static final int METRICS_MAX_CONNECTIONS = 16;
+
+    private ServerConfig(Map<String, String> args)
+    {
+        String transportVal = args.get(Argument.TRANSPORT);
+        this.transport = transportVal != null ? Transport.fromName(transportVal) : DEFAULT_TRANSPORT;
+        this.port = getInt(args, Argument.PORT, DEFAULT_PORT);
+        this.maxConnections = getInt(args, Argument.MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
+        this.drainTimeoutMillis = getInt(args, Argument.DRAIN_TIMEOUT, DEFAULT_DRAIN_TIMEOUT_SECONDS) * 1000L;
+        this.keepAliveTimeoutMillis = (int) Math.min(
+                getInt(args, Argument.KEEP_ALIVE_TIMEOUT, DEFAULT_KEEP_ALIVE_TIMEOUT_SECONDS) * 1000L,
+                Integer.MAX_VALUE);
+        this.maxKeepAliveRequests = getInt(args, Argument.MAX_KEEP_ALIVE_REQUESTS, DEFAULT_MAX_KEEP_ALIVE_REQUESTS);
+        this.root = args.containsKey(Argument.ROOT) ? Path.of(args.get(Argument.ROOT)) : null;
+        this.fileCacheSizeBytes = getInt(args, Argument.FILE_CACHE_SIZE, DEFAULT_FILE_CACHE_SIZE_MB) * 1024L * 1024L;
+        this.compressionCacheSizeBytes =
+                getInt(args, Argument.COMPRESSION_CACHE_SIZE, DEFAULT_COMPRESSION_CACHE_SIZE_MB) * 1024L * 1024L;
+        this.bodyLimits = new BodyLimits(
+                getInt(args, Argument.MAX_BODY_SIZE, DEFAULT_MAX_BODY_SIZE_MB) * 1024L * 1024L,
+                (int) Math.min(getInt(args, Argument.BODY_SPOOL_THRESHOLD, DEFAULT_BODY_SPOOL_THRESHOLD_KB) * 1024L,
+                        Integer.MAX_VALUE),
+                Path.of(System.getProperty("java.io.tmpdir")));
+        this.metricsPort = getInt(args, Argument.METRICS_PORT, NO_METRICS_PORT);
+        String metricsPathVal = args.get(Argument.METRICS_PATH);
+        this.metricsPath = metricsPathVal == null && metricsPort != NO_METRICS_PORT ? DEFAULT_METRICS_PATH
+                : metricsPathVal;
+    }
+
+    public static ServerConfig fromArgs(Map<String, String> args) { return new ServerConfig(args); }
+
+    /**
+     * @return the settings of the internal listener that serves the metrics on their own port, a blocking one for a
+     * handful of scrapers.
+     */
+    public ServerConfig forMetricsListener()
+    {
+        return fromArgs(Map.of(Argument.PORT, Integer.toString(metricsPort),
+                Argument.MAX_CONNECTIONS, Integer.toString(METRICS_MAX_CONNECTIONS)));
+    }
+
+    private static int getInt(Map<String, String> args, String argName, int defaultValue)
+    {
+        String value = args.get(argName);
+
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public Transport getTransport() { return transport; }
+    public int getPort() { return port; }
+    public int getMaxConnections() { return maxConnections; }
+    public long getDrainTimeoutMillis() { return drainTimeoutMillis; }
+    public int getKeepAliveTimeoutMillis() { return keepAliveTimeoutMillis; }
+    public int getMaxKeepAliveRequests() { return maxKeepAliveRequests; }
+
+    /**
+     * @return the document root to serve files from, or null if no files are served.
+     */
+    public Path getRoot() { return root; }
+
+    /**
+     * @return the most file content bytes the static file cache keeps in memory, 0 if files aren't cached.
+     */
+    public long getFileCacheSizeBytes() { return fileCacheSizeBytes; }
+
+    /**
+     * @return the most compressed bytes the compression cache keeps in memory, 0 if files are always compressed
+     * while they are sent.
+     */
+    public long getCompressionCacheSizeBytes() { return compressionCacheSizeBytes; }
+
+    /**
+     * @return the largest request body accepted and the size past which it's received into a temporary file.
+     */
+    public BodyLimits getBodyLimits() { return bodyLimits; }
+
+    /**
+     * @return the path the metrics are served on, or null if they aren't served. "/metrics" if only a metrics port is
+     * given.
+     */
+    public String getMetricsPath() { return metricsPath; }
+
+    /**
+     * @return the port of the internal listener that serves the metrics, or {@link #NO_METRICS_PORT} to serve them
+     * on the server port, if at all.
+     */
+    public int getMetricsPort() { return metricsPort; }
+}
@@ -0,0 +1,32 @@
+package nturbo1.server;
+
+/**
+ * The ways the server can move bytes between the sockets and the request handling code.
+ */
+public enum Transport
+{
+    /** A virtual thread per connection doing blocking socket IO. */
+    BLOCKING("blocking"),
+    /** A fixed set of selector event loops, one per core, doing non-blocking socket IO. */
+    NIO("nio");
+
+    private final String name;
+
+    Transport(String name) { this.name = name; }
+
+    public String getName() { return this.name; }
+
+    /**
+     * @param name transport name as it's passed on the command line.
+     * @return the matching transport, or null if there is no transport with the given name.
+     */
+    public static Transport fromName(String name)
+    {
+        for (Transport transport : values())
+        {
+            if (transport.name.equals(name)) { return transport; }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,370 @@
+package nturbo1.server;
+
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.encoder.v1_1.HttpResponseEncoder;
+import nturbo1.log.CustomLogger;
+import nturbo1.server.file.FileRegion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The encoded responses of a connection that haven't reached the socket yet, in the order they must be sent.
+ * <p>
+ *     Responses are encoded as they are produced into a buffer borrowed from the {@link BufferPool}, and a batch of
+ *     them is sent with one write instead of one write per response. In the common case of small responses that's
+ *     all there is to it and nothing is allocated per response. A large body isn't copied: the bytes encoded so far
+ *     are cut off into a slice and the body is queued behind it, and the whole queue is sent with a gathering write.
+ *     A {@link FileRegion} body is queued the same way and sent with a transfer from the file. A body can also be a
+ *     list of such parts, which are sent one after another. A {@link ChunkedBody} is produced as it's sent.
+ * </p>
+ * <p>
+ *     On a non-blocking channel a flush may stop half way, the rest is sent by the next flush. The pooled buffer is
+ *     given back once everything is written.
+ * </p>
+ */
+public class WriteQueue
+{
+    private final BufferPool pool;
+    private final ArrayDeque<Object> segments = new ArrayDeque<>(); // ByteBuffers, FileRegions and ChunkedBodies
+    private final ArrayDeque<ByteBuffer> retired = new ArrayDeque<>(); // full pooled buffers with slices queued
+    private ByteBuffer[] gather = new ByteBuffer[8];
+
+    private ByteBuffer out; // write mode, the bytes from sealed up to the position aren't queued yet
+    private int sealed;
+    private long bytesWritten; // since the last takeBytesWritten()
+    private volatile long lastProgressMillis; // read by the write timeouts, also from other threads
+
+    private static final int MAX_COPIED_BODY_SIZE = 4 * 1024;
+    private static final int MAX_BUFFERS_PER_WRITE = 64;
+    private static final CustomLogger log = CustomLogger.getLogger(WriteQueue.class.getName());
+
+    public WriteQueue() { this(BufferPool.shared()); }
+
+    public WriteQueue(BufferPool pool) { this.pool = pool; }
+
+    /**
+     * Encodes a response behind the ones already queued. Content-Length is taken from the body unless the response
+     * already has it or Transfer-Encoding, like the response to a HEAD request does, or its status doesn't allow a
+     * body.
+     *
+     * @param res the response, with a byte array, {@link ByteBuffer}, {@link FileRegion} or {@link ChunkedBody} body,
+     * a list of buffers and file regions, or none. A buffer is sent from its position to its limit and must not be changed until it's
+     * written.
+     * @param keepAlive whether the connection stays open after the response.
+     */
+    public void add(HttpResponse res, boolean keepAlive)
+    {
+        if (res.getBody() instanceof FileRegion region)
+        {
+            addHead(res, contentLength(res, region.remaining()), keepAlive);
+            seal();
+            segments.add(region);
+            return;
+        }
+        if (res.getBody() instanceof ChunkedBody chunked)
+        {
+            addHead(res, HttpResponseEncoder.NO_CONTENT_LENGTH, keepAlive);
+            seal();
+            segments.add(chunked);
+            return;
+        }
+        if (res.getBody() instanceof ByteBuffer buf)
+        {
+            addHead(res, contentLength(res, buf.remaining()), keepAlive);
+            addPart(buf);
+            return;
+        }
+        if (res.getBody() instanceof List<?> parts)
+        {
+            long length = 0;
+            for (Object part : parts)
+            {
+                length += part instanceof FileRegion region ? region.remaining() : ((ByteBuffer) part).remaining();
+            }
+            addHead(res, contentLength(res, length), keepAlive);
+            for (Object part : parts)
+            {
+                if (part instanceof FileRegion region)
+                {
+                    seal();
+                    segments.add(region);
+                }
+                else { addPart((ByteBuffer) part); }
+            }
+            return;
+        }
+
+        byte[] body = HttpResponseEncoder.bodyBytes(res);
+        addHead(res, contentLength(res, body.length), keepAlive);
+
+        if (body.length == 0) { return; }
+        if (body.length <= MAX_COPIED_BODY_SIZE && body.length <= out.remaining())
+        {
+            out.put(body);
+            return;
+        }
+        seal();
+        segments.add(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Queues raw bytes behind the responses already queued. The buffer must not be changed until it's written.
+     */
+    public void add(ByteBuffer buf)
+    {
+        if (!buf.hasRemaining()) { return; }
+
+        seal();
+        segments.add(buf);
+    }
+
+    public boolean isEmpty() { return segments.isEmpty() && (out == null || out.position() == sealed); }
+
+    /**
+     * Writes as much of the queue as the channel takes.
+     *
+     * @param channel the socket channel, blocking or not.
+     * @return true if the whole queue was written.
+     */
+    public boolean flush(GatheringByteChannel channel) throws IOException
+    {
+        if (segments.isEmpty()) { return flushOut(channel); }
+
+        seal();
+        while (!segments.isEmpty())
+        {
+            if (segments.peekFirst() instanceof FileRegion region)
+            {
+                long n = region.transferTo(channel);
+                wrote(n);
+                if (n == 0 && channel instanceof SelectableChannel sc && sc.isBlocking())
+                {
+                    // On a virtual thread the socket is non-blocking underneath. A write parks the thread until the
+                    // socket takes more, a file transfer just gives up, so the next part goes through a write.
+                    ByteBuffer buf = pool.acquire();
+                    try
+                    {
+                        n = region.copyTo(channel, buf);
+                        wrote(n);
+                    }
+                    finally
+                    {
+                        pool.release(buf);
+                    }
+                }
+                if (region.remaining() == 0)
+                {
+                    segments.pollFirst();
+                    close(region);
+                }
+                else if (n == 0) { return false; } // the socket send buffer is full
+
+                continue;
+            }
+            if (segments.peekFirst() instanceof ChunkedBody chunked)
+            {
+                long n = chunked.writeTo(channel, pool);
+                wrote(n);
+                if (chunked.isComplete())
+                {
+                    segments.pollFirst();
+                    close(chunked);
+                }
+                else if (n == 0) { return false; } // the socket send buffer is full
+
+                continue;
+            }
+
+            int count = 0;
+            for (Object segment : segments)
+            {
+                if (count == MAX_BUFFERS_PER_WRITE || !(segment instanceof ByteBuffer buf)) { break; }
+                if (gather.length == count) { gather = Arrays.copyOf(gather, gather.length * 2); }
+                gather[count++] = buf;
+            }
+
+            long written = channel.write(gather, 0, count);
+            wrote(written);
+            while (!segments.isEmpty() && segments.peekFirst() instanceof ByteBuffer buf && !buf.hasRemaining())
+            {
+                segments.pollFirst();
+            }
+            Arrays.fill(gather, 0, count, null);
+
+            if (written == 0) { return false; } // the socket send buffer is full
+        }
+
+        release();
+        return true;
+    }
+
+    /**
+     * @return the time the channel last took any bytes, 0 if it never did. On a blocking channel a single write can
+     * take a while, this is when the last one that got anywhere returned.
+     */
+    public long getLastProgressMillis() { return lastProgressMillis; }
+
+    /**
+     * @return the number of bytes written to the channel since the last call.
+     */
+    public long takeBytesWritten()
+    {
+        long n = bytesWritten;
+        bytesWritten = 0;
+        return n;
+    }
+
+    /**
+     * Gives the pooled buffers back and forgets whatever wasn't written. Called when the connection is closed.
+     */
+    public void release()
+    {
+        Object segment;
+        while ((segment = segments.poll()) != null)
+        {
+            if (segment instanceof Closeable body) { close(body); }
+        }
+        ByteBuffer buf;
+        while ((buf = retired.poll()) != null) { pool.release(buf); }
+        if (out != null) { pool.release(out); }
+
+        out = null;
+        sealed = 0;
+    }
+
+    /**
+     * The common case, where everything to write is in the pooled buffer.
+     */
+    private boolean flushOut(GatheringByteChannel channel) throws IOException
+    {
+        if (out == null) { return true; }
+
+        out.flip();
+        while (out.hasRemaining())
+        {
+            int n = channel.write(out);
+            if (n == 0) { break; }
+            wrote(n);
+        }
+        if (out.hasRemaining())
+        {
+            out.compact();
+            return false;
+        }
+
+        release();
+        return true;
+    }
+
+    private void addHead(HttpResponse res, long contentLength, boolean keepAlive)
+    {
+        if (out == null) { out = pool.acquire(); }
+
+        if (tryEncodeHead(res, contentLength, keepAlive)) { return; }
+
+        // No room left after the responses before it, so go on in a fresh pooled buffer.
+        if (out.position() > 0)
+        {
+            seal();
+            retired.add(out);
+            out = pool.acquire();
+            sealed = 0;
+            if (tryEncodeHead(res, contentLength, keepAlive)) { return; }
+        }
+
+        // A head larger than a whole pooled buffer gets a buffer of its own.
+        ByteBuffer head = ByteBuffer.allocate(BufferPool.BUFFER_SIZE * 2);
+        while (true)
+        {
+            try
+            {
+                HttpResponseEncoder.encodeHead(res, contentLength, keepAlive, head);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                head = ByteBuffer.allocate(head.capacity() * 2);
+            }
+        }
+        add(head.flip());
+    }
+
+    /**
+     * Copies a small buffer in behind the bytes encoded so far, or queues a large one as it is.
+     */
+    private void addPart(ByteBuffer buf)
+    {
+        if (buf.remaining() <= MAX_COPIED_BODY_SIZE && buf.remaining() <= out.remaining())
+        {
+            out.put(out.position(), buf, buf.position(), buf.remaining()); // leaves the body buffer as it is
+            out.position(out.position() + buf.remaining());
+            return;
+        }
+        add(buf);
+    }
+
+    private boolean tryEncodeHead(HttpResponse res, long contentLength, boolean keepAlive)
+    {
+        int start = out.position();
+        try
+        {
+            HttpResponseEncoder.encodeHead(res, contentLength, keepAlive, out);
+            return true;
+        }
+        catch (BufferOverflowException e)
+        {
+            out.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * Queues the bytes encoded into the pooled buffer since the last seal, so that something can be queued after
+     * them.
+     */
+    private void seal()
+    {
+        if (out == null || out.position() == sealed) { return; }
+
+        segments.add(out.slice(sealed, out.position() - sealed));
+        sealed = out.position();
+    }
+
+    private void wrote(long n)
+    {
+        if (n == 0) { return; }
+
+        bytesWritten += n;
+        lastProgressMillis = System.currentTimeMillis();
+    }
+
+    private static long contentLength(HttpResponse res, long bodyLength)
+    {
+        boolean framed = res.containsHeader(HttpEntityHeader.CONTENT_LENGTH.getName()) ||
+                res.containsHeader(GeneralHeader.TRANSFER_ENCODING.getName());
+
+        return !res.getStatus().allowsBody() || framed ? HttpResponseEncoder.NO_CONTENT_LENGTH : bodyLength;
+    }
+
+    private static void close(Closeable body)
+    {
+        try
+        {
+            body.close();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to close a response body after sending it due to: " + e.getMessage());
+        }
+    }
+}
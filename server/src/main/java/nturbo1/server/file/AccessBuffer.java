@@ -0,0 +1,79 @@
+package nturbo1.server.file;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy buffer of the keys the {@link FileCache} is asked for, so that a lookup counts toward the popularity and
+ * recency of its key without taking the lock of the cache.
+ * <p>
+ *     Threads append to one of a few stripes, picked by their id, each a small ring of slots. A key that finds its
+ *     stripe full, or loses the race for a slot, is dropped. The counts are estimates anyway, and a key that is
+ *     requested a lot is soon offered again. The holder of the cache lock drains the stripes into the
+ *     {@link FrequencySketch} and the LRU order.
+ * </p>
+ */
+class AccessBuffer
+{
+    private static final int STRIPE_SIZE = 32;
+    private static final int DRAIN_THRESHOLD = STRIPE_SIZE / 2;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private static class Stripe
+    {
+        final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong reads = new AtomicLong(); // only advanced by the thread draining
+    }
+
+    /**
+     * @param expectedThreads about how many threads look up keys at the same time, the number of stripes is the
+     * power of two at or below it.
+     */
+    AccessBuffer(int expectedThreads)
+    {
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, expectedThreads))];
+        for (int i = 0; i < stripes.length; i++) { stripes[i] = new Stripe(); }
+        this.mask = stripes.length - 1;
+    }
+
+    /**
+     * @return true if the stripe the key went to, or would have gone to, is filling up and should be drained.
+     */
+    boolean offer(String key)
+    {
+        Stripe stripe = stripes[(int) Thread.currentThread().threadId() & mask];
+        long writes = stripe.writes.get();
+        long pending = writes - stripe.reads.get();
+        if (pending >= STRIPE_SIZE) { return true; } // full, the key is dropped
+        if (!stripe.writes.compareAndSet(writes, writes + 1)) { return false; } // lost the slot, the key is dropped
+
+        stripe.slots.lazySet((int) writes & (STRIPE_SIZE - 1), key);
+        return pending + 1 >= DRAIN_THRESHOLD;
+    }
+
+    /**
+     * Hands the buffered keys to a consumer, oldest first within each stripe. Only called under the cache lock.
+     */
+    void drainTo(Consumer<String> consumer)
+    {
+        for (Stripe stripe : stripes)
+        {
+            long reads = stripe.reads.get();
+            long writes = stripe.writes.get();
+            for (; reads < writes; reads++)
+            {
+                int slot = (int) reads & (STRIPE_SIZE - 1);
+                String key = stripe.slots.get(slot);
+                if (key == null) { break; } // claimed, but not written yet
+
+                stripe.slots.lazySet(slot, null);
+                consumer.accept(key);
+            }
+            stripe.reads.set(reads); // after the slots are cleared, so that a writer lapping them sees them empty
+        }
+    }
+}
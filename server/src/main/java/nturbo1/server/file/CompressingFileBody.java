@@ -0,0 +1,89 @@
+package nturbo1.server.file;
+
+import nturbo1.http.ContentCoding;
+import nturbo1.server.BufferPool;
+import nturbo1.server.ChunkedBody;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The body of a file that is compressed while it's sent, for files too large to be compressed in memory up front.
+ * The file is read a pooled buffer at a time with positional reads and goes out as chunks of compressed data.
+ */
+public class CompressingFileBody extends ChunkedBody
+{
+    private final FileChannel file;
+    private final Compressor compressor;
+    private long position;
+    private long remaining;
+    private ByteBuffer in;
+
+    /**
+     * @param file the file to send, closed by the body.
+     * @param size the number of bytes to send from the start of the file.
+     * @param coding the coding to compress with.
+     */
+    public CompressingFileBody(FileChannel file, long size, ContentCoding coding)
+    {
+        this.file = file;
+        this.remaining = size;
+        this.compressor = new Compressor(coding);
+    }
+
+    @Override
+    protected boolean read(ByteBuffer buf) throws IOException
+    {
+        while (!compressor.isFinished())
+        {
+            if (compressor.needsInput())
+            {
+                if (remaining > 0) { readNextInput(); }
+                else { compressor.finish(); }
+            }
+
+            if (compressor.deflate(buf) == 0 && !(compressor.needsInput() && remaining > 0))
+            {
+                break; // the buffer is full
+            }
+        }
+
+        return !compressor.isFinished();
+    }
+
+    private void readNextInput() throws IOException
+    {
+        if (in == null) { in = BufferPool.shared().acquire(); }
+
+        in.clear();
+        if (in.remaining() > remaining) { in.limit((int) remaining); }
+        int n = file.read(in, position);
+        if (n == -1)
+        {
+            throw new IOException("File shrank while it was being sent: " + remaining + " bytes are missing.");
+        }
+        position += n;
+        remaining -= n;
+        compressor.setInput(in.flip());
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            file.close();
+        }
+        finally
+        {
+            compressor.close();
+            if (in != null)
+            {
+                BufferPool.shared().release(in);
+                in = null;
+            }
+            super.close();
+        }
+    }
+}
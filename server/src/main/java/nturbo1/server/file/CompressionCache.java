@@ -0,0 +1,197 @@
+package nturbo1.server.file;
+
+import nturbo1.http.ContentCoding;
+import nturbo1.server.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the compressed variants of files off-heap, so that a file is compressed once and not for every request.
+ * <p>
+ *     A variant is keyed by the file, its size and modification time and the coding, so a file that changes simply
+ *     stops being found under its old key and its stale variant ages out. The cache is bounded by the total size of
+ *     the compressed bytes and evicts the least recently used variants.
+ * </p>
+ */
+public class CompressionCache
+{
+    private final long capacityBytes;
+    private final long maxInputBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, FileCache.Entry> variants =
+            new LinkedHashMap<>(16, 0.75f, true); // guarded by lock
+    private long sizeBytes; // guarded by lock
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final long MAX_INPUT_BYTES = 1024 * 1024;
+    private static final int MIN_OUTPUT_ROOM = 64; // more than the gzip header or trailer takes
+
+    private record Key(Path file, long size, FileTime lastModified, ContentCoding coding) {}
+
+    /**
+     * @param capacityBytes the most compressed bytes kept in memory.
+     */
+    public CompressionCache(long capacityBytes)
+    {
+        this.capacityBytes = capacityBytes;
+        this.maxInputBytes = Math.min(MAX_INPUT_BYTES, Math.max(1, capacityBytes / 8));
+    }
+
+    /**
+     * @param file the real path of the file.
+     * @return the variant of the file as it is now, or null on a miss.
+     */
+    public FileCache.Entry get(Path file, long size, FileTime lastModified, ContentCoding coding)
+    {
+        FileCache.Entry variant;
+        lock.lock();
+        try
+        {
+            variant = variants.get(new Key(file, size, lastModified, coding));
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if (variant == null) { misses.increment(); }
+        else { hits.increment(); }
+
+        return variant;
+    }
+
+    /**
+     * @return true if a file of the given size may be compressed into the cache, larger ones are compressed while
+     * they are sent.
+     */
+    public boolean accepts(long size) { return size <= maxInputBytes; }
+
+    /**
+     * Compresses a file and caches the result. Meant to be called after a miss.
+     *
+     * @param file the real path of the file.
+     * @param attrs the attributes of the file, as they were when it was resolved.
+     * @param coding the coding to compress with.
+     * @param etag the entity-tag of the variant.
+     * @param headerLines the encoded header lines for the variant.
+     * @param validatorLines the encoded header lines of the validators of the variant alone.
+     * @return the variant.
+     */
+    public FileCache.Entry compress(Path file, BasicFileAttributes attrs, ContentCoding coding, String etag,
+                                    byte[] headerLines, byte[] validatorLines) throws IOException
+    {
+        ByteBuffer compressed = compress(file, attrs.size(), coding);
+        ByteBuffer body = ByteBuffer.allocateDirect(compressed.remaining()).put(compressed).flip();
+
+        FileCache.Entry variant = new FileCache.Entry(file, null, body.remaining(), attrs.lastModifiedTime(), etag,
+                headerLines, validatorLines, body.asReadOnlyBuffer());
+        if (variant.size() > capacityBytes) { return variant; }
+
+        // A change while the file was read would leave the new content under the old key.
+        BasicFileAttributes current = Files.readAttributes(file, BasicFileAttributes.class);
+        if (current.size() != attrs.size() || !current.lastModifiedTime().equals(attrs.lastModifiedTime()))
+        {
+            return variant;
+        }
+
+        lock.lock();
+        try
+        {
+            FileCache.Entry old = variants.put(new Key(file, attrs.size(), attrs.lastModifiedTime(), coding), variant);
+            if (old != null) { sizeBytes -= old.size(); }
+            sizeBytes += variant.size();
+
+            Iterator<FileCache.Entry> it = variants.values().iterator();
+            while (sizeBytes > capacityBytes && it.hasNext())
+            {
+                sizeBytes -= it.next().size();
+                it.remove();
+                evictions.increment();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return variant;
+    }
+
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    /**
+     * @return the total size of the cached variants.
+     */
+    public long getSizeBytes()
+    {
+        lock.lock();
+        try
+        {
+            return sizeBytes;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacityBytes() { return capacityBytes; }
+
+    /**
+     * @return the compressed file in a heap buffer, in read mode.
+     */
+    private static ByteBuffer compress(Path file, long size, ContentCoding coding) throws IOException
+    {
+        ByteBuffer out = ByteBuffer.allocate((int) Math.max(256, size / 2));
+        ByteBuffer in = BufferPool.shared().acquire();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Compressor compressor = new Compressor(coding))
+        {
+            long position = 0;
+            while (!compressor.isFinished())
+            {
+                if (compressor.needsInput())
+                {
+                    if (position < size)
+                    {
+                        in.clear();
+                        if (in.remaining() > size - position) { in.limit((int) (size - position)); }
+                        int n = channel.read(in, position);
+                        if (n == -1) { throw new IOException("File shrank while it was being compressed: " + file); }
+                        position += n;
+                        compressor.setInput(in.flip());
+                    }
+                    else { compressor.finish(); }
+                }
+
+                if (compressor.deflate(out) == 0 && out.remaining() < MIN_OUTPUT_ROOM)
+                {
+                    out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+                }
+            }
+        }
+        finally
+        {
+            BufferPool.shared().release(in);
+        }
+
+        return out.flip();
+    }
+}
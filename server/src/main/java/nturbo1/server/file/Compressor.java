@@ -0,0 +1,98 @@
+package nturbo1.server.file;
+
+import nturbo1.http.ContentCoding;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses one stream of bytes with a content-coding, piece by piece, into buffers of any size.
+ * <p>
+ *     Input is given with {@link #setInput(ByteBuffer)} whenever {@link #needsInput()} says so, and {@link #finish()}
+ *     is called after the last of it. {@link #deflate(ByteBuffer)} is then called until {@link #isFinished()}. For
+ *     gzip the 10 byte header and the 8 byte trailer with the CRC-32 and the length are written around the deflate
+ *     data.
+ * </p>
+ * <p>
+ *     The deflater comes from the {@link DeflaterPool} and goes back to it on {@link #close()}.
+ * </p>
+ */
+class Compressor implements Closeable
+{
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff // no name, no mtime, unknown OS
+    };
+    private static final int GZIP_TRAILER_SIZE = 8;
+
+    private final ContentCoding coding;
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private boolean headerWritten;
+    private boolean finished;
+
+    Compressor(ContentCoding coding)
+    {
+        this.coding = coding;
+        this.deflater = DeflaterPool.shared().acquire(coding);
+        this.crc = coding == ContentCoding.GZIP ? new CRC32() : null;
+    }
+
+    boolean needsInput() { return deflater.needsInput(); }
+
+    /**
+     * @param in the next input, consumed from its position. It must not be changed until it's consumed.
+     */
+    void setInput(ByteBuffer in)
+    {
+        if (crc != null) { crc.update(in.duplicate()); }
+        deflater.setInput(in);
+    }
+
+    void finish() { deflater.finish(); }
+
+    boolean isFinished() { return finished; }
+
+    /**
+     * Writes as much compressed output as there is for the input given so far and as fits into the buffer.
+     *
+     * @param out the buffer to write to, in write mode.
+     * @return the number of bytes written.
+     */
+    int deflate(ByteBuffer out)
+    {
+        int start = out.position();
+        if (crc != null && !headerWritten)
+        {
+            if (out.remaining() < GZIP_HEADER.length) { return 0; }
+            out.put(GZIP_HEADER);
+            headerWritten = true;
+        }
+
+        while (out.hasRemaining() && !deflater.finished())
+        {
+            if (deflater.deflate(out) == 0) { break; } // needs more input, or finish() if there's no more
+        }
+
+        if (deflater.finished() && !finished)
+        {
+            if (crc == null) { finished = true; }
+            else if (out.remaining() >= GZIP_TRAILER_SIZE)
+            {
+                ByteOrder order = out.order();
+                out.order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt((int) crc.getValue())
+                        .putInt((int) deflater.getBytesRead())
+                        .order(order);
+                finished = true;
+            }
+        }
+
+        return out.position() - start;
+    }
+
+    @Override
+    public void close() { DeflaterPool.shared().release(coding, deflater); }
+}
@@ -0,0 +1,55 @@
+package nturbo1.server.file;
+
+import nturbo1.http.ContentCoding;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A shared pool of {@link Deflater}s for compressing responses.
+ * <p>
+ *     A deflater holds a good deal of native memory that is only freed by {@link Deflater#end()}, and setting one up
+ *     is far from free, so they are reset and reused instead of made per response. Gzip and deflate need deflaters
+ *     of different kinds: gzip brings its own header and trailer around raw deflate data, deflate is the zlib format.
+ * </p>
+ */
+public class DeflaterPool
+{
+    public static final int LEVEL = 6;
+
+    private static final int MAX_POOLED_DEFLATERS = 64;
+    private static final DeflaterPool SHARED = new DeflaterPool();
+
+    private final BlockingQueue<Deflater> raw = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+    private final BlockingQueue<Deflater> zlib = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    private DeflaterPool() {}
+
+    public static DeflaterPool shared() { return SHARED; }
+
+    /**
+     * @return a deflater that is ready for a new stream in the format of the given coding.
+     */
+    public Deflater acquire(ContentCoding coding)
+    {
+        Deflater deflater = queue(coding).poll();
+        if (deflater == null) { return new Deflater(LEVEL, coding == ContentCoding.GZIP); }
+
+        return deflater;
+    }
+
+    /**
+     * Gives a deflater taken with {@link #acquire(ContentCoding)} back. It must not be used by the caller afterward.
+     */
+    public void release(ContentCoding coding, Deflater deflater)
+    {
+        deflater.reset();
+        if (!queue(coding).offer(deflater))
+        {
+            deflater.end(); // the pool is full
+        }
+    }
+
+    private BlockingQueue<Deflater> queue(ContentCoding coding) { return coding == ContentCoding.GZIP ? raw : zlib; }
+}
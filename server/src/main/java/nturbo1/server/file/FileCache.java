@@ -0,0 +1,555 @@
+package nturbo1.server.file;
+
+import nturbo1.log.CustomLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the content of small, often requested files off-heap together with their encoded headers, so that serving
+ * them takes no open, stat or file read.
+ * <p>
+ *     Entries are looked up by the request path alone, the file system isn't touched on a hit. They are kept up to
+ *     date by a {@link WatchService} on every directory from the document root down to each cached file: any change
+ *     to a cached file drops its entries, and so does a directory on the way to it being renamed, deleted or
+ *     replaced, as in a deploy that swaps in a new directory. The next request loads the file again.
+ * </p>
+ * <p>
+ *     A request path that leads to its file over a symbolic link is the exception. Re-pointing the link changes a
+ *     directory that isn't watched, so a hit on such a path resolves the link again and drops the entry if it no
+ *     longer leads to the same, unchanged file.
+ * </p>
+ * <p>
+ *     The cache is bounded by the total size of the file contents and evicts with W-TinyLFU. New entries go into a
+ *     small LRU window. An entry pushed out of the window only makes it into the main LRU area if a
+ *     {@link FrequencySketch} says it's requested more often than the entry it would push out of there. That keeps
+ *     a burst of one-off requests from flushing the files that are hot all the time.
+ * </p>
+ * <p>
+ *     A lookup takes no lock. The entries are also kept in a concurrent map, and the request is recorded in an
+ *     {@link AccessBuffer} that whoever holds the lock next replays into the sketch and the LRU order. A lookup that
+ *     finds the buffer filling up does that itself if the lock is free, and leaves it to the next one otherwise.
+ * </p>
+ */
+public class FileCache implements Closeable
+{
+    private final Path root;
+    private final long capacityBytes;
+    private final long windowCapacityBytes;
+    private final long maxEntryBytes;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>(); // written under lock
+    private final AccessBuffer accesses = new AccessBuffer(Runtime.getRuntime().availableProcessors());
+    private final Consumer<String> replayAccess = this::replayAccess;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true); // guarded by lock
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true); // guarded by lock
+    private final Map<Path, Set<String>> keysByFile = new HashMap<>(); // guarded by lock
+    private final FrequencySketch sketch; // guarded by lock
+    private long windowBytes; // guarded by lock
+    private long mainBytes; // guarded by lock
+
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> watchedDirs = new HashMap<>(); // guarded by lock
+    private final Thread watcher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final long MAX_ENTRY_BYTES = 1024 * 1024;
+    private static final int AVERAGE_ENTRY_BYTES = 16 * 1024;
+    private static final CustomLogger log = CustomLogger.getLogger(FileCache.class.getName());
+
+    /**
+     * A cached file. The body is read-only and shared, every response sends a duplicate of it.
+     *
+     * @param file the real path of the file.
+     * @param link the path the file was requested by if it leads there over a symbolic link, null otherwise.
+     * @param etag the entity-tag of the content.
+     * @param headerLines the encoded header lines that describe the content.
+     * @param validatorLines the encoded header lines of the validators alone, for a 304 Not Modified response.
+     */
+    public record Entry(Path file, Path link, long size, FileTime lastModified, String etag, byte[] headerLines,
+                        byte[] validatorLines, ByteBuffer body) {}
+
+    /**
+     * @param root the document root the cached files are resolved in.
+     * @param capacityBytes the most file content bytes kept in memory.
+     * @throws IOException if the root can't be resolved or the watch service can't be created.
+     */
+    public FileCache(Path root, long capacityBytes) throws IOException
+    {
+        this.root = root.toRealPath();
+        this.capacityBytes = capacityBytes;
+        this.maxEntryBytes = Math.min(MAX_ENTRY_BYTES, Math.max(1, capacityBytes / 8));
+        this.windowCapacityBytes = Math.max(capacityBytes / 100, maxEntryBytes);
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, capacityBytes / AVERAGE_ENTRY_BYTES));
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.watcher = Thread.ofPlatform().name("file-cache-watcher").daemon().start(this::watchForChanges);
+    }
+
+    /**
+     * Looks up the entry of a request path and counts the request toward the popularity of the path, without
+     * waiting for the lock of the cache.
+     *
+     * @return the entry, or null on a miss.
+     */
+    public Entry get(String key)
+    {
+        Entry entry = entries.get(key);
+        if (accesses.offer(key) && lock.tryLock())
+        {
+            try
+            {
+                accesses.drainTo(replayAccess);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        if (entry != null && entry.link() != null && !leadsToSameFile(entry))
+        {
+            log.debug("Symbolic link re-pointed, dropping its cache entry: " + entry.link());
+            drop(key, entry);
+            entry = null;
+        }
+
+        if (entry == null) { misses.increment(); }
+        else { hits.increment(); }
+
+        return entry;
+    }
+
+    /**
+     * @return true if a file of the given size may be cached.
+     */
+    public boolean accepts(long size) { return size <= maxEntryBytes; }
+
+    /**
+     * Reads a file into memory and caches it under a request path. Meant to be called after a miss.
+     *
+     * @param key the request path.
+     * @param file the real path of the file.
+     * @param link the path the file was requested by if it leads there over a symbolic link, null otherwise.
+     * @param attrs the attributes of the file, as they were when it was resolved.
+     * @param etag the entity-tag of the content.
+     * @param headerLines the encoded header lines for the content.
+     * @param validatorLines the encoded header lines of the validators alone.
+     * @return the new entry, or null if the file changed in the meantime or is too large.
+     */
+    public Entry load(String key, Path file, Path link, BasicFileAttributes attrs, String etag, byte[] headerLines,
+                      byte[] validatorLines) throws IOException
+    {
+        if (!accepts(attrs.size())) { return null; }
+
+        List<WatchKey> watchKeys;
+        lock.lock();
+        try
+        {
+            watchKeys = watchPathTo(file); // before reading, so that a change during the read isn't missed
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        ByteBuffer body = ByteBuffer.allocateDirect((int) attrs.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            while (body.hasRemaining())
+            {
+                if (channel.read(body, body.position()) == -1) { return null; } // the file shrank
+            }
+        }
+        body.flip();
+
+        Entry entry = new Entry(file, link, attrs.size(), attrs.lastModifiedTime(), etag, headerLines, validatorLines,
+                body.asReadOnlyBuffer());
+        lock.lock();
+        try
+        {
+            accesses.drainTo(replayAccess); // for the admission of the new entry and the ones it pushes out
+            if (entries.containsKey(key)) { return entry; }
+            // A directory on the way was renamed or replaced while the file was read, its watch is gone.
+            for (WatchKey watchKey : watchKeys)
+            {
+                if (watchedDirs.get((Path) watchKey.watchable()) != watchKey) { return null; }
+            }
+
+            // Checked under the lock: the event of any change after this is handled after the entry is in.
+            BasicFileAttributes current = Files.readAttributes(file, BasicFileAttributes.class);
+            if (current.size() != attrs.size() || !current.lastModifiedTime().equals(attrs.lastModifiedTime()))
+            {
+                return null;
+            }
+
+            window.put(key, entry);
+            entries.put(key, entry);
+            windowBytes += entry.size();
+            keysByFile.computeIfAbsent(file, f -> new HashSet<>()).add(key);
+            evictFromWindow();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Drops the entries of a file.
+     *
+     * @param file the real path of the file.
+     */
+    public void invalidate(Path file)
+    {
+        lock.lock();
+        try
+        {
+            Set<String> keys = keysByFile.remove(file);
+            if (keys == null) { return; }
+
+            for (String key : keys) { remove(key); }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll()
+    {
+        lock.lock();
+        try
+        {
+            window.clear();
+            main.clear();
+            entries.clear();
+            keysByFile.clear();
+            windowBytes = 0;
+            mainBytes = 0;
+            // Missed events may have been renames, the watched directories may not be the ones at their paths.
+            for (WatchKey key : watchedDirs.values()) { key.cancel(); }
+            watchedDirs.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    /**
+     * @return the total size of the cached file contents.
+     */
+    public long getSizeBytes()
+    {
+        lock.lock();
+        try
+        {
+            return windowBytes + mainBytes;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacityBytes() { return capacityBytes; }
+
+    @Override
+    public void close() throws IOException
+    {
+        watchService.close();
+        watcher.interrupt();
+        invalidateAll();
+    }
+
+    /**
+     * Moves the entries over the window capacity into the main area, or evicts them if they lose to the entry the
+     * main area would have to give up for them.
+     */
+    private void evictFromWindow()
+    {
+        long mainCapacityBytes = capacityBytes - windowCapacityBytes;
+        Iterator<Map.Entry<String, Entry>> windowIt = window.entrySet().iterator();
+        while (windowBytes > windowCapacityBytes && windowIt.hasNext())
+        {
+            Map.Entry<String, Entry> candidate = windowIt.next();
+            windowIt.remove();
+            windowBytes -= candidate.getValue().size();
+
+            if (admitToMain(candidate.getKey(), candidate.getValue().size(), mainCapacityBytes))
+            {
+                main.put(candidate.getKey(), candidate.getValue());
+                mainBytes += candidate.getValue().size();
+            }
+            else
+            {
+                evict(candidate.getKey(), candidate.getValue());
+            }
+        }
+    }
+
+    /**
+     * Makes room in the main area for a candidate if it's requested more often than the least recently used entries
+     * that would have to go.
+     */
+    private boolean admitToMain(String key, long size, long mainCapacityBytes)
+    {
+        if (mainBytes + size <= mainCapacityBytes) { return true; }
+
+        int candidateFrequency = sketch.frequency(key);
+        long freed = 0;
+        Iterator<Map.Entry<String, Entry>> mainIt = main.entrySet().iterator();
+        while (mainBytes - freed + size > mainCapacityBytes)
+        {
+            if (!mainIt.hasNext()) { return false; }
+
+            Map.Entry<String, Entry> victim = mainIt.next();
+            if (sketch.frequency(victim.getKey()) >= candidateFrequency) { return false; }
+            freed += victim.getValue().size();
+        }
+
+        // The candidate wins over all of them.
+        mainIt = main.entrySet().iterator();
+        while (freed > 0)
+        {
+            Map.Entry<String, Entry> victim = mainIt.next();
+            mainIt.remove();
+            mainBytes -= victim.getValue().size();
+            freed -= victim.getValue().size();
+            evict(victim.getKey(), victim.getValue());
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if the link of an entry still resolves to its file, and the file is the same size and age.
+     */
+    private static boolean leadsToSameFile(Entry entry)
+    {
+        try
+        {
+            Path file = entry.link().toRealPath();
+            if (!file.equals(entry.file())) { return false; }
+
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.size() == entry.size() && attrs.lastModifiedTime().equals(entry.lastModified());
+        }
+        catch (IOException e)
+        {
+            return false; // the link or its file is gone
+        }
+    }
+
+    /**
+     * Drops the entry of a key, unless it was replaced in the meantime.
+     */
+    private void drop(String key, Entry entry)
+    {
+        lock.lock();
+        try
+        {
+            if (entries.get(key) != entry) { return; }
+
+            remove(key);
+            forget(key, entry);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a buffered request for a key toward its popularity and, if it's cached, moves it to the most recently
+     * used end of its area.
+     */
+    private void replayAccess(String key)
+    {
+        sketch.increment(key);
+        if (window.get(key) == null) { main.get(key); }
+    }
+
+    private void evict(String key, Entry entry)
+    {
+        entries.remove(key);
+        forget(key, entry);
+        evictions.increment();
+    }
+
+    private void remove(String key)
+    {
+        entries.remove(key);
+        Entry entry = window.remove(key);
+        if (entry != null)
+        {
+            windowBytes -= entry.size();
+            return;
+        }
+
+        entry = main.remove(key);
+        if (entry != null) { mainBytes -= entry.size(); }
+    }
+
+    private void forget(String key, Entry entry)
+    {
+        Set<String> keys = keysByFile.get(entry.file());
+        if (keys == null) { return; }
+
+        keys.remove(key);
+        if (keys.isEmpty()) { keysByFile.remove(entry.file()); }
+    }
+
+    /**
+     * Drops the entries of every file under a directory and stops watching it and the directories under it, they
+     * may not be the ones at these paths anymore.
+     *
+     * @param dir the real path of the directory.
+     */
+    private void invalidateDirectory(Path dir)
+    {
+        lock.lock();
+        try
+        {
+            Iterator<Map.Entry<Path, WatchKey>> dirIt = watchedDirs.entrySet().iterator();
+            boolean watched = false;
+            while (dirIt.hasNext())
+            {
+                Map.Entry<Path, WatchKey> watchedDir = dirIt.next();
+                if (!watchedDir.getKey().startsWith(dir)) { continue; }
+
+                watchedDir.getValue().cancel();
+                dirIt.remove();
+                watched = true;
+            }
+            if (!watched) { return; } // a file, or a directory no cached file is in
+
+            Iterator<Map.Entry<Path, Set<String>>> fileIt = keysByFile.entrySet().iterator();
+            while (fileIt.hasNext())
+            {
+                Map.Entry<Path, Set<String>> file = fileIt.next();
+                if (!file.getKey().startsWith(dir)) { continue; }
+
+                for (String key : file.getValue()) { remove(key); }
+                fileIt.remove();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Watches every directory from the root down to a file, or only the directory of the file if it's outside the
+     * root.
+     *
+     * @return the watch keys of the directories.
+     */
+    private List<WatchKey> watchPathTo(Path file) throws IOException
+    {
+        List<WatchKey> keys = new ArrayList<>();
+        Path dir = file.getParent();
+        do
+        {
+            WatchKey key = watchedDirs.get(dir);
+            if (key == null)
+            {
+                key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.put(dir, key);
+            }
+            keys.add(key);
+            dir = dir.getParent();
+        }
+        while (dir != null && dir.startsWith(root));
+
+        return keys;
+    }
+
+    /**
+     * The watcher thread: drops the entries of every file that changes in a watched directory, and of every file
+     * under a directory that is created, deleted or renamed in one.
+     */
+    private void watchForChanges()
+    {
+        while (true)
+        {
+            WatchKey key;
+            try
+            {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                {
+                    log.warn("Missed file change events in " + dir + ", dropping the whole file cache.");
+                    invalidateAll();
+                    continue;
+                }
+
+                Path file = dir.resolve((Path) event.context());
+                log.debug("File changed, dropping its cache entries: " + file);
+                invalidate(file);
+                if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) { invalidateDirectory(file); }
+            }
+
+            if (!key.reset())
+            {
+                lock.lock();
+                try
+                {
+                    watchedDirs.remove(dir, key);
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nturbo1.server.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response body that is a span of an open file. It's sent with {@link FileChannel#transferTo}, so on a socket
+ * channel the kernel copies the bytes straight from the page cache and they never come onto the heap, whatever the
+ * size of the file.
+ * <p>
+ *     The region owns the file channel and closes it once it has been sent, or when the connection gives up on it.
+ *     Several regions of one file, like the parts of a multipart/byteranges body, share the channel and only the last
+ *     of them closes it.
+ * </p>
+ */
+public class FileRegion implements Closeable
+{
+    private final FileChannel file;
+    private final boolean closesFile;
+    private long position;
+    private long remaining;
+
+    /**
+     * @param file the file to send from, closed by the region.
+     * @param position the offset of the first byte to send.
+     * @param count the number of bytes to send.
+     */
+    public FileRegion(FileChannel file, long position, long count) { this(file, position, count, true); }
+
+    /**
+     * @param file the file to send from.
+     * @param position the offset of the first byte to send.
+     * @param count the number of bytes to send.
+     * @param closesFile whether closing the region closes the file, false for all but the last region of a file.
+     */
+    public FileRegion(FileChannel file, long position, long count, boolean closesFile)
+    {
+        this.file = file;
+        this.closesFile = closesFile;
+        this.position = position;
+        this.remaining = count;
+    }
+
+    /**
+     * @return the number of bytes left to send.
+     */
+    public long remaining() { return remaining; }
+
+    /**
+     * Sends as much of the region as the target takes in one go.
+     *
+     * @return the number of bytes sent, 0 if a non-blocking target is full.
+     */
+    public long transferTo(WritableByteChannel target) throws IOException
+    {
+        long n = file.transferTo(position, remaining, target);
+        if (n == 0 && position >= file.size())
+        {
+            throw new IOException("File shrank while it was being sent: " + remaining + " bytes are missing.");
+        }
+        position += n;
+        remaining -= n;
+
+        return n;
+    }
+
+    /**
+     * Sends the next part of the region by reading it into the given buffer and writing it out, for when the target
+     * can only be waited on through a write.
+     *
+     * @return the number of bytes sent.
+     */
+    public long copyTo(WritableByteChannel target, ByteBuffer buf) throws IOException
+    {
+        buf.clear();
+        if (buf.remaining() > remaining) { buf.limit((int) remaining); }
+        int n = file.read(buf, position);
+        if (n == -1)
+        {
+            throw new IOException("File shrank while it was being sent: " + remaining + " bytes are missing.");
+        }
+
+        buf.flip();
+        while (buf.hasRemaining()) { target.write(buf); }
+        position += n;
+        remaining -= n;
+
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closesFile) { file.close(); }
+    }
+}
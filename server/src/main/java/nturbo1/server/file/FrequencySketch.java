@@ -0,0 +1,78 @@
+package nturbo1.server.file;
+
+/**
+ * A count-min sketch that estimates how often a key has been seen recently, for the TinyLFU admission of the
+ * {@link FileCache}.
+ * <p>
+ *     Every key bumps one counter in each of four rows, picked by different hashes, and its estimate is the smallest
+ *     of the four. The counters saturate at 15 and are all halved once the number of increments reaches ten times the
+ *     width of the table, so that the estimates follow what is popular now rather than what ever was.
+ * </p>
+ * <p>
+ *     Not thread-safe, the cache calls it under its lock.
+ * </p>
+ */
+class FrequencySketch
+{
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int increments;
+
+    /**
+     * @param expectedKeys about how many keys the cache holds, the table is sized to a power of two at least this
+     * wide.
+     */
+    FrequencySketch(int expectedKeys)
+    {
+        int width = Integer.highestOneBit(Math.max(64, expectedKeys - 1)) << 1;
+        this.table = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(Object key)
+    {
+        int hash = key.hashCode();
+        for (int row = 0; row < DEPTH; row++)
+        {
+            int i = index(hash, row);
+            if (table[row][i] < MAX_COUNT) { table[row][i]++; }
+        }
+
+        if (++increments == sampleSize) { age(); }
+    }
+
+    int frequency(Object key)
+    {
+        int hash = key.hashCode();
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++)
+        {
+            min = Math.min(min, table[row][index(hash, row)]);
+        }
+
+        return min;
+    }
+
+    private int index(int hash, int row)
+    {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void age()
+    {
+        for (int[] row : table)
+        {
+            for (int i = 0; i < row.length; i++) { row[i] >>>= 1; }
+        }
+        increments /= 2;
+    }
+}
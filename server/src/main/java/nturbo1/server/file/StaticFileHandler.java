@@ -0,0 +1,547 @@
+package nturbo1.server.file;
+
+import nturbo1.http.ContentCoding;
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpRequestHeader;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpResponseHeader;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.RequestTarget;
+import nturbo1.http.util.ByteRange;
+import nturbo1.http.util.HttpDate;
+import nturbo1.http.util.Preconditions;
+import nturbo1.log.CustomLogger;
+import nturbo1.server.ErrorResponses;
+import nturbo1.server.HttpHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Serves the files under a document root for GET and HEAD requests.
+ * <p>
+ *     The path of the Request-URI is percent-decoded and resolved against the root. Requests for a directory get its
+ *     index.html. Paths that lead out of the root, also through a symbolic link, are answered like missing files.
+ * </p>
+ * <p>
+ *     The body of a file response is a {@link FileRegion}, so the file is sent by the kernel and never loaded onto
+ *     the heap. With a {@link FileCache}, small files that are requested often are served from memory instead,
+ *     without touching the file system at all.
+ * </p>
+ * <p>
+ *     Every file response carries an ETag made of the file key (the inode on Unix), size and modification time of
+ *     the file, so it takes no more than the stat done anyway. Conditional requests are evaluated before the file
+ *     is opened: a revalidation of an unchanged file gets 304 Not Modified without the file being read, and without
+ *     the file system being touched at all if the file is cached.
+ * </p>
+ * <p>
+ *     GET requests with a Range header get 206 Partial Content with just the requested bytes: one range as the body
+ *     itself, several as a multipart/byteranges body. Each range is sent as a region of the file, so nothing else of
+ *     the file is read.
+ * </p>
+ * <p>
+ *     Text-like files are sent compressed to clients that accept it. A precompressed sibling "name.gz" is sent as it
+ *     is if there's one. Otherwise the file is compressed on the fly: small files once into the
+ *     {@link CompressionCache}, larger ones while they are sent, as a chunked body.
+ * </p>
+ */
+public class StaticFileHandler implements HttpHandler
+{
+    private final Path root;
+    private final FileCache cache;
+    private final CompressionCache compressionCache;
+
+    private static final String INDEX_FILE = "index.html";
+    private static final String ALLOWED_METHODS = HttpMethod.GET.name() + ", " + HttpMethod.HEAD.name();
+    private static final String BYTES_RANGE_UNIT = "bytes";
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+    private static final String PRECOMPRESSED_SUFFIX = ".gz";
+    private static final String CHUNKED = "chunked";
+    private static final long MIN_COMPRESSED_SIZE = 256; // smaller files hardly shrink
+    private static final CustomLogger log = CustomLogger.getLogger(StaticFileHandler.class.getName());
+
+    /**
+     * @param root the document root, an existing directory.
+     * @throws IOException if the root can't be resolved.
+     */
+    public StaticFileHandler(Path root) throws IOException { this(root, null, null); }
+
+    /**
+     * @param root the document root, an existing directory.
+     * @param cache the cache to serve small files from, or null to always send them from the file.
+     * @throws IOException if the root can't be resolved.
+     */
+    public StaticFileHandler(Path root, FileCache cache) throws IOException { this(root, cache, null); }
+
+    /**
+     * @param root the document root, an existing directory.
+     * @param cache the cache to serve small files from, or null to always send them from the file.
+     * @param compressionCache the cache to keep compressed files in, or null to compress them while they are sent.
+     * @throws IOException if the root can't be resolved.
+     */
+    public StaticFileHandler(Path root, FileCache cache, CompressionCache compressionCache) throws IOException
+    {
+        this.root = root.toRealPath();
+        this.cache = cache;
+        this.compressionCache = compressionCache;
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest req)
+    {
+        if (req.getMethod() != HttpMethod.GET && req.getMethod() != HttpMethod.HEAD)
+        {
+            HttpResponse res = ErrorResponses.of(HttpStatus.METHOD_NOT_ALLOWED);
+            res.setHeader(HttpEntityHeader.ALLOW, ALLOWED_METHODS);
+            return res;
+        }
+
+        String path = relativePath(req.getTarget());
+        if (path == null) { return ErrorResponses.of(HttpStatus.BAD_REQUEST); }
+
+        // Ranges are always served from the file as it is.
+        ContentCoding coding = req.getHeader(HttpRequestHeader.RANGE) == null ?
+                ContentCoding.negotiate(req.getQualityValues(HttpRequestHeader.ACCEPT_ENCODING)) : null;
+
+        if (cache != null)
+        {
+            FileCache.Entry entry = cache.get(path);
+            if (entry != null)
+            {
+                if (coding == null || !isCompressible(entry.file(), entry.size())) { return serve(req, entry); }
+
+                FileCache.Entry variant = compressionCache == null ? null :
+                        compressionCache.get(entry.file(), entry.size(), entry.lastModified(), coding);
+                if (variant != null) { return serve(req, variant); }
+                // Otherwise looked up the long way, for a precompressed file or to compress this one.
+            }
+        }
+
+        try
+        {
+            Path file = resolve(path);
+            if (file == null) { return ErrorResponses.of(HttpStatus.NOT_FOUND); }
+
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attrs.isDirectory())
+            {
+                file = resolve(root.relativize(file).resolve(INDEX_FILE).toString());
+                if (file == null) { return ErrorResponses.of(HttpStatus.NOT_FOUND); }
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            }
+            if (!attrs.isRegularFile()) { return ErrorResponses.of(HttpStatus.NOT_FOUND); }
+
+            boolean vary = isCompressible(file, attrs.size());
+            if (vary && coding != null) { return respondCompressed(req, file, attrs, coding); }
+
+            String etag = etag(attrs);
+            HttpStatus precondition = Preconditions.evaluate(req, etag, attrs.lastModifiedTime().toMillis());
+            if (precondition == HttpStatus.NOT_MODIFIED) { return notModified(etag, attrs, vary); }
+            if (precondition != null) { return ErrorResponses.of(precondition); }
+
+            // Not loaded into the cache, that would read the whole file.
+            List<ByteRange> ranges = requestedRanges(req, etag, attrs.lastModifiedTime().toMillis(), attrs.size());
+            if (ranges != null) { return respondWithRanges(file, attrs, etag, vary, ranges); }
+
+            if (cache != null && cache.accepts(attrs.size()))
+            {
+                byte[] validatorLines = encodeValidatorLines(etag, attrs, vary);
+                FileCache.Entry entry = cache.load(path, file, link(path, file), attrs, etag,
+                        encodeHeaderLines(file, validatorLines), validatorLines);
+                if (entry != null) { return respond(req, entry); }
+            }
+
+            return respond(req, file, attrs, etag, vary);
+        }
+        catch (NoSuchFileException | InvalidPathException e)
+        {
+            return ErrorResponses.of(HttpStatus.NOT_FOUND);
+        }
+        catch (AccessDeniedException e)
+        {
+            return ErrorResponses.of(HttpStatus.FORBIDDEN);
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to serve the file for " + req.getURI() + " due to: " + e.getMessage());
+            return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Answers a request for a file of a compressible type with a compressed variant of it.
+     */
+    private HttpResponse respondCompressed(HttpRequest req, Path file, BasicFileAttributes attrs,
+                                           ContentCoding coding) throws IOException
+    {
+        String contentType = MimeTypes.forFileName(file.getFileName().toString());
+        Path precompressed = coding == ContentCoding.GZIP ? precompressed(file) : null;
+        if (precompressed != null)
+        {
+            BasicFileAttributes gzAttrs = Files.readAttributes(precompressed, BasicFileAttributes.class);
+            String etag = etag(gzAttrs);
+            HttpStatus precondition = Preconditions.evaluate(req, etag, gzAttrs.lastModifiedTime().toMillis());
+            if (precondition == HttpStatus.NOT_MODIFIED) { return notModified(etag, gzAttrs, true); }
+            if (precondition != null) { return ErrorResponses.of(precondition); }
+
+            HttpResponse res = new HttpResponse(HttpStatus.OK);
+            res.setHeader(HttpEntityHeader.CONTENT_TYPE, contentType);
+            res.setHeader(HttpEntityHeader.CONTENT_ENCODING, coding.getName());
+            res.setHeader(HttpEntityHeader.CONTENT_LENGTH, Long.toString(gzAttrs.size()));
+            setValidators(res, etag, gzAttrs, true);
+            if (req.getMethod() == HttpMethod.GET)
+            {
+                res.setBody(new FileRegion(FileChannel.open(precompressed, StandardOpenOption.READ), 0, gzAttrs.size()));
+            }
+            return res;
+        }
+
+        String etag = variantEtag(etag(attrs), coding);
+        HttpStatus precondition = Preconditions.evaluate(req, etag, attrs.lastModifiedTime().toMillis());
+        if (precondition == HttpStatus.NOT_MODIFIED) { return notModified(etag, attrs, true); }
+        if (precondition != null) { return ErrorResponses.of(precondition); }
+
+        if (compressionCache != null && compressionCache.accepts(attrs.size()))
+        {
+            byte[] validatorLines = encodeValidatorLines(etag, attrs, true);
+            byte[] headerLines = (HttpEntityHeader.CONTENT_TYPE.getName() + ": " + contentType + "\r\n" +
+                    HttpEntityHeader.CONTENT_ENCODING.getName() + ": " + coding.getName() + "\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            return respond(req, compressionCache.compress(file, attrs, coding, etag,
+                    concat(headerLines, validatorLines), validatorLines));
+        }
+
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, contentType);
+        res.setHeader(HttpEntityHeader.CONTENT_ENCODING, coding.getName());
+        res.setHeader(GeneralHeader.TRANSFER_ENCODING, CHUNKED);
+        setValidators(res, etag, attrs, true);
+        if (req.getMethod() == HttpMethod.GET)
+        {
+            res.setBody(new CompressingFileBody(FileChannel.open(file, StandardOpenOption.READ), attrs.size(), coding));
+        }
+        return res;
+    }
+
+    /**
+     * @param file the real path of a file.
+     * @return the real path of the gzipped copy next to the file, or null if there's none under the root.
+     */
+    private Path precompressed(Path file) throws IOException
+    {
+        try
+        {
+            Path gz = file.resolveSibling(file.getFileName() + PRECOMPRESSED_SUFFIX).toRealPath();
+            return gz.startsWith(root) && Files.isRegularFile(gz) ? gz : null;
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if a file is sent compressed to the clients that accept it.
+     */
+    private static boolean isCompressible(Path file, long size)
+    {
+        return size >= MIN_COMPRESSED_SIZE && MimeTypes.isCompressible(MimeTypes.forFileName(file.getFileName().toString()));
+    }
+
+    /**
+     * @return the entity-tag of the compressed variant of a file, which must differ from that of the file itself.
+     */
+    private static String variantEtag(String etag, ContentCoding coding)
+    {
+        return etag.substring(0, etag.length() - 1) + "-" + coding.getName() + "\"";
+    }
+
+    private static HttpResponse serve(HttpRequest req, FileCache.Entry entry)
+    {
+        HttpStatus precondition = Preconditions.evaluate(req, entry.etag(), entry.lastModified().toMillis());
+        if (precondition == HttpStatus.NOT_MODIFIED)
+        {
+            HttpResponse res = new HttpResponse(HttpStatus.NOT_MODIFIED);
+            res.setEncodedHeaderLines(entry.validatorLines());
+            return res;
+        }
+        if (precondition != null) { return ErrorResponses.of(precondition); }
+
+        return respond(req, entry);
+    }
+
+    private static HttpResponse notModified(String etag, BasicFileAttributes attrs, boolean vary)
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.NOT_MODIFIED);
+        setValidators(res, etag, attrs, vary);
+        return res;
+    }
+
+    private HttpResponse respond(HttpRequest req, Path file, BasicFileAttributes attrs, String etag, boolean vary)
+            throws IOException
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, MimeTypes.forFileName(file.getFileName().toString()));
+        res.setHeader(HttpEntityHeader.CONTENT_LENGTH, Long.toString(attrs.size()));
+        res.setHeader(HttpResponseHeader.ACCEPT_RANGES, BYTES_RANGE_UNIT);
+        setValidators(res, etag, attrs, vary);
+
+        if (req.getMethod() == HttpMethod.GET)
+        {
+            res.setBody(new FileRegion(FileChannel.open(file, StandardOpenOption.READ), 0, attrs.size()));
+        }
+
+        return res;
+    }
+
+    private static HttpResponse respond(HttpRequest req, FileCache.Entry entry)
+    {
+        List<ByteRange> ranges = requestedRanges(req, entry.etag(), entry.lastModified().toMillis(), entry.size());
+        if (ranges != null) { return respondWithRanges(entry, ranges); }
+
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setEncodedHeaderLines(entry.headerLines());
+        if (req.getMethod() == HttpMethod.GET)
+        {
+            res.setBody(entry.body().duplicate());
+        }
+        else
+        {
+            res.setHeader(HttpEntityHeader.CONTENT_LENGTH, Long.toString(entry.size()));
+        }
+
+        return res;
+    }
+
+    /**
+     * @return the ranges to send, an empty list if none is satisfiable, or null if the whole file is to be sent.
+     */
+    private static List<ByteRange> requestedRanges(HttpRequest req, String etag, long lastModifiedMillis, long size)
+    {
+        if (req.getMethod() != HttpMethod.GET) { return null; }
+
+        String range = req.getHeader(HttpRequestHeader.RANGE);
+        if (range == null || !Preconditions.ifRangeHolds(req, etag, lastModifiedMillis)) { return null; }
+
+        return ByteRange.parse(range, size);
+    }
+
+    private static HttpResponse respondWithRanges(Path file, BasicFileAttributes attrs, String etag, boolean vary,
+                                                  List<ByteRange> ranges) throws IOException
+    {
+        if (ranges.isEmpty()) { return rangeNotSatisfiable(attrs.size()); }
+
+        String contentType = MimeTypes.forFileName(file.getFileName().toString());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        HttpResponse res = new HttpResponse(HttpStatus.PARTIAL_CONTENT);
+        setValidators(res, etag, attrs, vary);
+
+        if (ranges.size() == 1)
+        {
+            ByteRange range = ranges.get(0);
+            res.setHeader(HttpEntityHeader.CONTENT_TYPE, contentType);
+            res.setHeader(HttpEntityHeader.CONTENT_RANGE, range.contentRange(attrs.size()));
+            res.setBody(new FileRegion(channel, range.first(), range.length()));
+            return res;
+        }
+
+        String boundary = newBoundary();
+        List<Object> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (int i = 0; i < ranges.size(); i++)
+        {
+            ByteRange range = ranges.get(i);
+            parts.add(partHead(boundary, contentType, range, attrs.size()));
+            parts.add(new FileRegion(channel, range.first(), range.length(), i == ranges.size() - 1));
+        }
+        parts.add(closeDelimiter(boundary));
+
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, MULTIPART_BYTERANGES + boundary);
+        res.setBody(parts);
+        return res;
+    }
+
+    private static HttpResponse respondWithRanges(FileCache.Entry entry, List<ByteRange> ranges)
+    {
+        if (ranges.isEmpty()) { return rangeNotSatisfiable(entry.size()); }
+
+        HttpResponse res = new HttpResponse(HttpStatus.PARTIAL_CONTENT);
+        if (ranges.size() == 1)
+        {
+            ByteRange range = ranges.get(0);
+            res.setEncodedHeaderLines(entry.headerLines());
+            res.setHeader(HttpEntityHeader.CONTENT_RANGE, range.contentRange(entry.size()));
+            res.setBody(entry.body().slice((int) range.first(), (int) range.length()));
+            return res;
+        }
+
+        String contentType = MimeTypes.forFileName(entry.file().getFileName().toString());
+        String boundary = newBoundary();
+        List<Object> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (ByteRange range : ranges)
+        {
+            parts.add(partHead(boundary, contentType, range, entry.size()));
+            parts.add(entry.body().slice((int) range.first(), (int) range.length()));
+        }
+        parts.add(closeDelimiter(boundary));
+
+        res.setEncodedHeaderLines(entry.validatorLines());
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, MULTIPART_BYTERANGES + boundary);
+        res.setBody(parts);
+        return res;
+    }
+
+    private static HttpResponse rangeNotSatisfiable(long size)
+    {
+        HttpResponse res = ErrorResponses.of(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        res.setHeader(HttpEntityHeader.CONTENT_RANGE, BYTES_RANGE_UNIT + " */" + size);
+        return res;
+    }
+
+    /**
+     * @return a boundary that won't turn up in the content by chance.
+     */
+    private static String newBoundary()
+    {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+
+    /**
+     * @return the delimiter and the headers of a body part, the part itself follows.
+     */
+    private static ByteBuffer partHead(String boundary, String contentType, ByteRange range, long size)
+    {
+        String head = "\r\n--" + boundary + "\r\n" +
+                HttpEntityHeader.CONTENT_TYPE.getName() + ": " + contentType + "\r\n" +
+                HttpEntityHeader.CONTENT_RANGE.getName() + ": " + range.contentRange(size) + "\r\n\r\n";
+
+        return ByteBuffer.wrap(head.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ByteBuffer closeDelimiter(String boundary)
+    {
+        return ByteBuffer.wrap(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Sets the headers a 304 Not Modified response carries too: the validators, and Vary if the file is sent
+     * compressed to some clients.
+     */
+    private static void setValidators(HttpResponse res, String etag, BasicFileAttributes attrs, boolean vary)
+    {
+        res.setHeader(HttpResponseHeader.ETAG, etag);
+        res.setHeader(HttpEntityHeader.LAST_MODIFIED, HttpDate.format(attrs.lastModifiedTime().toMillis()));
+        if (vary) { res.setHeader(HttpResponseHeader.VARY, HttpRequestHeader.ACCEPT_ENCODING.getName()); }
+    }
+
+    /**
+     * A strong entity-tag from the file key, size and modification time of a file, like "1b2c3d-1f4-18c7a2b3c4d".
+     * Any change to the content changes the size or the modification time, and a file that is replaced by another
+     * one has a different key.
+     */
+    static String etag(BasicFileAttributes attrs)
+    {
+        StringBuilder etag = new StringBuilder(48).append('"');
+        if (attrs.fileKey() != null)
+        {
+            etag.append(Integer.toHexString(attrs.fileKey().hashCode())).append('-');
+        }
+        etag.append(Long.toHexString(attrs.size())).append('-')
+                .append(Long.toHexString(attrs.lastModifiedTime().toMillis()))
+                .append('"');
+
+        return etag.toString();
+    }
+
+    /**
+     * @return the ETag and Last-Modified header lines of a file, and the Vary line if it's sent compressed too.
+     */
+    private static byte[] encodeValidatorLines(String etag, BasicFileAttributes attrs, boolean vary)
+    {
+        String lines = HttpResponseHeader.ETAG.getName() + ": " + etag + "\r\n" +
+                HttpEntityHeader.LAST_MODIFIED.getName() + ": " +
+                HttpDate.format(attrs.lastModifiedTime().toMillis()) + "\r\n";
+        if (vary)
+        {
+            lines += HttpResponseHeader.VARY.getName() + ": " + HttpRequestHeader.ACCEPT_ENCODING.getName() + "\r\n";
+        }
+
+        return lines.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the Content-Type and Accept-Ranges lines of a file followed by its validator lines, Content-Length is
+     * added when it's sent.
+     */
+    private static byte[] encodeHeaderLines(Path file, byte[] validatorLines)
+    {
+        byte[] entityLines = (HttpEntityHeader.CONTENT_TYPE.getName() + ": " +
+                MimeTypes.forFileName(file.getFileName().toString()) + "\r\n" +
+                HttpResponseHeader.ACCEPT_RANGES.getName() + ": " + BYTES_RANGE_UNIT + "\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+
+        return concat(entityLines, validatorLines);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second)
+    {
+        byte[] lines = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, lines, first.length, second.length);
+        return lines;
+    }
+
+    /**
+     * @param relativePath a path relative to the root.
+     * @return the real path of the file, or null if it's outside the root.
+     * @throws NoSuchFileException if the file doesn't exist.
+     */
+    private Path resolve(String relativePath) throws IOException
+    {
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root)) { return null; }
+
+        file = file.toRealPath();
+        return file.startsWith(root) ? file : null;
+    }
+
+    /**
+     * @param relativePath a path relative to the root.
+     * @param file the real path of the file it resolved to.
+     * @return the path as it was requested if it leads to the file over a symbolic link, null otherwise.
+     */
+    private Path link(String relativePath, Path file)
+    {
+        Path requested = root.resolve(relativePath).normalize();
+        return file.equals(requested) || file.equals(requested.resolve(INDEX_FILE)) ? null : requested;
+    }
+
+    /**
+     * @return the decoded and normalised path of the Request-URI without the leading slash, or null if the URI has
+     * no valid path.
+     */
+    static String relativePath(RequestTarget target)
+    {
+        String path = target == null ? null : target.getPath();
+        return path == null ? null : path.substring(1);
+    }
+
+    /**
+     * @see #relativePath(RequestTarget)
+     */
+    static String decodePath(String uri) { return relativePath(RequestTarget.of(uri)); }
+}
@@ -0,0 +1,46 @@
+package nturbo1.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.nio.channels.SocketChannel;
+
+/**
+ * Flight Recorder event for a connection being accepted and handed off to a virtual thread or an event loop. The
+ * accept call blocks until a client is in the listen backlog, so on a quiet server most of the time is spent waiting
+ * for one. Under load a long accept means that the accept loop itself is falling behind.
+ */
+@Name(ConnectionAcceptEvent.NAME)
+@Label("Connection Accept")
+@Category({"JWebServer", "Server"})
+@Description("Accepting a connection and handing it off to the transport")
+@StackTrace(false)
+@Threshold("10 ms")
+public class ConnectionAcceptEvent extends Event
+{
+    public static final String NAME = "nturbo1.ConnectionAccept";
+
+    @Label("Transport")
+    public String transport;
+
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    /**
+     * Ends the event and fills in and commits it, unless it's disabled or below its threshold.
+     */
+    public void commit(String transport, SocketChannel channel)
+    {
+        end();
+        if (!shouldCommit()) { return; }
+
+        this.transport = transport;
+        this.remoteAddress = String.valueOf(channel.socket().getRemoteSocketAddress());
+        commit();
+    }
+}
@@ -0,0 +1,61 @@
+package nturbo1.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+
+/**
+ * Flight Recorder event for a request being handled, from the parsed request to the response. For an asynchronous
+ * handler that doesn't have the response right away it covers the time until the response is there.
+ */
+@Name(RequestHandleEvent.NAME)
+@Label("Request Handle")
+@Category({"JWebServer", "Server"})
+@Description("Running the handler of a request")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RequestHandleEvent extends Event
+{
+    public static final String NAME = "nturbo1.RequestHandle";
+
+    @Label("Method")
+    public String method;
+
+    @Label("URI Length")
+    @DataAmount
+    public int uriLength;
+
+    @Label("Body Bytes")
+    @Description("Length of the request body")
+    @DataAmount
+    public long bodyBytes;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Asynchronous")
+    @Description("Whether the connection was suspended until an asynchronous handler completed")
+    public boolean async;
+
+    /**
+     * Ends the event and fills in and commits it, unless it's disabled or below its threshold.
+     */
+    public void commit(HttpRequest req, HttpResponse res)
+    {
+        end();
+        if (!shouldCommit()) { return; }
+
+        this.method = req.getMethod().name();
+        this.uriLength = req.getTarget().length();
+        this.bodyBytes = req.getRequestBody() == null ? 0 : req.getRequestBody().getLength();
+        this.status = res.getStatus().code();
+        commit();
+    }
+}
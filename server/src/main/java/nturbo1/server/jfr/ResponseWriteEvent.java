@@ -0,0 +1,48 @@
+package nturbo1.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the queued responses of a connection being written to its socket. The blocking transport
+ * writes a batch in one go, so there's one event per batch. The non-blocking transport writes as much as the socket
+ * takes, so the responses that don't fit into the send buffer give one more event per write readiness event, and the
+ * last of them is the one that completed.
+ */
+@Name(ResponseWriteEvent.NAME)
+@Label("Response Write")
+@Category({"JWebServer", "Server"})
+@Description("Writing the queued responses of a connection to its socket")
+@StackTrace(false)
+@Threshold("10 ms")
+public class ResponseWriteEvent extends Event
+{
+    public static final String NAME = "nturbo1.ResponseWrite";
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Completed")
+    @Description("Whether everything queued was written, rather than the socket send buffer filling up")
+    public boolean completed;
+
+    /**
+     * Ends the event and fills in and commits it, unless it's disabled or below its threshold.
+     */
+    public void commit(long bytesWritten, boolean completed)
+    {
+        end();
+        if (!shouldCommit()) { return; }
+
+        this.bytesWritten = bytesWritten;
+        this.completed = completed;
+        commit();
+    }
+}
@@ -0,0 +1,74 @@
+package nturbo1.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations over fixed buckets, in the shape of a Prometheus histogram: a count per bucket, plus the
+ * sum of all the durations.
+ * <p>
+ *     Recording scans the bucket bounds and bumps two {@link LongAdder}s, so the threads that record never contend
+ *     on a lock or on a single cache line. A scrape reads the adders while they're being written to, so the
+ *     buckets it sees may be off from each other by the recordings in flight. That's fine for a histogram.
+ * </p>
+ */
+public class LatencyHistogram
+{
+    /** From half a millisecond to ten seconds, the upper bounds of the buckets but the last, which takes the rest. */
+    public static final double[] DEFAULT_BOUNDS_SECONDS =
+            { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private final double[] boundsSeconds;
+    private final long[] boundsNanos;
+    private final LongAdder[] buckets; // one more than the bounds, the last one is +Inf
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() { this(DEFAULT_BOUNDS_SECONDS); }
+
+    /**
+     * @param boundsSeconds the upper bounds of the buckets in seconds, in ascending order.
+     */
+    public LatencyHistogram(double... boundsSeconds)
+    {
+        this.boundsSeconds = boundsSeconds.clone();
+        this.boundsNanos = new long[boundsSeconds.length];
+        for (int i = 0; i < boundsSeconds.length; i++)
+        {
+            boundsNanos[i] = (long) (boundsSeconds[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+        this.buckets = new LongAdder[boundsSeconds.length + 1];
+        for (int i = 0; i < buckets.length; i++) { buckets[i] = new LongAdder(); }
+    }
+
+    public void record(long nanos)
+    {
+        int i = 0;
+        while (i < boundsNanos.length && nanos > boundsNanos[i]) { i++; }
+
+        buckets[i].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return the upper bounds of the buckets in seconds, without the last one.
+     */
+    public double[] getBoundsSeconds() { return boundsSeconds.clone(); }
+
+    /**
+     * @return for each bucket, the number of durations up to its upper bound, the last being the total count.
+     */
+    public long[] getCumulativeCounts()
+    {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++)
+        {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+
+        return counts;
+    }
+
+    public double getSumSeconds() { return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1); }
+}
@@ -0,0 +1,38 @@
+package nturbo1.server.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a socket stream as received. Meant to go under a {@link nturbo1.http.util.ReadBuffer},
+ * which reads in blocks, so the counter is bumped once per block rather than once per byte.
+ */
+public class MeteredInputStream extends FilterInputStream
+{
+    private final ServerMetrics metrics;
+
+    public MeteredInputStream(InputStream in, ServerMetrics metrics)
+    {
+        super(in);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int b = super.read();
+        if (b != -1) { metrics.bytesReceived(1); }
+
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        int n = super.read(b, off, len);
+        if (n > 0) { metrics.bytesReceived(n); }
+
+        return n;
+    }
+}
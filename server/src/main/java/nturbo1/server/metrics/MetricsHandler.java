@@ -0,0 +1,152 @@
+package nturbo1.server.metrics;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.server.HttpHandler;
+import nturbo1.server.file.CompressionCache;
+import nturbo1.server.file.FileCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Answers a scrape with the {@link ServerMetrics} and the counters of the caches in the Prometheus text exposition
+ * format. The text is put together on every scrape; Prometheus scrapes every few seconds at most, so there's nothing
+ * worth caching.
+ */
+public class MetricsHandler implements HttpHandler
+{
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIX = "jwebserver_";
+
+    private final ServerMetrics metrics;
+    private final FileCache fileCache;
+    private final CompressionCache compressionCache;
+
+    /**
+     * @param fileCache the file cache, or null if files aren't cached.
+     * @param compressionCache the compression cache, or null if compressed files aren't cached.
+     */
+    public MetricsHandler(ServerMetrics metrics, FileCache fileCache, CompressionCache compressionCache)
+    {
+        this.metrics = metrics;
+        this.fileCache = fileCache;
+        this.compressionCache = compressionCache;
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest req)
+    {
+        byte[] body = format().getBytes(StandardCharsets.UTF_8);
+
+        HttpResponse res = new HttpResponse(HttpStatus.OK, req.getMethod(), null, null);
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, CONTENT_TYPE);
+        res.setHeader(HttpEntityHeader.CONTENT_LENGTH, Integer.toString(body.length));
+        if (req.getMethod() == HttpMethod.GET) { res.setBody(body); }
+
+        return res;
+    }
+
+    /**
+     * @return all the metrics in the Prometheus text exposition format.
+     */
+    public String format()
+    {
+        StringBuilder out = new StringBuilder(4096);
+
+        counter(out, "connections_accepted_total", "Connections accepted.", metrics.getAcceptedConnections());
+        gauge(out, "connections_active", "Connections open right now.", metrics.getActiveConnections());
+
+        header(out, "requests_total", "counter", "Requests received, by method.");
+        for (HttpMethod method : HttpMethod.values())
+        {
+            sample(out, "requests_total", "method", method.name(), metrics.getRequests(method));
+        }
+
+        header(out, "responses_total", "counter", "Responses sent, by status class.");
+        for (int statusClass = 1; statusClass <= 5; statusClass++)
+        {
+            sample(out, "responses_total", "class", statusClass + "xx", metrics.getResponses(statusClass));
+        }
+
+        counter(out, "received_bytes_total", "Bytes read from the connections.", metrics.getBytesReceived());
+        counter(out, "sent_bytes_total", "Bytes written to the connections.", metrics.getBytesSent());
+
+        header(out, "parse_failures_total", "counter", "Requests rejected while parsed, by exception.");
+        for (Map.Entry<String, Long> failure : metrics.getParseFailures().entrySet())
+        {
+            sample(out, "parse_failures_total", "exception", failure.getKey(), failure.getValue());
+        }
+
+        histogram(out, "request_duration_seconds",
+                "Time from a request being parsed to its response being queued for writing.",
+                metrics.getRequestDuration());
+
+        if (fileCache != null)
+        {
+            cache(out, "file_cache", fileCache.getHitCount(), fileCache.getMissCount(),
+                    fileCache.getEvictionCount(), fileCache.getSizeBytes(), fileCache.getCapacityBytes());
+        }
+        if (compressionCache != null)
+        {
+            cache(out, "compression_cache", compressionCache.getHitCount(), compressionCache.getMissCount(),
+                    compressionCache.getEvictionCount(), compressionCache.getSizeBytes(),
+                    compressionCache.getCapacityBytes());
+        }
+
+        return out.toString();
+    }
+
+    private static void cache(StringBuilder out, String name, long hits, long misses, long evictions, long size,
+                              long capacity)
+    {
+        counter(out, name + "_hits_total", "Lookups that found an entry.", hits);
+        counter(out, name + "_misses_total", "Lookups that found nothing.", misses);
+        counter(out, name + "_evictions_total", "Entries evicted to make room.", evictions);
+        gauge(out, name + "_size_bytes", "Bytes held by the entries.", size);
+        gauge(out, name + "_capacity_bytes", "Bytes the entries may take at most.", capacity);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value)
+    {
+        header(out, name, "counter", help);
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value)
+    {
+        header(out, name, "gauge", help);
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, LatencyHistogram histogram)
+    {
+        header(out, name, "histogram", help);
+        double[] bounds = histogram.getBoundsSeconds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++)
+        {
+            sample(out, name + "_bucket", "le", Double.toString(bounds[i]), counts[i]);
+        }
+        long count = counts[counts.length - 1];
+        sample(out, name + "_bucket", "le", "+Inf", count);
+        out.append(PREFIX).append(name).append("_sum ").append(histogram.getSumSeconds()).append('\n');
+        out.append(PREFIX).append(name).append("_count ").append(count).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help)
+    {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String labelValue, long value)
+    {
+        out.append(PREFIX).append(name).append('{').append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(value).append('\n');
+    }
+}
@@ -0,0 +1,110 @@
+package nturbo1.server.metrics;
+
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live counters of a server, updated by its connections as they go and read by a scrape of the
+ * {@link MetricsHandler}.
+ * <p>
+ *     Every counter is a {@link LongAdder}, which spreads the updates of different threads over separate cells, so
+ *     counting on the request path costs about an uncontended increment however many connections there are. The
+ *     counters per method and per status class are arrays indexed up front, so nothing is looked up or allocated
+ *     for them.
+ * </p>
+ */
+public class ServerMetrics
+{
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder[] requests = adders(HttpMethod.values().length); // by HttpMethod ordinal
+    private final LongAdder[] responses = adders(5); // by status class, 1xx first
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final Map<String, LongAdder> parseFailures = new ConcurrentHashMap<>(); // by exception class name
+    private final LatencyHistogram requestDuration = new LatencyHistogram();
+
+    public ServerMetrics()
+    {
+        // Listed from the start, so that a scrape shows them at 0 rather than not at all.
+        for (Class<?> type : new Class<?>[] { HttpMessageParseException.class, RequestEntityTooLargeException.class,
+                InvalidHttpMessageHeaderException.class, UnsupportedHttpVersionException.class,
+                BadHttpRequestHeaderException.class, IOException.class })
+        {
+            parseFailures.put(type.getSimpleName(), new LongAdder());
+        }
+    }
+
+    private static LongAdder[] adders(int count)
+    {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) { adders[i] = new LongAdder(); }
+
+        return adders;
+    }
+
+    public void connectionOpened()
+    {
+        acceptedConnections.increment();
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() { activeConnections.decrement(); }
+
+    public void requestReceived(HttpMethod method) { requests[method.ordinal()].increment(); }
+
+    /**
+     * Counts a response by the class of its status, whether a handler produced it or the server answered on its own.
+     */
+    public void responseQueued(HttpStatus status) { responses[status.code() / 100 - 1].increment(); }
+
+    /**
+     * @param nanos the time from the request being parsed to its response being queued for writing.
+     */
+    public void requestHandled(long nanos) { requestDuration.record(nanos); }
+
+    public void parseFailed(Exception e)
+    {
+        parseFailures.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    public void bytesReceived(long count) { bytesReceived.add(count); }
+
+    public void bytesSent(long count) { bytesSent.add(count); }
+
+    public long getAcceptedConnections() { return acceptedConnections.sum(); }
+    public long getActiveConnections() { return activeConnections.sum(); }
+    public long getRequests(HttpMethod method) { return requests[method.ordinal()].sum(); }
+
+    /**
+     * @param statusClass 1 for 1xx up to 5 for 5xx.
+     */
+    public long getResponses(int statusClass) { return responses[statusClass - 1].sum(); }
+
+    public long getBytesReceived() { return bytesReceived.sum(); }
+    public long getBytesSent() { return bytesSent.sum(); }
+
+    /**
+     * @return the number of requests rejected by each type of exception, by the simple class name of the type.
+     */
+    public Map<String, Long> getParseFailures()
+    {
+        Map<String, Long> counts = new TreeMap<>();
+        parseFailures.forEach((name, adder) -> counts.put(name, adder.sum()));
+
+        return counts;
+    }
+
+    public LatencyHistogram getRequestDuration() { return requestDuration; }
+}
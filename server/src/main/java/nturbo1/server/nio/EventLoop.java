@@ -0,0 +1,227 @@
+package nturbo1.server.nio;
+
+import nturbo1.log.CustomLogger;
+import nturbo1.server.HttpHandler;
+import nturbo1.server.ServerConfig;
+import nturbo1.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A single threaded selector loop that owns a share of the server connections.
+ * <p>
+ *     Other threads only talk to an event loop through {@link #register(SocketChannel)}, {@link #execute(Runnable)}
+ *     and {@link #shutdown(long)}. Everything else, reading, parsing, writing and closing connections, happens on the
+ *     loop thread. Every so often the loop sweeps its connections and closes the ones that have been idle for longer
+ *     than the keep-alive timeout.
+ * </p>
+ */
+public class EventLoop implements Runnable
+{
+    private final Selector selector;
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final ServerConfig config;
+    private final HttpHandler handler;
+    private final ServerMetrics metrics;
+    private final Semaphore slots;
+    private final long sweepIntervalMillis;
+
+    private volatile boolean running = true;
+    private volatile long drainDeadline;
+    private volatile boolean drained;
+    private long lastSweepMillis = System.currentTimeMillis();
+
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 1000;
+    private static final CustomLogger log = CustomLogger.getLogger(EventLoop.class.getName());
+
+    EventLoop(ServerConfig config, HttpHandler handler, ServerMetrics metrics, Semaphore slots) throws IOException
+    {
+        this.selector = Selector.open();
+        this.config = config;
+        this.handler = handler;
+        this.metrics = metrics;
+        this.slots = slots;
+        this.sweepIntervalMillis = Math.min(MAX_SWEEP_INTERVAL_MILLIS, config.getKeepAliveTimeoutMillis());
+    }
+
+    /**
+     * Hands a newly accepted, non-blocking channel over to this event loop. Safe to call from any thread.
+     */
+    void register(SocketChannel channel)
+    {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs a task on the loop thread, e.g. to hand it the response of an asynchronous handler. Safe to call from any
+     * thread. The tasks that are still queued when the loop stops are dropped.
+     */
+    void execute(Runnable task)
+    {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Makes the loop stop once all of its connections are closed or the deadline passes, whichever comes first.
+     * Idle connections are closed right away, busy ones after their current response.
+     */
+    void shutdown(long deadlineMillis)
+    {
+        drainDeadline = deadlineMillis;
+        running = false;
+        selector.wakeup();
+    }
+
+    boolean isDraining() { return !running; }
+
+    boolean isDrained() { return drained; }
+
+    @Override
+    public void run()
+    {
+        while (running || (!selector.keys().isEmpty() && System.currentTimeMillis() < drainDeadline))
+        {
+            try
+            {
+                if (running) { selector.select(sweepIntervalMillis); }
+                else { selector.select(Math.max(1, drainDeadline - System.currentTimeMillis())); }
+            }
+            catch (IOException ex)
+            {
+                log.fatal("Selector failure in " + Thread.currentThread().getName() + ": " + ex.getMessage());
+                break;
+            }
+
+            registerPendingChannels();
+            runPendingTasks();
+            processSelectedKeys();
+            sweepIdleConnections();
+        }
+
+        drained = selector.keys().isEmpty() && pendingChannels.isEmpty();
+        closeAll();
+    }
+
+    private void registerPendingChannels()
+    {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null)
+        {
+            NioConnection conn = new NioConnection(channel, this, config, handler, metrics);
+            try
+            {
+                conn.setKey(channel.register(selector, SelectionKey.OP_READ, conn));
+            }
+            catch (ClosedChannelException ex)
+            {
+                log.error("Failed to register a closed channel with the event loop: " + channel);
+                conn.close();
+            }
+        }
+    }
+
+    private void runPendingTasks()
+    {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException ex)
+            {
+                log.error("A task failed in " + Thread.currentThread().getName() + " due to: " + ex);
+            }
+        }
+    }
+
+    private void processSelectedKeys()
+    {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext())
+        {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            NioConnection conn = (NioConnection) key.attachment();
+            if (key.isValid() && key.isWritable())
+            {
+                conn.onWritable();
+            }
+            if (key.isValid() && key.isReadable())
+            {
+                conn.onReadable();
+            }
+        }
+    }
+
+    /**
+     * Closes the connections that have been waiting for the client for longer than the keep-alive timeout, whether
+     * between two requests, in the middle of one or for it to read a response, and all idle connections while
+     * draining.
+     */
+    private void sweepIdleConnections()
+    {
+        long now = System.currentTimeMillis();
+        if (running && now - lastSweepMillis < sweepIntervalMillis) { return; }
+        lastSweepMillis = now;
+
+        long stalledSince = now - config.getKeepAliveTimeoutMillis();
+        List<NioConnection> expired = new ArrayList<>();
+        for (SelectionKey key : selector.keys())
+        {
+            NioConnection conn = (NioConnection) key.attachment();
+            if (key.isValid() && (conn.isStalledSince(stalledSince) || (!running && conn.isIdle())))
+            {
+                expired.add(conn);
+            }
+        }
+        for (NioConnection conn : expired)
+        {
+            log.debug("Closing the idle connection: " + conn);
+            conn.close();
+        }
+    }
+
+    private void closeAll()
+    {
+        for (SelectionKey key : selector.keys())
+        {
+            ((NioConnection) key.attachment()).close();
+        }
+
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null)
+        {
+            new NioConnection(channel, this, config, handler, metrics).close();
+        }
+
+        try
+        {
+            selector.close();
+        }
+        catch (IOException ex)
+        {
+            log.error("Failed to close the selector due to: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Called by a connection of this event loop once its channel is closed.
+     */
+    void onConnectionClosed() { slots.release(); }
+}
@@ -0,0 +1,483 @@
+package nturbo1.server.nio;
+
+import jdk.jfr.EventType;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.exceptions.BadHttpRequestHeaderException;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import nturbo1.http.parser.v1_1.IncrementalHttpRequestParser;
+import nturbo1.log.CustomLogger;
+import nturbo1.server.AsyncHttpHandler;
+import nturbo1.server.ErrorResponses;
+import nturbo1.server.HttpHandler;
+import nturbo1.server.ServerConfig;
+import nturbo1.server.WriteQueue;
+import nturbo1.server.jfr.RequestHandleEvent;
+import nturbo1.server.jfr.ResponseWriteEvent;
+import nturbo1.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The state of a single persistent connection of the non-blocking transport. It's only ever touched by the thread of
+ * the {@link EventLoop} that owns it.
+ * <p>
+ *     Whatever a read readiness event brings in is pushed straight into an {@link IncrementalHttpRequestParser}, which
+ *     keeps the partial request between the events. The read buffer is therefore a fixed size no matter how large the
+ *     request is.
+ * </p>
+ * <p>
+ *     All the complete requests a read brings in are answered as one batch: their responses are queued in order and
+ *     sent with a single gathering write. Responses that don't fit into the socket send buffer are finished on write
+ *     readiness events. Reading is paused until then, which keeps a slow reader from piling up responses on the
+ *     server.
+ * </p>
+ * <p>
+ *     A request whose {@link AsyncHttpHandler} doesn't have the response ready suspends the connection: nothing more
+ *     is read or parsed until the response comes back to the event loop, so the responses still go out in the order
+ *     of the requests. The event loop goes on with its other connections in the meantime.
+ * </p>
+ */
+class NioConnection
+{
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;
+    private final ServerConfig config;
+    private final HttpHandler handler;
+    private final ServerMetrics metrics;
+    private SelectionKey key;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE); // kept in write mode
+    private final IncrementalHttpRequestParser parser;
+    private final WriteQueue writeQueue = new WriteQueue();
+    private boolean writePending;
+    private boolean closeAfterWrite;
+    private boolean awaitingResponse; // an asynchronous handler has yet to complete
+    private boolean suspendedKeepAlive;
+    private long suspendedSince; // System.nanoTime() of the request the connection is suspended for
+    private RequestHandleEvent suspendedEvent; // null unless the event is enabled
+    private HttpRequest suspendedRequest;
+    private HttpResponse completedResponse; // arrived while the responses before it were still being written
+    private int requestCount;
+    private long lastActivityMillis = System.currentTimeMillis();
+    private boolean closed;
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final EventType HANDLE_EVENT_TYPE = EventType.getEventType(RequestHandleEvent.class);
+    private static final int MAX_PIPELINED_BATCH = 16;
+    private static final CustomLogger log = CustomLogger.getLogger(NioConnection.class.getName());
+
+    NioConnection(SocketChannel channel, EventLoop eventLoop, ServerConfig config, HttpHandler handler,
+                  ServerMetrics metrics)
+    {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.config = config;
+        this.handler = handler;
+        this.metrics = metrics;
+        this.parser = new IncrementalHttpRequestParser(config.getBodyLimits());
+        metrics.connectionOpened();
+    }
+
+    void setKey(SelectionKey key) { this.key = key; }
+
+    void onReadable()
+    {
+        try
+        {
+            int n = channel.read(readBuffer);
+            if (n == -1)
+            {
+                log.debug("Connection closed by the client: " + channel);
+                close();
+                return;
+            }
+            lastActivityMillis = System.currentTimeMillis();
+            metrics.bytesReceived(n);
+
+            processRequests();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to read from the connection due to: " + e.getMessage());
+            close();
+        }
+    }
+
+    void onWritable()
+    {
+        try
+        {
+            if (!write()) { return; }
+
+            lastActivityMillis = System.currentTimeMillis();
+            writePending = false;
+            if (closeAfterWrite)
+            {
+                close();
+                return;
+            }
+            if (awaitingResponse)
+            {
+                if (completedResponse != null) { resume(); }
+                else { key.interestOps(0); }
+                return;
+            }
+
+            key.interestOps(SelectionKey.OP_READ);
+            processRequests(); // requests that arrived while the response was being written
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to write the HTTP response due to: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Answers the complete requests in the read buffer in batches, until it runs out or the responses can't be
+     * written in one go.
+     */
+    private void processRequests() throws IOException
+    {
+        readBuffer.flip();
+        try
+        {
+            while (!writePending && !closed && !awaitingResponse)
+            {
+                int batchSize = 0;
+                boolean keepAlive = true;
+                while (keepAlive && batchSize < MAX_PIPELINED_BATCH)
+                {
+                    HttpRequest req = parseRequest();
+                    if (req == null) { break; } // need more bytes, or the request was rejected
+
+                    log.debug(() -> "Request: " + req);
+                    metrics.requestReceived(req.getMethod());
+                    requestCount++;
+                    batchSize++;
+
+                    keepAlive = req.isKeepAlive() && requestCount < config.getMaxKeepAliveRequests() &&
+                            !eventLoop.isDraining();
+                    long start = System.nanoTime();
+                    RequestHandleEvent event = new RequestHandleEvent();
+                    event.begin();
+                    HttpResponse res = respond(req, keepAlive, start);
+                    if (res == null) { break; } // suspended until the handler completes
+                    event.commit(req, res);
+                    keepAlive = keepAlive && !eventLoop.isDraining(); // it may have started while the handler ran
+                    queue(res, keepAlive);
+                    metrics.requestHandled(System.nanoTime() - start);
+                }
+
+                flush();
+                if (awaitingResponse)
+                {
+                    if (!writePending && !closed) { key.interestOps(0); }
+                    break;
+                }
+                if (batchSize < MAX_PIPELINED_BATCH) { break; }
+            }
+        }
+        finally
+        {
+            readBuffer.compact();
+        }
+    }
+
+    /**
+     * @return the next complete request, or null if more bytes are needed, the request was rejected, or its body
+     * couldn't be spooled and the connection was closed.
+     */
+    private HttpRequest parseRequest()
+    {
+        try
+        {
+            return parser.parse(readBuffer);
+        }
+        catch (HttpMessageParseException e)
+        {
+            log.error("Failed to parse the HTTP request because: " + e.getMessage());
+            metrics.parseFailed(e);
+            queue(ErrorResponses.forParseFailure(e), false);
+        }
+        catch (InvalidHttpMessageHeaderException e)
+        {
+            log.error(e.getMessage());
+            metrics.parseFailed(e);
+            queue(ErrorResponses.forParseFailure(e), false);
+        }
+        catch (UnsupportedHttpVersionException e)
+        {
+            log.error(e.getMessage());
+            metrics.parseFailed(e);
+            queue(ErrorResponses.forParseFailure(e), false);
+        }
+        catch (BadHttpRequestHeaderException e)
+        {
+            log.error(e.getMessage());
+            metrics.parseFailed(e);
+            queue(ErrorResponses.forParseFailure(e), false);
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to parse an HTTP Request due to: " + e.getMessage());
+            metrics.parseFailed(e);
+            close();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the response, or null if an asynchronous handler doesn't have it yet and the connection is suspended.
+     */
+    private HttpResponse respond(HttpRequest req, boolean keepAlive, long start)
+    {
+        if (handler instanceof AsyncHttpHandler async) { return respondAsync(async, req, keepAlive, start); }
+
+        try
+        {
+            return handler.handle(req);
+        }
+        catch (RuntimeException e)
+        {
+            log.error("The handler failed on " + req.getURI() + " due to: " + e);
+            return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        finally
+        {
+            closeBody(req);
+        }
+    }
+
+    private HttpResponse respondAsync(AsyncHttpHandler async, HttpRequest req, boolean keepAlive, long start)
+    {
+        CompletionStage<HttpResponse> stage;
+        try
+        {
+            stage = async.handleAsync(req);
+        }
+        catch (RuntimeException e)
+        {
+            closeBody(req);
+            return completed(req, null, e);
+        }
+
+        if (stage == null)
+        {
+            closeBody(req);
+            return completed(req, null, null);
+        }
+        if (stage instanceof CompletableFuture<HttpResponse> future && future.isDone())
+        {
+            closeBody(req);
+            try
+            {
+                return completed(req, future.join(), null);
+            }
+            catch (RuntimeException e)
+            {
+                return completed(req, null, e);
+            }
+        }
+
+        awaitingResponse = true;
+        suspendedKeepAlive = keepAlive;
+        suspendedSince = start;
+        if (HANDLE_EVENT_TYPE.isEnabled())
+        {
+            suspendedEvent = new RequestHandleEvent();
+            suspendedEvent.begin();
+            suspendedEvent.async = true;
+            suspendedRequest = req;
+        }
+        stage.whenComplete((res, failure) -> {
+            closeBody(req);
+            HttpResponse response = completed(req, res, failure);
+            eventLoop.execute(() -> onResponse(response));
+        });
+        return null;
+    }
+
+    /**
+     * @return the response of a handler, or 500 Internal Server Error if it failed or didn't give one.
+     */
+    private static HttpResponse completed(HttpRequest req, HttpResponse res, Throwable failure)
+    {
+        if (failure != null)
+        {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+                    failure.getCause() : failure;
+            log.error("The handler failed on " + req.getURI() + " due to: " + cause);
+            return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (res == null)
+        {
+            log.error("The handler completed " + req.getURI() + " without a response");
+            return ErrorResponses.of(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        return res;
+    }
+
+    /**
+     * Called on the event loop thread with the response of the asynchronous handler the connection is waiting for.
+     */
+    private void onResponse(HttpResponse res)
+    {
+        if (closed) { return; }
+
+        completedResponse = res;
+        if (!writePending) { resume(); } // otherwise once the responses before it are written
+    }
+
+    /**
+     * Sends the response the connection was suspended for and goes on with the requests pipelined behind it.
+     */
+    private void resume()
+    {
+        HttpResponse res = completedResponse;
+        completedResponse = null;
+        awaitingResponse = false;
+        lastActivityMillis = System.currentTimeMillis();
+        try
+        {
+            queue(res, suspendedKeepAlive && !eventLoop.isDraining());
+            metrics.requestHandled(System.nanoTime() - suspendedSince);
+            if (suspendedEvent != null)
+            {
+                suspendedEvent.commit(suspendedRequest, res);
+                suspendedEvent = null;
+                suspendedRequest = null;
+            }
+            flush();
+            if (writePending || closed) { return; }
+
+            key.interestOps(SelectionKey.OP_READ);
+            processRequests();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to write the HTTP response due to: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Deletes the temporary file of a spooled request body, the handler is done with it.
+     */
+    private static void closeBody(HttpRequest req)
+    {
+        if (req.getRequestBody() == null) { return; }
+
+        try
+        {
+            req.getRequestBody().close();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to delete the request body due to: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a response behind the ones of the current batch. Nothing is read after a response that closes the
+     * connection.
+     */
+    private void queue(HttpResponse res, boolean keepAlive)
+    {
+        writeQueue.add(res, keepAlive);
+        metrics.responseQueued(res.getStatus());
+        if (!keepAlive) { closeAfterWrite = true; }
+    }
+
+    /**
+     * Sends the queued responses, switching over to write readiness events if the socket doesn't take all of them.
+     */
+    private void flush() throws IOException
+    {
+        if (writeQueue.isEmpty()) { return; }
+
+        if (!write())
+        {
+            writePending = true;
+            key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        lastActivityMillis = System.currentTimeMillis();
+        if (closeAfterWrite) { close(); }
+    }
+
+    /**
+     * @return true if the whole write queue went out, false if the socket send buffer filled up first.
+     */
+    private boolean write() throws IOException
+    {
+        ResponseWriteEvent event = new ResponseWriteEvent();
+        event.begin();
+        boolean flushed = false;
+        try
+        {
+            flushed = writeQueue.flush(channel);
+            return flushed;
+        }
+        finally
+        {
+            long bytesWritten = writeQueue.takeBytesWritten();
+            metrics.bytesSent(bytesWritten);
+            event.commit(bytesWritten, flushed);
+        }
+    }
+
+    /**
+     * @return true if the connection is waiting for a new request, i.e. nothing of the next one has arrived yet.
+     */
+    boolean isIdle()
+    {
+        return !writePending && !awaitingResponse && parser.isIdle() && readBuffer.position() == 0;
+    }
+
+    /**
+     * @return true if the connection is waiting for the client and hasn't seen any traffic since the given time. That
+     * is the case for an idle connection, one that got part of a request and then nothing more, and one whose client
+     * stopped reading the responses, so that not a byte more of them went out.
+     */
+    boolean isStalledSince(long millis)
+    {
+        return Math.max(lastActivityMillis, writeQueue.getLastProgressMillis()) <= millis && !awaitingResponse;
+    }
+
+    void close()
+    {
+        if (closed) { return; }
+        closed = true;
+
+        if (key != null) { key.cancel(); }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            log.error("Failed to close the socket channel due to: " + e.getMessage());
+        }
+        writeQueue.release();
+        parser.reset(); // a body being received may have a temporary file
+        metrics.connectionClosed();
+        eventLoop.onConnectionClosed();
+    }
+
+    @Override
+    public String toString() { return channel.toString(); }
+}
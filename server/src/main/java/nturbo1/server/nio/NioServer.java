@@ -0,0 +1,154 @@
+package nturbo1.server.nio;
+
+import nturbo1.log.CustomLogger;
+import nturbo1.server.HttpHandler;
+import nturbo1.server.ServerConfig;
+import nturbo1.server.Transport;
+import nturbo1.server.jfr.ConnectionAcceptEvent;
+import nturbo1.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Non-blocking transport built on a {@link ServerSocketChannel} and a set of selector {@link EventLoop}s.
+ * <p>
+ *     The calling thread of {@link #start()} accepts the connections and hands them out to the event loops in a
+ *     round-robin manner. From then on a connection belongs to its event loop for good, so there is no locking
+ *     around the per-connection state and an idle connection costs a selection key and a read buffer instead of a
+ *     thread stack.
+ * </p>
+ */
+public class NioServer
+{
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] eventLoops;
+    private final Thread[] eventLoopThreads;
+    private final Semaphore slots;
+    private final int maxConnections;
+
+    private volatile boolean running;
+
+    private static final CustomLogger log = CustomLogger.getLogger(NioServer.class.getName());
+
+    public NioServer(ServerConfig config, HttpHandler handler, ServerMetrics metrics, int eventLoopCount)
+            throws IOException
+    {
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(config.getPort()));
+        this.maxConnections = config.getMaxConnections();
+        this.slots = new Semaphore(maxConnections);
+
+        this.eventLoops = new EventLoop[eventLoopCount];
+        this.eventLoopThreads = new Thread[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++)
+        {
+            eventLoops[i] = new EventLoop(config, handler, metrics, slots);
+        }
+    }
+
+    /**
+     * @return the port the server channel is bound to, the one picked by the system if port 0 was asked for.
+     */
+    public int getPort() throws IOException
+    {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public void start()
+    {
+        log.info("Accepting connections with " + eventLoops.length + " event loops and at most " + maxConnections +
+                " concurrent connections...");
+        running = true;
+        for (int i = 0; i < eventLoops.length; i++)
+        {
+            eventLoopThreads[i] = Thread.ofPlatform().name("event-loop-" + i).start(eventLoops[i]);
+        }
+
+        int next = 0;
+        while (running)
+        {
+            try
+            {
+                slots.acquire();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            ConnectionAcceptEvent event = new ConnectionAcceptEvent();
+            event.begin();
+            SocketChannel channel;
+            try
+            {
+                channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                log.debug("New connection: " + channel);
+            }
+            catch (IOException ex)
+            {
+                slots.release();
+                if (!running) { break; } // the server channel was closed by stop()
+
+                log.fatal("Failed to accept socket connection because: " + ex.getMessage());
+                break;
+            }
+
+            eventLoops[next].register(channel);
+            next = (next + 1) % eventLoops.length;
+            event.commit(Transport.NIO.getName(), channel);
+        }
+    }
+
+    /**
+     * Stops accepting new connections and lets the event loops drain their connections for at most the given time.
+     *
+     * @param drainTimeoutMillis how long the connections in progress are given to finish.
+     * @return true if every connection finished within the drain timeout.
+     */
+    public boolean stop(long drainTimeoutMillis)
+    {
+        running = false;
+        try
+        {
+            serverChannel.close();
+        }
+        catch (IOException ex)
+        {
+            log.error("Failed to close the server socket channel because: " + ex.getMessage());
+        }
+
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        for (EventLoop eventLoop : eventLoops)
+        {
+            eventLoop.shutdown(deadline);
+        }
+
+        boolean drained = true;
+        for (int i = 0; i < eventLoops.length; i++)
+        {
+            if (eventLoopThreads[i] == null) { continue; }
+            try
+            {
+                eventLoopThreads[i].join();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            drained &= eventLoops[i].isDrained();
+        }
+
+        return drained;
+    }
+
+    public int getActiveConnections() { return maxConnections - slots.availablePermits(); }
+}
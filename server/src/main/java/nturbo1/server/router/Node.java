@@ -0,0 +1,126 @@
+package nturbo1.server.router;
+
+import nturbo1.http.HttpMethod;
+import nturbo1.server.HttpHandler;
+
+/**
+ * A node of the compiled route tree. It's immutable and only holds arrays and strings, so any number of threads can
+ * look routes up in it at once without a lock and without allocating.
+ * <p>
+ *     The tree is keyed by path segments. A static node consumes one or more whole segments, its label: a chain of
+ *     segments that don't branch is compressed into the label of a single node. A parameter node consumes exactly one
+ *     non-empty segment, and a wildcard node the rest of the path. The static children of a node are kept in an open
+ *     addressing table keyed by the hash of the first segment of their labels, so a child is found without cutting
+ *     the segment out of the path.
+ * </p>
+ */
+final class Node
+{
+    /** The static segments this node consumes joined by '/', "" for the root and for parameters and wildcards. */
+    final String label;
+    /** {@link #hash} of the first segment of the label. */
+    final int labelHash;
+    private final Node[] children; // null slots are free
+    private final int mask;
+    private final Node param;
+    private final Node wildcard;
+
+    private final HttpHandler[] handlers; // by HttpMethod ordinal, null if no route ends here
+    /** The names of the parameters of the routes that end here, in the order they appear in the pattern. */
+    final String[] parameterNames;
+    /** The index of the path segment that each of the parameters matches. */
+    final int[] parameterSegments;
+    /** Answers the methods that no route ending here has with 405 Method Not Allowed. */
+    final HttpHandler methodNotAllowed;
+
+    Node(String label, Node[] staticChildren, Node param, Node wildcard, HttpHandler[] handlers,
+         String[] parameterNames, int[] parameterSegments, HttpHandler methodNotAllowed)
+    {
+        this.label = label;
+        int firstSlash = label.indexOf('/');
+        this.labelHash = hash(label, 0, firstSlash == -1 ? label.length() : firstSlash);
+        this.param = param;
+        this.wildcard = wildcard;
+        this.handlers = handlers;
+        this.parameterNames = parameterNames;
+        this.parameterSegments = parameterSegments;
+        this.methodNotAllowed = methodNotAllowed;
+
+        int size = Integer.highestOneBit(Math.max(1, staticChildren.length * 2 - 1)) << 1;
+        this.children = new Node[size];
+        this.mask = size - 1;
+        for (Node child : staticChildren)
+        {
+            int slot = child.labelHash & mask;
+            while (children[slot] != null) { slot = (slot + 1) & mask; }
+            children[slot] = child;
+        }
+    }
+
+    boolean hasRoutes() { return handlers != null; }
+
+    /**
+     * @return the handler of the method, the GET handler for a HEAD that has no handler of its own, or null.
+     */
+    HttpHandler handler(HttpMethod method)
+    {
+        HttpHandler handler = handlers[method.ordinal()];
+        if (handler == null && method == HttpMethod.HEAD) { handler = handlers[HttpMethod.GET.ordinal()]; }
+
+        return handler;
+    }
+
+    /**
+     * Finds the node that the rest of the path leads to, preferring static segments to parameters and parameters to
+     * wildcards, and backtracking when a preferred branch leads nowhere.
+     *
+     * @param pos the index where the next segment starts, right after a '/'.
+     * @return the node where a route ends, or null if no route matches.
+     */
+    Node descend(String path, int pos)
+    {
+        int segmentEnd = path.indexOf('/', pos);
+        if (segmentEnd == -1) { segmentEnd = path.length(); }
+
+        int hash = hash(path, pos, segmentEnd);
+        for (int slot = hash & mask; children[slot] != null; slot = (slot + 1) & mask)
+        {
+            Node child = children[slot];
+            if (child.labelHash != hash) { continue; }
+
+            Node found = child.consume(path, pos);
+            if (found != null) { return found; }
+        }
+
+        if (param != null && segmentEnd > pos)
+        {
+            Node found = segmentEnd == path.length() ? (param.hasRoutes() ? param : null)
+                    : param.descend(path, segmentEnd + 1);
+            if (found != null) { return found; }
+        }
+
+        return wildcard;
+    }
+
+    /**
+     * Matches the label of this static node against the segments at pos.
+     */
+    private Node consume(String path, int pos)
+    {
+        int end = pos + label.length();
+        if (end > path.length() || !path.regionMatches(pos, label, 0, label.length())) { return null; }
+
+        if (end == path.length()) { return hasRoutes() ? this : null; }
+        if (path.charAt(end) != '/') { return null; }
+
+        return descend(path, end + 1);
+    }
+
+    static int hash(String s, int from, int to)
+    {
+        int h = 0;
+        for (int i = from; i < to; i++) { h = 31 * h + s.charAt(i); }
+
+        return h ^ (h >>> 16);
+    }
+}
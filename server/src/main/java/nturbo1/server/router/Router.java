@@ -0,0 +1,285 @@
+package nturbo1.server.router;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.PathParameters;
+import nturbo1.http.RequestTarget;
+import nturbo1.server.AsyncHttpHandler;
+import nturbo1.server.ErrorResponses;
+import nturbo1.server.HttpHandler;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Dispatches a request to the handler registered for its method and decoded path.
+ * <p>
+ *     A route pattern is a path whose segments are either matched as they are, "{name}" to match any one non-empty
+ *     segment, or a last "*" to match the rest of the path, e.g. "/users/{id}/files/*". When more than one route
+ *     matches a path, a static segment wins over a parameter and a parameter over a wildcard. The values the
+ *     parameters matched are handed to the handler as {@link HttpRequest#getPathParameters()}.
+ * </p>
+ * <p>
+ *     A path that a route matches but not for the method of the request is answered with 405 Method Not Allowed and
+ *     the methods it does allow. A HEAD is handled by the GET handler when there's no HEAD handler. A path that no
+ *     route matches, and a request without a path, goes to the fallback handler.
+ * </p>
+ * <p>
+ *     The routes are compiled into an immutable tree when the router is built, so the router can be shared by all the
+ *     connection threads. Finding a route doesn't take a lock and doesn't allocate.
+ * </p>
+ * <p>
+ *     A route can have an {@link AsyncHttpHandler}. The router is one too, so the transports hand it the requests
+ *     asynchronously; the response of a synchronous route is then returned as an already completed stage.
+ * </p>
+ */
+public class Router implements AsyncHttpHandler
+{
+    private final Node root;
+    private final HttpHandler fallback;
+
+    private Router(Node root, HttpHandler fallback)
+    {
+        this.root = root;
+        this.fallback = fallback;
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    @Override
+    public HttpResponse handle(HttpRequest req) { return find(req).handle(req); }
+
+    @Override
+    public CompletionStage<HttpResponse> handleAsync(HttpRequest req)
+    {
+        HttpHandler handler = find(req);
+        if (handler instanceof AsyncHttpHandler async) { return async.handleAsync(req); }
+
+        return CompletableFuture.completedFuture(handler.handle(req));
+    }
+
+    /**
+     * @return the handler of the route that matches the request, with the path parameters set on the request, the
+     * 405 Method Not Allowed handler of the path, or the fallback.
+     */
+    private HttpHandler find(HttpRequest req)
+    {
+        RequestTarget target = req.getTarget();
+        String path = target == null ? null : target.getPath();
+        Node node = path == null ? null : root.descend(path, 1);
+        if (node == null) { return fallback; }
+
+        HttpHandler handler = node.handler(req.getMethod());
+        if (handler == null) { return node.methodNotAllowed; }
+
+        if (node.parameterNames.length > 0)
+        {
+            req.setPathParameters(new PathParameters(path, node.parameterNames, node.parameterSegments));
+        }
+        return handler;
+    }
+
+    /**
+     * Collects the routes of a {@link Router}. Not thread-safe, it's meant to be filled in once at startup.
+     */
+    public static class Builder
+    {
+        private static final String WILDCARD = "*";
+
+        private final Segment root = new Segment();
+
+        private Builder() {}
+
+        /**
+         * @throws IllegalArgumentException if the pattern doesn't start with '/', has a '{' or '}' that isn't part of
+         * a whole "{name}" segment, has a "*" that isn't the last segment, repeats a parameter name, names a
+         * parameter differently from a route registered before it at the same place, or was already registered for
+         * the method.
+         */
+        public Builder route(HttpMethod method, String pattern, HttpHandler handler)
+        {
+            if (!pattern.startsWith("/"))
+            {
+                throw new IllegalArgumentException("A route pattern must start with '/': " + pattern);
+            }
+
+            String[] segments = pattern.substring(1).split("/", -1);
+            Set<String> names = new HashSet<>();
+            Segment node = root;
+            for (int i = 0; i < segments.length; i++)
+            {
+                String segment = segments[i];
+                if (segment.equals(WILDCARD))
+                {
+                    if (i != segments.length - 1)
+                    {
+                        throw new IllegalArgumentException("'*' can only be the last segment: " + pattern);
+                    }
+                    if (node.wildcard == null) { node.wildcard = new Segment(); }
+                    node = node.wildcard;
+                }
+                else if (segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}"))
+                {
+                    String name = segment.substring(1, segment.length() - 1);
+                    if (name.indexOf('{') != -1 || name.indexOf('}') != -1 || name.equals(WILDCARD))
+                    {
+                        throw new IllegalArgumentException("Invalid parameter name '" + name + "': " + pattern);
+                    }
+                    if (!names.add(name))
+                    {
+                        throw new IllegalArgumentException("Parameter '" + name + "' appears twice: " + pattern);
+                    }
+
+                    if (node.param == null)
+                    {
+                        node.param = new Segment();
+                        node.paramName = name;
+                    }
+                    else if (!node.paramName.equals(name))
+                    {
+                        throw new IllegalArgumentException("Parameter '" + name + "' conflicts with '" +
+                                node.paramName + "' of another route: " + pattern);
+                    }
+                    node = node.param;
+                }
+                else if (segment.indexOf('{') != -1 || segment.indexOf('}') != -1)
+                {
+                    throw new IllegalArgumentException("A parameter must be a whole segment: " + pattern);
+                }
+                else
+                {
+                    node = node.statics.computeIfAbsent(segment, key -> new Segment());
+                }
+            }
+
+            if (node.handlers.putIfAbsent(method, handler) != null)
+            {
+                throw new IllegalArgumentException("Route already registered: " + method + " " + pattern);
+            }
+            return this;
+        }
+
+        /**
+         * The same as {@link #route(HttpMethod, String, HttpHandler)}, for a lambda that returns a
+         * {@link CompletionStage}.
+         */
+        public Builder routeAsync(HttpMethod method, String pattern, AsyncHttpHandler handler)
+        {
+            return route(method, pattern, handler);
+        }
+
+        public Builder get(String pattern, HttpHandler handler) { return route(HttpMethod.GET, pattern, handler); }
+
+        public Builder post(String pattern, HttpHandler handler) { return route(HttpMethod.POST, pattern, handler); }
+
+        public Builder put(String pattern, HttpHandler handler) { return route(HttpMethod.PUT, pattern, handler); }
+
+        public Builder delete(String pattern, HttpHandler handler)
+        {
+            return route(HttpMethod.DELETE, pattern, handler);
+        }
+
+        /**
+         * @return a router that answers the requests no route matches with 404 Not Found.
+         */
+        public Router build() { return build(req -> ErrorResponses.of(HttpStatus.NOT_FOUND)); }
+
+        /**
+         * @param fallback handles the requests that no route matches.
+         */
+        public Router build(HttpHandler fallback)
+        {
+            return new Router(compile(root, "", new ArrayList<>(), new ArrayList<>(), 0), fallback);
+        }
+
+        /**
+         * @param names the names of the parameters on the way from the root to the node.
+         * @param indexes the segment index of each of those parameters.
+         * @param next the index of the first segment after the ones this node consumes.
+         */
+        private static Node compile(Segment node, String label, List<String> names, List<Integer> indexes, int next)
+        {
+            List<Node> children = new ArrayList<>(node.statics.size());
+            for (Map.Entry<String, Segment> entry : node.statics.entrySet())
+            {
+                StringBuilder childLabel = new StringBuilder(entry.getKey());
+                Segment child = entry.getValue();
+                int childNext = next + 1;
+                while (child.handlers.isEmpty() && child.param == null && child.wildcard == null &&
+                        child.statics.size() == 1)
+                {
+                    Map.Entry<String, Segment> only = child.statics.entrySet().iterator().next();
+                    childLabel.append('/').append(only.getKey());
+                    child = only.getValue();
+                    childNext++;
+                }
+                children.add(compile(child, childLabel.toString(), names, indexes, childNext));
+            }
+
+            Node param = node.param == null ? null
+                    : compile(node.param, "", with(names, node.paramName), with(indexes, next), next + 1);
+            Node wildcard = node.wildcard == null ? null
+                    : compile(node.wildcard, "", with(names, WILDCARD), with(indexes, next), next + 1);
+
+            HttpHandler[] handlers = null;
+            HttpHandler methodNotAllowed = null;
+            if (!node.handlers.isEmpty())
+            {
+                handlers = new HttpHandler[HttpMethod.values().length];
+                StringJoiner allowed = new StringJoiner(", ");
+                for (HttpMethod method : HttpMethod.values())
+                {
+                    handlers[method.ordinal()] = node.handlers.get(method);
+                    if (node.handlers.containsKey(method) ||
+                            (method == HttpMethod.HEAD && node.handlers.containsKey(HttpMethod.GET)))
+                    {
+                        allowed.add(method.name());
+                    }
+                }
+                methodNotAllowed = methodNotAllowed(allowed.toString());
+            }
+
+            return new Node(label, children.toArray(new Node[0]), param, wildcard, handlers,
+                    names.toArray(new String[0]), indexes.stream().mapToInt(Integer::intValue).toArray(), methodNotAllowed);
+        }
+
+        private static HttpHandler methodNotAllowed(String allow)
+        {
+            return req -> {
+                HttpResponse res = ErrorResponses.of(HttpStatus.METHOD_NOT_ALLOWED);
+                res.setHeader(HttpEntityHeader.ALLOW, allow);
+                return res;
+            };
+        }
+
+        private static <T> List<T> with(List<T> list, T element)
+        {
+            List<T> copy = new ArrayList<>(list);
+            copy.add(element);
+            return copy;
+        }
+    }
+
+    /**
+     * A node of the route tree while it's being built: one path segment.
+     */
+    private static class Segment
+    {
+        private final Map<String, Segment> statics = new LinkedHashMap<>();
+        private Segment param;
+        private String paramName;
+        private Segment wildcard;
+        private final Map<HttpMethod, HttpHandler> handlers = new EnumMap<>(HttpMethod.class);
+    }
+}
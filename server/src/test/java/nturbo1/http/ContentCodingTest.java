@@ -0,0 +1,27 @@
+package nturbo1.http;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class ContentCodingTest
+{
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+            "gzip, deflate, br          | GZIP",
+            "deflate                    | DEFLATE",
+            "x-gzip                     | GZIP",
+            "GZIP;q=0.5, deflate;q=0.8  | DEFLATE",
+            "gzip;q=0.8, deflate;q=0.8  | GZIP",
+            "gzip;q=0, *                | DEFLATE",
+            "*;q=0.1                    | GZIP",
+            "br, identity               | null",
+            "gzip;q=0, deflate;q=0      | null",
+            "gzip;q=oops                | null",
+            "null                       | null",
+    })
+    void givenAcceptEncoding_whenNegotiating_thenPickTheBestCoding(String acceptEncoding, ContentCoding expected)
+    {
+        Assertions.assertThat(ContentCoding.negotiate(acceptEncoding)).isEqualTo(expected);
+    }
+}
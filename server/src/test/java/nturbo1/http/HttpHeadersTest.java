@@ -0,0 +1,139 @@
+package nturbo1.http;
+
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class HttpHeadersTest
+{
+    @Test
+    void givenHeaderLines_whenGettingInAnyCase_thenReturnTheTrimmedValues() throws Exception
+    {
+        HttpHeaders headers = parse("Host:  example.com \t", "X-Custom : one", "x-custom: two");
+
+        Assertions.assertThat(headers.size()).isEqualTo(3);
+        Assertions.assertThat(headers.get("HOST")).isEqualTo("example.com");
+        Assertions.assertThat(headers.get(HttpRequestHeader.HOST)).isEqualTo("example.com");
+        Assertions.assertThat(headers.get("X-CUSTOM")).isEqualTo("one, two");
+        Assertions.assertThat(headers.getName(1)).isEqualTo("X-Custom");
+        Assertions.assertThat(headers.get("Accept")).isNull();
+        Assertions.assertThat(headers.getAll("Accept")).isEmpty();
+    }
+
+    @Test
+    void givenListHeaderOnSeveralLines_whenGettingAll_thenSplitEveryLineOnCommas() throws Exception
+    {
+        HttpHeaders headers = parse("Accept: text/html, ,application/json", "Accept: */*", "Date: Sun, 06 Nov 1994");
+
+        Assertions.assertThat(headers.getAll("accept")).isEqualTo(List.of("text/html", "application/json", "*/*"));
+        Assertions.assertThat(headers.getAll("date")).isEqualTo(List.of("Sun, 06 Nov 1994"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Host", "content-length", "IF-NONE-MATCH" })
+    void givenSingleValuedHeaderTwice_whenAddingLines_thenThrowException(String name)
+    {
+        Assertions.assertThatThrownBy(() -> parse(name + ": a", name + ": b"))
+                .isInstanceOf(InvalidHttpMessageHeaderException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "no colon", " Host: example.com", ": empty name", "Bad Name: value", "Bad\"Name: value" })
+    void givenInvalidLine_whenAddingLine_thenThrowException(String line)
+    {
+        Assertions.assertThatThrownBy(() -> parse(line)).isInstanceOf(InvalidHttpMessageHeaderException.class);
+    }
+
+    @Test
+    void givenConnectionOptions_whenLookingForElement_thenMatchWholeElementsIgnoringCase() throws Exception
+    {
+        HttpHeaders headers = parse("Connection: keep-alive, Close");
+
+        Assertions.assertThat(headers.containsElement(GeneralHeader.CONNECTION, "close")).isTrue();
+        Assertions.assertThat(headers.containsElement(GeneralHeader.CONNECTION, "keep")).isFalse();
+        Assertions.assertThat(headers.containsElement(GeneralHeader.PRAGMA, "close")).isFalse();
+    }
+
+    @Test
+    void givenAddedFields_whenSettingAndRemoving_thenReplaceAllFieldsOfTheHeader() throws Exception
+    {
+        HttpHeaders headers = parse("Accept: text/html", "Host: example.com", "Accept: */*");
+
+        headers.set("ACCEPT", "text/plain");
+        Assertions.assertThat(headers.getAll("Accept")).isEqualTo(List.of("text/plain"));
+        Assertions.assertThat(headers.size()).isEqualTo(2);
+
+        headers.remove("host");
+        Assertions.assertThat(headers.contains(HttpRequestHeader.HOST)).isFalse();
+        Assertions.assertThat(headers.toString()).isEqualTo("{ACCEPT: text/plain}");
+    }
+
+    @Test
+    void givenAcceptWithQvalues_whenGettingQualityValues_thenSortByPreferenceAndParseOnce() throws Exception
+    {
+        HttpHeaders headers = parse("Accept: text/plain;q=0.5, text/html;level=1, */*;q=0.1;ext=1", "Accept: image/png;q=oops");
+
+        List<QualityValue> accept = headers.getQualityValues(HttpRequestHeader.ACCEPT);
+
+        Assertions.assertThat(accept).containsExactly(new QualityValue("text/html;level=1", 1),
+                new QualityValue("text/plain", 0.5f), new QualityValue("*/*", 0.1f), new QualityValue("image/png", 0));
+        Assertions.assertThat(headers.getQualityValues(HttpRequestHeader.ACCEPT)).isSameAs(accept);
+        Assertions.assertThat(headers.getQualityValues(HttpRequestHeader.TE)).isEmpty();
+
+        headers.add("Accept", "text/csv");
+        Assertions.assertThat(headers.getQualityValues(HttpRequestHeader.ACCEPT)).hasSize(5);
+    }
+
+    @ParameterizedTest
+    @CsvSource(nullValues = "null", value = { "0, 0", "1048576, 1048576", "9223372036854775807, 9223372036854775807",
+            "null, -1" })
+    void givenContentLength_whenGettingContentLength_thenReturnItAsALong(String value, long expected) throws Exception
+    {
+        HttpHeaders headers = value == null ? parse("Host: a") : parse("Content-Length: " + value);
+
+        Assertions.assertThat(headers.getContentLength()).isEqualTo(expected);
+        Assertions.assertThat(headers.getContentLength()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "-1", "+1", "1 0", "0x10", "9223372036854775808", "" })
+    void givenInvalidContentLength_whenGettingContentLength_thenThrowException(String value) throws Exception
+    {
+        HttpHeaders headers = parse("Content-Length: " + value);
+
+        Assertions.assertThatThrownBy(headers::getContentLength).isInstanceOf(HttpMessageParseException.class);
+    }
+
+    @Test
+    void givenKnownAndUnknownNames_whenLookingUpIds_thenMatchTheEnumsIgnoringCase()
+    {
+        byte[] name = "xcontent-TYPEx".getBytes(StandardCharsets.US_ASCII);
+
+        Assertions.assertThat(HeaderNames.idOf(name, 1, name.length - 1)).isEqualTo(HeaderNames.id(HttpEntityHeader.CONTENT_TYPE));
+        Assertions.assertThat(HeaderNames.idOf("Transfer-Encoding")).isEqualTo(HeaderNames.id(GeneralHeader.TRANSFER_ENCODING));
+        Assertions.assertThat(HeaderNames.idOf("X-Unknown")).isEqualTo(HeaderNames.UNKNOWN);
+        for (HttpRequestHeader header : HttpRequestHeader.values())
+        {
+            Assertions.assertThat(HeaderNames.nameOf(HeaderNames.idOf(header.getName()))).isEqualTo(header.getName());
+        }
+    }
+
+    private static HttpHeaders parse(String... lines) throws InvalidHttpMessageHeaderException
+    {
+        HttpHeaders headers = new HttpHeaders(4, 1); // tiny, so that the arrays have to grow
+        for (String line : lines)
+        {
+            byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+            headers.addLine(bytes, 0, bytes.length);
+        }
+
+        return headers;
+    }
+}
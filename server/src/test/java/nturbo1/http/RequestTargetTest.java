@@ -0,0 +1,101 @@
+package nturbo1.http;
+
+import nturbo1.http.exceptions.HttpMessageParseException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class RequestTargetTest
+{
+    @ParameterizedTest
+    @CsvSource({
+            "/, /",
+            "/a/b.txt?x=1#top, /a/b.txt",
+            "/a/./b/../c, /a/c",
+            "/a/b/.., /a/",
+            "/../../etc/passwd, /etc/passwd",
+            "/a/%2e%2e/b, /b",
+            "/caf%C3%A9, /café",
+            "http://host, /",
+            "http://host:8080/a?b, /a",
+    })
+    void givenRequestUri_whenGettingPath_thenReturnDecodedPathWithoutDotSegments(String uri, String expected)
+    {
+        Assertions.assertThat(RequestTarget.of(uri).getPath()).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "*", "a/b", "host:443", "/a%2", "/a%zz", "/a%00b" })
+    void givenRequestUriWithoutValidPath_whenGettingPath_thenReturnNull(String uri)
+    {
+        Assertions.assertThat(RequestTarget.of(uri).getPath()).isNull();
+    }
+
+    @Test
+    void givenRequestUri_whenGettingRawParts_thenReturnThemAsReceived()
+    {
+        RequestTarget target = RequestTarget.of("/a%20b?q=a+b&x#frag?");
+
+        Assertions.assertThat(target.getRawPath()).isEqualTo("/a%20b");
+        Assertions.assertThat(target.getRawQuery()).isEqualTo("q=a+b&x");
+        Assertions.assertThat(target.getFragment()).isEqualTo("frag?");
+        Assertions.assertThat(target).hasToString("/a%20b?q=a+b&x#frag?");
+    }
+
+    @Test
+    void givenQuery_whenGettingParameters_thenDecodeThemInOrder()
+    {
+        RequestTarget target = RequestTarget.of("/search?q=caf%C3%A9+au+lait&tag=a&empty=&flag&tag=b&&bad=%zz");
+
+        Assertions.assertThat(target.getQueryParameters()).containsExactly(
+                Assertions.entry("q", List.of("café au lait")),
+                Assertions.entry("tag", List.of("a", "b")),
+                Assertions.entry("empty", List.of("")),
+                Assertions.entry("flag", List.of("")),
+                Assertions.entry("bad", List.of("%zz")));
+        Assertions.assertThat(target.getQueryParameter("tag")).isEqualTo("a");
+        Assertions.assertThat(target.getQueryParameter("missing")).isNull();
+    }
+
+    @Test
+    void givenNoQuery_whenGettingParameters_thenReturnEmptyMap()
+    {
+        Assertions.assertThat(RequestTarget.of("/a").getQueryParameters()).isEmpty();
+        Assertions.assertThat(RequestTarget.of("/a?").getQueryParameters()).isEmpty();
+        Assertions.assertThat(RequestTarget.of("/a").getRawQuery()).isNull();
+    }
+
+    @Test
+    void givenRequestLineBytes_whenParsingTargetInTheMiddle_thenOnlyThatRangeIsUsed() throws Exception
+    {
+        byte[] line = "GET /a/b?c=d HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+
+        RequestTarget target = RequestTarget.parse(line, 4, 12);
+
+        Assertions.assertThat(target).hasToString("/a/b?c=d");
+        Assertions.assertThat(target.getPath()).isEqualTo("/a/b");
+        Assertions.assertThat(target.getQueryParameter("c")).isEqualTo("d");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "/a\tb", "/a\u007Fb", "/a\u0001" })
+    void givenControlCharacter_whenParsing_thenThrowException(String uri)
+    {
+        byte[] bytes = uri.getBytes(StandardCharsets.US_ASCII);
+
+        Assertions.assertThatThrownBy(() -> RequestTarget.parse(bytes, 0, bytes.length))
+                .isInstanceOf(HttpMessageParseException.class);
+    }
+
+    @Test
+    void givenAsterisk_whenParsing_thenItIsRecognised()
+    {
+        Assertions.assertThat(RequestTarget.of("*").isAsterisk()).isTrue();
+        Assertions.assertThat(RequestTarget.of("/*").isAsterisk()).isFalse();
+    }
+}
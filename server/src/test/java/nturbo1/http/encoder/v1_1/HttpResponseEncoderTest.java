@@ -0,0 +1,89 @@
+package nturbo1.http.encoder.v1_1;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpResponseHeader;
+import nturbo1.http.HttpStatus;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class HttpResponseEncoderTest
+{
+    @Test
+    void givenResponseWithHeaders_whenEncodingHead_thenWriteStatusLineHeadersAndContentLength()
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setHeader(HttpEntityHeader.CONTENT_TYPE, "text/plain");
+        res.setHeader(HttpResponseHeader.ETAG, "\"abc\"");
+        res.setHeader("X-Custom", "yes");
+
+        Assertions.assertThat(encodeHead(res, 1234, true)).isEqualTo(
+                "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nETag: \"abc\"\r\nX-Custom: yes\r\n" +
+                "Content-Length: 1234\r\n\r\n");
+    }
+
+    @Test
+    void givenConnectionClosing_whenEncodingHead_thenAddConnectionClose()
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.NOT_FOUND);
+
+        Assertions.assertThat(encodeHead(res, 0, false))
+                .isEqualTo("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+        Assertions.assertThat(encodeHead(res, HttpResponseEncoder.NO_CONTENT_LENGTH, true))
+                .isEqualTo("HTTP/1.1 404 Not Found\r\n\r\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = { 0, 7, 10, 99, 1000, 4_294_967_296L, Long.MAX_VALUE })
+    void givenContentLength_whenEncodingHead_thenWriteItInDecimal(long contentLength)
+    {
+        Assertions.assertThat(encodeHead(new HttpResponse(HttpStatus.OK), contentLength, true))
+                .contains("Content-Length: " + contentLength + "\r\n");
+    }
+
+    @Test
+    void givenAnyResponse_whenEncodingHead_thenAddDateHeaderAfterStatusLine()
+    {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        HttpResponseEncoder.encodeHead(new HttpResponse(HttpStatus.OK), 0, true, out);
+
+        Assertions.assertThat(new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII))
+                .matches("HTTP/1\\.1 200 OK\r\nDate: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n(?s).*");
+    }
+
+    @Test
+    void givenTooSmallBuffer_whenEncodingHead_thenThrowBufferOverflowException()
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setHeader("X-Long", "a".repeat(100));
+
+        Assertions.assertThatThrownBy(() -> HttpResponseEncoder.encodeHead(res, 0, true, ByteBuffer.allocate(64)))
+                .isInstanceOf(BufferOverflowException.class);
+    }
+
+    @Test
+    void givenResponseWithBody_whenEncoding_thenAppendTheBody()
+    {
+        HttpResponse res = new HttpResponse(HttpStatus.OK);
+        res.setBody("hello".getBytes(StandardCharsets.US_ASCII));
+
+        Assertions.assertThat(withoutDate(new String(HttpResponseEncoder.encode(res, true), StandardCharsets.US_ASCII)))
+                .isEqualTo("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+    }
+
+    private static String encodeHead(HttpResponse res, long contentLength, boolean keepAlive)
+    {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        HttpResponseEncoder.encodeHead(res, contentLength, keepAlive, out);
+
+        return withoutDate(new String(out.array(), 0, out.position(), StandardCharsets.US_ASCII));
+    }
+
+    private static String withoutDate(String head) { return head.replaceFirst("Date: [^\r]*\r\n", ""); }
+}
@@ -0,0 +1,104 @@
+package nturbo1.http.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import nturbo1.http.parser.v1_1.HttpRequestParser;
+import nturbo1.http.parser.v1_1.IncrementalHttpRequestParser;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+class RequestEventsTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void givenRequestWithBody_whenParsingFromStream_thenRecordHeadAndBodyEvents() throws Exception
+    {
+        byte[] bytes = ("POST /form?x=1 HTTP/1.1\r\nHost: example.com\r\nContent-Length: 11\r\n\r\nhello world")
+                .getBytes(StandardCharsets.US_ASCII);
+
+        List<RecordedEvent> events = record(Duration.ZERO,
+                () -> HttpRequestParser.parseHttpRequest(new ByteArrayInputStream(bytes)));
+
+        Assertions.assertThat(events).hasSize(2);
+        RecordedEvent head = events.get(0);
+        Assertions.assertThat(head.getEventType().getName()).isEqualTo(RequestHeadEvent.NAME);
+        Assertions.assertThat(head.getString("method")).isEqualTo("POST");
+        Assertions.assertThat(head.getInt("uriLength")).isEqualTo("/form?x=1".length());
+        Assertions.assertThat(head.getInt("headerCount")).isEqualTo(2);
+        RecordedEvent body = events.get(1);
+        Assertions.assertThat(body.getEventType().getName()).isEqualTo(RequestBodyEvent.NAME);
+        Assertions.assertThat(body.getLong("bodyBytes")).isEqualTo(11);
+        Assertions.assertThat(body.getBoolean("chunked")).isFalse();
+        Assertions.assertThat(body.getBoolean("spooled")).isFalse();
+    }
+
+    @Test
+    void givenHeadArrivingInFragments_whenParsingIncrementally_thenHeadEventSpansTheFragments() throws Exception
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+
+        List<RecordedEvent> events = record(Duration.ofMillis(20), () -> {
+            parser.parse(ascii("POST /upload HTTP/1.1\r\nHost: exa"));
+            Thread.sleep(50);
+            parser.parse(ascii("mple.com\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n"));
+        });
+
+        // The body went through in one go, below the threshold.
+        Assertions.assertThat(events).hasSize(1);
+        RecordedEvent head = events.get(0);
+        Assertions.assertThat(head.getEventType().getName()).isEqualTo(RequestHeadEvent.NAME);
+        Assertions.assertThat(head.getDuration()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+        Assertions.assertThat(head.getInt("headerCount")).isEqualTo(2);
+    }
+
+    @Test
+    void givenChunkedBody_whenParsingIncrementally_thenRecordBodyEvent() throws Exception
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+
+        List<RecordedEvent> events = record(Duration.ZERO, () -> parser.parse(ascii(
+                "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n7\r\n, world\r\n0\r\n\r\n")));
+
+        Assertions.assertThat(events).extracting(e -> e.getEventType().getName())
+                .containsExactly(RequestHeadEvent.NAME, RequestBodyEvent.NAME);
+        RecordedEvent body = events.get(1);
+        Assertions.assertThat(body.getLong("bodyBytes")).isEqualTo(12);
+        Assertions.assertThat(body.getBoolean("chunked")).isTrue();
+    }
+
+    private interface Parsing
+    {
+        void run() throws Exception;
+    }
+
+    private List<RecordedEvent> record(Duration threshold, Parsing parsing) throws Exception
+    {
+        Path file = dir.resolve("events.jfr");
+        try (Recording recording = new Recording())
+        {
+            recording.enable(RequestHeadEvent.class).withThreshold(threshold);
+            recording.enable(RequestBodyEvent.class).withThreshold(threshold);
+            recording.start();
+            parsing.run();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("nturbo1."))
+                .toList();
+    }
+
+    private static ByteBuffer ascii(String s) { return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII)); }
+}
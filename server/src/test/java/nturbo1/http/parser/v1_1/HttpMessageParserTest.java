@@ -1,11 +1,17 @@
 package nturbo1.http.parser.v1_1;
 
+import nturbo1.http.HttpHeaders;
 import nturbo1.http.HttpMethod;
+import nturbo1.http.RequestBody;
 import nturbo1.http.exceptions.HttpMessageParseException;
 import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
 import nturbo1.log.CustomLogger;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -15,8 +21,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Stream;
 
 class HttpMessageParserTest
@@ -77,16 +86,16 @@ class HttpMessageParserTest
     @ParameterizedTest
     @MethodSource("validHttpMessageHeadersBytes")
     void givenValidHttpMessageHeaders_whenParsingHttpMessageHeaders_returnMapWithExpectedValues(TestParseHttpHeaders testHeaders)
-            throws InvalidHttpMessageHeaderException, IOException
+            throws InvalidHttpMessageHeaderException, HttpMessageParseException, IOException
     {
         log.info("Testing header bytes: " + new String(testHeaders.headersBytes));
         InputStream is = new ByteArrayInputStream(testHeaders.headersBytes);
-        Map<String, List<String>> parsedHeadersMap = HttpMessageParser.parseHttpMessageHeaders(is);
+        HttpHeaders parsedHeaders = HttpMessageParser.parseHttpMessageHeaders(is);
 
         for (String headerName : testHeaders.expectedParsedHeadersMap.keySet())
         {
-            List<String> headerValues = parsedHeadersMap.get(headerName);
-            Assertions.assertThat(headerValues).isNotNull();
+            Assertions.assertThat(parsedHeaders.contains(headerName)).isTrue();
+            List<String> headerValues = parsedHeaders.getAll(headerName);
 
             List<String> expectedHeaderValues = testHeaders.expectedParsedHeadersMap.get(headerName);
             for (int i = 0; i < expectedHeaderValues.size(); i++)
@@ -107,10 +116,133 @@ class HttpMessageParserTest
         Assertions.assertThatThrownBy(() -> HttpMessageParser.parseHttpMessageHeaders(is));
     }
 
+    @ParameterizedTest
+    @MethodSource("validHttpMessageHeadersBytes")
+    void givenValidHttpMessageHeadersInReadBuffer_whenParsingHttpMessageHeaders_returnMapWithExpectedValues(
+            TestParseHttpHeaders testHeaders) throws InvalidHttpMessageHeaderException, HttpMessageParseException,
+            IOException
+    {
+        // A tiny buffer makes the header lines span several fills
+        InputStream is = new ReadBuffer(new ByteArrayInputStream(testHeaders.headersBytes), 4);
+        HttpHeaders parsedHeaders = HttpMessageParser.parseHttpMessageHeaders(is);
+
+        for (String headerName : testHeaders.expectedParsedHeadersMap.keySet())
+        {
+            Assertions.assertThat(parsedHeaders.contains(headerName)).isTrue();
+            List<String> headerValues = parsedHeaders.getAll(headerName);
+
+            List<String> expectedHeaderValues = testHeaders.expectedParsedHeadersMap.get(headerName);
+            for (int i = 0; i < expectedHeaderValues.size(); i++)
+            {
+                Assertions.assertThat(headerValues.get(i)).isEqualTo(expectedHeaderValues.get(i));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidHttpMessageHeadersBytes")
+    void givenInvalidHttpHeadersInReadBuffer_whenParsingHttpMessageHeaders_thenThrowException(byte[] headersBytes)
+    {
+        InputStream is = new ReadBuffer(new ByteArrayInputStream(headersBytes), 4);
+        Assertions.assertThatThrownBy(() -> HttpMessageParser.parseHttpMessageHeaders(is));
+    }
+
     @Test
-    void givenTooManyHeaders_whenParsingHttpMessageHeaders_thenThrowException()
+    void givenChunkedBodyWithTrailer_whenReadingMessageBody_thenJoinChunksAndStopAtTheNextRequest() throws Exception
     {
-        // TODO: Read too many headers input from a file and test
+        InputStream is = new ReadBuffer(new ByteArrayInputStream(("5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\n" +
+                "X-Trailer: yes\r\n\r\nGET /next HTTP/1.1\r\n").getBytes(StandardCharsets.US_ASCII)), 4);
+
+        RequestBody body = HttpMessageParser.readMessageBody(is, headers("Transfer-Encoding", "chunked"),
+                BodyLimits.DEFAULT);
+
+        Assertions.assertThat(body.readAllBytes()).isEqualTo("hello, world".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertThat(new String(is.readAllBytes(), StandardCharsets.US_ASCII))
+                .isEqualTo("GET /next HTTP/1.1\r\n");
+    }
+
+    @Test
+    void givenBodyLargerThanSpoolThreshold_whenReadingMessageBody_thenSpoolItToATemporaryFile(@TempDir Path dir)
+            throws Exception
+    {
+        byte[] bytes = new byte[100_000];
+        new Random(1).nextBytes(bytes);
+        BodyLimits limits = new BodyLimits(bytes.length, 1024, dir);
+
+        try (RequestBody body = HttpMessageParser.readMessageBody(new ByteArrayInputStream(bytes),
+                headers("Content-Length", Integer.toString(bytes.length)), limits))
+        {
+            Assertions.assertThat(body.isSpooled()).isTrue();
+            Assertions.assertThat(body.getInputStream().readAllBytes()).isEqualTo(bytes);
+        }
+        try (Stream<Path> files = Files.list(dir))
+        {
+            Assertions.assertThat(files).isEmpty();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "content-length: 11", "transfer-encoding: chunked" })
+    void givenBodyLargerThanMaxBodySize_whenReadingMessageBody_thenThrowException(String header, @TempDir Path dir)
+    {
+        String[] headerKV = header.split(": ");
+        InputStream is = new ByteArrayInputStream("6\r\nhello \r\n5\r\nworld\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        BodyLimits limits = new BodyLimits(10, 0, dir);
+
+        Assertions.assertThatThrownBy(() ->
+                        HttpMessageParser.readMessageBody(is, headers(headerKV[0], headerKV[1]), limits))
+                .isInstanceOf(RequestEntityTooLargeException.class);
+        Assertions.assertThat(dir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void givenRepeatedListHeader_whenParsingHttpMessageHeaders_thenJoinTheLinesIntoOneList() throws Exception
+    {
+        InputStream is = new ByteArrayInputStream(("Accept: text/html\r\nHost: a\r\naccept: , application/json\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+
+        HttpHeaders headers = HttpMessageParser.parseHttpMessageHeaders(is);
+
+        Assertions.assertThat(headers.get("ACCEPT")).isEqualTo("text/html, , application/json");
+        Assertions.assertThat(headers.getAll("Accept")).isEqualTo(List.of("text/html", "application/json"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void givenTooManyHeaders_whenParsingHttpMessageHeaders_thenThrowException(boolean readBuffer)
+    {
+        // Short lines well within the line limit, but more of them than the head may take.
+        String headers = "X-Filler: 0123456789\r\n".repeat(HttpMessageParser.MAX_HEAD_SIZE / 20) + "\r\n";
+        InputStream raw = new ByteArrayInputStream(headers.getBytes(StandardCharsets.US_ASCII));
+        InputStream is = readBuffer ? new ReadBuffer(raw) : raw;
+
+        Assertions.assertThatThrownBy(() -> HttpMessageParser.parseHttpMessageHeaders(is))
+                .isInstanceOf(HttpMessageParseException.class)
+                .hasMessageContaining("head is larger");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void givenHeaderLineLongerThanTheLimit_whenParsingHttpMessageHeaders_thenThrowException(boolean readBuffer)
+    {
+        String headers = "X-Long: " + "a".repeat(Bytes.MAX_LINE_LENGTH) + "\r\n\r\n";
+        InputStream raw = new ByteArrayInputStream(headers.getBytes(StandardCharsets.US_ASCII));
+        InputStream is = readBuffer ? new ReadBuffer(raw) : raw;
+
+        Assertions.assertThatThrownBy(() -> HttpMessageParser.parseHttpMessageHeaders(is))
+                .isInstanceOf(HttpMessageParseException.class)
+                .hasMessageContaining("line is longer");
+    }
+
+    @Test
+    void givenLongestAllowedHeaderLine_whenParsingHttpMessageHeaders_thenAcceptIt() throws Exception
+    {
+        // The carriage return is one of the bytes before the line feed.
+        String value = "a".repeat(Bytes.MAX_LINE_LENGTH - "X-Long: ".length() - 1);
+        InputStream is = new ReadBuffer(new ByteArrayInputStream(("X-Long: " + value + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII)));
+
+        Assertions.assertThat(HttpMessageParser.parseHttpMessageHeaders(is).get("x-long")).isEqualTo(value);
     }
 
     static Stream<TestParseHttpHeaders> validHttpMessageHeadersBytes()
@@ -355,4 +487,11 @@ class HttpMessageParserTest
                 "garbage\r\nHost: example.com\r\n\r\n".getBytes(StandardCharsets.US_ASCII)
         );
     }
-}
\ No newline at end of file
+
+    private static HttpHeaders headers(String name, String value)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(name, value);
+        return headers;
+    }
+}
@@ -0,0 +1,144 @@
+package nturbo1.http.parser.v1_1;
+
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.RequestBody;
+import nturbo1.http.exceptions.RequestEntityTooLargeException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+class IncrementalHttpRequestParserTest
+{
+    private static final String CHUNKED_REQUEST =
+            "POST /upload HTTP/1.1\r\nHost: example.com\r\nTransfer-Encoding: chunked\r\n\r\n" +
+            "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\nX-Trailer: yes\r\n\r\n";
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 3, 7, 16, 1024 })
+    void givenRequestSplitIntoFragments_whenParsing_thenReturnTheSameRequestAsInOneGo(int fragmentSize) throws Exception
+    {
+        byte[] bytes = ("POST /form HTTP/1.1\r\nHost: example.com\r\nAccept: text/html, application/json\r\n" +
+                "Content-Length: 11\r\n\r\nhello world").getBytes(StandardCharsets.US_ASCII);
+
+        HttpRequest req = parseInFragments(bytes, fragmentSize);
+
+        Assertions.assertThat(req).isNotNull();
+        Assertions.assertThat(req.getMethod()).isEqualTo(HttpMethod.POST);
+        Assertions.assertThat(req.getHeaders().getAll("host")).isEqualTo(List.of("example.com"));
+        Assertions.assertThat(req.getHeaders().getAll("accept")).isEqualTo(List.of("text/html", "application/json"));
+        Assertions.assertThat(req.getRequestBody().readAllBytes()).isEqualTo("hello world".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 4, 9, 1024 })
+    void givenChunkedRequestSplitIntoFragments_whenParsing_thenJoinTheChunks(int fragmentSize) throws Exception
+    {
+        HttpRequest req = parseInFragments(CHUNKED_REQUEST.getBytes(StandardCharsets.US_ASCII), fragmentSize);
+
+        Assertions.assertThat(req).isNotNull();
+        Assertions.assertThat(req.getRequestBody().readAllBytes()).isEqualTo("hello, world".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void givenIncompleteRequest_whenParsing_thenReturnNullAndKeepTheState() throws Exception
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+
+        Assertions.assertThat(parser.parse(ascii("GET / HTTP/1.1\r\nHo"))).isNull();
+        Assertions.assertThat(parser.isIdle()).isFalse();
+        Assertions.assertThat(parser.parse(ascii("st: example.com\r\n"))).isNull();
+
+        HttpRequest req = parser.parse(ascii("\r\n"));
+        Assertions.assertThat(req).isNotNull();
+        Assertions.assertThat(req.getHeaders().getAll("host")).isEqualTo(List.of("example.com"));
+        Assertions.assertThat(parser.isIdle()).isTrue();
+    }
+
+    @Test
+    void givenPipelinedRequests_whenParsing_thenReturnThemOneByOne() throws Exception
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+        ByteBuffer buf = ascii("GET /a HTTP/1.1\r\nHost: a\r\n\r\n" + CHUNKED_REQUEST + "DELETE /c HTTP/1.1\r\nHost: c\r\n\r\n");
+
+        Assertions.assertThat(parser.parse(buf).getMethod()).isEqualTo(HttpMethod.GET);
+        Assertions.assertThat(parser.parse(buf).getMethod()).isEqualTo(HttpMethod.POST);
+        Assertions.assertThat(parser.parse(buf).getMethod()).isEqualTo(HttpMethod.DELETE);
+        Assertions.assertThat(buf.hasRemaining()).isFalse();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "GET / HTTP/1.1\r\nBad Header: value\r\n\r\n",
+            "GET / HTTP/1.1\r\nHeader: value\rmore\r\n\r\n",
+            "GET / HTTP/1.1\r\nHeader: value\u0000test\r\n\r\n",
+            "GET / HTTP/1.1\r\nHost: a\r\nHost: b\r\n\r\n",
+            "GET / HTTP/1.1\r\nContent-Length: 1\r\nTransfer-Encoding: chunked\r\n\r\n",
+            "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n",
+            "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nabc\r\n",
+            "GET / HTTP/1.0\r\n\r\n",
+            "FETCH / HTTP/1.1\r\n\r\n"
+    })
+    void givenInvalidRequest_whenParsing_thenThrowException(String request)
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+        Assertions.assertThatThrownBy(() -> parser.parse(ascii(request)));
+    }
+
+    @Test
+    void givenChunkedBodyLargerThanSpoolThreshold_whenParsing_thenSpoolItToATemporaryFile(@TempDir Path dir)
+            throws Exception
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser(new BodyLimits(1024, 4, dir));
+
+        HttpRequest req = parseInFragments(parser, CHUNKED_REQUEST.getBytes(StandardCharsets.US_ASCII), 3);
+
+        try (RequestBody body = req.getRequestBody())
+        {
+            Assertions.assertThat(body.isSpooled()).isTrue();
+            Assertions.assertThat(body.getInputStream().readAllBytes())
+                    .isEqualTo("hello, world".getBytes(StandardCharsets.US_ASCII));
+        }
+        Assertions.assertThat(dir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    void givenChunkedBodyLargerThanMaxBodySize_whenParsing_thenThrowExceptionAndDropTheSpoolOnReset(@TempDir Path dir)
+    {
+        IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser(new BodyLimits(8, 0, dir));
+
+        Assertions.assertThatThrownBy(() -> parser.parse(ascii(CHUNKED_REQUEST)))
+                .isInstanceOf(RequestEntityTooLargeException.class);
+        parser.reset();
+        Assertions.assertThat(dir.toFile().list()).isEmpty();
+    }
+
+    private static HttpRequest parseInFragments(byte[] bytes, int fragmentSize) throws Exception
+    {
+        return parseInFragments(new IncrementalHttpRequestParser(), bytes, fragmentSize);
+    }
+
+    private static HttpRequest parseInFragments(IncrementalHttpRequestParser parser, byte[] bytes, int fragmentSize)
+            throws Exception
+    {
+        HttpRequest req = null;
+        for (int offset = 0; offset < bytes.length; offset += fragmentSize)
+        {
+            Assertions.assertThat(req).isNull();
+            ByteBuffer fragment = ByteBuffer.wrap(bytes, offset, Math.min(fragmentSize, bytes.length - offset));
+            req = parser.parse(fragment);
+            Assertions.assertThat(fragment.hasRemaining()).isFalse();
+        }
+
+        return req;
+    }
+
+    private static ByteBuffer ascii(String s) { return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII)); }
+}
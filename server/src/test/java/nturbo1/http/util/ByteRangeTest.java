@@ -0,0 +1,45 @@
+package nturbo1.http.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+class ByteRangeTest
+{
+    private static final long SIZE = 1000;
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "bytes=0-499         | 0-499",
+            "bytes=500-          | 500-999",
+            "bytes=-200          | 800-999",
+            "bytes=-2000         | 0-999",
+            "bytes=900-1500      | 900-999",
+            "Bytes=0-0, 10-19    | 0-0;10-19",
+            "bytes=0-1,2000-,5-6 | 0-1;5-6",
+    })
+    void givenRangeHeader_whenParsing_thenReturnTheSatisfiableRanges(String value, String expected)
+    {
+        List<String> ranges = ByteRange.parse(value, SIZE).stream().map(r -> r.first() + "-" + r.last()).toList();
+
+        Assertions.assertThat(String.join(";", ranges)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "bytes=1000-", "bytes=-0", "bytes=1000-2000, 5000-" })
+    void givenNoSatisfiableRange_whenParsing_thenReturnEmptyList(String value)
+    {
+        Assertions.assertThat(ByteRange.parse(value, SIZE)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "items=0-1", "bytes=5-1", "bytes=a-b", "bytes=1", "bytes=--1", "bytes=+1-2",
+            "bytes=0-0,1-1,2-2,3-3,4-4,5-5,6-6,7-7,8-8,9-9,10-10,11-11,12-12,13-13,14-14,15-15,16-16" })
+    void givenMalformedOrTooManyRanges_whenParsing_thenReturnNullToServeTheWholeFile(String value)
+    {
+        Assertions.assertThat(ByteRange.parse(value, SIZE)).isNull();
+    }
+}
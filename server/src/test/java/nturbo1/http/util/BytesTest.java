@@ -0,0 +1,50 @@
+package nturbo1.http.util;
+
+import nturbo1.http.exceptions.InvalidHttpMessageHeaderException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+class BytesTest
+{
+    private static final String VALID_LINE = "X-Long-Header-Name: some value with spaces, commas; and = signs é";
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, '\t', 0x07, 0x13, 27, 127, '\r' })
+    void givenInvalidByteAnywhereInALongLine_whenValidating_thenThrowException(int invalid)
+    {
+        // Every position, so that the byte lands in the eight byte words, the last word and the tail.
+        IntStream.range(0, VALID_LINE.length()).forEach(position -> {
+            byte[] line = VALID_LINE.getBytes(StandardCharsets.ISO_8859_1);
+            line[position] = (byte) invalid;
+
+            Assertions.assertThatThrownBy(() -> Bytes.validateHttpMessageHeaderLine(line, 0, line.length))
+                    .isInstanceOf(InvalidHttpMessageHeaderException.class);
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Header-Name:  value", "H: v", "Header: a: b: c: d", "Header:           value", "a:b" })
+    void givenValidLine_whenValidating_thenAcceptItAtAnyOffset(String header) throws Exception
+    {
+        for (int offset = 0; offset < 8; offset++)
+        {
+            byte[] line = (" ".repeat(offset) + header).getBytes(StandardCharsets.ISO_8859_1);
+            Bytes.validateHttpMessageHeaderLine(line, offset, line.length);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Header-Name::value", "Header:        :value", "Header-Name: value and then ::",
+            "Header-Name: value and then :       :" })
+    void givenDoubleColon_whenValidating_thenThrowException(String header)
+    {
+        byte[] line = header.getBytes(StandardCharsets.ISO_8859_1);
+
+        Assertions.assertThatThrownBy(() -> Bytes.validateHttpMessageHeaderLine(line, 0, line.length))
+                .isInstanceOf(InvalidHttpMessageHeaderException.class);
+    }
+}
@@ -0,0 +1,46 @@
+package nturbo1.http.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+class DateHeaderClockTest
+{
+    private static final long RFC_EXAMPLE_MILLIS = 784_111_777_000L; // Sun, 06 Nov 1994 08:49:37 GMT
+
+    @Test
+    void givenTime_whenGettingDateHeaderLine_thenRenderItAsHttpDate()
+    {
+        DateHeaderClock clock = new DateHeaderClock(() -> RFC_EXAMPLE_MILLIS);
+
+        Assertions.assertThat(new String(clock.dateHeaderLine(), StandardCharsets.US_ASCII))
+                .isEqualTo("Date: Sun, 06 Nov 1994 08:49:37 GMT\r\n");
+    }
+
+    @Test
+    void givenSameSecond_whenGettingDateHeaderLine_thenReturnTheCachedBytes()
+    {
+        AtomicLong now = new AtomicLong(RFC_EXAMPLE_MILLIS);
+        DateHeaderClock clock = new DateHeaderClock(now::get);
+
+        byte[] first = clock.dateHeaderLine();
+        now.set(RFC_EXAMPLE_MILLIS + 999);
+
+        Assertions.assertThat(clock.dateHeaderLine()).isSameAs(first);
+    }
+
+    @Test
+    void givenNextSecond_whenGettingDateHeaderLine_thenRenderItAgain()
+    {
+        AtomicLong now = new AtomicLong(RFC_EXAMPLE_MILLIS);
+        DateHeaderClock clock = new DateHeaderClock(now::get);
+
+        clock.dateHeaderLine();
+        now.set(RFC_EXAMPLE_MILLIS + 1000);
+
+        Assertions.assertThat(new String(clock.dateHeaderLine(), StandardCharsets.US_ASCII))
+                .isEqualTo("Date: Sun, 06 Nov 1994 08:49:38 GMT\r\n");
+    }
+}
@@ -0,0 +1,29 @@
+package nturbo1.http.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class HttpDateTest
+{
+    private static final long RFC_EXAMPLE_MILLIS = 784_111_777_000L; // Sun, 06 Nov 1994 08:49:37 GMT
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Sun, 06 Nov 1994 08:49:37 GMT",
+            "Sunday, 06-Nov-94 08:49:37 GMT",
+            "Sun Nov  6 08:49:37 1994",
+            " Sun, 06 Nov 1994 08:49:37 GMT ",
+    })
+    void givenHttpDateInAnyForm_whenParsing_thenReturnItsTime(String value)
+    {
+        Assertions.assertThat(HttpDate.parse(value)).isEqualTo(RFC_EXAMPLE_MILLIS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "yesterday", "Mon, 06 Nov 1994 08:49:37 GMT", "Sun, 06 Nov 1994 08:49:37 CET" })
+    void givenInvalidHttpDate_whenParsing_thenReturnInvalid(String value)
+    {
+        Assertions.assertThat(HttpDate.parse(value)).isEqualTo(HttpDate.INVALID);
+    }
+}
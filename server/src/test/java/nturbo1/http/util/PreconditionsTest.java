@@ -0,0 +1,74 @@
+package nturbo1.http.util;
+
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpStatus;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+
+class PreconditionsTest
+{
+    private static final String ETAG = "\"abc-1\"";
+    private static final long LAST_MODIFIED = 784_111_777_500L; // Sun, 06 Nov 1994 08:49:37.500 GMT
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "\"abc-1\"                | true",
+            "\"x\", \"abc-1\"         | true",
+            "W/\"abc-1\"              | true",
+            "*                        | true",
+            "\"abc-12\"               | false",
+            "\"abc-1                  | false",
+            "\"a,b\", \"abc\"         | false",
+    })
+    void givenIfNoneMatch_whenMatchingWeakly_thenCompareOpaqueTags(String list, boolean expected)
+    {
+        Assertions.assertThat(Preconditions.matches(list, ETAG, true)).isEqualTo(expected);
+    }
+
+    @Test
+    void givenWeakTag_whenMatchingStrongly_thenDoNotMatch()
+    {
+        Assertions.assertThat(Preconditions.matches("W/\"abc-1\"", ETAG, false)).isFalse();
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "GET  | If-None-Match       | \"abc-1\"                     | NOT_MODIFIED",
+            "GET  | If-None-Match       | \"other\"                     | ",
+            "POST | If-None-Match       | *                             | PRECONDITION_FAILED",
+            "GET  | If-Modified-Since   | Sun, 06 Nov 1994 08:49:37 GMT | NOT_MODIFIED",
+            "GET  | If-Modified-Since   | Sun, 06 Nov 1994 08:49:36 GMT | ",
+            "GET  | If-Modified-Since   | not a date                    | ",
+            "GET  | If-Match            | \"other\"                     | PRECONDITION_FAILED",
+            "GET  | If-Match            | \"abc-1\"                     | ",
+            "GET  | If-Unmodified-Since | Sun, 06 Nov 1994 08:49:36 GMT | PRECONDITION_FAILED",
+            "GET  | If-Unmodified-Since | Sun, 06 Nov 1994 08:49:37 GMT | ",
+    })
+    void givenConditionalHeader_whenEvaluating_thenReturnTheStatusToAnswerWith(HttpMethod method, String name,
+                                                                             String value, HttpStatus expected)
+    {
+        Assertions.assertThat(Preconditions.evaluate(request(method, name, value), ETAG, LAST_MODIFIED))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    void givenIfNoneMatchThatDoesNotMatch_whenEvaluating_thenIgnoreIfModifiedSince()
+    {
+        HttpRequest req = request(HttpMethod.GET, "If-None-Match", "\"other\"");
+        req.getHeaders().add("If-Modified-Since", "Sun, 06 Nov 1994 08:49:37 GMT");
+
+        Assertions.assertThat(Preconditions.evaluate(req, ETAG, LAST_MODIFIED)).isNull();
+    }
+
+    private static HttpRequest request(HttpMethod method, String name, String value)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(name, value);
+        return new HttpRequest(method, headers, null, "/");
+    }
+}
@@ -0,0 +1,106 @@
+package nturbo1.log;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+class AsyncLogHandlerTest
+{
+    @Test
+    void givenManyThreadsLoggingIntoASmallBuffer_whenBlockPolicy_thenEveryRecordIsWrittenOnce() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(out, StandardCharsets.UTF_8, 16, OverflowPolicy.BLOCK);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            int thread = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 2000; i++) { handler.publish(record(Level.INFO, "message " + thread + "-" + i)); }
+            }));
+        }
+        for (Thread thread : threads) { thread.join(); }
+        handler.close();
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        Assertions.assertThat(lines).hasSize(8000).doesNotHaveDuplicates();
+        Assertions.assertThat(handler.getDroppedCount()).isZero();
+        // Each thread's records keep their order.
+        List<String> firstThread = lines.stream().filter(line -> line.contains("message 0-")).toList();
+        Assertions.assertThat(firstThread.get(0)).endsWith("message 0-0");
+        Assertions.assertThat(firstThread.get(1999)).endsWith("message 0-1999");
+    }
+
+    @Test
+    void givenFullBuffer_whenDropPolicy_thenRecordsAreDroppedAndReported() throws Exception
+    {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream stalled = new OutputStream()
+        {
+            @Override
+            public void write(int b) { written.write(b); }
+
+            @Override
+            public void write(byte[] b, int off, int len)
+            {
+                writing.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                written.write(b, off, len);
+            }
+        };
+        AsyncLogHandler handler = new AsyncLogHandler(stalled, StandardCharsets.UTF_8, 8, OverflowPolicy.DROP);
+
+        handler.publish(record(Level.INFO, "taken by the writer"));
+        writing.await();
+        for (int i = 0; i < 13; i++) { handler.publish(record(Level.INFO, "queued " + i)); }
+
+        Assertions.assertThat(handler.getDroppedCount()).isEqualTo(5);
+
+        release.countDown();
+        handler.close();
+        Assertions.assertThat(written.toString(StandardCharsets.UTF_8))
+                .contains("queued 7")
+                .doesNotContain("queued 8")
+                .contains("[WARN] nturbo1.log.AsyncLogHandler - 5 log messages were dropped");
+    }
+
+    @Test
+    void givenRecordBelowHandlerLevel_whenPublished_thenItIsNotWritten()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(out, StandardCharsets.UTF_8, 16, OverflowPolicy.DROP);
+        handler.setLevel(Level.INFO);
+
+        handler.publish(record(DebugLevel.DEBUG, "debug"));
+        handler.publish(record(Level.INFO, "info"));
+        handler.flush();
+
+        Assertions.assertThat(out.toString(StandardCharsets.UTF_8)).doesNotContain("debug").contains("[INFO] test - info");
+        handler.close();
+    }
+
+    private static LogRecord record(Level level, String message)
+    {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName("test");
+        return record;
+    }
+}
@@ -0,0 +1,286 @@
+package nturbo1.server;
+
+import nturbo1.cmd.Argument;
+import nturbo1.http.GeneralHeader;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.parser.v1_1.HttpMessageParser;
+import nturbo1.http.util.Bytes;
+import nturbo1.http.util.ReadBuffer;
+import nturbo1.server.router.Router;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the server on an ephemeral port with each transport and talks to it over a socket, like a client would.
+ */
+class HttpServerTest
+{
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+    private static final int LARGE_BODY_SIZE = 32 * 1024 * 1024;
+
+    private final CountDownLatch slowRequestArrived = new CountDownLatch(1);
+    private final CountDownLatch slowRequestReleased = new CountDownLatch(1);
+    private HttpServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        slowRequestReleased.countDown();
+        if (server != null) { server.stop(); }
+        if (serverThread != null) { serverThread.join(READ_TIMEOUT_MILLIS); }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenPipelinedRequests_whenSentInOneWrite_thenRespondInOrder(String transport) throws Exception
+    {
+        start(transport, Map.of());
+
+        // More than two batches of 16, so that the responses cross the batch boundaries.
+        int count = 40;
+        try (Socket socket = connect())
+        {
+            StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < count; i++)
+            {
+                requests.append("GET /echo/").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            }
+            socket.getOutputStream().write(requests.toString().getBytes(StandardCharsets.US_ASCII));
+
+            ReadBuffer in = new ReadBuffer(socket.getInputStream());
+            for (int i = 0; i < count; i++)
+            {
+                Response res = readResponse(in);
+                Assertions.assertThat(res.status()).isEqualTo(200);
+                Assertions.assertThat(res.body()).isEqualTo(Integer.toString(i));
+                Assertions.assertThat(res.headers().get(GeneralHeader.CONNECTION)).isNull();
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenConnectionClose_whenRequesting_thenRespondAndCloseTheConnection(String transport) throws Exception
+    {
+        start(transport, Map.of());
+
+        try (Socket socket = connect())
+        {
+            send(socket, "GET /echo/1 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n" +
+                    "GET /echo/2 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            ReadBuffer in = new ReadBuffer(socket.getInputStream());
+            Response res = readResponse(in);
+            Assertions.assertThat(res.body()).isEqualTo("1");
+            Assertions.assertThat(res.headers().get(GeneralHeader.CONNECTION)).isEqualTo("close");
+            Assertions.assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenMaxKeepAliveRequests_whenReached_thenCloseAfterTheLastResponse(String transport) throws Exception
+    {
+        start(transport, Map.of(Argument.MAX_KEEP_ALIVE_REQUESTS, "3"));
+
+        try (Socket socket = connect())
+        {
+            ReadBuffer in = new ReadBuffer(socket.getInputStream());
+            for (int i = 1; i <= 3; i++)
+            {
+                send(socket, "GET /echo/" + i + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                Response res = readResponse(in);
+                Assertions.assertThat(res.body()).isEqualTo(Integer.toString(i));
+                Assertions.assertThat(res.headers().get(GeneralHeader.CONNECTION)).isEqualTo(i < 3 ? null : "close");
+            }
+            Assertions.assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenIdleConnection_whenKeepAliveTimeoutPasses_thenCloseIt(String transport) throws Exception
+    {
+        start(transport, Map.of(Argument.KEEP_ALIVE_TIMEOUT, "1"));
+
+        try (Socket socket = connect())
+        {
+            ReadBuffer in = new ReadBuffer(socket.getInputStream());
+            send(socket, "GET /echo/1 HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assertions.assertThat(readResponse(in).body()).isEqualTo("1");
+
+            long start = System.nanoTime();
+            Assertions.assertThat(in.read()).isEqualTo(-1);
+            Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .isGreaterThanOrEqualTo(900);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenHalfSentRequest_whenKeepAliveTimeoutPasses_thenCloseTheConnection(String transport) throws Exception
+    {
+        start(transport, Map.of(Argument.KEEP_ALIVE_TIMEOUT, "1"));
+
+        try (Socket socket = connect())
+        {
+            send(socket, "GET /echo/1 HTTP/1.1\r\nHost: loc");
+
+            // Whatever the server answers, if anything, the connection has to end rather than wait for the rest.
+            InputStream in = socket.getInputStream();
+            while (in.read() != -1) { }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenClientThatStopsReading_whenKeepAliveTimeoutPasses_thenCloseTheConnection(String transport)
+            throws Exception
+    {
+        start(transport, Map.of(Argument.KEEP_ALIVE_TIMEOUT, "1"));
+
+        try (Socket socket = new Socket())
+        {
+            socket.setReceiveBufferSize(4 * 1024);
+            socket.connect(new InetSocketAddress("localhost", server.getPort()));
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            send(socket, "GET /large HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Thread.sleep(3000);
+
+            // What the socket buffers took before the server gave up, and then the end of the stream.
+            long received = 0;
+            byte[] buf = new byte[64 * 1024];
+            try
+            {
+                InputStream in = socket.getInputStream();
+                for (int n; (n = in.read(buf)) != -1; ) { received += n; }
+            }
+            catch (SocketException e)
+            {
+                // reset by the server
+            }
+            Assertions.assertThat(received).isLessThan(LARGE_BODY_SIZE);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "blocking", "nio" })
+    void givenRequestInProgress_whenStopping_thenFinishItAndRefuseNewConnections(String transport) throws Exception
+    {
+        start(transport, Map.of(Argument.DRAIN_TIMEOUT, "5"));
+
+        try (Socket socket = connect())
+        {
+            send(socket, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Assertions.assertThat(slowRequestArrived.await(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+
+            Thread stopper = Thread.ofPlatform().start(server::stop);
+            Thread.sleep(200); // let the server stop listening before the handler finishes
+            slowRequestReleased.countDown();
+
+            ReadBuffer in = new ReadBuffer(socket.getInputStream());
+            Response res = readResponse(in);
+            Assertions.assertThat(res.status()).isEqualTo(200);
+            Assertions.assertThat(res.body()).isEqualTo("slow");
+            Assertions.assertThat(res.headers().get(GeneralHeader.CONNECTION)).isEqualTo("close");
+            Assertions.assertThat(in.read()).isEqualTo(-1);
+
+            stopper.join(READ_TIMEOUT_MILLIS);
+            Assertions.assertThat(stopper.isAlive()).isFalse();
+        }
+        Assertions.assertThatThrownBy(this::connect).isInstanceOf(ConnectException.class);
+    }
+
+    private void start(String transport, Map<String, String> extraArgs) throws InterruptedException
+    {
+        Map<String, String> args = new HashMap<>(extraArgs);
+        args.put(Argument.PORT, "0");
+        args.put(Argument.TRANSPORT, transport);
+        Router.Builder routes = Router.builder()
+                .get("/echo/{n}", req -> text(req.getPathParameters().get("n")))
+                .get("/large", req -> new HttpResponse(HttpStatus.OK, null, null, new byte[LARGE_BODY_SIZE]))
+                .get("/slow", req -> {
+                    slowRequestArrived.countDown();
+                    try
+                    {
+                        slowRequestReleased.await(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    return text("slow");
+                });
+
+        server = HttpServer.init(args, routes);
+        Assertions.assertThat(server).isNotNull();
+        serverThread = Thread.ofPlatform().name("test-server").daemon().start(server::start);
+        waitUntilAccepting();
+    }
+
+    private void waitUntilAccepting() throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + READ_TIMEOUT_MILLIS;
+        while (true)
+        {
+            try (Socket ignored = connect())
+            {
+                return;
+            }
+            catch (IOException e)
+            {
+                if (System.currentTimeMillis() > deadline) { throw new AssertionError("The server didn't start", e); }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private Socket connect() throws IOException
+    {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+
+        return socket;
+    }
+
+    private static void send(Socket socket, String data) throws IOException
+    {
+        socket.getOutputStream().write(data.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+
+    private static HttpResponse text(String body)
+    {
+        return new HttpResponse(HttpStatus.OK, null, null, body.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private record Response(int status, HttpHeaders headers, String body) {}
+
+    private static Response readResponse(ReadBuffer in) throws Exception
+    {
+        String statusLine = new String(Bytes.readLine(in), StandardCharsets.US_ASCII);
+        Assertions.assertThat(statusLine).startsWith("HTTP/1.1 ");
+        int status = Integer.parseInt(statusLine.substring(9, 12));
+        HttpHeaders headers = HttpMessageParser.parseHttpMessageHeaders(in);
+        byte[] body = in.readNBytes((int) headers.getContentLength());
+
+        return new Response(status, headers, new String(body, StandardCharsets.US_ASCII));
+    }
+}
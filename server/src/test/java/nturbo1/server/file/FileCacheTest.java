@@ -0,0 +1,238 @@
+package nturbo1.server.file;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class FileCacheTest
+{
+    @TempDir
+    Path root;
+
+    private FileCache cache;
+
+    private static final byte[] HEADER_LINES = "Content-Type: text/plain\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @BeforeEach
+    void setUp() throws IOException { cache = new FileCache(root, 64 * 1024); }
+
+    @AfterEach
+    void tearDown() throws IOException { cache.close(); }
+
+    @Test
+    void givenLoadedFile_whenGet_thenReturnItsContentAndCountHit() throws IOException
+    {
+        Path file = write("a.txt", "hello");
+
+        Assertions.assertThat(cache.get("a.txt")).isNull();
+        load("a.txt", file);
+        FileCache.Entry entry = cache.get("a.txt");
+
+        Assertions.assertThat(entry).isNotNull();
+        Assertions.assertThat(entry.headerLines()).isEqualTo(HEADER_LINES);
+        Assertions.assertThat(content(entry.body())).isEqualTo("hello");
+        Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+        Assertions.assertThat(cache.getSizeBytes()).isEqualTo(5);
+    }
+
+    @Test
+    void givenFileLargerThanMaxEntry_whenLoading_thenDoNotCacheIt() throws IOException
+    {
+        Path file = write("big.bin", "x".repeat(64 * 1024));
+
+        Assertions.assertThat(cache.accepts(Files.size(file))).isFalse();
+        Assertions.assertThat(load("big.bin", file)).isNull();
+        Assertions.assertThat(cache.getSizeBytes()).isZero();
+    }
+
+    @Test
+    void givenInvalidatedFile_whenGet_thenMiss() throws IOException
+    {
+        Path file = write("a.txt", "hello");
+        load("a.txt", file);
+        load("", file);
+
+        cache.invalidate(file.toRealPath());
+
+        Assertions.assertThat(cache.get("a.txt")).isNull();
+        Assertions.assertThat(cache.get("")).isNull();
+        Assertions.assertThat(cache.getSizeBytes()).isZero();
+    }
+
+    @Test
+    void givenCachedFile_whenFileIsModified_thenEntryIsDropped() throws IOException, InterruptedException
+    {
+        Path file = write("a.txt", "hello");
+        load("a.txt", file);
+
+        Files.writeString(file, "changed");
+
+        awaitMiss("a.txt");
+    }
+
+    @Test
+    void givenFileLoadedOverSymbolicLink_whenLinkIsRepointed_thenMiss() throws IOException
+    {
+        Files.createDirectory(root.resolve("v1"));
+        Files.createDirectory(root.resolve("v2"));
+        Path file = write("v1/a.txt", "one");
+        write("v2/a.txt", "two");
+        Path link = Files.createSymbolicLink(root.resolve("current"), Path.of("v1"));
+        load("current/a.txt", file, link.resolve("a.txt"));
+        Assertions.assertThat(cache.get("current/a.txt")).isNotNull();
+
+        // The link is in a directory the cache doesn't watch.
+        Files.delete(link);
+        Files.createSymbolicLink(link, Path.of("v2"));
+
+        Assertions.assertThat(cache.get("current/a.txt")).isNull();
+        Assertions.assertThat(cache.getSizeBytes()).isZero();
+        Assertions.assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenCachedFile_whenItsDirectoryIsRenamed_thenEntryIsDropped() throws IOException, InterruptedException
+    {
+        Files.createDirectory(root.resolve("site"));
+        load("site/a.txt", write("site/a.txt", "hello"));
+
+        Files.move(root.resolve("site"), root.resolve("site.old"));
+
+        awaitMiss("site/a.txt");
+        Assertions.assertThat(cache.getSizeBytes()).isZero();
+    }
+
+    @Test
+    void givenCachedFile_whenItsDirectoryIsSwappedOut_thenEntryIsDroppedAndNewDirectoryIsWatched()
+            throws IOException, InterruptedException
+    {
+        Files.createDirectory(root.resolve("site"));
+        Files.createDirectory(root.resolve("site.new"));
+        load("site/a.txt", write("site/a.txt", "old content"));
+        write("site.new/a.txt", "new content");
+
+        Files.move(root.resolve("site"), root.resolve("site.old"));
+        Files.move(root.resolve("site.new"), root.resolve("site"));
+
+        awaitMiss("site/a.txt");
+        // The events of the second move may still drop what is loaded right after the first, until they are all in.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cache.get("site/a.txt") == null && System.currentTimeMillis() < deadline)
+        {
+            load("site/a.txt", root.resolve("site/a.txt"));
+            Thread.sleep(50);
+        }
+        Assertions.assertThat(content(cache.get("site/a.txt").body())).isEqualTo("new content");
+
+        Files.writeString(root.resolve("site/a.txt"), "newer content");
+        awaitMiss("site/a.txt");
+    }
+
+    @Test
+    void givenManyFiles_whenLoading_thenStayWithinCapacityAndEvict() throws IOException
+    {
+        // All written before the first load watches the directory, so that no late event drops an entry instead.
+        for (int i = 0; i < 40; i++) { write("f" + i, "x".repeat(4 * 1024)); }
+        for (int i = 0; i < 40; i++) { load("f" + i, root.resolve("f" + i)); }
+
+        Assertions.assertThat(cache.getSizeBytes()).isLessThanOrEqualTo(cache.getCapacityBytes());
+        Assertions.assertThat(cache.getEvictionCount()).isPositive();
+    }
+
+    @Test
+    void givenFrequentlyRequestedFile_whenScanOfOneOffFiles_thenKeepIt() throws IOException
+    {
+        Path hot = write("hot", "x".repeat(4 * 1024));
+        cache.get("hot");
+        load("hot", hot);
+        for (int i = 0; i < 10; i++) { cache.get("hot"); }
+
+        for (int i = 0; i < 100; i++)
+        {
+            String key = "cold" + i;
+            cache.get(key);
+            load(key, write(key, "y".repeat(4 * 1024)));
+        }
+
+        Assertions.assertThat(cache.get("hot")).isNotNull();
+    }
+
+    @Test
+    void givenConcurrentLookups_whenOneOffFilesAreLoaded_thenCountEveryHitAndKeepTheHotFile() throws Exception
+    {
+        Path hot = write("hot", "x".repeat(4 * 1024));
+        load("hot", hot);
+        for (int i = 0; i < 10; i++) { cache.get("hot"); }
+        int threads = 8;
+        int lookups = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> readers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads))
+        {
+            for (int t = 0; t < threads; t++)
+            {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < lookups; i++) { Assertions.assertThat(cache.get("hot")).isNotNull(); }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < 100; i++)
+            {
+                String key = "cold" + i;
+                cache.get(key);
+                load(key, write(key, "y".repeat(4 * 1024)));
+            }
+            for (Future<?> reader : readers) { reader.get(); }
+        }
+
+        Assertions.assertThat(cache.getHitCount()).isEqualTo((long) threads * lookups + 10);
+        Assertions.assertThat(cache.get("hot")).isNotNull();
+        Assertions.assertThat(cache.getSizeBytes()).isLessThanOrEqualTo(cache.getCapacityBytes());
+    }
+
+    private void awaitMiss(String key) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cache.get(key) != null && System.currentTimeMillis() < deadline) { Thread.sleep(10); }
+        Assertions.assertThat(cache.get(key)).isNull();
+    }
+
+    private Path write(String name, String content) throws IOException
+    {
+        return Files.writeString(root.resolve(name), content);
+    }
+
+    private FileCache.Entry load(String key, Path file) throws IOException { return load(key, file, null); }
+
+    private FileCache.Entry load(String key, Path file, Path link) throws IOException
+    {
+        Path realFile = file.toRealPath();
+        return cache.load(key, realFile, link, Files.readAttributes(realFile, BasicFileAttributes.class), "\"1\"",
+                HEADER_LINES, HEADER_LINES);
+    }
+
+    private static String content(ByteBuffer body)
+    {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
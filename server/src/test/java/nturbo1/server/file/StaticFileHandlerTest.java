@@ -0,0 +1,436 @@
+package nturbo1.server.file;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpHeaders;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpResponseHeader;
+import nturbo1.http.HttpStatus;
+import nturbo1.server.BufferPool;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+class StaticFileHandlerTest
+{
+    @TempDir
+    Path tempDir;
+
+    private Path root;
+    private StaticFileHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException
+    {
+        root = Files.createDirectory(tempDir.resolve("www"));
+        Files.writeString(root.resolve("index.html"), "<h1>home</h1>");
+        Files.createDirectory(root.resolve("css"));
+        Files.writeString(root.resolve("css").resolve("site.css"), "body {}");
+        Files.writeString(tempDir.resolve("secret.txt"), "secret");
+        handler = new StaticFileHandler(root);
+    }
+
+    @Test
+    void givenExistingFile_whenGet_thenRespondWithFileRegionAndEntityHeaders() throws IOException
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/css/site.css"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_TYPE)).isEqualTo("text/css; charset=utf-8");
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_LENGTH)).isEqualTo("7");
+        Assertions.assertThat(header(res, HttpEntityHeader.LAST_MODIFIED)).endsWith(" GMT");
+        Assertions.assertThat(readBody(res)).isEqualTo("body {}");
+    }
+
+    @Test
+    void givenExistingFile_whenHead_thenRespondWithHeadersOnly()
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.HEAD, "/index.html"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_LENGTH)).isEqualTo("13");
+        Assertions.assertThat(res.getBody()).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "/", "/index.html?v=1", "/%69ndex.html", "http://example.com/index.html" })
+    void givenPathOfIndexFile_whenGet_thenRespondWithIndexFile(String uri) throws IOException
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.GET, uri));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(readBody(res)).isEqualTo("<h1>home</h1>");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "/missing.html", "/css/", "/../secret.txt", "/%2e%2e/secret.txt", "/css/../../secret.txt" })
+    void givenPathOfNoFileUnderRoot_whenGet_thenRespondWithNotFound(String uri)
+    {
+        Assertions.assertThat(handler.handle(request(HttpMethod.GET, uri)).getStatus())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenSymbolicLinkOutOfRoot_whenGet_thenRespondWithNotFound() throws IOException
+    {
+        Files.createSymbolicLink(root.resolve("leak.txt"), tempDir.resolve("secret.txt"));
+
+        Assertions.assertThat(handler.handle(request(HttpMethod.GET, "/leak.txt")).getStatus())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenOtherMethod_whenHandling_thenRespondWithMethodNotAllowed()
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.POST, "/index.html"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.METHOD_NOT_ALLOWED);
+        Assertions.assertThat(header(res, HttpEntityHeader.ALLOW)).isEqualTo("GET, HEAD");
+    }
+
+    @Test
+    void givenFileCache_whenGetTwice_thenServeSecondFromMemory() throws IOException
+    {
+        try (FileCache cache = new FileCache(root, 1024 * 1024))
+        {
+            StaticFileHandler cachingHandler = new StaticFileHandler(root, cache);
+            Assertions.assertThat(readBody(cachingHandler.handle(request(HttpMethod.GET, "/css/site.css"))))
+                    .isEqualTo("body {}");
+
+            HttpResponse res = cachingHandler.handle(request(HttpMethod.GET, "/css/site.css"));
+
+            Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+            Assertions.assertThat(new String(res.getEncodedHeaderLines(), StandardCharsets.US_ASCII))
+                    .contains("Content-Type: text/css; charset=utf-8\r\n");
+            Assertions.assertThat(StandardCharsets.UTF_8.decode((ByteBuffer) res.getBody()).toString())
+                    .isEqualTo("body {}");
+        }
+    }
+
+    @Test
+    void givenFileCache_whenSymbolicLinkIsRepointed_thenServeTheNewTarget() throws IOException
+    {
+        Files.createDirectory(root.resolve("v1"));
+        Files.createDirectory(root.resolve("v2"));
+        Files.writeString(root.resolve("v1").resolve("app.js"), "one");
+        Files.writeString(root.resolve("v2").resolve("app.js"), "two");
+        Path current = Files.createSymbolicLink(root.resolve("current"), Path.of("v1"));
+        try (FileCache cache = new FileCache(root, 1024 * 1024))
+        {
+            StaticFileHandler cachingHandler = new StaticFileHandler(root, cache);
+            Assertions.assertThat(readBody(cachingHandler.handle(request(HttpMethod.GET, "/current/app.js"))))
+                    .isEqualTo("one");
+            Assertions.assertThat(readBody(cachingHandler.handle(request(HttpMethod.GET, "/current/app.js"))))
+                    .isEqualTo("one");
+
+            Files.delete(current);
+            Files.createSymbolicLink(current, Path.of("v2"));
+
+            Assertions.assertThat(readBody(cachingHandler.handle(request(HttpMethod.GET, "/current/app.js"))))
+                    .isEqualTo("two");
+            Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void givenMatchingIfNoneMatch_whenGet_thenRespondWithNotModifiedWithoutBody()
+    {
+        String etag = header(handler.handle(request(HttpMethod.HEAD, "/index.html")), HttpResponseHeader.ETAG);
+
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/index.html", "If-None-Match", "\"x\", " + etag));
+
+        Assertions.assertThat(etag).matches("\"[0-9a-f-]+\"");
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        Assertions.assertThat(header(res, HttpResponseHeader.ETAG)).isEqualTo(etag);
+        Assertions.assertThat(res.getBody()).isNull();
+    }
+
+    @Test
+    void givenIfModifiedSinceAfterLastModification_whenGet_thenRespondWithNotModified() throws IOException
+    {
+        Files.setLastModifiedTime(root.resolve("index.html"), FileTime.fromMillis(784_111_777_000L));
+
+        HttpResponse res = handler.handle(
+                request(HttpMethod.GET, "/index.html", "If-Modified-Since", "Sun, 06 Nov 1994 08:49:37 GMT"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void givenFileModifiedAfterIfUnmodifiedSince_whenGet_thenRespondWithPreconditionFailed()
+    {
+        HttpResponse res = handler.handle(
+                request(HttpMethod.GET, "/index.html", "If-Unmodified-Since", "Sun, 06 Nov 1994 08:49:37 GMT"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void givenFileCache_whenRevalidatingCachedFile_thenRespondWithNotModifiedFromMemory() throws IOException
+    {
+        try (FileCache cache = new FileCache(root, 1024 * 1024))
+        {
+            StaticFileHandler cachingHandler = new StaticFileHandler(root, cache);
+            HttpResponse first = cachingHandler.handle(request(HttpMethod.GET, "/css/site.css"));
+            String etag = cache.get("css/site.css").etag();
+
+            HttpResponse res = cachingHandler.handle(request(HttpMethod.GET, "/css/site.css", "If-None-Match", etag));
+
+            Assertions.assertThat(new String(first.getEncodedHeaderLines(), StandardCharsets.US_ASCII))
+                    .contains("ETag: " + etag + "\r\n");
+            Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            Assertions.assertThat(new String(res.getEncodedHeaderLines(), StandardCharsets.US_ASCII))
+                    .startsWith("ETag: " + etag + "\r\nLast-Modified: ")
+                    .doesNotContain("Content-Type");
+            Assertions.assertThat(res.getBody()).isNull();
+        }
+    }
+
+    @Test
+    void givenSingleRange_whenGet_thenRespondWithPartialContentOfThatRange() throws IOException
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/index.html", "Range", "bytes=1-2"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_RANGE)).isEqualTo("bytes 1-2/13");
+        Assertions.assertThat(readBody(res)).isEqualTo("h1");
+    }
+
+    @Test
+    void givenUnsatisfiableRange_whenGet_thenRespondWithRangeNotSatisfiable()
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/index.html", "Range", "bytes=13-"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_RANGE)).isEqualTo("bytes */13");
+    }
+
+    @Test
+    void givenIfRangeOfOtherVersion_whenGet_thenRespondWithWholeFile() throws IOException
+    {
+        HttpRequest req = request(HttpMethod.GET, "/index.html", "Range", "bytes=1-2");
+        req.getHeaders().add("If-Range", "\"stale\"");
+
+        HttpResponse res = handler.handle(req);
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(readBody(res)).isEqualTo("<h1>home</h1>");
+    }
+
+    @Test
+    void givenSeveralRanges_whenGet_thenRespondWithMultipartByteranges() throws IOException
+    {
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/index.html", "Range", "bytes=0-0,-3"));
+
+        String contentType = header(res, HttpEntityHeader.CONTENT_TYPE);
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        Assertions.assertThat(contentType).startsWith("multipart/byteranges; boundary=");
+        String partType = "Content-Type: text/html; charset=utf-8\r\n";
+        Assertions.assertThat(readBody(res)).isEqualTo(
+                "\r\n--" + boundary + "\r\n" + partType + "Content-Range: bytes 0-0/13\r\n\r\n<" +
+                "\r\n--" + boundary + "\r\n" + partType + "Content-Range: bytes 10-12/13\r\n\r\nh1>" +
+                "\r\n--" + boundary + "--\r\n");
+    }
+
+    @Test
+    void givenFileCache_whenRangeOfCachedFile_thenRespondWithSliceFromMemory() throws IOException
+    {
+        try (FileCache cache = new FileCache(root, 1024 * 1024))
+        {
+            StaticFileHandler cachingHandler = new StaticFileHandler(root, cache);
+            cachingHandler.handle(request(HttpMethod.GET, "/index.html"));
+
+            HttpResponse res = cachingHandler.handle(request(HttpMethod.GET, "/index.html", "Range", "bytes=4-7"));
+
+            Assertions.assertThat(cache.getHitCount()).isEqualTo(1);
+            Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+            Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_RANGE)).isEqualTo("bytes 4-7/13");
+            Assertions.assertThat(readBody(res)).isEqualTo("home");
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "gzip, gzip", "deflate, deflate" })
+    void givenCompressionCache_whenGetTextFileAcceptingCoding_thenRespondWithCompressedVariant(
+            String acceptEncoding, String coding) throws IOException
+    {
+        String text = "<p>compress me</p>\n".repeat(100);
+        Files.writeString(root.resolve("page.html"), text);
+        CompressionCache compressionCache = new CompressionCache(1024 * 1024);
+        StaticFileHandler compressingHandler = new StaticFileHandler(root, null, compressionCache);
+
+        compressingHandler.handle(request(HttpMethod.GET, "/page.html", "Accept-Encoding", acceptEncoding));
+        HttpResponse res = compressingHandler.handle(
+                request(HttpMethod.GET, "/page.html", "Accept-Encoding", acceptEncoding));
+
+        String headerLines = new String(res.getEncodedHeaderLines(), StandardCharsets.US_ASCII);
+        Assertions.assertThat(headerLines).contains("Content-Encoding: " + coding + "\r\n")
+                .contains("Vary: Accept-Encoding\r\n")
+                .contains("-" + coding + "\"\r\n");
+        ByteBuffer body = ((ByteBuffer) res.getBody()).duplicate();
+        Assertions.assertThat(body.remaining()).isLessThan(text.length());
+        byte[] compressed = new byte[body.remaining()];
+        body.get(compressed);
+        Assertions.assertThat(decompress(compressed, coding)).isEqualTo(text);
+    }
+
+    @Test
+    void givenNoCompressionCache_whenGetTextFileAcceptingGzip_thenStreamGzipInChunks() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) { text.append(i).append(i % 16 == 0 ? '\n' : ' '); }
+        Files.writeString(root.resolve("numbers.txt"), text);
+
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/numbers.txt", "Accept-Encoding", "gzip"));
+
+        Assertions.assertThat(header(res, "Transfer-Encoding")).isEqualTo("chunked");
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_LENGTH)).isNull();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompressingFileBody body = (CompressingFileBody) res.getBody())
+        {
+            while (!body.isComplete()) { body.writeTo(Channels.newChannel(out), BufferPool.shared()); }
+        }
+        Assertions.assertThat(decompress(dechunk(out.toByteArray()), "gzip")).isEqualTo(text.toString());
+    }
+
+    @Test
+    void givenPrecompressedSibling_whenGetAcceptingGzip_thenSendTheSiblingAsItIs() throws IOException
+    {
+        String text = "console.log('hello');\n".repeat(50);
+        Files.writeString(root.resolve("app.js"), text);
+        try (GZIPOutputStream gz = new GZIPOutputStream(Files.newOutputStream(root.resolve("app.js.gz"))))
+        {
+            gz.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/app.js", "Accept-Encoding", "gzip"));
+
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_TYPE)).startsWith("text/javascript");
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_ENCODING)).isEqualTo("gzip");
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_LENGTH))
+                .isEqualTo(Long.toString(Files.size(root.resolve("app.js.gz"))));
+        Assertions.assertThat(decompress(readBytes(res), "gzip")).isEqualTo(text);
+    }
+
+    @Test
+    void givenCompressibleFile_whenGetWithoutAcceptEncoding_thenSendItAsItIsWithVary() throws IOException
+    {
+        String text = "body { margin: 0; }\n".repeat(50);
+        Files.writeString(root.resolve("css").resolve("big.css"), text);
+
+        HttpResponse res = handler.handle(request(HttpMethod.GET, "/css/big.css"));
+
+        Assertions.assertThat(header(res, HttpEntityHeader.CONTENT_ENCODING)).isNull();
+        Assertions.assertThat(header(res, HttpResponseHeader.VARY)).isEqualTo("Accept-Encoding");
+        Assertions.assertThat(readBody(res)).isEqualTo(text);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "/a/b.txt, a/b.txt",
+            "/a%20b.txt?x=1#top, a b.txt",
+            "/caf%C3%A9, café",
+            "http://host, ''",
+            "http://host/a, a",
+    })
+    void givenRequestUri_whenDecodingPath_thenReturnThePathWithoutLeadingSlash(String uri, String expected)
+    {
+        Assertions.assertThat(StaticFileHandler.decodePath(uri)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "*", "a/b", "/a%2", "/a%zz", "/a%00b" })
+    void givenInvalidRequestUri_whenDecodingPath_thenReturnNull(String uri)
+    {
+        Assertions.assertThat(StaticFileHandler.decodePath(uri)).isNull();
+    }
+
+    private static HttpRequest request(HttpMethod method, String uri) { return new HttpRequest(method, null, null, uri); }
+
+    private static HttpRequest request(HttpMethod method, String uri, String headerName, String headerValue)
+    {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(headerName, headerValue);
+        return new HttpRequest(method, headers, null, uri);
+    }
+
+    private static String header(HttpResponse res, HttpEntityHeader header) { return header(res, header.getName()); }
+
+    private static String header(HttpResponse res, HttpResponseHeader header) { return header(res, header.getName()); }
+
+    private static String header(HttpResponse res, String name)
+    {
+        List<String> values = res.getHeaders().get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    private static String readBody(HttpResponse res) throws IOException
+    {
+        return new String(readBytes(res), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(HttpResponse res) throws IOException
+    {
+        List<?> parts = res.getBody() instanceof List<?> list ? list : List.of(res.getBody());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object part : parts)
+        {
+            if (part instanceof ByteBuffer buf)
+            {
+                Channels.newChannel(out).write(buf.duplicate());
+                continue;
+            }
+            try (FileRegion region = (FileRegion) part)
+            {
+                while (region.remaining() > 0) { region.transferTo(Channels.newChannel(out)); }
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private static String decompress(byte[] compressed, String coding) throws IOException
+    {
+        InputStream in = new ByteArrayInputStream(compressed);
+        try (InputStream decompressing = coding.equals("gzip") ? new GZIPInputStream(in) : new InflaterInputStream(in))
+        {
+            return new String(decompressing.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] dechunk(byte[] chunked)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pos = 0;
+        while (true)
+        {
+            int lineEnd = new String(chunked, pos, chunked.length - pos, StandardCharsets.US_ASCII).indexOf("\r\n");
+            int size = Integer.parseInt(new String(chunked, pos, lineEnd, StandardCharsets.US_ASCII), 16);
+            pos += lineEnd + 2;
+            if (size == 0) { return out.toByteArray(); }
+            out.write(chunked, pos, size);
+            pos += size + 2;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package nturbo1.server.metrics;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.exceptions.HttpMessageParseException;
+import nturbo1.http.exceptions.UnsupportedHttpVersionException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+class MetricsHandlerTest
+{
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final MetricsHandler handler = new MetricsHandler(metrics, null, null);
+
+    @Test
+    void givenRecordedTraffic_whenFormatting_thenWriteCountersInPrometheusFormat()
+    {
+        metrics.connectionOpened();
+        metrics.connectionOpened();
+        metrics.connectionClosed();
+        metrics.requestReceived(HttpMethod.GET);
+        metrics.requestReceived(HttpMethod.GET);
+        metrics.requestReceived(HttpMethod.POST);
+        metrics.responseQueued(HttpStatus.OK);
+        metrics.responseQueued(HttpStatus.NOT_FOUND);
+        metrics.responseQueued(HttpStatus.BAD_REQUEST);
+        metrics.bytesReceived(100);
+        metrics.bytesSent(2048);
+        metrics.parseFailed(new HttpMessageParseException("bad"));
+        metrics.parseFailed(new UnsupportedHttpVersionException(2.0f));
+        metrics.parseFailed(new IllegalStateException("odd"));
+
+        String text = handler.format();
+
+        Assertions.assertThat(text).contains(
+                "# TYPE jwebserver_connections_accepted_total counter\njwebserver_connections_accepted_total 2\n",
+                "# TYPE jwebserver_connections_active gauge\njwebserver_connections_active 1\n",
+                "jwebserver_requests_total{method=\"GET\"} 2\n",
+                "jwebserver_requests_total{method=\"POST\"} 1\n",
+                "jwebserver_requests_total{method=\"DELETE\"} 0\n",
+                "jwebserver_responses_total{class=\"2xx\"} 1\n",
+                "jwebserver_responses_total{class=\"4xx\"} 2\n",
+                "jwebserver_received_bytes_total 100\n",
+                "jwebserver_sent_bytes_total 2048\n",
+                "jwebserver_parse_failures_total{exception=\"HttpMessageParseException\"} 1\n",
+                "jwebserver_parse_failures_total{exception=\"UnsupportedHttpVersionException\"} 1\n",
+                "jwebserver_parse_failures_total{exception=\"BadHttpRequestHeaderException\"} 0\n",
+                "jwebserver_parse_failures_total{exception=\"IllegalStateException\"} 1\n");
+        Assertions.assertThat(text).doesNotContain("file_cache");
+    }
+
+    @Test
+    void givenDurations_whenFormatting_thenWriteCumulativeBuckets()
+    {
+        metrics.requestHandled(TimeUnit.MICROSECONDS.toNanos(200));
+        metrics.requestHandled(TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.requestHandled(TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.requestHandled(TimeUnit.SECONDS.toNanos(20));
+
+        String text = handler.format();
+
+        Assertions.assertThat(text).contains(
+                "# TYPE jwebserver_request_duration_seconds histogram\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"5.0E-4\"} 1\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"0.001\"} 2\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"0.025\"} 2\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"0.05\"} 3\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"10.0\"} 3\n",
+                "jwebserver_request_duration_seconds_bucket{le=\"+Inf\"} 4\n",
+                "jwebserver_request_duration_seconds_sum 20.0312\n",
+                "jwebserver_request_duration_seconds_count 4\n");
+    }
+
+    @Test
+    void givenHeadRequest_whenHandling_thenRespondWithLengthButNoBody()
+    {
+        HttpResponse get = handler.handle(new HttpRequest(HttpMethod.GET, null, null, "/metrics"));
+        HttpResponse head = handler.handle(new HttpRequest(HttpMethod.HEAD, null, null, "/metrics"));
+
+        byte[] body = (byte[]) get.getBody();
+        Assertions.assertThat(get.getHeaders().get(HttpEntityHeader.CONTENT_TYPE.getName()))
+                .containsExactly(MetricsHandler.CONTENT_TYPE);
+        Assertions.assertThat(new String(body, StandardCharsets.UTF_8)).startsWith("# HELP ");
+        Assertions.assertThat(head.getBody()).isNull();
+        Assertions.assertThat(head.getHeaders().get(HttpEntityHeader.CONTENT_LENGTH.getName()))
+                .containsExactly(Integer.toString(body.length));
+    }
+}
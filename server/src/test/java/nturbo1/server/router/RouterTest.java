@@ -0,0 +1,196 @@
+package nturbo1.server.router;
+
+import nturbo1.http.HttpEntityHeader;
+import nturbo1.http.HttpMethod;
+import nturbo1.http.HttpRequest;
+import nturbo1.http.HttpResponse;
+import nturbo1.http.HttpStatus;
+import nturbo1.http.PathParameters;
+import nturbo1.server.AsyncHttpHandler;
+import nturbo1.server.HttpHandler;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+class RouterTest
+{
+    private final Router router = Router.builder()
+            .get("/", named("root"))
+            .get("/users", named("users"))
+            .post("/users", named("createUser"))
+            .get("/users/me", named("me"))
+            .get("/users/{id}", named("user"))
+            .delete("/users/{id}", named("deleteUser"))
+            .get("/users/{id}/posts/{post}", named("post"))
+            .get("/api/v1/status", named("status"))
+            .get("/api/v1/health/", named("health"))
+            .get("/assets/*", named("assets"))
+            .get("/docs/{page}", named("page"))
+            .get("/docs/*", named("docs"))
+            .build();
+
+    @ParameterizedTest
+    @CsvSource({
+            "/, root",
+            "/users, users",
+            "/users/me, me",
+            "/users/42, user",
+            "/users/42/posts/7, post",
+            "/api/v1/status, status",
+            "/api/v1/health/, health",
+            "/assets/css/site.css, assets",
+            "/assets/, assets",
+            "/docs/intro, page",
+            "/docs/intro/more, docs",
+            "/users/./42/../me, me",
+    })
+    void givenMatchingPath_whenHandling_thenDispatchToRouteHandler(String uri, String expected)
+    {
+        Assertions.assertThat(body(router.handle(request(HttpMethod.GET, uri)))).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "/missing", "/users/", "/users/42/posts", "/api/v1", "/api/v1/status/x", "/api/v2/status",
+            "/assets", "/api/v1/health", "*" })
+    void givenPathWithoutRoute_whenHandling_thenRespondNotFound(String uri)
+    {
+        Assertions.assertThat(router.handle(request(HttpMethod.GET, uri)).getStatus())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void givenParameters_whenHandling_thenHandlerSeesTheirDecodedValues()
+    {
+        HttpRequest req = request(HttpMethod.GET, "/users/j%C3%B6rg/posts/hello%20world");
+
+        router.handle(req);
+
+        Assertions.assertThat(req.getPathParameter("id")).isEqualTo("jörg");
+        Assertions.assertThat(req.getPathParameter("post")).isEqualTo("hello world");
+        Assertions.assertThat(req.getPathParameter("missing")).isNull();
+        Assertions.assertThat(req.getPathParameters().size()).isEqualTo(2);
+    }
+
+    @Test
+    void givenWildcard_whenHandling_thenItCapturesTheRestOfThePath()
+    {
+        HttpRequest req = request(HttpMethod.GET, "/assets/css/site.css");
+
+        router.handle(req);
+
+        Assertions.assertThat(req.getPathParameter(PathParameters.WILDCARD)).isEqualTo("css/site.css");
+    }
+
+    @Test
+    void givenStaticRoute_whenHandling_thenNoPathParametersAreSet()
+    {
+        HttpRequest req = request(HttpMethod.GET, "/users/me");
+
+        router.handle(req);
+
+        Assertions.assertThat(req.getPathParameters()).isNull();
+    }
+
+    @Test
+    void givenPathWithOtherMethods_whenHandling_thenRespondMethodNotAllowedWithAllow()
+    {
+        HttpResponse res = router.handle(request(HttpMethod.PUT, "/users/42"));
+
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.METHOD_NOT_ALLOWED);
+        Assertions.assertThat(res.getHeaders().get(HttpEntityHeader.ALLOW.getName()))
+                .containsExactly("GET, HEAD, DELETE");
+    }
+
+    @Test
+    void givenHeadWithoutHeadRoute_whenHandling_thenUseGetHandler()
+    {
+        Assertions.assertThat(body(router.handle(request(HttpMethod.HEAD, "/users")))).isEqualTo("users");
+        Assertions.assertThat(router.handle(request(HttpMethod.POST, "/users/me")).getStatus())
+                .isEqualTo(HttpStatus.METHOD_NOT_ALLOWED);
+    }
+
+    @Test
+    void givenFallback_whenNoRouteMatches_thenFallbackHandlesRequest()
+    {
+        Router withFallback = Router.builder().get("/a", named("a")).build(named("fallback"));
+
+        Assertions.assertThat(body(withFallback.handle(request(HttpMethod.GET, "/b")))).isEqualTo("fallback");
+        Assertions.assertThat(body(withFallback.handle(request(HttpMethod.GET, "/a")))).isEqualTo("a");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "users", "/a/*/b", "/a/{id", "/a/x{id}", "/a/{id}/{id}", "/a/{*}", "/users/{name}",
+            "/users" })
+    void givenInvalidOrConflictingPattern_whenRegistering_thenThrowException(String pattern)
+    {
+        Router.Builder builder = Router.builder().get("/users", named("users")).get("/users/{id}", named("user"));
+
+        Assertions.assertThatThrownBy(() -> builder.get(pattern, named("x")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenManyRoutes_whenHandling_thenEachIsFound()
+    {
+        Router.Builder builder = Router.builder();
+        for (int i = 0; i < 300; i++)
+        {
+            builder.get("/r" + i, named("r" + i));
+            builder.get("/r" + i + "/{id}/items", named("items" + i));
+        }
+        Router many = builder.build();
+
+        for (int i = 0; i < 300; i++)
+        {
+            Assertions.assertThat(body(many.handle(request(HttpMethod.GET, "/r" + i)))).isEqualTo("r" + i);
+            Assertions.assertThat(body(many.handle(request(HttpMethod.GET, "/r" + i + "/5/items"))))
+                    .isEqualTo("items" + i);
+        }
+    }
+
+    @Test
+    void givenAsyncRoute_whenHandlingAsync_thenReturnItsPendingStage()
+    {
+        CompletableFuture<HttpResponse> pending = new CompletableFuture<>();
+        Router async = Router.builder()
+                .routeAsync(HttpMethod.GET, "/slow/{id}", req -> pending)
+                .get("/fast", named("fast"))
+                .build();
+        HttpRequest req = request(HttpMethod.GET, "/slow/7");
+
+        Assertions.assertThat(async.handleAsync(req)).isSameAs(pending);
+        Assertions.assertThat(req.getPathParameter("id")).isEqualTo("7");
+        Assertions.assertThat(async.handleAsync(request(HttpMethod.GET, "/fast")).toCompletableFuture())
+                .isCompletedWithValueMatching(res -> body(res).equals("fast"));
+    }
+
+    @Test
+    void givenAsyncRoute_whenHandlingSynchronously_thenWaitForTheResponse()
+    {
+        AsyncHttpHandler later = req -> CompletableFuture.supplyAsync(() -> named("later").handle(req));
+        Router async = Router.builder().routeAsync(HttpMethod.GET, "/later", later).build();
+
+        Assertions.assertThat(body(async.handle(request(HttpMethod.GET, "/later")))).isEqualTo("later");
+    }
+
+    private static HttpHandler named(String name)
+    {
+        return req -> new HttpResponse(HttpStatus.OK, req.getMethod(), null, name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpRequest request(HttpMethod method, String uri)
+    {
+        return new HttpRequest(method, null, null, uri);
+    }
+
+    private static String body(HttpResponse res)
+    {
+        Assertions.assertThat(res.getStatus()).isEqualTo(HttpStatus.OK);
+        return new String((byte[]) res.getBody(), StandardCharsets.UTF_8);
+    }
+}